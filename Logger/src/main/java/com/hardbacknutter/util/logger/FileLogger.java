@@ -33,7 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -41,9 +41,24 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.hardbacknutter.util.logger.Logger.concat;
 
+/**
+ * Logs to a file.
+ * <p>
+ * The callers never block on file IO: messages are put in a bounded queue,
+ * and a single background thread writes them to a file which is kept open.
+ * When the queue is full, the oldest messages are dropped.
+ * The file is flushed when idle, or when enough data is pending,
+ * and is rotated (see {@link #cycleLogs()}) when it reaches {@link #setMaxFileSize(long)}.
+ * <p>
+ * Anyone reading the log file directly should call {@link #flush()} first.
+ */
 @SuppressWarnings({"WeakerAccess", "Unused"})
 public class FileLogger
         implements Logger {
@@ -58,6 +73,25 @@ public class FileLogger
     private static final String DEBUG = "DEBUG";
     private static final String ERROR_SOURCE_MISSING = "Source does not exist: ";
     private static final String ERROR_FAILED_TO_RENAME = "Failed to rename: ";
+
+    /** Maximum number of messages waiting to be written. */
+    private static final int QUEUE_CAPACITY = 1024;
+    /** Flush when the writer is idle for this long. */
+    private static final long FLUSH_INTERVAL_MS = 1_000;
+    /** Flush when this many characters are pending. */
+    private static final int FLUSH_SIZE = 8 * 1024;
+    /** Rotate the logfile when it reaches this size. */
+    private static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+
+    /** Messages waiting to be written. */
+    @NonNull
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    /** Number of messages dropped since the last write because the queue was full. */
+    @NonNull
+    private final AtomicInteger dropped = new AtomicInteger();
+    /** Guards the {@link #writer} and the logfile itself. */
+    @NonNull
+    private final Object writerLock = new Object();
     @NonNull
     private final File logDir;
     @NonNull
@@ -66,6 +100,18 @@ public class FileLogger
     private final String logFilename;
 
     private int copies = DEFAULT_LOGFILE_COPIES;
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+    /** The background writer; started with the first message. */
+    @Nullable
+    private volatile Thread writerThread;
+    /** The open logfile; {@code null} when closed. Guarded by {@link #writerLock}. */
+    @Nullable
+    private Writer writer;
+    /** The (approximate) size of the logfile. Guarded by {@link #writerLock}. */
+    private long fileSize;
+    /** Characters written since the last flush. Guarded by {@link #writerLock}. */
+    private int pendingSize;
 
     /**
      * Constructor.
@@ -127,9 +173,21 @@ public class FileLogger
         this.copies = copies;
     }
 
+    /**
+     * Set the size at which the logfile is rotated.
+     * <p>
+     * Defaults to {@link #DEFAULT_MAX_FILE_SIZE}.
+     *
+     * @param maxFileSize in bytes
+     */
+    public void setMaxFileSize(final long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
     @NonNull
     public String getErrorLog()
             throws IOException {
+        flush();
         return String.join("\n", Files.readAllLines(
                 Paths.get(logDir.getAbsolutePath(), logFilename), StandardCharsets.UTF_8));
     }
@@ -139,28 +197,44 @@ public class FileLogger
         return logDir;
     }
 
+    /**
+     * Write all pending messages to the logfile, and close it.
+     * It will be reopened for the next message, so the caller can safely
+     * read, move or delete the file.
+     * Runs on the caller thread.
+     */
+    public void flush() {
+        synchronized (writerLock) {
+            drainQueue();
+            closeWriter();
+        }
+    }
+
     public void cycleLogs() {
-        //noinspection CheckStyle,OverlyBroadCatchBlock
-        try {
-            final File logFile = new File(logDir, logFilename);
-            if (logFile.exists()) {
-                if (logFile.length() > 0) {
-                    final File backup = new File(logFile.getPath() + ".bak");
-                    // Move/rename the previous/original file
-                    makeBackup(backup);
-                    // and write the new copy.
-                    try (FileInputStream fis = new FileInputStream(logFile);
-                         FileOutputStream fos = new FileOutputStream(backup);
-                         FileChannel inChannel = fis.getChannel();
-                         FileChannel outChannel = fos.getChannel()) {
-                        inChannel.transferTo(0, inChannel.size(), outChannel);
+        synchronized (writerLock) {
+            closeWriter();
+            //noinspection CheckStyle,OverlyBroadCatchBlock
+            try {
+                final File logFile = new File(logDir, logFilename);
+                if (logFile.exists()) {
+                    if (logFile.length() > 0) {
+                        final File backup = new File(logFile.getPath() + ".bak");
+                        // Move/rename the previous/original file
+                        makeBackup(backup);
+                        // and write the new copy.
+                        try (FileInputStream fis = new FileInputStream(logFile);
+                             FileOutputStream fos = new FileOutputStream(backup);
+                             FileChannel inChannel = fis.getChannel();
+                             FileChannel outChannel = fos.getChannel()) {
+                            inChannel.transferTo(0, inChannel.size(), outChannel);
+                        }
                     }
+                    //noinspection ResultOfMethodCallIgnored
+                    logFile.delete();
                 }
-                //noinspection ResultOfMethodCallIgnored
-                logFile.delete();
+            } catch (@NonNull final Exception ignore) {
+                // do nothing - we can't log an error in the logger
             }
-        } catch (@NonNull final Exception ignore) {
-            // do nothing - we can't log an error in the logger
         }
     }
 
@@ -277,7 +351,8 @@ public class FileLogger
     }
 
     /**
-     * This is an expensive call... file open+close... BOOOO!
+     * Queue a message for writing. Never blocks; when the queue is full,
+     * the oldest message is dropped.
      *
      * @param tag     log tag
      * @param type    warn,error,...
@@ -291,16 +366,131 @@ public class FileLogger
                                             .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
                                + '|' + tag + '|' + type + '|' + message;
 
+        while (!queue.offer(fullMsg)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        if (writerThread == null) {
+            startWriter();
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writerThread == null) {
+            writerThread = new Thread(this::runWriter, TAG);
+            writerThread.setDaemon(true);
+            writerThread.setPriority(Thread.MIN_PRIORITY);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * The background writer loop.
+     */
+    private void runWriter() {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            try {
+                final String line = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                synchronized (writerLock) {
+                    if (line == null) {
+                        // idle
+                        flushWriter();
+                    } else {
+                        write(line);
+                        drainQueue();
+                        if (pendingSize >= FLUSH_SIZE) {
+                            flushWriter();
+                        }
+                    }
+                }
+            } catch (@NonNull final InterruptedException ignore) {
+                // ignore; we're a daemon thread and simply die with the process
+            }
+        }
+    }
+
+    /**
+     * Write all queued messages. Must be called while holding the {@link #writerLock}.
+     */
+    private void drainQueue() {
+        String line;
+        while ((line = queue.poll()) != null) {
+            write(line);
+        }
+    }
+
+    /**
+     * Write a single message. Must be called while holding the {@link #writerLock}.
+     *
+     * @param line to write
+     */
+    private void write(@NonNull final String line) {
         //noinspection OverlyBroadCatchBlock,CheckStyle
         try {
-            final File logFile = new File(logDir, logFilename);
-            try (FileOutputStream fos = new FileOutputStream(logFile, true);
-                 OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-                 PrintWriter out = new PrintWriter(new BufferedWriter(osw))) {
-                out.println(fullMsg);
+            if (writer == null) {
+                final File logFile = new File(logDir, logFilename);
+                fileSize = logFile.length();
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+            }
+
+            final int count = dropped.getAndSet(0);
+            if (count > 0) {
+                append(LocalDateTime.now(ZoneOffset.UTC)
+                                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                       + '|' + TAG + '|' + WARN + '|' + count + " messages dropped");
+            }
+            append(line);
+
+            if (fileSize >= maxFileSize) {
+                // cycleLogs will close the writer, which flushes it.
+                cycleLogs();
             }
         } catch (@NonNull final Exception ignore) {
             // do nothing - we can't log an error in the logger
         }
     }
+
+    private void append(@NonNull final String line)
+            throws IOException {
+        //noinspection DataFlowIssue
+        writer.write(line);
+        writer.write('\n');
+        // Approximation; we're counting characters, not bytes.
+        fileSize += line.length() + 1;
+        pendingSize += line.length() + 1;
+    }
+
+    /**
+     * Flush the writer if there is pending data.
+     * Must be called while holding the {@link #writerLock}.
+     */
+    private void flushWriter() {
+        if (writer != null && pendingSize > 0) {
+            try {
+                writer.flush();
+            } catch (@NonNull final IOException ignore) {
+                // do nothing - we can't log an error in the logger
+            }
+            pendingSize = 0;
+        }
+    }
+
+    /**
+     * Close the writer. Must be called while holding the {@link #writerLock}.
+     */
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (@NonNull final IOException ignore) {
+                // do nothing - we can't log an error in the logger
+            }
+            writer = null;
+            pendingSize = 0;
+        }
+    }
 }
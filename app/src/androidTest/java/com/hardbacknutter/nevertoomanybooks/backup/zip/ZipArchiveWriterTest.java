@@ -28,7 +28,9 @@ import java.io.File;
 import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import com.hardbacknutter.nevertoomanybooks.BaseDBTest;
 import com.hardbacknutter.nevertoomanybooks.DbPrep;
@@ -39,12 +41,18 @@ import com.hardbacknutter.nevertoomanybooks.backup.ImportHelper;
 import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
 import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
+import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveMetaData;
 import com.hardbacknutter.nevertoomanybooks.io.DataReader;
 import com.hardbacknutter.nevertoomanybooks.io.DataReaderException;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriterException;
+import com.hardbacknutter.nevertoomanybooks.io.RecordEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.RecordType;
 import com.hardbacknutter.nevertoomanybooks.utils.AppLocale;
 
@@ -54,6 +62,7 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @MediumTest
 @SuppressWarnings("MissingJavadoc")
@@ -111,11 +120,155 @@ public class ZipArchiveWriterTest
 
         final long exportCount = exportResults.getBookCount();
 
-        read(uri, exportCount);
+        read(uri, exportCount, ZipArchiveWriter.VERSION);
+    }
+
+    @Test
+    public void writeBinary()
+            throws DataReaderException, DataWriterException,
+                   IOException, StorageException, CredentialsException, CertificateException {
+        final File file = new File(context.getFilesDir(), TAG + "-bin.zip");
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+
+        final Uri uri = Uri.fromFile(file);
+
+        final ExportHelper exportHelper = new ExportHelper(ArchiveEncoding.Zip,
+                                                           EnumSet.of(RecordType.Books),
+                                                           systemLocale);
+        exportHelper.setBooksEncoding(RecordEncoding.Binary);
+        exportHelper.setUri(uri);
+
+        final ExportResults exportResults = exportHelper.write(
+                context, new TestProgressListener(TAG + ":exportBinary"));
+
+        assertEquals(bookInDb, exportResults.getBookCount());
+        assertEquals(0, exportResults.getCoverCount());
+
+        read(uri, exportResults.getBookCount(), ZipArchiveWriter.VERSION_BINARY_BOOKS);
+    }
+
+    /**
+     * Two books sharing one cover: only one copy is written to the archive,
+     * the other must be restored from it, even when the cover hash index is empty
+     * as it would be on a fresh install.
+     */
+    @Test
+    public void writeSharedCover()
+            throws DataReaderException, DataWriterException,
+                   IOException, StorageException, CredentialsException, CertificateException {
+        final File file = new File(context.getFilesDir(), TAG + "-covers.zip");
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+
+        final Uri uri = Uri.fromFile(file);
+
+        final List<String> uuids = serviceLocator.getBookDao().getBookUuidList();
+        final File coverDir = serviceLocator.getCoverStorage().getDir();
+        final File source = new DbPrep().getFile(0);
+        final File cover1 = new File(coverDir, uuids.get(0) + ".jpg");
+        final File cover2 = new File(coverDir, uuids.get(1) + ".jpg");
+        FileUtils.copy(source, cover1);
+        FileUtils.copy(source, cover2);
+        final String hash = FileUtils.getSha256(source);
+
+        final ExportHelper exportHelper = new ExportHelper(ArchiveEncoding.Zip,
+                                                           EnumSet.of(RecordType.Books,
+                                                                      RecordType.Cover),
+                                                           systemLocale);
+        exportHelper.setUri(uri);
+        final ExportResults exportResults = exportHelper.write(
+                context, new TestProgressListener(TAG + ":exportCovers"));
+
+        final List<String> coverFileNames = exportResults.getCoverFileNames();
+        assertTrue(coverFileNames.contains(cover1.getName()));
+        assertTrue(coverFileNames.contains(cover2.getName()));
+
+        // Wipe all covers and their hashes.
+        final CoverHashDao coverHashDao = serviceLocator.getCoverHashDao();
+        for (final String filename : coverFileNames) {
+            FileUtils.delete(new File(coverDir, filename));
+            coverHashDao.delete(filename);
+        }
+        assertFalse(cover1.exists());
+        assertFalse(cover2.exists());
+
+        final ImportHelper importHelper = new ImportHelper(context, systemLocale, uri);
+        importHelper.addRecordType(RecordType.Cover);
+        final ImportResults importResults = importHelper.read(
+                context, new TestProgressListener(TAG + ":importCovers"));
+        assertNotNull(importResults);
+        assertEquals(0, importResults.coversFailed);
+
+        assertTrue(cover1.exists());
+        assertTrue(cover2.exists());
+        assertEquals(hash, FileUtils.getSha256(cover1));
+        assertEquals(hash, FileUtils.getSha256(cover2));
+    }
+
+    /**
+     * Write a full backup, change a book, write a differential backup;
+     * then restore the chain. The differential backup on its own is imported as a merge.
+     */
+    @Test
+    public void writeDifferential()
+            throws DataReaderException, DataWriterException, DaoWriteException,
+                   IOException, StorageException, CredentialsException, CertificateException {
+        final File baseFile = new File(context.getFilesDir(), TAG + "-base.zip");
+        final File deltaFile = new File(context.getFilesDir(), TAG + "-delta.zip");
+        //noinspection ResultOfMethodCallIgnored
+        baseFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        deltaFile.delete();
+        final Uri baseUri = Uri.fromFile(baseFile);
+        final Uri deltaUri = Uri.fromFile(deltaFile);
+
+        final ExportHelper baseHelper = new ExportHelper(ArchiveEncoding.Zip,
+                                                         EnumSet.of(RecordType.Books),
+                                                         systemLocale);
+        baseHelper.setUri(baseUri);
+        final ExportResults baseResults = baseHelper.write(
+                context, new TestProgressListener(TAG + ":exportBase"));
+        assertEquals(bookInDb, baseResults.getBookCount());
+
+        final BookDao bookDao = serviceLocator.getBookDao();
+        final Book book = Book.from(bookDao.getBookIdByUuid(bookDao.getBookUuidList().get(0)));
+        book.putString(DBKey.TITLE, book.getTitle() + " [delta]");
+        bookDao.update(context, book, Set.of());
+
+        final ExportHelper deltaHelper = new ExportHelper(ArchiveEncoding.Zip,
+                                                          EnumSet.of(RecordType.Books),
+                                                          systemLocale);
+        deltaHelper.setIncremental(true);
+        deltaHelper.setUri(deltaUri);
+        final ExportResults deltaResults = deltaHelper.write(
+                context, new TestProgressListener(TAG + ":exportDelta"));
+        assertEquals(1, deltaResults.getBookCount());
+
+        // The delta on its own is merged; it only holds the changed book.
+        final ImportHelper deltaOnly = new ImportHelper(context, systemLocale, deltaUri);
+        final ArchiveMetaData deltaMetaData = deltaOnly.readMetaData(context).orElse(null);
+        assertNotNull(deltaMetaData);
+        assertTrue(deltaMetaData.getBaseArchiveHash().isPresent());
+        final ImportResults deltaOnlyResults = deltaOnly.read(
+                context, new TestProgressListener(TAG + ":importDeltaOnly"));
+        assertNotNull(deltaOnlyResults);
+        assertEquals(1, deltaOnlyResults.booksProcessed);
+        assertEquals(0, deltaOnlyResults.booksFailed);
+
+        // The chain is only accepted if the delta references the hash of the base.
+        final ImportHelper chain = new ImportHelper(context, systemLocale, baseUri);
+        chain.setDeltaUris(List.of(deltaUri));
+        final ImportResults importResults = chain.read(
+                context, new TestProgressListener(TAG + ":importChain"));
+        assertNotNull(importResults);
+        assertEquals(bookInDb + 1, importResults.booksProcessed);
+        assertEquals(0, importResults.booksFailed);
     }
 
     private void read(@NonNull final Uri uri,
-                      final long expectedNrOfBooks)
+                      final long expectedNrOfBooks,
+                      final int expectedVersion)
             throws DataReaderException, IOException,
                    StorageException, CredentialsException, CertificateException {
 
@@ -127,6 +280,7 @@ public class ZipArchiveWriterTest
 
         final ArchiveMetaData archiveMetaData = importHelper.readMetaData(context).orElse(null);
         assertNotNull(archiveMetaData);
+        assertEquals(expectedVersion, archiveMetaData.getArchiveVersion());
         assertEquals(bookInDb, (long) archiveMetaData.getBookCount().orElse(-1));
         assertEquals(-1, (long) archiveMetaData.getCoverCount().orElse(-1));
 
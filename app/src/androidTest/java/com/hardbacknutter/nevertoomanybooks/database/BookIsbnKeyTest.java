@@ -0,0 +1,119 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
+import androidx.test.filters.MediumTest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ISBN index is maintained by triggers; an ISBN-10 and its ISBN-13 must match.
+ */
+@MediumTest
+@SuppressWarnings("MissingJavadoc")
+public class BookIsbnKeyTest
+        extends BaseSetup {
+
+    private static final String ISBN_10 = "0-306-40615-2";
+    private static final String ISBN_13 = "9780306406157";
+    private static final String ISBN_979 = "9791032305690";
+    private static final String GENERIC = "1234-abc";
+
+    @Test
+    public void lookup()
+            throws DaoWriteException, StorageException {
+        final BookDao bookDao = serviceLocator.getBookDao();
+
+        final long id0 = insert(bookDao, 0, ISBN_10);
+        final long id1 = insert(bookDao, 1, ISBN_979);
+        final long id2 = insert(bookDao, 2, GENERIC);
+
+        // single lookups
+        assertTrue(containsBook(bookDao.getBookIdAndTitleByIsbn(new ISBN(ISBN_13, true)), id0));
+        assertTrue(containsBook(bookDao.getBookIdAndTitleByIsbn(new ISBN(ISBN_10, true)), id0));
+        assertTrue(containsBook(bookDao.getBookIdAndTitleByIsbn(new ISBN(ISBN_979, true)), id1));
+        assertTrue(containsBook(bookDao.getBookIdAndTitleByIsbn(new ISBN(GENERIC, false)), id2));
+        assertTrue(bookDao.bookExistsByIsbn(ISBN_13));
+        assertTrue(bookDao.bookExistsByIsbn("1234ABC"));
+
+        // bulk lookup
+        final ISBN isbn13 = new ISBN(ISBN_13, true);
+        final ISBN isbn979 = new ISBN(ISBN_979, true);
+        final ISBN generic = new ISBN(GENERIC, false);
+        final ISBN unknown = new ISBN("9780000000002", true);
+        final Map<ISBN, List<Pair<Long, String>>> found =
+                bookDao.getBookIdAndTitleByIsbn(List.of(isbn13, isbn979, generic, unknown));
+        assertTrue(containsBook(found.get(isbn13), id0));
+        assertTrue(containsBook(found.get(isbn979), id1));
+        assertTrue(containsBook(found.get(generic), id2));
+        assertNull(found.get(unknown));
+
+        // changing the ISBN updates the index
+        final Book book = Book.from(id0);
+        book.putString(DBKey.BOOK_ISBN, "9780000000002");
+        bookDao.update(context, book, Set.of());
+        assertFalse(containsBook(bookDao.getBookIdAndTitleByIsbn(isbn13), id0));
+        assertTrue(containsBook(bookDao.getBookIdAndTitleByIsbn(unknown), id0));
+
+        // deleting the book removes it from the index
+        assertTrue(bookDao.delete(book));
+        try (SynchronizedStatement stmt = serviceLocator.getDb().compileStatement(
+                "SELECT COUNT(*) FROM " + DBDefinitions.TBL_BOOK_ISBN_KEYS.getName()
+                + " WHERE " + DBKey.FK_BOOK + "=?")) {
+            stmt.bindLong(1, id0);
+            assertEquals(0, stmt.simpleQueryForLongOrZero());
+        }
+    }
+
+    private long insert(@NonNull final BookDao bookDao,
+                        final int bookIdx,
+                        @NonNull final String isbn)
+            throws DaoWriteException, StorageException {
+        initBook(bookIdx);
+        setBookBookshelves(bookIdx, 0);
+        settBookAuthors(bookIdx, 0);
+        bookArray[bookIdx].putString(DBKey.BOOK_ISBN, isbn);
+        return bookDao.insert(context, bookArray[bookIdx], Set.of());
+    }
+
+    private boolean containsBook(@Nullable final List<Pair<Long, String>> list,
+                                 final long bookId) {
+        return list != null && list.stream().anyMatch(pair -> pair.first == bookId);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.datamanager;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.Domain;
+import com.hardbacknutter.nevertoomanybooks.database.DBDefinitions;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated to load all columns of the books table into a {@link Book},
+ * as an import does for each book, compared to loading the same values
+ * into the {@link Bundle} which the {@link DataManager} used before the {@link FieldStore}.
+ * <p>
+ * This runs on a device, as only there the real {@link Bundle} is available.
+ * The allocations are counted for the whole process, so the lowest of a few rounds is used.
+ * The {@link Book} object itself is only counted on one side, which favours the Bundle.
+ */
+public class FieldStoreBenchmarkTest {
+
+    private static final String TAG = "FieldStoreBenchmark";
+
+    private static final int BOOKS = 2_000;
+    private static final int ROUNDS = 3;
+
+    private static final List<Domain> DOMAINS = DBDefinitions.TBL_BOOKS.getDomains();
+    /** Created up front, so the Strings are not part of the measurement. */
+    private static final String[] VALUES = new String[DOMAINS.size()];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = "value " + i;
+        }
+    }
+
+    private static long allocatedBytes() {
+        final String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    private static int loadBook(final int book) {
+        final Book data = new Book();
+        for (int i = 0; i < DOMAINS.size(); i++) {
+            final String key = DOMAINS.get(i).getName();
+            switch (DOMAINS.get(i).getSqLiteDataType()) {
+                case Integer:
+                    data.putLong(key, 1000L * book + i);
+                    break;
+                case Boolean:
+                    data.putBoolean(key, (book + i) % 2 == 0);
+                    break;
+                case Real:
+                    data.putDouble(key, book + i / 10d);
+                    break;
+                default:
+                    data.putString(key, VALUES[i]);
+                    break;
+            }
+        }
+        return data.size();
+    }
+
+    private static int loadBundle(final int book) {
+        final Bundle data = new Bundle();
+        for (int i = 0; i < DOMAINS.size(); i++) {
+            final String key = DOMAINS.get(i).getName();
+            switch (DOMAINS.get(i).getSqLiteDataType()) {
+                case Integer:
+                    data.putLong(key, 1000L * book + i);
+                    break;
+                case Boolean:
+                    data.putBoolean(key, (book + i) % 2 == 0);
+                    break;
+                case Real:
+                    data.putDouble(key, book + i / 10d);
+                    break;
+                default:
+                    data.putString(key, VALUES[i]);
+                    break;
+            }
+        }
+        return data.size();
+    }
+
+    /**
+     * Load all books a number of times; the first run is a warm-up.
+     *
+     * @return the lowest number of bytes allocated per book
+     */
+    private static long measure(@NonNull final IntSupplier loadAll) {
+        assertTrue(loadAll.getAsInt() > 0);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = allocatedBytes();
+            assertTrue(loadAll.getAsInt() > 0);
+            best = Math.min(best, (allocatedBytes() - start) / BOOKS);
+        }
+        return best;
+    }
+
+    @Test
+    public void allocations() {
+        final long book = measure(() -> {
+            int total = 0;
+            for (int b = 0; b < BOOKS; b++) {
+                total += loadBook(b);
+            }
+            return total;
+        });
+        final long bundle = measure(() -> {
+            int total = 0;
+            for (int b = 0; b < BOOKS; b++) {
+                total += loadBundle(b);
+            }
+            return total;
+        });
+
+        Log.d(TAG, DOMAINS.size() + " fields per book; bytes allocated per book:"
+                   + " Book=" + book + ", Bundle=" + bundle);
+        assertTrue("Book=" + book + ", Bundle=" + bundle, book < bundle);
+    }
+}
@@ -21,7 +21,12 @@ package com.hardbacknutter.nevertoomanybooks.searchengines.isfdb;
 
 import android.util.Log;
 
+import androidx.test.platform.app.InstrumentationRegistry;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.List;
 
 import com.hardbacknutter.nevertoomanybooks.BaseDBTest;
@@ -110,6 +115,58 @@ public class IsfdbEditionsHandlerTest
         Log.d(TAG, editions.toString());
     }
 
+    /**
+     * Compare the streaming parse using {@link IsfdbSearchEngine#EDITIONS_SELECTORS}
+     * with the full parse, and log the parse times for both.
+     */
+    @Test
+    public void parseMultiEditionStreaming()
+            throws IOException {
+        final int[] resIds = {
+                com.hardbacknutter.nevertoomanybooks.test.R.raw.isfdb_11169_multi_edition,
+                com.hardbacknutter.nevertoomanybooks.test.R.raw.isfdb_1360173_multi_edition};
+        final String locationHeader = "https://www.isfdb.org/cgi-bin/title.cgi?11169";
+        final int loops = 50;
+
+        for (final int resId : resIds) {
+            final Document full = loadDocument(resId, IsfdbSearchEngine.CHARSET_DECODE_PAGE,
+                                               locationHeader);
+            final Document partial = streamDocument(resId, locationHeader);
+
+            assertEquals(searchEngine.parseEditions(context, full).toString(),
+                         searchEngine.parseEditions(context, partial).toString());
+
+            long start = System.nanoTime();
+            for (int i = 0; i < loops; i++) {
+                loadDocument(resId, IsfdbSearchEngine.CHARSET_DECODE_PAGE, locationHeader);
+            }
+            final long fullNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < loops; i++) {
+                streamDocument(resId, locationHeader);
+            }
+            final long streamNanos = System.nanoTime() - start;
+
+            Log.d(TAG, "resId=" + resId
+                       + "|full=" + fullNanos / loops / 1000 + "us"
+                       + "|streaming=" + streamNanos / loops / 1000 + "us");
+        }
+    }
+
+    private Document streamDocument(final int resId,
+                                    @SuppressWarnings("SameParameterValue")
+                                    final String locationHeader)
+            throws IOException {
+        try (InputStream is = InstrumentationRegistry.getInstrumentation().getContext()
+                                                     .getResources().openRawResource(resId)) {
+            return IsfdbSearchEngine.EDITIONS_SELECTORS.parse(
+                    new InputStreamReader(is, Charset.forName(
+                            IsfdbSearchEngine.CHARSET_DECODE_PAGE)),
+                    locationHeader);
+        }
+    }
+
     /**
      * Fairly simple test that does an active download, and checks if the resulting page
      * has the right "location" URL afterwards.
@@ -0,0 +1,256 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.searchengines.replay;
+
+import android.content.res.AssetManager;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+import com.hardbacknutter.nevertoomanybooks.BaseDBTest;
+import com.hardbacknutter.nevertoomanybooks.TestProgressListener;
+import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.Domain;
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.covers.Size;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.nevertoomanybooks.searchengines.AltEditionIsbn;
+import com.hardbacknutter.nevertoomanybooks.searchengines.EngineId;
+import com.hardbacknutter.nevertoomanybooks.searchengines.SearchEngine;
+import com.hardbacknutter.nevertoomanybooks.utils.AppLocale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs every {@link SearchEngine.ByIsbn}, {@link SearchEngine.ByExternalId} and
+ * {@link SearchEngine.CoverByEdition} implementation end-to-end against the
+ * {@link ReplayServer}, and logs the latency, allocations and number of fields
+ * found for each engine.
+ * <p>
+ * By default the responses are replayed from {@code androidTest/assets/replay}.
+ * To (re)record them from the live sites, run with the instrumentation argument
+ * {@code replay=record}, e.g.
+ * <pre>
+ * {@code ./gradlew connectedDebugAndroidTest \
+ *       -Pandroid.testInstrumentationRunnerArguments.class=\
+ *         com.hardbacknutter.nevertoomanybooks.searchengines.replay.ReplayBenchmarkTest \
+ *       -Pandroid.testInstrumentationRunnerArguments.replay=record}
+ * </pre>
+ * and copy the {@code files/replay} directory of the test app to the assets.
+ * Without any fixtures the benchmark is skipped;
+ * the record and replay cycle itself is tested by {@link ReplayServerTest}.
+ */
+@SuppressWarnings("MissingJavadoc")
+public class ReplayBenchmarkTest
+        extends BaseDBTest {
+
+    private static final String TAG = "ReplayBenchmarkTest";
+
+    private static final String ASSET_DIR = "replay";
+
+    /** English SF with 2 editions, English SF, Dutch comic, French comic. */
+    private static final String[] ISBN = {
+            "9781473208926", "9781473200104", "9789463064385", "9782756010830"};
+
+    private final boolean[] fetchCovers = {false, false};
+
+    private ReplayServer server;
+
+    @Before
+    public void setup()
+            throws DaoWriteException, StorageException {
+        super.setup(AppLocale.SYSTEM_LANGUAGE);
+    }
+
+    @After
+    public void tearDown()
+            throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void benchmark()
+            throws IOException {
+        final boolean record = "record".equals(
+                InstrumentationRegistry.getArguments().getString(ASSET_DIR));
+
+        final AssetManager assets = InstrumentationRegistry.getInstrumentation().getContext()
+                                                           .getAssets();
+        final String[] recorded = assets.list(ASSET_DIR);
+        assumeTrue("No fixtures recorded", record || recorded != null && recorded.length > 0);
+
+        final File recordDir = record ? new File(context.getExternalFilesDir(null), ASSET_DIR)
+                                      : null;
+        server = new ReplayServer(name -> {
+            try {
+                return assets.open(ASSET_DIR + '/' + name);
+            } catch (@NonNull final FileNotFoundException e) {
+                return null;
+            }
+        }, recordDir);
+
+        final List<Result> results = new ArrayList<>();
+        for (final EngineId engineId : EngineId.values()) {
+            if (engineId.isEnabled() && engineId.getConfig() != null) {
+                for (final String isbn : ISBN) {
+                    results.addAll(run(engineId, isbn));
+                }
+            }
+        }
+
+        Log.d(TAG, String.format(Locale.ROOT, "%-16s %-12s %-15s %8s %10s %6s %s",
+                                 "engine", "search", "input", "ms", "kb", "fields", "error"));
+        results.forEach(result -> Log.d(TAG, result.toString()));
+        Log.d(TAG, "requests=" + server.getRequestCount() + "|misses=" + server.getMissCount());
+
+        if (!record) {
+            assertEquals("Fixtures missing; re-record", 0, server.getMissCount());
+        }
+    }
+
+    @NonNull
+    private List<Result> run(@NonNull final EngineId engineId,
+                             @NonNull final String isbn) {
+        final List<Result> results = new ArrayList<>();
+        final SearchEngine searchEngine = engineId.createSearchEngine(context);
+        searchEngine.setCaller(new TestProgressListener(TAG));
+
+        Book book = null;
+        if (searchEngine instanceof SearchEngine.ByIsbn) {
+            final Result result = new Result(engineId, "isbn", isbn);
+            book = result.measure(() -> ((SearchEngine.ByIsbn) searchEngine)
+                    .searchByIsbn(context, isbn, fetchCovers), Book::size);
+            results.add(result);
+        }
+
+        final Domain domain = engineId.requireConfig().getExternalIdDomain();
+        if (searchEngine instanceof SearchEngine.ByExternalId && book != null && domain != null) {
+            final String externalId = book.getString(domain.getName(), null);
+            if (externalId != null && !externalId.isEmpty() && !"0".equals(externalId)) {
+                final Result result = new Result(engineId, "externalId", externalId);
+                result.measure(() -> ((SearchEngine.ByExternalId) searchEngine)
+                        .searchByExternalId(context, externalId, fetchCovers), Book::size);
+                results.add(result);
+            }
+        }
+
+        if (searchEngine instanceof SearchEngine.CoverByEdition) {
+            final Result result = new Result(engineId, "cover", isbn);
+            result.measure(() -> ((SearchEngine.CoverByEdition) searchEngine)
+                    .searchCoverByEdition(context, new AltEditionIsbn(isbn), 0, Size.Large),
+                           fileSpec -> fileSpec.isPresent() ? 1 : 0);
+            results.add(result);
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface Search<T> {
+
+        @NonNull
+        T search()
+                throws Exception;
+    }
+
+    private static class Result {
+
+        @NonNull
+        private final EngineId engineId;
+        @NonNull
+        private final String searchBy;
+        @NonNull
+        private final String input;
+
+        private long nanos;
+        private long bytes;
+        private int fields;
+        @Nullable
+        private Exception error;
+
+        Result(@NonNull final EngineId engineId,
+               @NonNull final String searchBy,
+               @NonNull final String input) {
+            this.engineId = engineId;
+            this.searchBy = searchBy;
+            this.input = input;
+        }
+
+        /**
+         * Run the search and record the elapsed time, the bytes allocated
+         * by the whole process while running, and the number of fields found.
+         *
+         * @param search       to run
+         * @param fieldCounter to count the fields in the search result
+         * @param <T>          type of the search result
+         *
+         * @return the search result, or {@code null} on failure
+         */
+        @Nullable
+        <T> T measure(@NonNull final Search<T> search,
+                      @NonNull final ToIntFunction<T> fieldCounter) {
+            final long startBytes = getAllocatedBytes();
+            final long start = System.nanoTime();
+            try {
+                final T found = search.search();
+                fields = fieldCounter.applyAsInt(found);
+                return found;
+            } catch (@NonNull final Exception e) {
+                error = e;
+                return null;
+            } finally {
+                nanos = System.nanoTime() - start;
+                bytes = getAllocatedBytes() - startBytes;
+            }
+        }
+
+        private static long getAllocatedBytes() {
+            final String value = Debug.getRuntimeStat("art.gc.bytes-allocated");
+            return value != null ? Long.parseLong(value) : 0;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-16s %-12s %-15s %8d %10d %6d %s",
+                                 engineId.getPreferenceKey(), searchBy, input,
+                                 nanos / 1_000_000, bytes / 1024, fields,
+                                 error != null ? error.getClass().getSimpleName()
+                                                 + ": " + error.getMessage() : "");
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.searchengines.replay;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hardbacknutter.nevertoomanybooks.core.network.ConnectionFactory;
+import com.hardbacknutter.nevertoomanybooks.core.network.FutureHttpBase;
+
+/**
+ * A local stand-in HTTP server for the search engines.
+ * <p>
+ * Installed as the {@link ConnectionFactory}, it rewrites every request url to itself:
+ * {@code https://www.isfdb.org/cgi-bin/se.cgi?arg=...} becomes
+ * {@code http://127.0.0.1:<port>/https/www.isfdb.org/cgi-bin/se.cgi?arg=...}
+ * so the original url can be restored from the path.
+ * <p>
+ * Each response is a fixture file holding the raw HTTP response: status line, headers,
+ * an empty line and the body <strong>as sent</strong> by the site (i.e. still gzipped).
+ * <ul>
+ *     <li>Replay: the fixture is served; a missing fixture is a {@code 404}.</li>
+ *     <li>Record: the request is forwarded to the real site without following redirects,
+ *         the response is written as a fixture to the record directory, and then served.
+ *         Copy the files to {@code androidTest/assets/replay} to replay them.</li>
+ * </ul>
+ * Redirects are stored as-is, and the {@code Location} header is rewritten when served.
+ * <p>
+ * Limitations: only {@code GET} and {@code HEAD}, and cookies are not stored.
+ * Root-relative links which a page resolves against the (local) location of
+ * the page will not find a fixture.
+ */
+public class ReplayServer
+        implements ConnectionFactory, Closeable {
+
+    /** Log tag. */
+    private static final String TAG = "ReplayServer";
+
+    private static final String LOOPBACK = "127.0.0.1";
+    private static final String CRLF = "\r\n";
+
+    /** Response headers we store; anything else is irrelevant or recalculated. */
+    private static final Set<String> KEEP_HEADERS = Set.of(
+            "content-type", "content-encoding", "location");
+    /** Request headers we do not forward when recording. */
+    private static final Set<String> SKIP_HEADERS = Set.of(
+            "host", "connection", "content-length");
+
+    @NonNull
+    private final Fixtures fixtures;
+    @Nullable
+    private final File recordDir;
+    @NonNull
+    private final ServerSocket serverSocket;
+    @NonNull
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Constructor. Starts the server and installs it as the {@link ConnectionFactory}.
+     *
+     * @param fixtures  to replay from
+     * @param recordDir if set, record all responses to this directory instead of replaying
+     *
+     * @throws IOException if the server socket could not be created
+     */
+    public ReplayServer(@NonNull final Fixtures fixtures,
+                        @Nullable final File recordDir)
+            throws IOException {
+        this.fixtures = fixtures;
+        this.recordDir = recordDir;
+        if (recordDir != null) {
+            //noinspection ResultOfMethodCallIgnored
+            recordDir.mkdirs();
+        }
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName(LOOPBACK));
+        executor.execute(this::acceptLoop);
+        FutureHttpBase.setConnectionFactory(this);
+        // Recording goes to the real sites, and must be throttled as usual.
+        FutureHttpBase.setThrottlingEnabled(recordDir != null);
+    }
+
+    /**
+     * Get the fixture name for a url.
+     *
+     * @param method the HTTP method
+     * @param url    the original url
+     *
+     * @return file name
+     */
+    @NonNull
+    public static String getFixtureName(@NonNull final String method,
+                                        @NonNull final String url) {
+        final String host;
+        try {
+            host = new URL(url).getHost();
+        } catch (@NonNull final IOException e) {
+            throw new IllegalArgumentException(url, e);
+        }
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            final byte[] digest = md.digest((method + ' ' + url)
+                                                    .getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(host).append('-');
+            // 64 bits is plenty to avoid collisions within a host.
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format(Locale.ROOT, "%02x", digest[i]));
+            }
+            return sb.append(".http").toString();
+        } catch (@NonNull final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the number of requests handled so far.
+     *
+     * @return count
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of requests for which no fixture was found.
+     *
+     * @return count
+     */
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    public boolean isRecording() {
+        return recordDir != null;
+    }
+
+    @NonNull
+    @Override
+    public HttpURLConnection open(@NonNull final URL url)
+            throws IOException {
+        return (HttpURLConnection) toLocal(url).openConnection();
+    }
+
+    /**
+     * Rewrite the given url to point to this server.
+     * Urls which already point to this server are returned as-is.
+     *
+     * @param url to rewrite
+     *
+     * @return local url
+     *
+     * @throws IOException on a malformed url
+     */
+    @NonNull
+    URL toLocal(@NonNull final URL url)
+            throws IOException {
+        if (LOOPBACK.equals(url.getHost()) && url.getPort() == serverSocket.getLocalPort()) {
+            return url;
+        }
+        return new URL("http", LOOPBACK, serverSocket.getLocalPort(),
+                       '/' + url.getProtocol() + '/' + url.getAuthority() + url.getFile());
+    }
+
+    /**
+     * Restore the original url from the path of a local request.
+     *
+     * @param path the request path including the query
+     *
+     * @return the original url; or {@code null} if the path is not a rewritten url
+     */
+    @Nullable
+    static String toOriginal(@NonNull final String path) {
+        // "/https/www.isfdb.org/cgi-bin/se.cgi?arg=..."
+        final int schemeEnd = path.indexOf('/', 1);
+        if (schemeEnd < 0) {
+            return null;
+        }
+        final String scheme = path.substring(1, schemeEnd);
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            return null;
+        }
+        return scheme + "://" + path.substring(schemeEnd + 1);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (@NonNull final IOException e) {
+                // closed
+                return;
+            }
+        }
+    }
+
+    private void handle(@NonNull final Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+
+            final String[] requestLine = readLine(in).split(" ");
+            final Map<String, String> headers = new LinkedHashMap<>();
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                final int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim(),
+                                line.substring(colon + 1).trim());
+                }
+            }
+            if (requestLine.length < 2) {
+                return;
+            }
+            requests.incrementAndGet();
+
+            final String method = requestLine[0];
+            final String url = toOriginal(requestLine[1]);
+            if (url == null || !("GET".equals(method) || "HEAD".equals(method))) {
+                writeError(out, 501, "Not Implemented");
+                return;
+            }
+
+            final String name = getFixtureName(method, url);
+            if (recordDir != null) {
+                record(method, url, headers, new File(recordDir, name));
+            }
+
+            try (InputStream fixture = recordDir != null
+                                       ? new FileInputStream(new File(recordDir, name))
+                                       : fixtures.open(name)) {
+                if (fixture == null) {
+                    misses.incrementAndGet();
+                    Log.w(TAG, "No fixture|" + name + "|" + method + ' ' + url);
+                    writeError(out, 404, "No Fixture");
+                    return;
+                }
+                serve(fixture, "HEAD".equals(method), out);
+            }
+        } catch (@NonNull final IOException e) {
+            Log.w(TAG, "handle", e);
+        }
+    }
+
+    /**
+     * Forward the request to the real site and store the response.
+     */
+    private void record(@NonNull final String method,
+                        @NonNull final String url,
+                        @NonNull final Map<String, String> requestHeaders,
+                        @NonNull final File file)
+            throws IOException {
+        final HttpURLConnection request = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            request.setRequestMethod(method);
+            request.setInstanceFollowRedirects(false);
+            requestHeaders.forEach((key, value) -> {
+                if (!SKIP_HEADERS.contains(key.toLowerCase(Locale.ROOT))) {
+                    request.setRequestProperty(key, value);
+                }
+            });
+
+            final int code = request.getResponseCode();
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+                final String message = request.getResponseMessage();
+                os.write(("HTTP/1.1 " + code + ' ' + (message != null ? message : "")
+                          + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+                for (final Map.Entry<String, List<String>> entry
+                        : request.getHeaderFields().entrySet()) {
+                    final String key = entry.getKey();
+                    if (key != null && KEEP_HEADERS.contains(key.toLowerCase(Locale.ROOT))) {
+                        for (final String value : entry.getValue()) {
+                            os.write((key + ": " + value + CRLF)
+                                             .getBytes(StandardCharsets.ISO_8859_1));
+                        }
+                    }
+                }
+                os.write(CRLF.getBytes(StandardCharsets.ISO_8859_1));
+
+                final InputStream body = code < HttpURLConnection.HTTP_BAD_REQUEST
+                                         ? request.getInputStream()
+                                         : request.getErrorStream();
+                if (body != null) {
+                    try (body) {
+                        copy(body, os);
+                    }
+                }
+            }
+            Log.d(TAG, "Recorded|" + file.getName() + "|" + code + ' ' + method + ' ' + url);
+        } finally {
+            request.disconnect();
+        }
+    }
+
+    /**
+     * Send a fixture to the client.
+     */
+    private void serve(@NonNull final InputStream fixture,
+                       final boolean headOnly,
+                       @NonNull final OutputStream out)
+            throws IOException {
+        final InputStream in = new BufferedInputStream(fixture);
+        final String statusLine = readLine(in);
+        final ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon > 0 && "location".equalsIgnoreCase(line.substring(0, colon).trim())) {
+                final String location = line.substring(colon + 1).trim();
+                // A relative location will be resolved by the client as-is.
+                if (location.startsWith("http://") || location.startsWith("https://")) {
+                    line = "Location: " + toLocal(new URL(location));
+                }
+            }
+            headers.write((line + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        copy(in, body);
+
+        out.write((statusLine + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+        headers.writeTo(out);
+        out.write(("Content-Length: " + body.size() + CRLF
+                   + "Connection: close" + CRLF + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+        if (!headOnly) {
+            body.writeTo(out);
+        }
+        out.flush();
+    }
+
+    private void writeError(@NonNull final OutputStream out,
+                            final int code,
+                            @NonNull final String message)
+            throws IOException {
+        out.write(("HTTP/1.1 " + code + ' ' + message + CRLF
+                   + "Content-Length: 0" + CRLF
+                   + "Connection: close" + CRLF + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    @NonNull
+    private static String readLine(@NonNull final InputStream in)
+            throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void copy(@NonNull final InputStream in,
+                             @NonNull final OutputStream out)
+            throws IOException {
+        final byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    /**
+     * Stop the server and restore the default {@link ConnectionFactory} and throttling.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        FutureHttpBase.setConnectionFactory(null);
+        FutureHttpBase.setThrottlingEnabled(true);
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * The source of the fixtures to replay.
+     */
+    @FunctionalInterface
+    public interface Fixtures {
+
+        /**
+         * Open the named fixture.
+         *
+         * @param name of the fixture
+         *
+         * @return stream, or {@code null} if there is no such fixture
+         *
+         * @throws IOException on generic/other IO failures
+         */
+        @Nullable
+        InputStream open(@NonNull String name)
+                throws IOException;
+    }
+}
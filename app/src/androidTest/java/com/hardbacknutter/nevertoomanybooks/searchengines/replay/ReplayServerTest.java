@@ -0,0 +1,208 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.searchengines.replay;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Records responses from a local stand-in for a site, and replays them
+ * with the stand-in gone.
+ * <p>
+ * Unlike {@link ReplayBenchmarkTest}, this does not depend on recorded fixtures.
+ */
+public class ReplayServerTest {
+
+    private File recordDir;
+
+    @Before
+    public void setup() {
+        recordDir = new File(InstrumentationRegistry.getInstrumentation().getTargetContext()
+                                                    .getCacheDir(), "replay-test");
+        deleteFixtures();
+    }
+
+    @After
+    public void tearDown() {
+        deleteFixtures();
+    }
+
+    private void deleteFixtures() {
+        final File[] files = recordDir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void recordThenReplay()
+            throws IOException {
+        final URL book;
+        final URL moved;
+        final URL unknown;
+
+        try (Origin origin = new Origin();
+             ReplayServer server = new ReplayServer(name -> null, recordDir)) {
+            book = origin.url("/book?id=1");
+            moved = origin.url("/moved");
+            unknown = origin.url("/unknown");
+
+            assertEquals("origin:/book?id=1", get(server, book));
+            // the redirect and its target are both recorded
+            assertEquals("origin:/book?id=1", get(server, moved));
+            assertEquals(3, origin.requests.get());
+            assertEquals(0, server.getMissCount());
+        }
+
+        // The origin is gone; everything must now come from the fixtures.
+        try (ReplayServer server = new ReplayServer(this::openFixture, null)) {
+            assertEquals("origin:/book?id=1", get(server, book));
+            assertEquals("origin:/book?id=1", get(server, moved));
+            assertEquals(3, server.getRequestCount());
+            assertEquals(0, server.getMissCount());
+
+            final HttpURLConnection request = server.open(unknown);
+            try {
+                assertEquals(HttpURLConnection.HTTP_NOT_FOUND, request.getResponseCode());
+            } finally {
+                request.disconnect();
+            }
+            assertEquals(1, server.getMissCount());
+        }
+    }
+
+    @Nullable
+    private InputStream openFixture(@NonNull final String name)
+            throws IOException {
+        final File file = new File(recordDir, name);
+        return file.exists() ? new FileInputStream(file) : null;
+    }
+
+    @NonNull
+    private static String get(@NonNull final ReplayServer server,
+                              @NonNull final URL url)
+            throws IOException {
+        final HttpURLConnection request = server.open(url);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                request.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals(HttpURLConnection.HTTP_OK, request.getResponseCode());
+            return reader.lines().collect(Collectors.joining("\n"));
+        } finally {
+            request.disconnect();
+        }
+    }
+
+    /**
+     * A minimal site: {@code /moved} redirects to {@code /book?id=1},
+     * any other path returns its own path as the body.
+     */
+    private static final class Origin
+            implements Closeable {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        @NonNull
+        private final ServerSocket serverSocket;
+
+        Origin()
+                throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+            final Thread thread = new Thread(this::acceptLoop, "Origin");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @NonNull
+        URL url(@NonNull final String path)
+                throws IOException {
+            return new URL("http", "127.0.0.1", serverSocket.getLocalPort(), path);
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept();
+                     BufferedReader in = new BufferedReader(new InputStreamReader(
+                             socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                     OutputStream out = socket.getOutputStream()) {
+
+                    final String path = in.readLine().split(" ")[1];
+                    String line;
+                    //noinspection StatementWithEmptyBody
+                    while ((line = in.readLine()) != null && !line.isEmpty()) {
+                        // skip the headers
+                    }
+                    requests.incrementAndGet();
+
+                    final String response;
+                    if ("/moved".equals(path)) {
+                        response = "HTTP/1.1 302 Found\r\n"
+                                   + "Location: " + url("/book?id=1") + "\r\n"
+                                   + "Content-Length: 0\r\n"
+                                   + "Connection: close\r\n\r\n";
+                    } else {
+                        final String body = "origin:" + path;
+                        response = "HTTP/1.1 200 OK\r\n"
+                                   + "Content-Type: text/plain; charset=utf-8\r\n"
+                                   + "Content-Length: " + body.length() + "\r\n"
+                                   + "Connection: close\r\n\r\n"
+                                   + body;
+                    }
+                    out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                } catch (@NonNull final IOException e) {
+                    // closed
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close()
+                throws IOException {
+            serverSocket.close();
+        }
+    }
+}
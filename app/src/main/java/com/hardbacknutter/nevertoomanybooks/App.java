@@ -38,6 +38,7 @@ import com.hardbacknutter.nevertoomanybooks.utils.PackageInfoWrapper;
 import com.hardbacknutter.nevertoomanybooks.utils.theme.NightMode;
 import com.hardbacknutter.nevertoomanybooks.utils.theme.ThemeColorController;
 import com.hardbacknutter.util.logger.FileLogger;
+import com.hardbacknutter.util.logger.Logger;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
 import org.acra.ACRA;
@@ -224,6 +225,11 @@ public class App
                 }
             }
 
+            // The report includes the logfile
+            final Logger logger = LoggerFactory.getLogger();
+            if (logger instanceof FileLogger) {
+                ((FileLogger) logger).flush();
+            }
             ACRA.getErrorReporter().handleException(throwable, true);
         });
     }
@@ -23,6 +23,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
@@ -53,6 +55,7 @@ import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
 import com.hardbacknutter.nevertoomanybooks.booklist.BoBTask;
 import com.hardbacknutter.nevertoomanybooks.booklist.Booklist;
 import com.hardbacknutter.nevertoomanybooks.booklist.BooklistNode;
+import com.hardbacknutter.nevertoomanybooks.booklist.BooklistWarmUp;
 import com.hardbacknutter.nevertoomanybooks.booklist.RebuildBooklist;
 import com.hardbacknutter.nevertoomanybooks.booklist.TopRowListPosition;
 import com.hardbacknutter.nevertoomanybooks.booklist.adapter.BooklistAdapter;
@@ -63,12 +66,14 @@ import com.hardbacknutter.nevertoomanybooks.booklist.style.FieldVisibility;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.groups.BooklistGroup;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.groups.ReadStatus;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.LiveDataEvent;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.TaskProgress;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ParcelUtils;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.PendingUpdatesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StylesHelper;
 import com.hardbacknutter.nevertoomanybooks.entities.Author;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
@@ -98,6 +103,12 @@ public class BooksOnBookshelfViewModel
     private static final String GROUP_NOT_DEFINED = "Group not defined: ";
     private static final String ERROR_NULL_BOOKLIST = "booklist";
 
+    /**
+     * How long to wait after the last quick-action before writing
+     * the {@link PendingUpdatesDao} journal to the database.
+     */
+    private static final long PENDING_UPDATES_FLUSH_DELAY_MS = 2_000;
+
     @SuppressWarnings("NonFinalStaticVariableUsedInClassInitialization")
     private static final Map<Integer, BLGRecord> BLG_RECORD = Map.ofEntries(
             Map.entry(BooklistGroup.AUTHOR,
@@ -173,6 +184,9 @@ public class BooksOnBookshelfViewModel
 
     private final BoBTask boBTask = new BoBTask();
 
+    /** Builds the lists for other recently used shelves while the user is browsing. */
+    private final BooklistWarmUp booklistWarmUp = new BooklistWarmUp();
+
     private final MutableLiveData<int[]> positionsUpdated = new MutableLiveData<>();
 
     private final MutableLiveData<Pair<Integer, Integer>> highlightSelection =
@@ -184,12 +198,18 @@ public class BooksOnBookshelfViewModel
     private final MutableLiveData<Boolean> searchCriteriaAreActive =
             new MutableLiveData<>();
 
+    /** Used to delay (and hence coalesce) the writing of quick-actions. */
+    private final Handler flushHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushPendingUpdates = () -> ASyncExecutor.SERIAL.execute(
+            () -> ServiceLocator.getInstance().getPendingUpdatesDao().flush());
+
     /** Holder for all search criteria. See {@link SearchCriteria} for more info. */
     @Nullable
     private SearchCriteria searchCriteria;
     /** Database Access. */
     private BookDao bookDao;
     private BookshelfDao bookshelfDao;
+    private PendingUpdatesDao pendingUpdatesDao;
 
     /** Preferred booklist state in next rebuild. */
     private RebuildBooklist rebuildMode;
@@ -300,6 +320,14 @@ public class BooksOnBookshelfViewModel
 
     @Override
     protected void onCleared() {
+        booklistWarmUp.cancel();
+
+        // Don't wait for the delay, write any quick-actions now.
+        flushHandler.removeCallbacks(flushPendingUpdates);
+        if (pendingUpdatesDao != null && pendingUpdatesDao.hasPending()) {
+            flushPendingUpdates.run();
+        }
+
         if (booklist != null) {
             booklist.close();
         }
@@ -317,6 +345,7 @@ public class BooksOnBookshelfViewModel
         if (bookDao == null) {
             bookDao = ServiceLocator.getInstance().getBookDao();
             bookshelfDao = ServiceLocator.getInstance().getBookshelfDao();
+            pendingUpdatesDao = ServiceLocator.getInstance().getPendingUpdatesDao();
 
             // first start of the activity, read from user preference
             rebuildMode = RebuildBooklist.getPreferredMode(context);
@@ -946,9 +975,22 @@ public class BooksOnBookshelfViewModel
         return new UpdateBooklistContract.Input(books, title, null);
     }
 
+    /**
+     * Schedule writing the {@link PendingUpdatesDao} journal to the database.
+     * Each call restarts the delay, so a burst of quick-actions is written
+     * in a single transaction.
+     */
+    private void scheduleFlush() {
+        // the data is about to change; lists build ahead would be outdated.
+        booklistWarmUp.cancel();
+        flushHandler.removeCallbacks(flushPendingUpdates);
+        flushHandler.postDelayed(flushPendingUpdates, PENDING_UPDATES_FLUSH_DELAY_MS);
+    }
+
     /**
      * Update the 'complete' status of the given Author.
      * <p>
+     * The list is updated immediately, the database write is queued.
      * Triggers a {@link BooklistAdapter#requery(int[])} for the changed positions.
      *
      * @param author   Author to update
@@ -956,20 +998,24 @@ public class BooksOnBookshelfViewModel
      */
     void setAuthorComplete(@NonNull final Author author,
                            final boolean complete) {
-        if (ServiceLocator.getInstance().getAuthorDao().setComplete(author, complete)) {
-            Objects.requireNonNull(booklist, ERROR_NULL_BOOKLIST);
-            final int[] positions =
-                    booklist.updateAuthorComplete(author.getId(), author.isComplete())
-                            .stream()
-                            .mapToInt(BooklistNode::getAdapterPosition)
-                            .toArray();
-            positionsUpdated.setValue(positions);
-        }
+        pendingUpdatesDao.enqueue(PendingUpdatesDao.Action.AuthorComplete,
+                                  author.getId(), complete);
+        author.setComplete(complete);
+        scheduleFlush();
+
+        Objects.requireNonNull(booklist, ERROR_NULL_BOOKLIST);
+        final int[] positions =
+                booklist.updateAuthorComplete(author.getId(), author.isComplete())
+                        .stream()
+                        .mapToInt(BooklistNode::getAdapterPosition)
+                        .toArray();
+        positionsUpdated.setValue(positions);
     }
 
     /**
      * Update the 'complete' status of the given Series.
      * <p>
+     * The list is updated immediately, the database write is queued.
      * Triggers a {@link BooklistAdapter#requery(int[])} for the changed positions.
      *
      * @param series   Series to update
@@ -977,15 +1023,18 @@ public class BooksOnBookshelfViewModel
      */
     void setSeriesComplete(@NonNull final Series series,
                            final boolean complete) {
-        if (ServiceLocator.getInstance().getSeriesDao().setComplete(series, complete)) {
-            Objects.requireNonNull(booklist, ERROR_NULL_BOOKLIST);
-            final int[] positions =
-                    booklist.updateSeriesComplete(series.getId(), series.isComplete())
-                            .stream()
-                            .mapToInt(BooklistNode::getAdapterPosition)
-                            .toArray();
-            positionsUpdated.setValue(positions);
-        }
+        pendingUpdatesDao.enqueue(PendingUpdatesDao.Action.SeriesComplete,
+                                  series.getId(), complete);
+        series.setComplete(complete);
+        scheduleFlush();
+
+        Objects.requireNonNull(booklist, ERROR_NULL_BOOKLIST);
+        final int[] positions =
+                booklist.updateSeriesComplete(series.getId(), series.isComplete())
+                        .stream()
+                        .mapToInt(BooklistNode::getAdapterPosition)
+                        .toArray();
+        positionsUpdated.setValue(positions);
     }
 
     /**
@@ -1017,27 +1066,34 @@ public class BooksOnBookshelfViewModel
 
     /**
      * Update the 'read' status of the given book.
+     * <p>
+     * The list is updated immediately, the database write is queued.
+     * If a rebuild is needed, the {@link BoBTask} will write the queue first.
      *
      * @param id   Book to update
      * @param read new status
      */
     void setBookRead(@IntRange(from = 1) final long id,
                      final boolean read) {
-        final Book book = Book.from(id);
-        if (bookDao.setRead(book, read)) {
-            onBookReadStatusChanged(book);
-        }
+        pendingUpdatesDao.enqueue(PendingUpdatesDao.Action.BookRead, id, read);
+        scheduleFlush();
+        // Setting the read-status clears the reading-progress
+        onBookReadStatusChanged(id, read, "");
     }
 
     /**
      * Should be called when the read-status of a book was changed.
      *
-     * @param book which was changed
+     * @param bookId          Book which was changed
+     * @param read            new status
+     * @param readingProgress new progress
      *
      * @return {@code true} if a full rebuild of the list was triggered
      *         {@code false} if we only triggered a positional update
      */
-    private boolean onBookReadStatusChanged(@NonNull final Book book) {
+    private boolean onBookReadStatusChanged(@IntRange(from = 1) final long bookId,
+                                            final boolean read,
+                                            @NonNull final String readingProgress) {
         if (getStyle().hasGroup(BooklistGroup.READ_STATUS)) {
             // The book might move to another group - no choice, we must rebuild
             triggerRebuildList.setValue(LiveDataEvent.of(false));
@@ -1048,9 +1104,7 @@ public class BooksOnBookshelfViewModel
             // update the <strong>book-list</strong> 'read' status of the given book.
             Objects.requireNonNull(booklist, ERROR_NULL_BOOKLIST);
             final int[] positions = booklist
-                    .updateBookReadStatus(book.getId(),
-                                          book.isRead(),
-                                          book.getString(DBKey.READ_PROGRESS))
+                    .updateBookReadStatus(bookId, read, readingProgress)
                     .stream()
                     .mapToInt(BooklistNode::getAdapterPosition)
                     .toArray();
@@ -1065,9 +1119,9 @@ public class BooksOnBookshelfViewModel
      * @param bookId Book to return
      */
     void deleteLoan(@IntRange(from = 1) final long bookId) {
-        if (ServiceLocator.getInstance().getLoaneeDao().delete(bookId)) {
-            onBookLoaneeChanged(bookId, null);
-        }
+        pendingUpdatesDao.enqueue(PendingUpdatesDao.Action.BookReturned, bookId, false);
+        scheduleFlush();
+        onBookLoaneeChanged(bookId, null);
     }
 
     /**
@@ -1184,7 +1238,8 @@ public class BooksOnBookshelfViewModel
 
             if (keyList.contains(DBKey.READ__BOOL) || keyList.contains(DBKey.READ_PROGRESS)) {
                 Objects.requireNonNull(book);
-                onBookReadStatusChanged(book);
+                onBookReadStatusChanged(book.getId(), book.isRead(),
+                                        book.getString(DBKey.READ_PROGRESS));
                 return;
             }
 
@@ -1375,6 +1430,8 @@ public class BooksOnBookshelfViewModel
         Objects.requireNonNull(bookshelf, ERROR_NULL_BOOKLIST);
         Objects.requireNonNull(searchCriteria, "searchCriteria");
 
+        // The user is waiting for this one.
+        booklistWarmUp.cancel();
         boBTask.build(bookshelf, rebuildMode, searchCriteria, selectedBookId);
     }
 
@@ -1404,6 +1461,11 @@ public class BooksOnBookshelfViewModel
 
         // preserve the new state by default
         rebuildMode = RebuildBooklist.FromSaved;
+
+        // Build ahead for the other recently used shelves, unless we're showing a search result.
+        if (searchCriteria == null || searchCriteria.isEmpty()) {
+            booklistWarmUp.start(bookshelf == null ? 0 : bookshelf.getId(), rebuildMode);
+        }
     }
 
     void recoverAfterFailedBuild(@NonNull final Context context) {
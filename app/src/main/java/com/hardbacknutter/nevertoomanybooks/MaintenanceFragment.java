@@ -46,7 +46,9 @@ import java.util.List;
 import java.util.Set;
 
 import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.GetContentUriForWritingContract;
+import com.hardbacknutter.nevertoomanybooks.booklist.BooklistCacheDao;
 import com.hardbacknutter.nevertoomanybooks.booklist.BooklistNodeDao;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
 import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.widgets.insets.InsetsListenerBuilder;
 import com.hardbacknutter.nevertoomanybooks.covers.CoverStorage;
@@ -254,7 +256,11 @@ public class MaintenanceFragment
                 .setMessage(R.string.info_purge_blns_all)
                 .setNegativeButton(R.string.cancel, (d, w) -> d.dismiss())
                 .setPositiveButton(R.string.ok, (d, w) -> {
-                    BooklistNodeDao.clearAll(ServiceLocator.getInstance().getDb());
+                    final SynchronizedDb db = ServiceLocator.getInstance().getDb();
+                    BooklistNodeDao.clearAll(db);
+                    // The cached lists do not hold any node states (see BooklistCacheDao),
+                    // but they are booklist data as well; don't leave them behind.
+                    BooklistCacheDao.clearAll(db);
                     //noinspection DataFlowIssue
                     Snackbar.make(getView(), R.string.action_done, Snackbar.LENGTH_SHORT).show();
                 })
@@ -43,6 +43,7 @@ import com.hardbacknutter.nevertoomanybooks.database.CacheDbHelper;
 import com.hardbacknutter.nevertoomanybooks.database.DBHelper;
 import com.hardbacknutter.nevertoomanybooks.database.dao.AuthorDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BedethequeCacheDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreCustomFieldDao;
@@ -50,6 +51,7 @@ import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreLibraryDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.ColorDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CoverCacheDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.DeletedBooksDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.FormatDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.FtsDao;
@@ -58,6 +60,7 @@ import com.hardbacknutter.nevertoomanybooks.database.dao.LanguageDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.LoaneeDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.LocationDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.MaintenanceDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.PendingUpdatesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.PublisherDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.SeriesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StripInfoDao;
@@ -66,6 +69,7 @@ import com.hardbacknutter.nevertoomanybooks.database.dao.StylesHelper;
 import com.hardbacknutter.nevertoomanybooks.database.dao.TocEntryDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.AuthorDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.BedethequeCacheDaoImpl;
+import com.hardbacknutter.nevertoomanybooks.database.dao.impl.BookChangesDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.BookDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.BookshelfDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.CalibreCustomFieldDaoImpl;
@@ -73,6 +77,7 @@ import com.hardbacknutter.nevertoomanybooks.database.dao.impl.CalibreDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.CalibreLibraryDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.ColorDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.CoverCacheDaoImpl;
+import com.hardbacknutter.nevertoomanybooks.database.dao.impl.CoverHashDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.DeletedBooksDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.FormatDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.FtsDaoImpl;
@@ -81,6 +86,7 @@ import com.hardbacknutter.nevertoomanybooks.database.dao.impl.LanguageDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.LoaneeDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.LocationDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.MaintenanceDaoImpl;
+import com.hardbacknutter.nevertoomanybooks.database.dao.impl.PendingUpdatesDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.PublisherDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.SeriesDaoImpl;
 import com.hardbacknutter.nevertoomanybooks.database.dao.impl.StripInfoDaoImpl;
@@ -159,6 +165,8 @@ public class ServiceLocator {
     @Nullable
     private BookDao bookDao;
     @Nullable
+    private BookChangesDao bookChangesDao;
+    @Nullable
     private BookshelfDao bookshelfDao;
     @Nullable
     private CalibreDao calibreDao;
@@ -171,6 +179,8 @@ public class ServiceLocator {
     @Nullable
     private CoverCacheDao coverCacheDao;
     @Nullable
+    private CoverHashDao coverHashDao;
+    @Nullable
     private DeletedBooksDao deletedBooksDao;
     @Nullable
     private FormatDao formatDao;
@@ -187,6 +197,8 @@ public class ServiceLocator {
     @Nullable
     private MaintenanceDao maintenanceDao;
     @Nullable
+    private PendingUpdatesDao pendingUpdatesDao;
+    @Nullable
     private PublisherDao publisherDao;
     @Nullable
     private SeriesDao seriesDao;
@@ -289,6 +301,8 @@ public class ServiceLocator {
     public File getLogDir() {
         final Logger logger = LoggerFactory.getLogger();
         if (logger instanceof FileLogger) {
+            // Whoever wants the directory will be using the files.
+            ((FileLogger) logger).flush();
             return ((FileLogger) logger).getLogDir();
         }
         return null;
@@ -388,7 +402,8 @@ public class ServiceLocator {
         synchronized (this) {
             if (coverStorage == null) {
                 coverStorage = new CoverStorage(this::getAppContext,
-                                                this::getCoverCacheDao);
+                                                this::getCoverCacheDao,
+                                                this::getCoverHashDao);
             }
         }
         return coverStorage;
@@ -537,6 +552,16 @@ public class ServiceLocator {
         return bookDao;
     }
 
+    @NonNull
+    public BookChangesDao getBookChangesDao() {
+        synchronized (this) {
+            if (bookChangesDao == null) {
+                bookChangesDao = new BookChangesDaoImpl(getDb());
+            }
+        }
+        return bookChangesDao;
+    }
+
     @NonNull
     public DeletedBooksDao getDeletedBooksDao() {
         synchronized (this) {
@@ -675,6 +700,20 @@ public class ServiceLocator {
         return maintenanceDao;
     }
 
+    @NonNull
+    public PendingUpdatesDao getPendingUpdatesDao() {
+        synchronized (this) {
+            if (pendingUpdatesDao == null) {
+                pendingUpdatesDao = new PendingUpdatesDaoImpl(getDb(),
+                                                              this::getBookDao,
+                                                              this::getLoaneeDao,
+                                                              this::getAuthorDao,
+                                                              this::getSeriesDao);
+            }
+        }
+        return pendingUpdatesDao;
+    }
+
     @NonNull
     public PublisherDao getPublisherDao() {
         synchronized (this) {
@@ -750,4 +789,14 @@ public class ServiceLocator {
         }
         return coverCacheDao;
     }
+
+    @NonNull
+    public CoverHashDao getCoverHashDao() {
+        synchronized (this) {
+            if (coverHashDao == null) {
+                coverHashDao = new CoverHashDaoImpl(getDb());
+            }
+        }
+        return coverHashDao;
+    }
 }
@@ -20,25 +20,42 @@
 package com.hardbacknutter.nevertoomanybooks.backup;
 
 import android.content.Context;
+import android.database.sqlite.SQLiteDoneException;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Pair;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.DEBUG_SWITCHES;
+import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
+import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
 import com.hardbacknutter.nevertoomanybooks.io.DataReader;
+import com.hardbacknutter.nevertoomanybooks.io.DataReaderException;
 import com.hardbacknutter.nevertoomanybooks.io.RecordReader;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
@@ -56,6 +73,27 @@ public abstract class BaseRecordReader
 
     protected ImportResults results;
 
+    /**
+     * The existing books for the ISBN codes in the import.
+     * Only used for books without a UUID or ID; see {@link #matchOnIsbn(Collection)}.
+     * {@code null} if not used.
+     */
+    @Nullable
+    private Map<ISBN, List<Pair<Long, String>>> isbnMatches;
+    /**
+     * The ISBN codes of the books without a UUID or ID inserted by this import.
+     * An ISBN-10 is stored as its ISBN-13, so both forms match.
+     */
+    @NonNull
+    private final Set<String> isbnInserted = new HashSet<>();
+
+    /** All book UUIDs in the database; see {@link #createPresenceFilters(int)}. */
+    @Nullable
+    private BloomFilter uuidFilter;
+    /** All book ids in the database; see {@link #createPresenceFilters(int)}. */
+    @Nullable
+    private BloomFilter idFilter;
+
     /**
      * Constructor.
      *
@@ -75,6 +113,234 @@ public abstract class BaseRecordReader
         return updateOption;
     }
 
+    /**
+     * Look up the given ISBN codes with a single query before starting the import.
+     * Imported books which have neither a UUID nor an ID are still inserted as new books,
+     * but the ones with the ISBN of an existing book (or of a book inserted earlier
+     * in the same import) are reported as {@link ImportResults#booksWithKnownIsbn}.
+     *
+     * @param isbnList the ISBN codes of the books to import
+     */
+    protected void matchOnIsbn(@NonNull final Collection<ISBN> isbnList) {
+        isbnInserted.clear();
+        if (isbnList.isEmpty()) {
+            isbnMatches = Map.of();
+        } else {
+            isbnMatches = bookDao.getBookIdAndTitleByIsbn(isbnList);
+        }
+    }
+
+    /**
+     * Load the UUID and id of all books in the database into in-memory filters
+     * before starting the import. Most lookups for books we do not have
+     * (e.g. when restoring into an empty database) will then skip the query.
+     *
+     * @param bookCount the (estimated) number of books in the import
+     */
+    protected void createPresenceFilters(@IntRange(from = 0) final int bookCount) {
+        uuidFilter = bookDao.createPresenceFilter(DBKey.BOOK_UUID, bookCount);
+        idFilter = bookDao.createPresenceFilter(DBKey.PK_ID, bookCount);
+    }
+
+    /**
+     * Add the statistics of the filters to the results.
+     * Call this when all books have been imported.
+     */
+    protected void reportPresenceFilters() {
+        if (uuidFilter != null) {
+            results.addPresenceFilter(uuidFilter);
+        }
+        if (idFilter != null) {
+            results.addPresenceFilter(idFilter);
+        }
+    }
+
+    @IntRange(from = 0)
+    private long getBookIdByUuid(@NonNull final String uuid) {
+        if (uuidFilter != null && !uuidFilter.mightContain(uuid)) {
+            results.presenceLookupsSkipped++;
+            return 0;
+        }
+        return bookDao.getBookIdByUuid(uuid);
+    }
+
+    private boolean bookExistsById(@IntRange(from = 1) final long id) {
+        if (idFilter != null && !idFilter.mightContain(id)) {
+            results.presenceLookupsSkipped++;
+            return false;
+        }
+        return bookDao.bookExistsById(id);
+    }
+
+    /**
+     * Count the given book if it has the same ISBN as an existing book,
+     * or as a book inserted earlier during this import.
+     * Only used when {@link #matchOnIsbn(Collection)} was called.
+     *
+     * @param book to check
+     */
+    private void reportKnownIsbn(@NonNull final Book book) {
+        if (isbnMatches == null) {
+            return;
+        }
+        final String isbnText = book.getString(DBKey.BOOK_ISBN, null);
+        if (isbnText == null || isbnText.isEmpty()) {
+            return;
+        }
+        final ISBN isbn = new ISBN(isbnText, false);
+        final String key = isbn.isIsbn10Compat() ? isbn.asText(ISBN.Type.Isbn13)
+                                                 : isbn.asText();
+        // Always add the key, so a following book with the same ISBN is reported as well.
+        final boolean isNew = isbnInserted.add(key);
+        if (isbnMatches.containsKey(isbn) || !isNew) {
+            results.booksWithKnownIsbn++;
+        }
+    }
+
+    /**
+     * Check whether the books imported by {@link #importBooks} must have a UUID.
+     * The default is {@code true}.
+     *
+     * @return {@code true} to report and skip books without a UUID
+     */
+    protected boolean isUuidRequired() {
+        return true;
+    }
+
+    /**
+     * Check whether a failure to decode a single book should be reported and skipped,
+     * or end the import. The default is to end the import.
+     *
+     * @param e the exception thrown by the decoder
+     *
+     * @return {@code true} to report the failure and continue with the next book
+     */
+    protected boolean isSkippable(@NonNull final Exception e) {
+        return false;
+    }
+
+    /**
+     * Start the decoder and import the books in the order they are decoded;
+     * each book in its own transaction.
+     * <p>
+     * Books MUST have a UUID, unless {@link #isUuidRequired()} says otherwise;
+     * books without one are reported and skipped.
+     * When done, the number of books processed and the presence filter statistics
+     * are added to the results.
+     *
+     * @param context          Current context
+     * @param decoder          to take the books from
+     * @param progressListener Progress and cancellation interface
+     * @param <E>              the exception type the decoder can throw
+     *
+     * @throws E                on failure to decode a book,
+     *                          unless {@link #isSkippable(Exception)} says otherwise
+     * @throws StorageException The covers directory is not available
+     * @throws IOException      on generic/other IO failures
+     */
+    protected <E extends Exception> void importBooks(
+            @NonNull final Context context,
+            @NonNull final ParallelDecoder<Book, E> decoder,
+            @NonNull final ProgressListener progressListener)
+            throws E,
+                   StorageException,
+                   IOException {
+
+        // A row represents one book record
+        int row = 1;
+        // Instance in time when we last send a progress message
+        long lastUpdateTime = 0;
+        // Count the nr of books in between progress updates.
+        int delta = 0;
+
+        final SynchronizedDb db = ServiceLocator.getInstance().getDb();
+        final boolean uuidRequired = isUuidRequired();
+
+        // The books are decoded in parallel; we only write them here.
+        decoder.start();
+
+        ParallelDecoder.Result<Book, E> decoded;
+        while (!progressListener.isCancelled() && (decoded = decoder.next()) != null) {
+            Book book = null;
+            try {
+                book = decoded.get();
+            } catch (@NonNull final Exception e) {
+                if (!isSkippable(e)) {
+                    throw e;
+                }
+                results.handleRowException(context, row, e, null);
+            }
+
+            if (book != null) {
+                importRow(context, db, row, book, uuidRequired);
+            }
+
+            row++;
+
+            delta++;
+            final long now = System.currentTimeMillis();
+            if (now - lastUpdateTime > progressListener.getUpdateIntervalInMs()
+                && !progressListener.isCancelled()) {
+                progressListener.publishProgress(delta,
+                                                 results.createBooksSummaryLine(context));
+                lastUpdateTime = now;
+                delta = 0;
+            }
+        }
+
+        // minus 1 to compensate for the last increment
+        results.booksProcessed = row - 1;
+        reportPresenceFilters();
+    }
+
+    /**
+     * Import a single book in its own transaction.
+     * A failure to write the book is reported, and does not end the import.
+     *
+     * @param context      Current context
+     * @param db           Database Access
+     * @param row          the row number; used for error reporting
+     * @param book         to import
+     * @param uuidRequired Flag: report and skip the book if it has no UUID
+     *
+     * @throws StorageException The covers directory is not available
+     */
+    private void importRow(@NonNull final Context context,
+                           @NonNull final SynchronizedDb db,
+                           final int row,
+                           @NonNull final Book book,
+                           final boolean uuidRequired)
+            throws StorageException {
+
+        Synchronizer.SyncLock txLock = null;
+        if (!db.inTransaction()) {
+            txLock = db.beginTransaction(true);
+        }
+        try {
+            final String importUuid = book.getString(DBKey.BOOK_UUID, null);
+            if (!uuidRequired || importUuid != null && !importUuid.isEmpty()) {
+
+                importBook(context, book);
+
+                if (txLock != null) {
+                    db.setTransactionSuccessful();
+                }
+            } else {
+                final String msg = context.getString(
+                        R.string.error_record_must_contain_column, DBKey.BOOK_UUID);
+                results.handleRowException(context, row,
+                                           new DataReaderException(msg), msg);
+            }
+        } catch (@NonNull final DaoWriteException | SQLiteDoneException e) {
+            results.handleRowException(context, row, e, null);
+
+        } finally {
+            if (txLock != null) {
+                db.endTransaction(txLock);
+            }
+        }
+    }
+
     /**
      * Import a single book.
      * <p>
@@ -85,7 +351,8 @@ public abstract class BaseRecordReader
      *     <li>If there is a no UUID, but there is an ID, either update an existing book
      *         by looking up the ID,
      *         or insert a new book.</li>
-     *     <li>Neither UUID or ID, just insert a new book</li>
+     *     <li>Neither UUID or ID, insert a new book. If {@link #matchOnIsbn(Collection)}
+     *         was used, a book with a known ISBN is reported, but still inserted.</li>
      * </ol>
      *
      * @param context Current context
@@ -105,7 +372,7 @@ public abstract class BaseRecordReader
         if (!importedUuid.isEmpty()) {
             // We have a UUID.
             // Check if the book exists in our database by searching on UUID.
-            final long localId = bookDao.getBookIdByUuid(importedUuid);
+            final long localId = getBookIdByUuid(importedUuid);
             if (localId > 0) {
                 // The book UUID exists in our database.
                 // Explicitly set the EXISTING id on the book.
@@ -120,7 +387,7 @@ public abstract class BaseRecordReader
                 // If the book contains an ID, and it already exists, REMOVE that ID.
                 // Otherwise, we'll be reuse it.
                 final long importedId = book.getId();
-                if (importedId <= 0 || bookDao.bookExistsById(importedId)) {
+                if (importedId <= 0 || bookExistsById(importedId)) {
                     book.remove(DBKey.PK_ID);
                 }
                 insertBook(context, book);
@@ -129,7 +396,7 @@ public abstract class BaseRecordReader
             // We do NOT have a UUID.
             // Check if the book exists in our database by searching on ID.
             final long importedId = book.getId();
-            if (importedId > 0 && bookDao.bookExistsById(importedId)) {
+            if (importedId > 0 && bookExistsById(importedId)) {
                 // The book ID already exists in our database.
                 // We will update/skip using the DataReader.Updates#updateOptions.
 
@@ -140,6 +407,11 @@ public abstract class BaseRecordReader
                 updateOrSkipExistingBook(context, book);
 
             } else {
+                if (importedId <= 0) {
+                    // Neither UUID nor ID; we cannot tell if a book with the same ISBN
+                    // is the same book, or another copy/edition the user owns.
+                    reportKnownIsbn(book);
+                }
                 // The book ID is not in use, just insert the book reusing the id.
                 insertBook(context, book);
             }
@@ -171,6 +443,14 @@ public abstract class BaseRecordReader
                                                  BookDao.BookFlag.UseIdIfPresent));
         results.booksCreated++;
 
+        // The new book must be found by any following lookups.
+        if (uuidFilter != null) {
+            uuidFilter.put(book.getString(DBKey.BOOK_UUID));
+        }
+        if (idFilter != null) {
+            idFilter.put(book.getId());
+        }
+
         if (BuildConfig.DEBUG && DEBUG_SWITCHES.IMPORT_CSV_BOOKS) {
             LoggerFactory.getLogger().d(TAG, "insertBook",
                                         "preImport=" + preImportId, preImportUuid,
@@ -129,12 +129,16 @@ public class ExportFragment
             vm.setRecordType(isChecked, RecordType.Books);
             vb.rbExportAll.setEnabled(isChecked);
             vb.rbExportNewAndUpdated.setEnabled(isChecked);
+            vb.cbxBinaryBooks.setEnabled(isChecked && vm.getEncoding() == ArchiveEncoding.Zip);
         });
+        vb.cbxBinaryBooks.setOnCheckedChangeListener((buttonView, isChecked) -> vm
+                .setBinaryBooks(isChecked));
 
         vb.archiveFormat.setOnItemClickListener(
                 (p, v, position, id) -> updateFormatSelection(vm.getEncoding(position)));
 
         vb.infExportNewAndUpdated.setOnClickListener(StandardDialogs::infoPopup);
+        vb.infBinaryBooks.setOnClickListener(StandardDialogs::infoPopup);
 
         final FloatingActionButton fab = getFab();
         fab.setImageResource(R.drawable.upload_24px);
@@ -159,6 +163,8 @@ public class ExportFragment
         vb.rbExportAll.setChecked(!incremental);
         vb.rbExportNewAndUpdated.setChecked(incremental);
 
+        vb.cbxBinaryBooks.setChecked(vm.isBinaryBooks());
+
         //noinspection DataFlowIssue
         final Pair<Integer, List<String>> fo = vm.getFormatOptions(getContext());
         final int initialPos = fo.first;
@@ -200,6 +206,8 @@ public class ExportFragment
 
                 vb.cbxCovers.setChecked(true);
                 vb.cbxCovers.setEnabled(true);
+
+                vb.cbxBinaryBooks.setEnabled(vb.cbxBooks.isChecked());
                 break;
             }
             case Json: {
@@ -220,6 +228,9 @@ public class ExportFragment
 
                 vb.cbxCovers.setChecked(false);
                 vb.cbxCovers.setEnabled(false);
+
+                vb.cbxBinaryBooks.setChecked(false);
+                vb.cbxBinaryBooks.setEnabled(false);
                 break;
             }
             case SqLiteDb: {
@@ -240,6 +251,9 @@ public class ExportFragment
 
                 vb.cbxCovers.setChecked(false);
                 vb.cbxCovers.setEnabled(false);
+
+                vb.cbxBinaryBooks.setChecked(false);
+                vb.cbxBinaryBooks.setEnabled(false);
                 break;
             }
             case Csv:
@@ -43,15 +43,19 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.backup.zip.ZipArchiveWriter;
 import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriterException;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriterHelperBase;
+import com.hardbacknutter.nevertoomanybooks.io.RecordEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.RecordType;
 
 /**
@@ -66,6 +70,13 @@ public class ExportHelper
     public static final String PK_BACKUP_COUNTDOWN = "startup.backupCountdown";
     /** Last full backup/export date. */
     private static final String PK_LAST_FULL_BACKUP_DATE = "backup.last.date";
+    /**
+     * The SHA-256 hash of the last (full or differential) zip backup.
+     * Used as the base for the next differential backup.
+     */
+    private static final String PK_LAST_BACKUP_HASH = "backup.last.hash";
+    /** The {@link BookChangesDao} consumer name for the zip backups. */
+    private static final String JOURNAL_CONSUMER = "backup.zip";
     /** Log tag. */
     private static final String TAG = "ExportHelper";
     private static final String ERROR_NO_URI = "uri";
@@ -77,6 +88,9 @@ public class ExportHelper
     /** <strong>How</strong> to write to the Uri. */
     @NonNull
     private ArchiveEncoding encoding;
+    /** <strong>How</strong> to write the books; only used for {@link ArchiveEncoding#Zip}. */
+    @NonNull
+    private RecordEncoding booksEncoding = RecordEncoding.Json;
 
     /**
      * Constructor.
@@ -129,6 +143,25 @@ public class ExportHelper
         this.encoding = encoding;
     }
 
+    /**
+     * Get the encoding for the books in a {@link ArchiveEncoding#Zip} archive.
+     *
+     * @return encoding
+     */
+    @NonNull
+    public RecordEncoding getBooksEncoding() {
+        return booksEncoding;
+    }
+
+    /**
+     * Set the encoding for the books in a {@link ArchiveEncoding#Zip} archive.
+     *
+     * @param booksEncoding either {@link RecordEncoding#Json} or {@link RecordEncoding#Binary}
+     */
+    public void setBooksEncoding(@NonNull final RecordEncoding booksEncoding) {
+        this.booksEncoding = booksEncoding;
+    }
+
     /**
      * Get the uri to which we'll write.
      *
@@ -174,14 +207,33 @@ public class ExportHelper
 
         final ExportResults results = new ExportResults();
         boolean isEmpty = false;
+        // Set if this archive can be the base of the next differential backup.
+        boolean isChainable = false;
+
+        final BookChangesDao bookChangesDao = ServiceLocator.getInstance().getBookChangesDao();
+        // get this BEFORE writing; see BookChangesDao#getLastSequence
+        final long lastSequence = bookChangesDao.getLastSequence();
 
         // Get a temporary file to write to.
         final File tmpFile = new File(context.getCacheDir(), TAG + ".tmp");
 
         try {
-            dataWriter = encoding.createWriter(context, getRecordTypes(),
-                                               getLastDone(context).orElse(null),
-                                               tmpFile);
+            final Optional<String> baseArchiveHash = getDifferentialBase(context);
+            // A full backup starts a new chain; a differential one extends a valid chain.
+            // A date based "new and updated" backup is partial and must never become a base.
+            isChainable = !isIncremental() || baseArchiveHash.isPresent();
+            if (baseArchiveHash.isPresent()) {
+                dataWriter = new ZipArchiveWriter(getRecordTypes(), baseArchiveHash.get(),
+                                                  bookChangesDao.getMark(JOURNAL_CONSUMER),
+                                                  tmpFile);
+            } else {
+                dataWriter = encoding.createWriter(context, getRecordTypes(),
+                                                   getLastDone(context).orElse(null),
+                                                   tmpFile);
+            }
+            if (dataWriter instanceof ZipArchiveWriter) {
+                ((ZipArchiveWriter) dataWriter).setBooksEncoding(booksEncoding);
+            }
 
             results.add(dataWriter.write(context, progressListener));
             isEmpty = results.isEmpty();
@@ -217,6 +269,16 @@ public class ExportHelper
                     FileUtils.copy(is, os);
                 }
             }
+
+            // This archive is the base for the next differential backup.
+            if (encoding == ArchiveEncoding.Zip && !isEmpty && isChainable
+                && getRecordTypes().contains(RecordType.Books)) {
+                PreferenceManager.getDefaultSharedPreferences(context)
+                                 .edit()
+                                 .putString(PK_LAST_BACKUP_HASH, FileUtils.getSha256(tmpFile))
+                                 .apply();
+                bookChangesDao.setMark(JOURNAL_CONSUMER, lastSequence);
+            }
         }
 
         // Whether success, failure or an empty-result, the temp file is always cleaned up.
@@ -224,6 +286,30 @@ public class ExportHelper
         return results;
     }
 
+    /**
+     * Check if we should write a differential backup; i.e. the user asked for
+     * "new and updated books" only, and we know the previous zip backup.
+     * <p>
+     * Falls back to the date based selection if there is no previous (v8+) zip backup.
+     *
+     * @param context Current context
+     *
+     * @return the hash of the archive to use as the base
+     */
+    @NonNull
+    private Optional<String> getDifferentialBase(@NonNull final Context context) {
+        if (encoding == ArchiveEncoding.Zip && isIncremental()
+            && getRecordTypes().contains(RecordType.Books)
+            && ServiceLocator.getInstance().getBookChangesDao().getMark(JOURNAL_CONSUMER) > 0) {
+            final String hash = PreferenceManager.getDefaultSharedPreferences(context)
+                                                 .getString(PK_LAST_BACKUP_HASH, null);
+            if (hash != null && !hash.isEmpty()) {
+                return Optional.of(hash);
+            }
+        }
+        return Optional.empty();
+    }
+
     /**
      * Get the last time we made a full export in the currently set encoding.
      *
@@ -284,6 +370,7 @@ public class ExportHelper
                + super.toString()
                + ", uri=" + uri
                + ", encoding=" + encoding
+               + ", booksEncoding=" + booksEncoding
                + ", dateParser=" + dateParser
                + '}';
     }
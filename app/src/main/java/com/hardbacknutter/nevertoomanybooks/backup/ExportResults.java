@@ -132,6 +132,7 @@ public class ExportResults
                 return deletedBooks > 0;
             case Books:
                 return getBookCount() > 0;
+            case CoverIndex:
             case Cover:
                 return getCoverCount() > 0;
 
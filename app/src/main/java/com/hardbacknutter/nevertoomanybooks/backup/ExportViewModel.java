@@ -35,6 +35,7 @@ import java.util.Set;
 import com.hardbacknutter.nevertoomanybooks.core.utils.UriInfo;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriterViewModel;
+import com.hardbacknutter.nevertoomanybooks.io.RecordEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.RecordType;
 
 /**
@@ -124,6 +125,27 @@ public class ExportViewModel
         return getDataWriterHelper().getEncoding();
     }
 
+    /**
+     * Check if the books in a {@link ArchiveEncoding#Zip} archive will use
+     * the compact binary encoding.
+     *
+     * @return {@code true} for {@link RecordEncoding#Binary}
+     */
+    boolean isBinaryBooks() {
+        return getDataWriterHelper().getBooksEncoding() == RecordEncoding.Binary;
+    }
+
+    /**
+     * Set the encoding for the books in a {@link ArchiveEncoding#Zip} archive.
+     *
+     * @param binary {@code true} for {@link RecordEncoding#Binary},
+     *               {@code false} for {@link RecordEncoding#Json}
+     */
+    void setBinaryBooks(final boolean binary) {
+        getDataWriterHelper().setBooksEncoding(binary ? RecordEncoding.Binary
+                                                      : RecordEncoding.Json);
+    }
+
     /**
      * Get the {@link ArchiveEncoding} for the given position in the dropdown menu.
      *
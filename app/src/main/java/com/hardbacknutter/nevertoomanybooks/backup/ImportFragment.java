@@ -359,6 +359,10 @@ public class ImportFragment
                                            getString(R.string.lbl_covers),
                                            String.valueOf(count))));
 
+                    if (metaData.getBaseArchiveHash().isPresent()) {
+                        info.add(getString(R.string.warning_import_differential));
+                    }
+
                     vb.archiveContent.setText(info.toString());
                     vb.archiveContent.setVisibility(View.VISIBLE);
 
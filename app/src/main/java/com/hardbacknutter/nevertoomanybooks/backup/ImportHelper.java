@@ -27,6 +27,8 @@ import androidx.annotation.VisibleForTesting;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import com.hardbacknutter.nevertoomanybooks.R;
@@ -57,6 +59,10 @@ public final class ImportHelper
     @NonNull
     private final Uri uri;
 
+    /** Differential archives to apply after reading the {@link #uri}. */
+    @NonNull
+    private final List<Uri> deltaUris = new ArrayList<>();
+
     /**
      * Constructor. The encoding will be determined from the Uri.
      *
@@ -134,13 +140,24 @@ public final class ImportHelper
         return uri;
     }
 
+    /**
+     * Set the differential archives to apply after reading the main {@link Uri}.
+     * Only supported for {@link ArchiveEncoding#Zip}.
+     *
+     * @param uris in the order they were written
+     */
+    public void setDeltaUris(@NonNull final List<Uri> uris) {
+        deltaUris.clear();
+        deltaUris.addAll(uris);
+    }
+
     @NonNull
     protected DataReader<ArchiveMetaData, ImportResults> createReader(
             @NonNull final Context context)
             throws DataReaderException,
                    CredentialsException,
                    IOException {
-        return encoding.createReader(context, systemLocale, uri,
+        return encoding.createReader(context, systemLocale, uri, deltaUris,
                                      getUpdateOption(),
                                      getRecordTypes());
     }
@@ -152,6 +169,7 @@ public final class ImportHelper
                + super.toString()
                + ", encoding=" + encoding
                + ", uri=" + uri
+               + ", deltaUris=" + deltaUris
                + '}';
     }
 }
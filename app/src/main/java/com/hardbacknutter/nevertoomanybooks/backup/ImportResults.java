@@ -100,6 +100,12 @@ public class ImportResults
     /** #deletedBook uuids we imported. */
     public int deletedBookRecords;
 
+    /**
+     * #books without a UUID or ID which were imported as new books,
+     * while a book with the same ISBN already existed.
+     */
+    public int booksWithKnownIsbn;
+
     /**
      * Constructor.
      */
@@ -119,6 +125,7 @@ public class ImportResults
         certificates = in.readInt();
         bookshelves = in.readInt();
         deletedBookRecords = in.readInt();
+        booksWithKnownIsbn = in.readInt();
 
         recordsSkipped = in.readInt();
         in.readList(failedLinesNr, getClass().getClassLoader());
@@ -140,6 +147,7 @@ public class ImportResults
         certificates += results.certificates;
         bookshelves += results.bookshelves;
         deletedBookRecords += results.deletedBookRecords;
+        booksWithKnownIsbn += results.booksWithKnownIsbn;
 
         recordsSkipped += results.recordsSkipped;
 
@@ -221,6 +229,13 @@ public class ImportResults
                     String.valueOf(bookshelves))));
         }
 
+        if (booksWithKnownIsbn > 0) {
+            lines.add(context.getString(R.string.list_element, context.getString(
+                    R.string.name_colon_value,
+                    context.getString(R.string.lbl_import_books_with_known_isbn),
+                    String.valueOf(booksWithKnownIsbn))));
+        }
+
         return lines;
     }
 
@@ -255,6 +270,7 @@ public class ImportResults
         dest.writeInt(certificates);
         dest.writeInt(bookshelves);
         dest.writeInt(deletedBookRecords);
+        dest.writeInt(booksWithKnownIsbn);
 
         dest.writeInt(recordsSkipped);
         dest.writeList(failedLinesNr);
@@ -271,6 +287,7 @@ public class ImportResults
                + ", certificates=" + certificates
                + ", bookshelves=" + bookshelves
                + ", deletedBooks=" + deletedBookRecords
+               + ", booksWithKnownIsbn=" + booksWithKnownIsbn
 
                + ", recordsSkipped=" + recordsSkipped
                + ", failedLinesNr=" + failedLinesNr
@@ -0,0 +1,308 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decodes the records of an import on a small pool of threads, ahead of the (single)
+ * calling thread which writes them to the database.
+ * <p>
+ * Each worker takes the next record index, decodes it with its own {@link Decoder},
+ * and parks the result until {@link #next()} asks for that index.
+ * The results are therefore returned in the original order.
+ * <p>
+ * At most {@link #MAX_AHEAD} records are decoded (or being decoded) ahead of the caller,
+ * so a slow database will stop the workers from running away with the memory.
+ * <p>
+ * If the number of records is not known up front, the {@link Decoder} returns {@code null}
+ * for all indexes past the end of the input.
+ * <p>
+ * Decoders <strong>can</strong> read from the database, but the caller must not hold a
+ * transaction while calling {@link #next()}.
+ *
+ * @param <T> type of the decoded records
+ * @param <E> the exception type the decoder can throw
+ */
+public class ParallelDecoder<T, E extends Exception>
+        implements Closeable {
+
+    /** The maximum number of records which are decoded ahead of the caller. */
+    @VisibleForTesting
+    static final int MAX_AHEAD = 256;
+    /** Leave one core for the caller, and don't go overboard on large devices. */
+    private static final int MAX_THREADS = 6;
+    /** How long {@link #next()} waits before checking if the workers are still alive. */
+    private static final long POLL_MS = 250;
+
+    /** The total number of records; {@link Integer#MAX_VALUE} if not known. */
+    private final int count;
+    @NonNull
+    private final Supplier<Decoder<T, E>> decoderSupplier;
+    @NonNull
+    private final ExecutorService executor;
+    private final int threads;
+
+    /** The next index a worker will decode. */
+    private final AtomicInteger nextToDecode = new AtomicInteger();
+    /** Limits the number of records decoded ahead. */
+    private final Semaphore ahead = new Semaphore(MAX_AHEAD);
+    /** The decoded records waiting for the caller; access must be synchronized on the map. */
+    private final Map<Integer, Result<T, E>> decoded = new HashMap<>();
+    /** The number of workers still running; access must be synchronized on {@link #decoded}. */
+    private int workersRunning;
+    /**
+     * The first index for which the decoder found the end of the input;
+     * access must be synchronized on {@link #decoded}.
+     */
+    private int end = Integer.MAX_VALUE;
+    /** Set when a worker died unexpectedly. */
+    @Nullable
+    private volatile Throwable failure;
+
+    /** The next index {@link #next()} will return. */
+    private int nextToReturn;
+
+    /**
+     * Constructor.
+     *
+     * @param count           the number of records to decode; i.e. indexes {@code 0..count-1}
+     * @param decoderSupplier creates a new {@link Decoder} for each worker thread
+     */
+    public ParallelDecoder(@IntRange(from = 0) final int count,
+                           @NonNull final Supplier<Decoder<T, E>> decoderSupplier) {
+        this(count, count, decoderSupplier);
+    }
+
+    /**
+     * Constructor for an input of which the number of records is not known up front.
+     * The {@link Decoder} must return {@code null} for all indexes past the end of the input.
+     *
+     * @param decoderSupplier creates a new {@link Decoder} for each worker thread
+     * @param estimatedCount  the expected number of records; only used to size the pool
+     */
+    public ParallelDecoder(@NonNull final Supplier<Decoder<T, E>> decoderSupplier,
+                           @IntRange(from = 0) final int estimatedCount) {
+        this(Integer.MAX_VALUE, estimatedCount, decoderSupplier);
+    }
+
+    private ParallelDecoder(@IntRange(from = 0) final int count,
+                            @IntRange(from = 0) final int estimatedCount,
+                            @NonNull final Supplier<Decoder<T, E>> decoderSupplier) {
+        this.count = count;
+        this.decoderSupplier = decoderSupplier;
+
+        final int cores = Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(MAX_THREADS, Math.min(cores - 1, estimatedCount / 16)));
+        executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "ImportDecoder"));
+    }
+
+    /**
+     * Start decoding in the background.
+     */
+    public void start() {
+        workersRunning = threads;
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Get the next decoded record; waits for it to be decoded if needed.
+     *
+     * @return the next record, or {@code null} when all records have been returned
+     *
+     * @throws InterruptedIOException if the caller was interrupted while waiting
+     */
+    @WorkerThread
+    @Nullable
+    public Result<T, E> next()
+            throws InterruptedIOException {
+        if (nextToReturn >= count) {
+            return null;
+        }
+        try {
+            synchronized (decoded) {
+                Result<T, E> result;
+                while ((result = decoded.remove(nextToReturn)) == null) {
+                    if (nextToReturn >= end) {
+                        return null;
+                    }
+                    if (workersRunning == 0 || failure != null) {
+                        // Should never get here, unless a worker died.
+                        throw new IllegalStateException("Decoder stopped at " + nextToReturn,
+                                                        failure);
+                    }
+                    decoded.wait(POLL_MS);
+                }
+                nextToReturn++;
+                ahead.release();
+                return result;
+            }
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void work() {
+        try {
+            final Decoder<T, E> decoder = decoderSupplier.get();
+            while (true) {
+                // Take a permit BEFORE the index, so the lowest outstanding index
+                // is always being decoded and the caller can never be starved.
+                ahead.acquire();
+                final int index = nextToDecode.getAndIncrement();
+                if (index >= count) {
+                    ahead.release();
+                    return;
+                }
+
+                Result<T, E> result;
+                try {
+                    final T value = decoder.decode(index);
+                    if (value == null) {
+                        // End of the input; all following indexes will be past it as well.
+                        synchronized (decoded) {
+                            end = Math.min(end, index);
+                            decoded.notifyAll();
+                        }
+                        ahead.release();
+                        return;
+                    }
+                    result = new Result<>(index, value, null);
+                } catch (@NonNull final Exception e) {
+                    result = new Result<>(index, null, e);
+                }
+                synchronized (decoded) {
+                    decoded.put(index, result);
+                    decoded.notifyAll();
+                }
+            }
+        } catch (@NonNull final InterruptedException ignore) {
+            // closed
+        } catch (@NonNull final RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            synchronized (decoded) {
+                workersRunning--;
+                decoded.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stop all workers. Any records not yet returned are discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            executor.awaitTermination(POLL_MS, TimeUnit.MILLISECONDS);
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decodes a single record. Each worker thread uses its own instance,
+     * so implementations do <strong>not</strong> need to be thread-safe.
+     *
+     * @param <T> type of the decoded record
+     * @param <E> the exception type the decoder can throw
+     */
+    @FunctionalInterface
+    public interface Decoder<T, E extends Exception> {
+
+        /**
+         * Decode a record.
+         *
+         * @param index of the record; {@code 0..count-1}
+         *
+         * @return the decoded record, or {@code null} if the index is past the end of the input
+         *
+         * @throws E on failure to decode this record; will be rethrown by {@link Result#get()}
+         */
+        @Nullable
+        T decode(int index)
+                throws E;
+    }
+
+    /**
+     * A decoded record, or the exception thrown while decoding it.
+     *
+     * @param <T> type of the decoded record
+     * @param <E> the exception type the decoder can throw
+     */
+    public static final class Result<T, E extends Exception> {
+
+        /** The index of the record. */
+        public final int index;
+        @Nullable
+        private final T value;
+        @Nullable
+        private final Exception exception;
+
+        private Result(final int index,
+                       @Nullable final T value,
+                       @Nullable final Exception exception) {
+            this.index = index;
+            this.value = value;
+            this.exception = exception;
+        }
+
+        /**
+         * Get the decoded record.
+         *
+         * @return record
+         *
+         * @throws E the exception thrown by the decoder for this record
+         */
+        @SuppressWarnings("unchecked")
+        @NonNull
+        public T get()
+                throws E {
+            if (exception != null) {
+                if (exception instanceof RuntimeException) {
+                    throw (RuntimeException) exception;
+                }
+                throw (E) exception;
+            }
+            //noinspection DataFlowIssue
+            return value;
+        }
+    }
+}
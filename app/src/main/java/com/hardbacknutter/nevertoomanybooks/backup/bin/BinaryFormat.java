@@ -0,0 +1,89 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary, length-prefixed record format used by {@link BinaryRecordWriter}
+ * and {@link BinaryRecordReader}.
+ * <p>
+ * All integers are unsigned LEB128 varints unless noted.
+ * <pre>
+ *     file   := header block* end
+ *     header := "NTMB" version(byte) estimatedRecordCount
+ *     block  := recordCount(> 0) rawLength method(byte) storedLength storedBytes
+ *     end    := recordCount(== 0)
+ *     record := length value
+ * </pre>
+ * The stored bytes of a block are either the raw bytes ({@link #METHOD_STORED}),
+ * or the raw bytes compressed with a raw (no header) deflate ({@link #METHOD_DEFLATE}).
+ * <p>
+ * A value starts with a one byte tag:
+ * <ul>
+ *     <li>{@link #NULL}, {@link #FALSE}, {@link #TRUE}: no payload</li>
+ *     <li>{@link #INT}: zigzag encoded varint</li>
+ *     <li>{@link #BIG_INT}: length + two's-complement big-endian bytes</li>
+ *     <li>{@link #DECIMAL}: zigzag encoded scale + length + unscaled bytes</li>
+ *     <li>{@link #STRING}: length + UTF-8 bytes</li>
+ *     <li>{@link #STRING_NEW}: as {@link #STRING}, and the string is added to the table</li>
+ *     <li>{@link #STRING_REF}: index into the string table</li>
+ *     <li>{@link #OBJECT}: count + count * (key value); the key is a string value</li>
+ *     <li>{@link #ARRAY}: count + count * value</li>
+ * </ul>
+ * The string table is shared by all blocks, and only holds strings of up to
+ * {@link #MAX_INTERNED_LENGTH} characters; these are the keys, and the names of the
+ * authors, publishers, series, ... which are repeated over and over.
+ */
+final class BinaryFormat {
+
+    /** File signature. */
+    static final byte[] MAGIC = "NTMB".getBytes(StandardCharsets.US_ASCII);
+    /** The current format version. */
+    static final int VERSION = 1;
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATE = 1;
+
+    /** A block is written when its raw size reaches this size. */
+    static final int BLOCK_SIZE = 64 * 1024;
+    /** Sanity limit when reading; a single (large) record can exceed {@link #BLOCK_SIZE}. */
+    static final int MAX_BLOCK_LENGTH = 64 * 1024 * 1024;
+
+    /** Longer strings are never added to the string table. */
+    static final int MAX_INTERNED_LENGTH = 64;
+    /** When the table is full, new strings are written as-is. */
+    static final int MAX_STRINGS = 1 << 16;
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int INT = 3;
+    static final int BIG_INT = 4;
+    static final int DECIMAL = 5;
+    static final int STRING = 6;
+    static final int STRING_NEW = 7;
+    static final int STRING_REF = 8;
+    static final int OBJECT = 9;
+    static final int ARRAY = 10;
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import android.content.Context;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+
+import com.hardbacknutter.nevertoomanybooks.R;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.backup.BaseRecordReader;
+import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
+import com.hardbacknutter.nevertoomanybooks.backup.ParallelDecoder;
+import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BookCoder;
+import com.hardbacknutter.nevertoomanybooks.backup.json.coders.JsonCoder;
+import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
+import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.UncheckedDaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.nevertoomanybooks.io.ArchiveReaderRecord;
+import com.hardbacknutter.nevertoomanybooks.io.DataReader;
+import com.hardbacknutter.nevertoomanybooks.io.DataReaderException;
+import com.hardbacknutter.nevertoomanybooks.io.RecordType;
+import com.hardbacknutter.org.json.JSONException;
+import com.hardbacknutter.org.json.JSONObject;
+
+/**
+ * Read {@link RecordType#Books} in the {@link BinaryFormat}.
+ * <p>
+ * The blocks are read as the decoder threads need them, and the records are decoded
+ * with the {@link BookCoder} in parallel across block boundaries.
+ * The books are then written to the database in the original order.
+ */
+public class BinaryRecordReader
+        extends BaseRecordReader {
+
+    @NonNull
+    private final Set<RecordType> allowedTypes;
+
+    /**
+     * Constructor.
+     *
+     * @param systemLocale to use for ISO date parsing
+     * @param allowedTypes the record types we're allowed to read
+     * @param updateOption options
+     */
+    @AnyThread
+    public BinaryRecordReader(@NonNull final Locale systemLocale,
+                              @NonNull final Set<RecordType> allowedTypes,
+                              @NonNull final DataReader.Updates updateOption) {
+        super(systemLocale, updateOption);
+        this.allowedTypes = allowedTypes;
+    }
+
+    @Override
+    @NonNull
+    public ImportResults read(@NonNull final Context context,
+                              @NonNull final ArchiveReaderRecord record,
+                              @NonNull final ProgressListener progressListener)
+            throws DataReaderException,
+                   StorageException,
+                   IOException {
+
+        results = new ImportResults();
+
+        if (record.getType().isPresent()
+            && record.getType().get() == RecordType.Books
+            && allowedTypes.contains(RecordType.Books)) {
+
+            final Style defaultStyle = ServiceLocator.getInstance().getStyles().getDefault();
+
+            // Don't close this stream; the BlockReader will leave it open
+            try (BlockReader blockReader = new BlockReader(record.getInputStream())) {
+                readBooks(context, blockReader, defaultStyle, progressListener);
+
+            } catch (@NonNull final DataFormatException | JSONException
+                                    | UncheckedDaoWriteException e) {
+                // Unpack if possible
+                if (e.getCause() instanceof DaoWriteException) {
+                    throw new DataReaderException(context.getString(
+                            R.string.error_import_failed_for_record,
+                            RecordType.Books.getName()), e.getCause());
+                }
+                throw new DataReaderException(context.getString(
+                        R.string.error_import_failed_for_record,
+                        RecordType.Books.getName()), e);
+            }
+        }
+        return results;
+    }
+
+    private void readBooks(@NonNull final Context context,
+                           @NonNull final BlockReader blockReader,
+                           @NonNull final Style defaultStyle,
+                           @NonNull final ProgressListener progressListener)
+            throws StorageException,
+                   DataReaderException,
+                   IOException {
+
+        progressListener.publishProgress(0, context.getString(R.string.lbl_books));
+
+        final int estimatedCount = blockReader.getEstimatedRecordCount();
+        // not perfect, but good enough
+        if (progressListener.getMaxPos() < estimatedCount) {
+            progressListener.setMaxPos(estimatedCount);
+        }
+
+        createPresenceFilters(estimatedCount);
+
+        final RecordSource source = new RecordSource(blockReader);
+        // One decoder for all blocks; the workers read the next block when they need it.
+        try (ParallelDecoder<Book, DataReaderException> decoder = new ParallelDecoder<>(() -> {
+            final JsonCoder<Book> bookCoder = new BookCoder(context, defaultStyle);
+            return index -> {
+                try {
+                    final JSONObject record = source.get(index);
+                    return record == null ? null : bookCoder.decode(record);
+                } catch (@NonNull final DataFormatException | JSONException | IOException e) {
+                    throw new DataReaderException(context.getString(
+                            R.string.error_import_failed_for_record,
+                            RecordType.Books.getName()), e);
+                }
+            };
+        }, estimatedCount)) {
+            // A failure to read or decode a record is fatal, just as it is for the JSON records.
+            importBooks(context, decoder, progressListener);
+        }
+    }
+
+    /**
+     * Hands out the records of all blocks by their index in the stream, reading
+     * the blocks as they are needed. A block is released as soon as all its records
+     * have been handed out.
+     * <p>
+     * The {@link ParallelDecoder} asks for each index exactly once, and only a limited
+     * number of records ahead of the caller, so only a few blocks are kept in memory.
+     */
+    private static final class RecordSource {
+
+        @NonNull
+        private final BlockReader blockReader;
+        /** The blocks read but not yet fully handed out; in stream order. */
+        private final Deque<Block> blocks = new ArrayDeque<>();
+        /** The index of the first record after the blocks read so far. */
+        private int loaded;
+        private boolean endReached;
+
+        RecordSource(@NonNull final BlockReader blockReader) {
+            this.blockReader = blockReader;
+        }
+
+        /**
+         * Get the record with the given index.
+         *
+         * @param index of the record in the stream
+         *
+         * @return the record, or {@code null} if the index is past the end of the stream
+         *
+         * @throws DataFormatException on a corrupt block
+         * @throws IOException         on generic/other IO failures
+         */
+        @Nullable
+        synchronized JSONObject get(final int index)
+                throws DataFormatException, IOException {
+            while (index >= loaded && !endReached) {
+                final List<JSONObject> records = blockReader.nextBlock();
+                if (records == null) {
+                    endReached = true;
+                } else {
+                    blocks.addLast(new Block(loaded, records));
+                    loaded += records.size();
+                }
+            }
+            if (index >= loaded) {
+                return null;
+            }
+
+            JSONObject record = null;
+            for (final Block block : blocks) {
+                if (index < block.start + block.records.size()) {
+                    record = block.take(index);
+                    break;
+                }
+            }
+            while (!blocks.isEmpty() && blocks.peekFirst().remaining == 0) {
+                blocks.removeFirst();
+            }
+            return record;
+        }
+    }
+
+    private static final class Block {
+
+        /** The index in the stream of the first record of this block. */
+        final int start;
+        @NonNull
+        final List<JSONObject> records;
+        /** The number of records not yet handed out. */
+        int remaining;
+
+        Block(final int start,
+              @NonNull final List<JSONObject> records) {
+            this.start = start;
+            this.records = records;
+            remaining = records.size();
+        }
+
+        @NonNull
+        JSONObject take(final int index) {
+            remaining--;
+            // Let go of the record as soon as it's handed out.
+            return records.set(index - start, null);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.backup.ExportResults;
+import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BookCoder;
+import com.hardbacknutter.nevertoomanybooks.backup.json.coders.JsonCoder;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.covers.CoverStorage;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.nevertoomanybooks.io.DataWriter;
+import com.hardbacknutter.nevertoomanybooks.io.DataWriterException;
+import com.hardbacknutter.nevertoomanybooks.io.RecordType;
+import com.hardbacknutter.nevertoomanybooks.io.RecordWriter;
+import com.hardbacknutter.org.json.JSONException;
+
+/**
+ * Write {@link RecordType#Books} in the {@link BinaryFormat}.
+ * <p>
+ * Each book is encoded with the {@link BookCoder}, i.e. the binary records hold exactly
+ * the same data as the JSON records. The books are streamed from the database,
+ * so memory use does not depend on the number of books.
+ * <p>
+ * Supports:
+ * <ul>
+ *      <li>{@link RecordType#Books}</li>
+ *      <li>{@link RecordType#Cover}: only collects the cover file names
+ *          for the archive writer</li>
+ * </ul>
+ */
+public class BinaryRecordWriter
+        implements RecordWriter {
+
+    @Nullable
+    private final LocalDateTime utcSinceDateTime;
+    /**
+     * If {@code > 0}, only write the books changed after this
+     * {@link BookChangesDao} sequence number; {@link #utcSinceDateTime} is then ignored.
+     */
+    private final long sinceSequence;
+    /** Deflate each block. */
+    private final boolean compress;
+
+    /**
+     * Constructor.
+     *
+     * @param utcSinceDateTime (optional) UTC based date to select only items
+     *                         modified or added since.
+     * @param compress         {@code true} to deflate each block
+     */
+    @AnyThread
+    public BinaryRecordWriter(@Nullable final LocalDateTime utcSinceDateTime,
+                              final boolean compress) {
+        this.utcSinceDateTime = utcSinceDateTime;
+        this.sinceSequence = 0;
+        this.compress = compress;
+    }
+
+    /**
+     * Constructor for a differential backup.
+     *
+     * @param sinceSequence only write the books changed after this
+     *                      {@link BookChangesDao} sequence number.
+     * @param compress      {@code true} to deflate each block
+     */
+    @AnyThread
+    public BinaryRecordWriter(final long sinceSequence,
+                              final boolean compress) {
+        this.utcSinceDateTime = null;
+        this.sinceSequence = sinceSequence;
+        this.compress = compress;
+    }
+
+    /**
+     * Not supported; binary records can only be written to an {@link OutputStream}.
+     *
+     * @throws IllegalStateException always
+     */
+    @Override
+    @NonNull
+    public ExportResults write(@NonNull final Context context,
+                               @NonNull final Writer writer,
+                               @NonNull final Set<RecordType> recordTypes,
+                               @NonNull final ProgressListener progressListener) {
+        throw new IllegalStateException(DataWriter.ERROR_NO_WRITER_AVAILABLE);
+    }
+
+    @Override
+    @NonNull
+    public ExportResults write(@NonNull final Context context,
+                               @NonNull final OutputStream outputStream,
+                               @NonNull final Set<RecordType> recordTypes,
+                               @NonNull final ProgressListener progressListener)
+            throws DataWriterException,
+                   IOException {
+
+        final ExportResults results = new ExportResults();
+
+        if (!recordTypes.contains(RecordType.Books) || progressListener.isCancelled()) {
+            return results;
+        }
+
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        final CoverStorage coverStorage = serviceLocator.getCoverStorage();
+        final BookDao bookDao = serviceLocator.getBookDao();
+
+        final boolean collectCoverFilenames = recordTypes.contains(RecordType.Cover);
+
+        final JsonCoder<Book> coder = new BookCoder(context,
+                                                    serviceLocator.getStyles().getDefault());
+        int delta = 0;
+        long lastUpdate = 0;
+
+        try (Cursor cursor = sinceSequence > 0
+                             ? bookDao.fetchBooksForExport(sinceSequence)
+                             : bookDao.fetchBooksForExport(utcSinceDateTime);
+             BlockWriter blockWriter = new BlockWriter(outputStream, cursor.getCount(),
+                                                       compress)) {
+
+            while (cursor.moveToNext() && !progressListener.isCancelled()) {
+                final Book book = Book.from(cursor);
+                blockWriter.write(coder.encode(book));
+                results.addBook(book.getId());
+
+                if (collectCoverFilenames) {
+                    for (int cIdx = 0; cIdx < 2; cIdx++) {
+                        final String uuid = book.getString(DBKey.BOOK_UUID);
+                        coverStorage.getPersistedFile(uuid, cIdx)
+                                    .ifPresent(results::addCover);
+                    }
+                }
+
+                delta++;
+                final long now = System.currentTimeMillis();
+                if ((now - lastUpdate) > progressListener.getUpdateIntervalInMs()) {
+                    progressListener.publishProgress(delta, book.getTitle());
+                    lastUpdate = now;
+                    delta = 0;
+                }
+            }
+        } catch (@NonNull final JSONException e) {
+            throw new DataWriterException(e);
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONObject;
+
+/**
+ * Reads {@link JSONObject} records in the {@link BinaryFormat}; one block at a time.
+ * <p>
+ * The values are decoded to the same types as the JSON parser would produce:
+ * {@link Integer} or {@link Long}, {@link BigInteger}, {@link BigDecimal},
+ * {@link String}, {@link Boolean} and {@link JSONObject#NULL}.
+ * <p>
+ * {@link #close()} does <strong>not</strong> close the underlying stream.
+ */
+class BlockReader
+        implements Closeable {
+
+    @NonNull
+    private final InputStream in;
+    /** The (estimated) number of records as given by the writer; {@code 0} if unknown. */
+    private final int estimatedRecordCount;
+
+    /** The string table. */
+    private final List<String> strings = new ArrayList<>();
+
+    @Nullable
+    private Inflater inflater;
+    @NonNull
+    private byte[] stored = new byte[0];
+    @NonNull
+    private byte[] buf = new byte[BinaryFormat.BLOCK_SIZE];
+    private int pos;
+    private int limit;
+
+    private boolean endReached;
+
+    /**
+     * Constructor. Reads and validates the file header.
+     *
+     * @param in to read from
+     *
+     * @throws DataFormatException if the stream is not in the {@link BinaryFormat},
+     *                             or is a newer version
+     * @throws IOException         on generic/other IO failures
+     */
+    BlockReader(@NonNull final InputStream in)
+            throws DataFormatException, IOException {
+        this.in = in;
+
+        final byte[] magic = new byte[BinaryFormat.MAGIC.length];
+        readFully(magic, magic.length);
+        if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+            throw new DataFormatException("Not a binary record file");
+        }
+        final int version = readByte();
+        if (version != BinaryFormat.VERSION) {
+            throw new DataFormatException("Unsupported version: " + version);
+        }
+        estimatedRecordCount = (int) Math.min(Integer.MAX_VALUE, readStreamVarLong());
+    }
+
+    /**
+     * Get the number of records the writer expected to write.
+     *
+     * @return count, or {@code 0} if unknown
+     */
+    int getEstimatedRecordCount() {
+        return estimatedRecordCount;
+    }
+
+    /**
+     * Read the next block.
+     *
+     * @return the records, or {@code null} at the end of the stream
+     *
+     * @throws DataFormatException on a corrupt block
+     * @throws IOException         on generic/other IO failures
+     */
+    @Nullable
+    List<JSONObject> nextBlock()
+            throws DataFormatException, IOException {
+        if (endReached) {
+            return null;
+        }
+
+        final long recordCount = readStreamVarLong();
+        if (recordCount == 0) {
+            endReached = true;
+            return null;
+        }
+        final int rawLength = checkLength(readStreamVarLong());
+        final int method = readByte();
+        final int storedLength = checkLength(readStreamVarLong());
+        if (recordCount > rawLength) {
+            throw new DataFormatException("Invalid record count: " + recordCount);
+        }
+
+        if (buf.length < rawLength) {
+            buf = new byte[rawLength];
+        }
+
+        switch (method) {
+            case BinaryFormat.METHOD_STORED: {
+                if (storedLength != rawLength) {
+                    throw new DataFormatException("Invalid block length: " + storedLength);
+                }
+                readFully(buf, rawLength);
+                break;
+            }
+            case BinaryFormat.METHOD_DEFLATE: {
+                if (stored.length < storedLength) {
+                    stored = new byte[storedLength];
+                }
+                readFully(stored, storedLength);
+                if (inflater == null) {
+                    inflater = new Inflater(true);
+                } else {
+                    inflater.reset();
+                }
+                inflater.setInput(stored, 0, storedLength);
+                final int length = inflater.inflate(buf, 0, rawLength);
+                if (length != rawLength) {
+                    throw new DataFormatException("Invalid block length: " + length);
+                }
+                break;
+            }
+            default:
+                throw new DataFormatException("Unknown method: " + method);
+        }
+
+        pos = 0;
+        limit = rawLength;
+
+        final List<JSONObject> list = new ArrayList<>((int) recordCount);
+        for (long i = 0; i < recordCount; i++) {
+            final int length = checkLength(readVarLong());
+            final int end = pos + length;
+            if (end > limit) {
+                throw new DataFormatException("Truncated record");
+            }
+            final Object value = readValue();
+            if (pos != end) {
+                throw new DataFormatException("Invalid record length: " + length);
+            }
+            if (!(value instanceof JSONObject)) {
+                throw new DataFormatException("Record is not an object");
+            }
+            list.add((JSONObject) value);
+        }
+        if (pos != limit) {
+            throw new DataFormatException("Trailing data in block");
+        }
+        return list;
+    }
+
+    @NonNull
+    private Object readValue()
+            throws DataFormatException {
+        final int tag = readBufByte();
+        switch (tag) {
+            case BinaryFormat.NULL:
+                return JSONObject.NULL;
+            case BinaryFormat.FALSE:
+                return Boolean.FALSE;
+            case BinaryFormat.TRUE:
+                return Boolean.TRUE;
+
+            case BinaryFormat.INT: {
+                final long v = readVarLong();
+                final long value = (v >>> 1) ^ -(v & 1);
+                // Narrow, just like the JSON parser does
+                if (value == (int) value) {
+                    return (int) value;
+                }
+                return value;
+            }
+            case BinaryFormat.BIG_INT:
+                return new BigInteger(readBytes());
+
+            case BinaryFormat.DECIMAL: {
+                final long v = readVarLong();
+                final int scale = (int) ((v >>> 1) ^ -(v & 1));
+                return new BigDecimal(new BigInteger(readBytes()), scale);
+            }
+
+            case BinaryFormat.STRING:
+                return readString();
+
+            case BinaryFormat.STRING_NEW:
+            case BinaryFormat.STRING_REF:
+                return readInterned(tag);
+
+            case BinaryFormat.OBJECT: {
+                final int count = checkCount(readVarLong());
+                final JSONObject object = new JSONObject();
+                for (int i = 0; i < count; i++) {
+                    final Object key = readValue();
+                    if (!(key instanceof String)) {
+                        throw new DataFormatException("Invalid key");
+                    }
+                    object.put((String) key, readValue());
+                }
+                return object;
+            }
+            case BinaryFormat.ARRAY: {
+                final int count = checkCount(readVarLong());
+                final JSONArray array = new JSONArray(count);
+                for (int i = 0; i < count; i++) {
+                    array.put(readValue());
+                }
+                return array;
+            }
+            default:
+                throw new DataFormatException("Unknown tag: " + tag);
+        }
+    }
+
+    @NonNull
+    private String readInterned(final int tag)
+            throws DataFormatException {
+        if (tag == BinaryFormat.STRING_NEW) {
+            final String value = readString();
+            strings.add(value);
+            return value;
+        }
+
+        final long index = readVarLong();
+        if (index >= strings.size()) {
+            throw new DataFormatException("Invalid string reference: " + index);
+        }
+        return strings.get((int) index);
+    }
+
+    @NonNull
+    private String readString()
+            throws DataFormatException {
+        final int length = checkCount(readVarLong());
+        final String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    @NonNull
+    private byte[] readBytes()
+            throws DataFormatException {
+        final int length = checkCount(readVarLong());
+        if (length == 0) {
+            throw new DataFormatException("Invalid number");
+        }
+        final byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+        pos += length;
+        return bytes;
+    }
+
+    /**
+     * Check a count/length read from the block against the remaining bytes.
+     * Every element takes at least one byte, so this also guards against
+     * allocating huge containers due to corrupt data.
+     */
+    private int checkCount(final long count)
+            throws DataFormatException {
+        if (count < 0 || count > limit - pos) {
+            throw new DataFormatException("Invalid length: " + count);
+        }
+        return (int) count;
+    }
+
+    private int checkLength(final long length)
+            throws DataFormatException {
+        if (length < 0 || length > BinaryFormat.MAX_BLOCK_LENGTH) {
+            throw new DataFormatException("Invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    private int readBufByte()
+            throws DataFormatException {
+        if (pos >= limit) {
+            throw new DataFormatException("Truncated block");
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private long readVarLong()
+            throws DataFormatException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final int b = readBufByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DataFormatException("Invalid varint");
+    }
+
+    private long readStreamVarLong()
+            throws DataFormatException, IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DataFormatException("Invalid varint");
+    }
+
+    private int readByte()
+            throws IOException {
+        final int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private void readFully(@NonNull final byte[] bytes,
+                           final int length)
+            throws IOException {
+        int done = 0;
+        while (done < length) {
+            final int read = in.read(bytes, done, length - done);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            done += read;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+}
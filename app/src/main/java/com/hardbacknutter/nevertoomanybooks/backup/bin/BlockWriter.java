@@ -0,0 +1,341 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONException;
+import com.hardbacknutter.org.json.JSONObject;
+
+/**
+ * Writes {@link JSONObject} records in the {@link BinaryFormat}.
+ * <p>
+ * Records are collected in memory until a block is full, and then written
+ * (and optionally compressed) in one go. Hence the memory needed does not depend
+ * on the number of records.
+ * <p>
+ * {@link #close()} writes the last block and the end marker, but does
+ * <strong>not</strong> close the underlying stream.
+ */
+class BlockWriter
+        implements Closeable {
+
+    @NonNull
+    private final OutputStream out;
+    @Nullable
+    private final Deflater deflater;
+
+    /** The string table; string to index. */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /** The record being encoded. */
+    private final Output record = new Output(1024);
+    /** The records of the current block. */
+    private final Output block = new Output(BinaryFormat.BLOCK_SIZE + 1024);
+    /** The varints in front of the block. */
+    private final Output blockHeader = new Output(16);
+    private int recordsInBlock;
+
+    @Nullable
+    private byte[] compressed;
+
+    private boolean closed;
+
+    /**
+     * Constructor. Writes the file header.
+     *
+     * @param out                  to write to
+     * @param estimatedRecordCount the (estimated) number of records which will be written;
+     *                             {@code 0} if unknown
+     * @param compress             {@code true} to deflate each block
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    BlockWriter(@NonNull final OutputStream out,
+                @IntRange(from = 0) final int estimatedRecordCount,
+                final boolean compress)
+            throws IOException {
+        this.out = out;
+        deflater = compress ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+
+        final Output header = new Output(16);
+        header.write(BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length);
+        header.write(BinaryFormat.VERSION);
+        header.writeVarLong(estimatedRecordCount);
+        header.writeTo(out);
+    }
+
+    /**
+     * Write a single record.
+     *
+     * @param object to write
+     *
+     * @throws JSONException on a number which can not be represented; i.e. NaN or infinite
+     * @throws IOException   on generic/other IO failures
+     */
+    void write(@NonNull final JSONObject object)
+            throws JSONException, IOException {
+        record.reset();
+        writeValue(object);
+
+        block.writeVarLong(record.size());
+        block.write(record.buf, 0, record.size());
+        recordsInBlock++;
+
+        if (block.size() >= BinaryFormat.BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock()
+            throws IOException {
+        if (recordsInBlock == 0) {
+            return;
+        }
+
+        final int rawLength = block.size();
+        byte[] stored = block.buf;
+        int storedLength = rawLength;
+        int method = BinaryFormat.METHOD_STORED;
+
+        if (deflater != null) {
+            if (compressed == null || compressed.length < rawLength) {
+                compressed = new byte[rawLength];
+            }
+            deflater.reset();
+            deflater.setInput(block.buf, 0, rawLength);
+            deflater.finish();
+            final int length = deflater.deflate(compressed, 0, rawLength);
+            // Only use it if the output fitted, and is actually smaller
+            if (deflater.finished() && length < rawLength) {
+                stored = compressed;
+                storedLength = length;
+                method = BinaryFormat.METHOD_DEFLATE;
+            }
+        }
+
+        blockHeader.reset();
+        blockHeader.writeVarLong(recordsInBlock);
+        blockHeader.writeVarLong(rawLength);
+        blockHeader.write(method);
+        blockHeader.writeVarLong(storedLength);
+        blockHeader.writeTo(out);
+        out.write(stored, 0, storedLength);
+
+        block.reset();
+        recordsInBlock = 0;
+    }
+
+    private void writeValue(@Nullable final Object value)
+            throws JSONException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            record.write(BinaryFormat.NULL);
+
+        } else if (value instanceof String) {
+            writeString((String) value);
+
+        } else if (value instanceof Boolean) {
+            record.write((Boolean) value ? BinaryFormat.TRUE : BinaryFormat.FALSE);
+
+        } else if (value instanceof Integer || value instanceof Long
+                   || value instanceof Short || value instanceof Byte) {
+            record.write(BinaryFormat.INT);
+            record.writeZigZag(((Number) value).longValue());
+
+        } else if (value instanceof BigInteger) {
+            final BigInteger bigInteger = (BigInteger) value;
+            if (bigInteger.bitLength() < Long.SIZE) {
+                record.write(BinaryFormat.INT);
+                record.writeZigZag(bigInteger.longValue());
+            } else {
+                record.write(BinaryFormat.BIG_INT);
+                record.writeBytes(bigInteger.toByteArray());
+            }
+
+        } else if (value instanceof BigDecimal) {
+            writeDecimal((BigDecimal) value);
+
+        } else if (value instanceof Double || value instanceof Float) {
+            final double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new JSONException("Non-finite numbers are not allowed: " + value);
+            }
+            // Same as the JSON text; which would be read back as a BigDecimal.
+            writeDecimal(new BigDecimal(value.toString()));
+
+        } else if (value instanceof JSONObject) {
+            final JSONObject object = (JSONObject) value;
+            record.write(BinaryFormat.OBJECT);
+            record.writeVarLong(object.length());
+            for (final String key : object.keySet()) {
+                writeString(key);
+                writeValue(object.opt(key));
+            }
+
+        } else if (value instanceof JSONArray) {
+            final JSONArray array = (JSONArray) value;
+            final int length = array.length();
+            record.write(BinaryFormat.ARRAY);
+            record.writeVarLong(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(array.opt(i));
+            }
+
+        } else if (value instanceof Collection) {
+            writeValue(new JSONArray((Collection<?>) value));
+
+        } else if (value instanceof Map) {
+            writeValue(new JSONObject((Map<?, ?>) value));
+
+        } else {
+            // Same as the JSON text
+            writeString(value.toString());
+        }
+    }
+
+    private void writeDecimal(@NonNull final BigDecimal value) {
+        record.write(BinaryFormat.DECIMAL);
+        record.writeZigZag(value.scale());
+        record.writeBytes(value.unscaledValue().toByteArray());
+    }
+
+    private void writeString(@NonNull final String value) {
+        if (value.length() <= BinaryFormat.MAX_INTERNED_LENGTH) {
+            final Integer index = strings.get(value);
+            if (index != null) {
+                record.write(BinaryFormat.STRING_REF);
+                record.writeVarLong(index);
+                return;
+            }
+            if (strings.size() < BinaryFormat.MAX_STRINGS) {
+                strings.put(value, strings.size());
+                record.write(BinaryFormat.STRING_NEW);
+                record.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        record.write(BinaryFormat.STRING);
+        record.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                flushBlock();
+                // The end marker
+                out.write(0);
+                out.flush();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable byte array; unlike {@link java.io.ByteArrayOutputStream}
+     * it gives access to the array, and is not synchronized.
+     */
+    private static final class Output {
+
+        @NonNull
+        private byte[] buf;
+        private int count;
+
+        Output(final int capacity) {
+            buf = new byte[capacity];
+        }
+
+        int size() {
+            return count;
+        }
+
+        void reset() {
+            count = 0;
+        }
+
+        private void ensureCapacity(final int extra) {
+            if (count + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+            }
+        }
+
+        void write(final int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        void write(@NonNull final byte[] bytes,
+                   final int offset,
+                   final int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buf, count, length);
+            count += length;
+        }
+
+        /**
+         * Write the length of the given bytes, followed by the bytes.
+         *
+         * @param bytes to write
+         */
+        void writeBytes(@NonNull final byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeVarLong(final long value) {
+            ensureCapacity(10);
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte) v;
+        }
+
+        void writeZigZag(final long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeTo(@NonNull final OutputStream os)
+                throws IOException {
+            os.write(buf, 0, count);
+        }
+    }
+}
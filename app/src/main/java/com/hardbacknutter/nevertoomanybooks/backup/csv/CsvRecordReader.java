@@ -20,7 +20,6 @@
 package com.hardbacknutter.nevertoomanybooks.backup.csv;
 
 import android.content.Context;
-import android.database.sqlite.SQLiteDoneException;
 import android.os.Parcel;
 import android.os.Parcelable;
 
@@ -47,13 +46,12 @@ import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.backup.BaseRecordReader;
 import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
+import com.hardbacknutter.nevertoomanybooks.backup.ParallelDecoder;
 import com.hardbacknutter.nevertoomanybooks.backup.csv.coders.BookCoder;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
-import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
-import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
-import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveReaderRecord;
@@ -321,7 +319,8 @@ public class CsvRecordReader
                            @NonNull final List<String> books,
                            @NonNull final ProgressListener progressListener)
             throws StorageException,
-                   DataReaderException {
+                   DataReaderException,
+                   IOException {
 
         // First line in the import file must be the column names.
         final String columnHeader = books.get(0);
@@ -341,71 +340,118 @@ public class CsvRecordReader
             requireColumnOrThrow(context, csvColumnNames, DBKey.DATE_LAST_UPDATED__UTC);
         }
 
-        // One book == One row. We start after the headings row.
-        int row = 1;
-        // Instance in time when we last send a progress message
-        long lastUpdateTime = 0;
-        // Count the nr of books in between progress updates.
-        int delta = 0;
+        // Files from other apps have neither UUID nor ID; report their books
+        // with an ISBN we already have.
+        if (!csvColumnNames.contains(DBKey.BOOK_UUID)
+            && !csvColumnNames.contains("uuid")
+            && !csvColumnNames.contains(DBKey.PK_ID)) {
+            matchOnIsbn(collectIsbn(context, books, csvColumnNames));
+        }
+        // minus 1 for the headings row
+        createPresenceFilters(books.size() - 1);
 
         // not perfect, but good enough
         if (progressListener.getMaxPos() < books.size()) {
             progressListener.setMaxPos(books.size());
         }
 
-        final SynchronizedDb db = ServiceLocator.getInstance().getDb();
+        final Style defaultStyle = ServiceLocator.getInstance().getStyles().getDefault();
 
-        Synchronizer.SyncLock txLock = null;
+        // The rows are parsed and decoded in parallel; we only write the books here.
+        // Decoder index 0 is the first row after the headings row.
+        try (ParallelDecoder<Book, DataReaderException> decoder = new ParallelDecoder<>(
+                books.size() - 1, () -> {
+            final BookCoder bookCoder = new BookCoder(context, defaultStyle);
+            return index -> decodeRow(context, bookCoder, csvColumnNames,
+                                      index + 1, books.get(index + 1));
+        })) {
+            importBooks(context, decoder, progressListener);
+        }
+    }
 
-        final Style defaultStyle = ServiceLocator.getInstance().getStyles().getDefault();
-        final BookCoder bookCoder = new BookCoder(context, defaultStyle);
+    /**
+     * Books in a CSV file from another app have no UUID;
+     * see {@link #importBook(Context, Book)} for how these are imported.
+     *
+     * @return {@code false}
+     */
+    @Override
+    protected boolean isUuidRequired() {
+        return false;
+    }
 
-        while (row < books.size() && !progressListener.isCancelled()) {
+    /**
+     * A row which cannot be parsed is reported and skipped.
+     *
+     * @param e the exception thrown by the decoder
+     *
+     * @return {@code true} for a {@link DataReaderException}
+     */
+    @Override
+    protected boolean isSkippable(@NonNull final Exception e) {
+        return e instanceof DataReaderException;
+    }
 
-            if (!db.inTransaction()) {
-                txLock = db.beginTransaction(true);
-            }
+    /**
+     * Parse and decode a single row. Called concurrently from the decoder threads,
+     * each with its own {@link BookCoder}.
+     *
+     * @param context        Current context
+     * @param bookCoder      to use
+     * @param csvColumnNames the list with the field(column) names
+     * @param row            the row number; used for error reporting
+     * @param line           the row to decode
+     *
+     * @return the decoded book
+     *
+     * @throws DataReaderException on a parse error, or if the number of columns is wrong
+     */
+    @NonNull
+    private Book decodeRow(@NonNull final Context context,
+                           @NonNull final BookCoder bookCoder,
+                           @NonNull final List<String> csvColumnNames,
+                           final int row,
+                           @NonNull final String line)
+            throws DataReaderException {
+        final List<String> csvDataRow = parse(context, row, line);
+        if (csvDataRow.size() != csvColumnNames.size()) {
+            throw new DataReaderException(context.getString(
+                    R.string.error_import_csv_column_count_mismatch, row));
+        }
+        final Book book = bookCoder.decode(context, csvColumnNames, csvDataRow);
+        preprocessId(book);
+        preprocessUuid(book);
+        return book;
+    }
+
+    /**
+     * Collect the ISBN codes of all rows.
+     *
+     * @param context        Current context
+     * @param books          all lines from the file; the first line contains the column names
+     * @param csvColumnNames the list with the field(column) names
+     *
+     * @return list with the ISBN codes; rows without an ISBN are skipped
+     */
+    @NonNull
+    private List<ISBN> collectIsbn(@NonNull final Context context,
+                                   @NonNull final List<String> books,
+                                   @NonNull final List<String> csvColumnNames) {
+        final List<ISBN> isbnList = new ArrayList<>();
+        for (int row = 1; row < books.size(); row++) {
             try {
                 final List<String> csvDataRow = parse(context, row, books.get(row));
-
                 if (csvDataRow.size() == csvColumnNames.size()) {
-                    final Book book = bookCoder.decode(context, csvColumnNames, csvDataRow);
-                    preprocessId(book);
-                    preprocessUuid(book);
-                    importBook(context, book);
-
-                    if (txLock != null) {
-                        db.setTransactionSuccessful();
+                    final String isbnText = BookCoder.getIsbnText(csvColumnNames, csvDataRow);
+                    if (!isbnText.isEmpty()) {
+                        isbnList.add(new ISBN(isbnText, false));
                     }
-                } else {
-                    final String msg = context.getString(
-                            R.string.error_import_csv_column_count_mismatch, row);
-                    results.handleRowException(context, row, new DataReaderException(msg), msg);
-                }
-            } catch (@NonNull final DaoWriteException | DataReaderException
-                                    | SQLiteDoneException e) {
-                results.handleRowException(context, row, e, null);
-
-            } finally {
-                if (txLock != null) {
-                    db.endTransaction(txLock);
                 }
-            }
-
-            row++;
-
-            delta++;
-            final long now = System.currentTimeMillis();
-            if (now - lastUpdateTime > progressListener.getUpdateIntervalInMs()
-                && !progressListener.isCancelled()) {
-                progressListener.publishProgress(delta, results.createBooksSummaryLine(context));
-                lastUpdateTime = now;
-                delta = 0;
+            } catch (@NonNull final DataReaderException ignore) {
+                // The row will be reported when we import it
             }
         }
-
-        // minus 1 to compensate for the last increment
-        results.booksProcessed = row - 1;
+        return isbnList;
     }
 
     /**
@@ -186,6 +186,28 @@ public class BookCoder {
         return book;
     }
 
+    /**
+     * Get the cleaned ISBN text of a row, using the same rules as {@link #decode}.
+     * Meant to scan all rows before the actual import, without decoding them.
+     *
+     * @param csvColumnNames the list with the field(column) names
+     * @param csvDataRow     the list with the field data
+     *
+     * @return the ISBN text, can be empty
+     */
+    @NonNull
+    public static String getIsbnText(@NonNull final List<String> csvColumnNames,
+                                     @NonNull final List<String> csvDataRow) {
+        final int isbnIdx = csvColumnNames.indexOf(DBKey.BOOK_ISBN);
+        final int isbn10Idx = csvColumnNames.indexOf(Goodreads.ISBN10);
+        if (isbnIdx >= 0 && !csvDataRow.get(isbnIdx).isEmpty()) {
+            return ISBN.cleanText(csvDataRow.get(isbnIdx));
+        } else if (isbn10Idx >= 0) {
+            return ISBN.cleanText(csvDataRow.get(isbn10Idx));
+        }
+        return "";
+    }
+
     @NonNull
     private Goodreads getGoodreads() {
         if (goodreads == null) {
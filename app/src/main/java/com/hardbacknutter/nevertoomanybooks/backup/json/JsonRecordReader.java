@@ -20,7 +20,6 @@
 package com.hardbacknutter.nevertoomanybooks.backup.json;
 
 import android.content.Context;
-import android.database.sqlite.SQLiteDoneException;
 import android.os.Bundle;
 
 import androidx.annotation.AnyThread;
@@ -43,6 +42,7 @@ import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.backup.BaseRecordReader;
 import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
+import com.hardbacknutter.nevertoomanybooks.backup.ParallelDecoder;
 import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BookCoder;
 import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BookshelfCoder;
 import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BundleCoder;
@@ -56,13 +56,10 @@ import com.hardbacknutter.nevertoomanybooks.backup.json.coders.StyleCoder;
 import com.hardbacknutter.nevertoomanybooks.backup.zip.ZipArchiveWriter;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
-import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
-import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.database.UncheckedDaoWriteException;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
 import com.hardbacknutter.nevertoomanybooks.database.DBHelper;
-import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreCustomFieldDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreLibraryDao;
@@ -509,7 +506,8 @@ public class JsonRecordReader
                            @NonNull final Style defaultStyle,
                            @NonNull final ProgressListener progressListener)
             throws StorageException,
-                   JSONException {
+                   JSONException,
+                   IOException {
 
         progressListener.publishProgress(0, context.getString(R.string.lbl_books));
 
@@ -518,66 +516,20 @@ public class JsonRecordReader
             return;
         }
 
-        // A row represents on JSON book object
-        int row = 1;
-        // Instance in time when we last send a progress message
-        long lastUpdateTime = 0;
-        // Count the nr of books in between progress updates.
-        int delta = 0;
-
         // not perfect, but good enough
         if (progressListener.getMaxPos() < books.length()) {
             progressListener.setMaxPos(books.length());
         }
 
-        final SynchronizedDb db = ServiceLocator.getInstance().getDb();
-
-        Synchronizer.SyncLock txLock = null;
-
-        final JsonCoder<Book> bookCoder = new BookCoder(context, defaultStyle);
-
-        for (int i = 0; i < books.length() && !progressListener.isCancelled(); i++) {
-
-            if (!db.inTransaction()) {
-                txLock = db.beginTransaction(true);
-            }
-            try {
-                final Book book = bookCoder.decode(books.getJSONObject(i));
-                // Books MUST have a UUID or we will NOT import them here.
-                final String importUuid = book.getString(DBKey.BOOK_UUID, null);
-                if (importUuid != null && !importUuid.isEmpty()) {
-
-                    importBook(context, book);
+        createPresenceFilters(books.length());
 
-                    if (txLock != null) {
-                        db.setTransactionSuccessful();
-                    }
-                } else {
-                    final String msg = context.getString(
-                            R.string.error_record_must_contain_column, DBKey.BOOK_UUID);
-                    results.handleRowException(context, row, new DataReaderException(msg), msg);
-                }
-            } catch (@NonNull final DaoWriteException | SQLiteDoneException e) {
-                results.handleRowException(context, row, e, null);
-
-            } finally {
-                if (txLock != null) {
-                    db.endTransaction(txLock);
-                }
-            }
-
-            row++;
-
-            delta++;
-            final long now = System.currentTimeMillis();
-            if (now - lastUpdateTime > progressListener.getUpdateIntervalInMs()
-                && !progressListener.isCancelled()) {
-                progressListener.publishProgress(delta, results.createBooksSummaryLine(context));
-                lastUpdateTime = now;
-                delta = 0;
-            }
+        try (ParallelDecoder<Book, JSONException> decoder = new ParallelDecoder<>(
+                books.length(), () -> {
+            final JsonCoder<Book> bookCoder = new BookCoder(context, defaultStyle);
+            return index -> bookCoder.decode(books.getJSONObject(index));
+        })) {
+            // A JSONException is fatal, just as it is when reading the other records.
+            importBooks(context, decoder, progressListener);
         }
-        // minus 1 to compensate for the last increment
-        results.booksProcessed = row - 1;
     }
 }
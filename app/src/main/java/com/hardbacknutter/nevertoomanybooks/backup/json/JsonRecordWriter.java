@@ -34,8 +34,10 @@ import java.io.Writer;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
@@ -55,6 +57,7 @@ import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
 import com.hardbacknutter.nevertoomanybooks.covers.CoverStorage;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StylesHelper;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
@@ -91,6 +94,11 @@ public class JsonRecordWriter
 
     @Nullable
     private final LocalDateTime utcSinceDateTime;
+    /**
+     * If {@code > 0}, only write the books and deleted-books changed after this
+     * {@link BookChangesDao} sequence number; {@link #utcSinceDateTime} is then ignored.
+     */
+    private final long sinceSequence;
 
     /**
      * Constructor.
@@ -101,6 +109,19 @@ public class JsonRecordWriter
     @AnyThread
     public JsonRecordWriter(@Nullable final LocalDateTime utcSinceDateTime) {
         this.utcSinceDateTime = utcSinceDateTime;
+        this.sinceSequence = 0;
+    }
+
+    /**
+     * Constructor for a differential backup.
+     *
+     * @param sinceSequence only write the books and deleted-books changed after this
+     *                      {@link BookChangesDao} sequence number.
+     */
+    @AnyThread
+    public JsonRecordWriter(final long sinceSequence) {
+        this.utcSinceDateTime = null;
+        this.sinceSequence = sinceSequence;
     }
 
     @Override
@@ -271,8 +292,16 @@ public class JsonRecordWriter
                 progressListener.publishProgress(1, context.getString(
                         R.string.lbl_books));
 
-                final List<Pair<String, String>> list =
+                List<Pair<String, String>> list =
                         ServiceLocator.getInstance().getDeletedBooksDao().getAll(null);
+                if (sinceSequence > 0) {
+                    final Set<String> uuids = new HashSet<>(
+                            ServiceLocator.getInstance().getBookChangesDao()
+                                          .getDeletedBookUuids(sinceSequence));
+                    list = list.stream()
+                               .filter(record -> uuids.contains(record.first))
+                               .collect(Collectors.toList());
+                }
                 if (!list.isEmpty()) {
                     jsonData.put(RecordType.DeletedBooks.getName(),
                                  new DeletedBooksCoder().encode(list));
@@ -293,7 +322,9 @@ public class JsonRecordWriter
 
                 final JSONArray bookArray = new JSONArray();
                 final BookDao bookDao = ServiceLocator.getInstance().getBookDao();
-                try (Cursor cursor = bookDao.fetchBooksForExport(utcSinceDateTime)) {
+                try (Cursor cursor = sinceSequence > 0
+                                     ? bookDao.fetchBooksForExport(sinceSequence)
+                                     : bookDao.fetchBooksForExport(utcSinceDateTime)) {
                     while (cursor.moveToNext() && !progressListener.isCancelled()) {
                         final Book book = Book.from(cursor);
                         bookArray.put(coder.encode(book));
@@ -76,7 +76,8 @@
  * <ul>
  * <li>db: a copy of the internal database</li>
  * <li>json: all data except covers</li>
- * <li>zip: all data in json format + covers == full backup</li>
+ * <li>zip: all data in json format (books optionally in binary format)
+ *     + covers == full backup</li>
  * </ul>
  * <p>
  * Archives read:
@@ -0,0 +1,236 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.backup.zip;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.hardbacknutter.nevertoomanybooks.BuildConfig;
+import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
+import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
+import com.hardbacknutter.nevertoomanybooks.io.DataReader;
+import com.hardbacknutter.nevertoomanybooks.io.RecordType;
+import com.hardbacknutter.org.json.JSONException;
+import com.hardbacknutter.org.json.JSONObject;
+import com.hardbacknutter.util.logger.LoggerFactory;
+
+/**
+ * The {@link RecordType#CoverIndex} of a zip archive.
+ * <p>
+ * Maps each cover file name to the SHA-256 hash of its content.
+ * Only the first cover with a given hash is stored in the archive;
+ * the other covers with the same hash are restored from it after reading the archive.
+ */
+class CoverIndex {
+
+    /** Log tag. */
+    private static final String TAG = "CoverIndex";
+
+    /** Key: cover file name; value: the hash. In archive order. */
+    @NonNull
+    private final Map<String, String> hashes = new LinkedHashMap<>();
+    /** Key: the hash; value: the name of the cover file stored in the archive. */
+    @NonNull
+    private final Map<String, String> stored = new HashMap<>();
+
+    /**
+     * Read the index from the given stream.
+     * The stream is <strong>not</strong> closed.
+     *
+     * @param is to read
+     *
+     * @return the index
+     *
+     * @throws IOException   on generic/other IO failures
+     * @throws JSONException on a malformed index
+     */
+    @NonNull
+    static CoverIndex read(@NonNull final InputStream is)
+            throws IOException, JSONException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        FileUtils.copy(is, os);
+        final JSONObject json = new JSONObject(os.toString(StandardCharsets.UTF_8.name()));
+
+        final CoverIndex index = new CoverIndex();
+        final Iterator<String> it = json.keys();
+        while (it.hasNext()) {
+            final String filename = it.next();
+            index.hashes.put(filename, json.getString(filename));
+        }
+        return index;
+    }
+
+    /**
+     * Writing: add a cover.
+     *
+     * @param filename of the cover
+     * @param hash     of the cover content
+     *
+     * @return {@code true} if the cover must be stored in the archive;
+     *         {@code false} if a cover with the same content was already added.
+     */
+    boolean add(@NonNull final String filename,
+                @NonNull final String hash) {
+        hashes.put(filename, hash);
+        return stored.putIfAbsent(hash, filename) == null;
+    }
+
+    /**
+     * Writing: get the index as a json encoded byte array.
+     *
+     * @return json
+     */
+    @NonNull
+    byte[] toJson() {
+        return new JSONObject(hashes).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reading: called for each cover stored in the archive.
+     *
+     * @param filename of the cover
+     *
+     * @return the hash of the cover content, if known
+     */
+    @NonNull
+    Optional<String> onStored(@NonNull final String filename) {
+        final String hash = hashes.get(filename);
+        if (hash != null) {
+            stored.putIfAbsent(hash, filename);
+        }
+        return Optional.ofNullable(hash);
+    }
+
+    /**
+     * Reading: restore the covers which were not stored in the archive
+     * from the cover with the same content; i.e. the one read from the archive,
+     * or any other local cover with that content.
+     * Must be called after all covers in the archive have been read.
+     * <p>
+     * As the copies have the same content as the source cover, {@link DataReader.Updates}
+     * is simplified: an existing cover with different content is only kept when
+     * using {@link DataReader.Updates#Skip}.
+     *
+     * @param coverDir     the cover directory
+     * @param coverHashDao the hash index
+     * @param updateOption options
+     *
+     * @return results summary
+     *
+     * @throws IOException on a disk-full condition; other failures are only counted
+     */
+    @WorkerThread
+    @NonNull
+    ImportResults restoreDuplicates(@NonNull final File coverDir,
+                                    @NonNull final CoverHashDao coverHashDao,
+                                    @NonNull final DataReader.Updates updateOption)
+            throws IOException {
+        final ImportResults results = new ImportResults();
+
+        for (final Map.Entry<String, String> entry : hashes.entrySet()) {
+            final String filename = entry.getKey();
+            final String hash = entry.getValue();
+            if (filename.equals(stored.get(hash))) {
+                // already read from the archive
+                continue;
+            }
+
+            results.coversProcessed++;
+            try {
+                final File dstFile = new File(coverDir, filename);
+                final boolean exists = dstFile.exists();
+                if (exists && (updateOption == DataReader.Updates.Skip
+                               || hash.equals(coverHashDao.getHash(dstFile)))) {
+                    results.coversSkipped++;
+                    continue;
+                }
+
+                @Nullable
+                final File srcFile = findSource(coverDir, coverHashDao, hash);
+                if (srcFile == null) {
+                    results.coversFailed++;
+                    continue;
+                }
+
+                FileUtils.copy(srcFile, dstFile);
+                if (exists) {
+                    results.coversUpdated++;
+                } else {
+                    results.coversCreated++;
+                }
+            } catch (@NonNull final IOException e) {
+                if (BuildConfig.DEBUG /* always */) {
+                    LoggerFactory.getLogger().d(TAG, "restoreDuplicates", e);
+                }
+                // we swallow IOExceptions, **EXCEPT** when the disk is full.
+                if (FileUtils.isDiskFull(e)) {
+                    throw e;
+                }
+                results.coversFailed++;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find the local cover with the given hash.
+     * <p>
+     * Covers just read from the archive are not (yet) known to the {@link CoverHashDao},
+     * so we first check the cover stored in the archive with this hash.
+     *
+     * @param coverDir     the cover directory
+     * @param coverHashDao the hash index
+     * @param hash         to find
+     *
+     * @return the file, or {@code null} if there is no cover with the given content
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @WorkerThread
+    @Nullable
+    private File findSource(@NonNull final File coverDir,
+                            @NonNull final CoverHashDao coverHashDao,
+                            @NonNull final String hash)
+            throws IOException {
+        final String filename = stored.get(hash);
+        if (filename != null) {
+            final File file = new File(coverDir, filename);
+            // getHash will also add the cover to the index
+            if (file.exists() && hash.equals(coverHashDao.getHash(file))) {
+                return file;
+            }
+        }
+        return coverHashDao.findByHash(coverDir, hash).orElse(null);
+    }
+}
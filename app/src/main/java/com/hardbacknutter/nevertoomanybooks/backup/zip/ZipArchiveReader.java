@@ -29,11 +29,13 @@ import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
@@ -47,8 +49,10 @@ import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.backup.ImportResults;
 import com.hardbacknutter.nevertoomanybooks.backup.bin.CoverRecordReader;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
+import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveMetaData;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveReaderRecord;
 import com.hardbacknutter.nevertoomanybooks.io.DataReader;
@@ -56,12 +60,24 @@ import com.hardbacknutter.nevertoomanybooks.io.DataReaderException;
 import com.hardbacknutter.nevertoomanybooks.io.RecordEncoding;
 import com.hardbacknutter.nevertoomanybooks.io.RecordReader;
 import com.hardbacknutter.nevertoomanybooks.io.RecordType;
+import com.hardbacknutter.org.json.JSONException;
 
 /**
  * The ZIP based archive {@link DataReader}.
  * <p>
  * Currently supported formats.
  * <ul>
+ *     <li>v10: as v9, but the {@link RecordType#Books} are {@link RecordEncoding#Binary}.
+ *              Archives with {@link RecordEncoding#Json} books are still written as v9.
+ *     </li>
+ *     <li>v9: adds {@link RecordType#CoverIndex} : {@link RecordEncoding#Json}
+ *              just before the covers; covers with identical content are only stored once.
+ *     </li>
+ *     <li>v8: adds differential archives; {@link RecordType#MetaData} references the
+ *              hash of the base archive, and {@link RecordType#Books},
+ *              {@link RecordType#Cover} and {@link RecordType#DeletedBooks}
+ *              only contain the changes since the base.
+ *     </li>
  *     <li>v7: adds {@link Style#getBookLevelFieldsOrderBy()} to {@link RecordType#Styles}</li>
  *     <li>v6: adds {@link RecordType#DeletedBooks} : {@link RecordEncoding#Json}</li>
  *     <li>v5: identical to v4,
@@ -109,6 +125,11 @@ import com.hardbacknutter.nevertoomanybooks.io.RecordType;
  *         </ul>
  *     </li>
  * </ul>
+ * <p>
+ * To restore a differential archive chain, pass the full (base) archive as the main uri,
+ * and the differential archives in the order they were written.
+ * The chain is verified before anything is read.
+ * A differential archive passed as the main uri on its own is imported as a merge.
  */
 public class ZipArchiveReader
         implements DataReader<ArchiveMetaData, ImportResults> {
@@ -124,8 +145,9 @@ public class ZipArchiveReader
 
     @NonNull
     private final Locale systemLocale;
+    /** The differential archives to apply after the main archive. */
     @NonNull
-    private final Uri uri;
+    private final List<Uri> deltaUris;
     @NonNull
     private final Updates updateOption;
     @NonNull
@@ -142,6 +164,14 @@ public class ZipArchiveReader
     @Nullable
     private RecordReader coverReader;
 
+    /** The cover index of the archive currently being read; v9 and up. */
+    @Nullable
+    private CoverIndex coverIndex;
+
+    /** The archive currently being read. */
+    @NonNull
+    private Uri uri;
+
     /** The INFO data read from the start of the archive. */
     @Nullable
     private ArchiveMetaData metaData;
@@ -160,9 +190,30 @@ public class ZipArchiveReader
                             @NonNull final Uri uri,
                             @NonNull final DataReader.Updates updateOption,
                             @NonNull final Set<RecordType> recordTypes) {
+        this(context, systemLocale, uri, List.of(), updateOption, recordTypes);
+    }
+
+    /**
+     * Constructor for restoring a differential archive chain.
+     *
+     * @param context      Current context
+     * @param systemLocale to use for ISO date parsing
+     * @param uri          the base archive to read from
+     * @param deltaUris    the differential archives to apply after the base archive;
+     *                     in the order they were written
+     * @param updateOption options
+     * @param recordTypes  the record types to accept and read
+     */
+    public ZipArchiveReader(@NonNull final Context context,
+                            @NonNull final Locale systemLocale,
+                            @NonNull final Uri uri,
+                            @NonNull final List<Uri> deltaUris,
+                            @NonNull final DataReader.Updates updateOption,
+                            @NonNull final Set<RecordType> recordTypes) {
         this.contentResolver = context.getContentResolver();
         this.systemLocale = systemLocale;
         this.uri = uri;
+        this.deltaUris = deltaUris;
         this.updateOption = updateOption;
         this.recordTypes = RecordType.addRelatedTypes(recordTypes);
 
@@ -180,6 +231,77 @@ public class ZipArchiveReader
 
         // the info block will/can do more checks.
         metaData.validate(context);
+
+        // A differential archive on its own only holds the changes;
+        // it's imported as a merge, the user is warned by the import screen.
+        if (!deltaUris.isEmpty()) {
+            validateChain(context);
+        }
+    }
+
+    /**
+     * Check that each differential archive references the archive before it.
+     *
+     * @param context Current context
+     *
+     * @throws DataReaderException if the chain is broken
+     * @throws IOException         on generic/other IO failures
+     */
+    @WorkerThread
+    private void validateChain(@NonNull final Context context)
+            throws DataReaderException, IOException {
+        final Uri baseUri = uri;
+        final ArchiveMetaData baseMetaData = metaData;
+        try {
+            String previousHash = getSha256(baseUri);
+            for (final Uri deltaUri : deltaUris) {
+                switchArchive(deltaUri);
+                final ArchiveMetaData deltaMetaData = readMetaData(context).orElseThrow();
+                deltaMetaData.validate(context);
+                if (!previousHash.equals(deltaMetaData.getBaseArchiveHash().orElse(null))) {
+                    throw new DataReaderException(context.getString(
+                            R.string.error_backup_chain_broken));
+                }
+                previousHash = getSha256(deltaUri);
+            }
+        } finally {
+            switchArchive(baseUri);
+            metaData = baseMetaData;
+        }
+    }
+
+    /**
+     * Calculate the SHA-256 hash of the given archive.
+     *
+     * @param archiveUri to read
+     *
+     * @return hash
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @NonNull
+    private String getSha256(@NonNull final Uri archiveUri)
+            throws IOException {
+        try (InputStream is = contentResolver.openInputStream(archiveUri)) {
+            if (is == null) {
+                throw new FileNotFoundException(archiveUri.toString());
+            }
+            return FileUtils.getSha256(is);
+        }
+    }
+
+    /**
+     * Close the current archive, and prepare to read the given one.
+     *
+     * @param archiveUri to read next
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    private void switchArchive(@NonNull final Uri archiveUri)
+            throws IOException {
+        closeInputStream();
+        uri = archiveUri;
+        metaData = null;
     }
 
     /**
@@ -277,8 +399,49 @@ public class ZipArchiveReader
         // This is also a check that the validate method has been called.
         Objects.requireNonNull(metaData, ERROR_META_DATA);
 
+        try {
+            readArchive(context, progressListener);
+
+            for (final Uri deltaUri : deltaUris) {
+                if (progressListener.isCancelled()) {
+                    break;
+                }
+                switchArchive(deltaUri);
+                readMetaData(context);
+                readArchive(context, progressListener);
+            }
+        } finally {
+            try {
+                close();
+            } catch (@NonNull final IOException ignore) {
+                // ignore
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Read the current archive.
+     *
+     * @param context          Current context
+     * @param progressListener Progress and cancellation interface
+     *
+     * @throws DataReaderException on a decoding/parsing of data issue.
+     * @throws StorageException    on storage related failures
+     * @throws IOException         on generic/other IO failures
+     */
+    private void readArchive(@NonNull final Context context,
+                             @NonNull final ProgressListener progressListener)
+            throws DataReaderException, IOException, StorageException {
+
+        Objects.requireNonNull(metaData, ERROR_META_DATA);
+
         final int archiveVersion = metaData.getArchiveVersion();
         switch (archiveVersion) {
+            case 10:
+            case 9:
+            case 8:
             case 7:
             case 6:
             case 5:
@@ -297,8 +460,6 @@ public class ZipArchiveReader
                 throw new DataReaderException(context.getString(
                         R.string.error_unsupported_version_v, archiveVersion));
         }
-
-        return results;
     }
 
     private void read(@NonNull final Context context,
@@ -310,9 +471,13 @@ public class ZipArchiveReader
 
         int estimatedSteps = 1 + metaData.getBookCount().orElse(0);
 
+        coverIndex = null;
+
         final boolean readCovers = recordTypes.contains(RecordType.Cover);
         if (readCovers) {
-            coverReader = new CoverRecordReader(updateOption);
+            if (coverReader == null) {
+                coverReader = new CoverRecordReader(updateOption);
+            }
 
             final Optional<Integer> coverCount = metaData.getCoverCount();
             if (coverCount.isPresent()) {
@@ -375,8 +540,20 @@ public class ZipArchiveReader
                             coversDelta = 0;
                         }
 
-                        // there will be many covers... we're re-using a single RecordReader
-                        results.add(coverReader.read(context, record, progressListener));
+                        if (isKnownCover(record)) {
+                            results.coversProcessed++;
+                            results.coversSkipped++;
+                        } else {
+                            // there will be many covers... re-using a single RecordReader
+                            results.add(coverReader.read(context, record, progressListener));
+                        }
+
+                    } else if (type == RecordType.CoverIndex && readCovers) {
+                        try {
+                            coverIndex = CoverIndex.read(record.getInputStream());
+                        } catch (@NonNull final JSONException e) {
+                            throw new DataReaderException(e);
+                        }
 
                     } else if (type == RecordType.Books && recordTypes.contains(type)) {
                         progressListener.publishProgress(
@@ -408,13 +585,45 @@ public class ZipArchiveReader
                     }
                 }
             }
-        } finally {
-            try {
-                close();
-            } catch (@NonNull final IOException ignore) {
-                // ignore
+
+            if (coverIndex != null && !progressListener.isCancelled()) {
+                final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+                results.add(coverIndex.restoreDuplicates(
+                        serviceLocator.getCoverStorage().getDir(),
+                        serviceLocator.getCoverHashDao(),
+                        updateOption));
             }
+        } finally {
+            closeInputStream();
+        }
+    }
+
+    /**
+     * Check if we already have a cover with the same name and content as the given record.
+     *
+     * @param record the cover
+     *
+     * @return {@code true} if the cover can be skipped
+     *
+     * @throws StorageException on storage related failures
+     * @throws IOException      on generic/other IO failures
+     */
+    private boolean isKnownCover(@NonNull final ArchiveReaderRecord record)
+            throws StorageException, IOException {
+        if (coverIndex == null) {
+            return false;
+        }
+        final Optional<String> hash = coverIndex.onStored(record.getName());
+        if (hash.isEmpty()) {
+            return false;
+        }
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        final File file = new File(serviceLocator.getCoverStorage().getDir(), record.getName());
+        if (!file.exists()) {
+            return false;
         }
+        final CoverHashDao coverHashDao = serviceLocator.getCoverHashDao();
+        return hash.get().equals(coverHashDao.getHash(file));
     }
 
     /**
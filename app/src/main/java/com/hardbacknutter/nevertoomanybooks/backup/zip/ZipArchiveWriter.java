@@ -44,6 +44,7 @@ import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -57,6 +58,8 @@ import com.hardbacknutter.nevertoomanybooks.backup.ExportResults;
 import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
 import com.hardbacknutter.nevertoomanybooks.io.ArchiveMetaData;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriter;
 import com.hardbacknutter.nevertoomanybooks.io.DataWriterException;
@@ -83,11 +86,23 @@ import com.hardbacknutter.nevertoomanybooks.io.RecordWriter;
  *
  *     <li>These always come last in the given order</li>
  *     <li>{@link RecordType#Books}</li>
+ *     <li>{@link RecordType#CoverIndex}</li>
  *     <li>{@link RecordType#Cover}</li>
  * </ol>
  * <p>
  * The {@link DataWriter#write(Context, ProgressListener)} method executes
  * the interface method flow.
+ * <p>
+ * Covers with identical content (as per the {@link CoverHashDao}) are only written once;
+ * the {@link RecordType#CoverIndex} allows the reader to restore the others.
+ * <p>
+ * A differential archive only contains the books (and their covers) and the deleted-books
+ * changed since the base archive as recorded by the {@link BookChangesDao} journal.
+ * The base archive is referenced by its hash in the {@link RecordType#MetaData}.
+ * All other record types are small, and are always written in full.
+ * <p>
+ * The {@link RecordType#Books} can be written as {@link RecordEncoding#Json} (the default)
+ * or as the much faster {@link RecordEncoding#Binary}; see {@link #setBooksEncoding}.
  */
 public class ZipArchiveWriter
         implements DataWriter<ExportResults> {
@@ -97,7 +112,13 @@ public class ZipArchiveWriter
      * <p>
      * RELEASE: set correct archiver version
      */
-    public static final int VERSION = 7;
+    public static final int VERSION = 9;
+
+    /**
+     * The version written when the {@link RecordType#Books} are {@link RecordEncoding#Binary}.
+     * Older versions of the app cannot read these, so we only use it when needed.
+     */
+    public static final int VERSION_BINARY_BOOKS = 10;
 
     /**
      * Arbitrary number of steps added to the progress max value.
@@ -118,11 +139,20 @@ public class ZipArchiveWriter
     private final File destFile;
     @Nullable
     private final LocalDateTime sinceDateTime;
+    /** Differential archives only: the hash of the base archive. */
+    @Nullable
+    private final String baseArchiveHash;
+    /** Differential archives only: the journal sequence of the base archive. */
+    private final long sinceSequence;
 
     /** The accumulated results. */
     @NonNull
     private final ExportResults results = new ExportResults();
 
+    /** How to write the {@link RecordType#Books}. */
+    @NonNull
+    private RecordEncoding booksEncoding = RecordEncoding.Json;
+
     /**
      * Constructor.
      *
@@ -140,12 +170,64 @@ public class ZipArchiveWriter
         this.recordTypes = RecordType.addRelatedTypes(recordTypes);
         this.destFile = destFile;
         this.sinceDateTime = sinceDateTime;
+        this.baseArchiveHash = null;
+        this.sinceSequence = 0;
+
+        zipOutputStream = new ZipOutputStream(new BufferedOutputStream(
+                new FileOutputStream(this.destFile),
+                RecordWriter.BUFFER_SIZE));
+    }
+
+    /**
+     * Constructor for a differential archive.
+     *
+     * @param recordTypes     the record types to accept and read
+     * @param baseArchiveHash the SHA-256 hash of the archive this one is based on
+     * @param sinceSequence   the {@link BookChangesDao} sequence number stored
+     *                        when the base archive was written; must be {@code > 0}
+     * @param destFile        {@link File} to write to
+     *
+     * @throws FileNotFoundException if the uri cannot be resolved
+     */
+    public ZipArchiveWriter(@NonNull final Set<RecordType> recordTypes,
+                            @NonNull final String baseArchiveHash,
+                            final long sinceSequence,
+                            @NonNull final File destFile)
+            throws FileNotFoundException {
+        this.recordTypes = RecordType.addRelatedTypes(recordTypes);
+        this.destFile = destFile;
+        this.sinceDateTime = null;
+        this.baseArchiveHash = baseArchiveHash;
+        this.sinceSequence = sinceSequence;
 
         zipOutputStream = new ZipOutputStream(new BufferedOutputStream(
                 new FileOutputStream(this.destFile),
                 RecordWriter.BUFFER_SIZE));
     }
 
+    /**
+     * Check if this writer produces a differential archive.
+     *
+     * @return {@code true} if it does
+     */
+    public boolean isDifferential() {
+        return baseArchiveHash != null;
+    }
+
+    /**
+     * Set the encoding for the {@link RecordType#Books}.
+     *
+     * @param encoding either {@link RecordEncoding#Json} or {@link RecordEncoding#Binary}
+     *
+     * @throws IllegalArgumentException for any other encoding
+     */
+    public void setBooksEncoding(@NonNull final RecordEncoding encoding) {
+        if (encoding != RecordEncoding.Json && encoding != RecordEncoding.Binary) {
+            throw new IllegalArgumentException(encoding.toString());
+        }
+        booksEncoding = encoding;
+    }
+
     @NonNull
     @Override
     @WorkerThread
@@ -163,10 +245,20 @@ public class ZipArchiveWriter
         try {
             int steps = 0;
             if (recordTypes.contains(RecordType.Books)) {
-                steps = serviceLocator.getBookDao().countBooksForExport(sinceDateTime);
-                if (steps == 0) {
-                    // no books to backup. We ignore all other record types!
-                    return results;
+                if (isDifferential()) {
+                    steps = serviceLocator.getBookDao().countBooksForExport(sinceSequence);
+                    if (steps == 0 && serviceLocator.getBookChangesDao()
+                                                    .getDeletedBookUuids(sinceSequence)
+                                                    .isEmpty()) {
+                        // nothing changed. We ignore all other record types!
+                        return results;
+                    }
+                } else {
+                    steps = serviceLocator.getBookDao().countBooksForExport(sinceDateTime);
+                    if (steps == 0) {
+                        // no books to backup. We ignore all other record types!
+                        return results;
+                    }
                 }
             }
 
@@ -183,7 +275,7 @@ public class ZipArchiveWriter
             @Nullable
             final File tmpBooksFile;
             if (!progressListener.isCancelled() && recordTypes.contains(RecordType.Books)) {
-                tmpBooksFile = prepareBooks(context, sinceDateTime, progressListener);
+                tmpBooksFile = prepareBooks(context, progressListener);
             } else {
                 tmpBooksFile = null;
             }
@@ -214,10 +306,15 @@ public class ZipArchiveWriter
             }
 
             // Add the previously generated books file.
-            if (!progressListener.isCancelled() && tmpBooksFile != null) {
+            if (tmpBooksFile != null) {
                 try {
-                    putFile(RecordType.Books.getName() + getEncoding(RecordType.Books).getFileExt(),
-                            tmpBooksFile, true);
+                    // A differential archive can have deleted-books, but no books.
+                    if (!progressListener.isCancelled() && results.getBookCount() > 0) {
+                        final RecordEncoding encoding = getEncoding(RecordType.Books);
+                        // The binary blocks are already compressed
+                        putFile(RecordType.Books.getName() + encoding.getFileExt(),
+                                tmpBooksFile, encoding != RecordEncoding.Binary);
+                    }
                 } finally {
                     // no longer needed
                     FileUtils.delete(tmpBooksFile);
@@ -249,8 +346,6 @@ public class ZipArchiveWriter
      * {@link ExportResults#addBook(long)} and {@link ExportResults#addCover} as needed.
      *
      * @param context          Current context
-     * @param dateSince        (optional) UTC based date to select only items
-     *                         modified or added since.
      * @param progressListener Progress and cancellation interface
      *
      * @return the temporary books file
@@ -260,7 +355,6 @@ public class ZipArchiveWriter
      */
     @NonNull
     private File prepareBooks(@NonNull final Context context,
-                              @Nullable final LocalDateTime dateSince,
                               @NonNull final ProgressListener progressListener)
             throws DataWriterException,
                    IOException {
@@ -279,11 +373,12 @@ public class ZipArchiveWriter
 
         final File file = File.createTempFile("books_", encoding.getFileExt());
         file.deleteOnExit();
-        try (OutputStream os = new FileOutputStream(file);
-             Writer osw = new OutputStreamWriter(os, StandardCharsets.UTF_8);
-             Writer bw = new BufferedWriter(osw, RecordWriter.BUFFER_SIZE);
-             RecordWriter recordWriter = encoding.createWriter(dateSince)) {
-            results.add(recordWriter.write(context, bw, filteredRecordTypes, progressListener));
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file),
+                                                        RecordWriter.BUFFER_SIZE);
+             RecordWriter recordWriter = isDifferential()
+                                         ? encoding.createWriter(sinceSequence)
+                                         : encoding.createWriter(sinceDateTime)) {
+            results.add(recordWriter.write(context, os, filteredRecordTypes, progressListener));
         }
 
         return file;
@@ -309,7 +404,13 @@ public class ZipArchiveWriter
         try (Writer osw = new OutputStreamWriter(os, StandardCharsets.UTF_8);
              Writer bw = new BufferedWriter(osw, META_WRITER_BUFFER);
              RecordWriter recordWriter = encoding.createWriter(null)) {
-            recordWriter.writeMetaData(context, bw, ArchiveMetaData.create(context, VERSION, data));
+            final int version = booksEncoding == RecordEncoding.Binary
+                                ? VERSION_BINARY_BOOKS : VERSION;
+            final ArchiveMetaData metaData = ArchiveMetaData.create(context, version, data);
+            if (baseArchiveHash != null) {
+                metaData.setBaseArchiveHash(baseArchiveHash);
+            }
+            recordWriter.writeMetaData(context, bw, metaData);
         }
 
         putByteArray(RecordType.MetaData.getName() + encoding.getFileExt(),
@@ -353,7 +454,9 @@ public class ZipArchiveWriter
         final ByteArrayOutputStream os = new ByteArrayOutputStream();
         try (Writer osw = new OutputStreamWriter(os, StandardCharsets.UTF_8);
              Writer bw = new BufferedWriter(osw, RecordWriter.BUFFER_SIZE);
-             RecordWriter recordWriter = encoding.createWriter(null)) {
+             RecordWriter recordWriter = isDifferential()
+                                         ? encoding.createWriter(sinceSequence)
+                                         : encoding.createWriter(null)) {
             writeResults = recordWriter.write(context, bw, EnumSet.of(recordType),
                                               progressListener);
         }
@@ -370,7 +473,8 @@ public class ZipArchiveWriter
      * Write the covers.
      * <p>
      * Write each cover file as collected in {@link #prepareBooks}
-     * to the archive.
+     * to the archive, preceded by the {@link CoverIndex}.
+     * Covers with the same content as a previous one are not written.
      *
      * @param context          Current context
      * @param coverDir         root of the cover directory / destination to write
@@ -385,12 +489,27 @@ public class ZipArchiveWriter
 
         progressListener.publishProgress(0, context.getString(R.string.lbl_covers_long));
 
+        final CoverHashDao coverHashDao = ServiceLocator.getInstance().getCoverHashDao();
+        final CoverIndex coverIndex = new CoverIndex();
+        final List<String> filenames = new ArrayList<>();
+        for (final String filename : results.getCoverFileNames()) {
+            if (progressListener.isCancelled()) {
+                return;
+            }
+            if (coverIndex.add(filename, coverHashDao.getHash(new File(coverDir, filename)))) {
+                filenames.add(filename);
+            }
+        }
+        putByteArray(RecordType.CoverIndex.getName()
+                     + getEncoding(RecordType.CoverIndex).getFileExt(),
+                     coverIndex.toJson(), true);
+
         int exported = 0;
         int delta = 0;
         long lastUpdate = 0;
 
         final String coverStr = context.getString(R.string.lbl_covers);
-        for (final String filename : results.getCoverFileNames()) {
+        for (final String filename : filenames) {
             if (progressListener.isCancelled()) {
                 return;
             }
@@ -425,9 +544,11 @@ public class ZipArchiveWriter
             case CalibreLibraries:
             case CalibreCustomFields:
             case DeletedBooks:
-            case Books:
+            case CoverIndex:
             case AutoDetect:
                 return RecordEncoding.Json;
+            case Books:
+                return booksEncoding;
             case Cover:
                 return RecordEncoding.Cover;
 
@@ -322,7 +322,83 @@ public class BoBTask
         final Context context = ServiceLocator.getInstance().getLocalizedAppContext();
         final SynchronizedDb db = ServiceLocator.getInstance().getDb();
 
+        // Write any queued quick-actions first, the list must reflect them.
+        ServiceLocator.getInstance().getPendingUpdatesDao().flush();
+
         final Style style = bookshelf.getStyle();
+        final BooklistBuilder builder = createBuilder(context, db, style);
+
+        Booklist booklist = null;
+        try {
+            // Build the underlying data
+            booklist = builder.build(context);
+
+            // pre-count and cache these while we're in the background.
+            // They are used for the header, and will not change even if the list cursor changes.
+            if (style.isShowHeaderField(BooklistHeader.SHOW_BOOK_COUNT)) {
+                booklist.countBooks();
+                booklist.countDistinctBooks();
+            }
+
+            // Get the row(s) which will be used to determine new cursor position
+            return new Outcome(booklist, booklist.getVisibleBookNodes(desiredCentralBookId));
+
+        } catch (@SuppressWarnings("OverlyBroadCatchBlock") @NonNull final Exception e) {
+            if (booklist != null) {
+                booklist.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Build the list for the given {@link Bookshelf} without any search criteria,
+     * and discard it immediately.
+     * Used to warm up the {@link BooklistCacheDao} so a later build of the same list
+     * becomes a simple copy.
+     * Nothing is done if the cache already has the list for the current data.
+     *
+     * @param context   Current context
+     * @param bookshelf the shelf for which we're building the list
+     * @param mode      see {@link RebuildBooklist}
+     *
+     * @return {@code true} if the list was build;
+     *         {@code false} if the cache was already up to date
+     */
+    @WorkerThread
+    static boolean warmUp(@NonNull final Context context,
+                          @NonNull final Bookshelf bookshelf,
+                          @NonNull final RebuildBooklist mode) {
+        final BoBTask task = new BoBTask();
+        task.bookshelf = bookshelf;
+        task.rebuildMode = mode;
+        task.searchCriteria = new SearchCriteria();
+
+        final SynchronizedDb db = ServiceLocator.getInstance().getDb();
+        final BooklistBuilder builder = task.createBuilder(context, db, bookshelf.getStyle());
+        if (builder.isCached(context)) {
+            return false;
+        }
+        //noinspection EmptyTryBlock
+        try (Booklist ignored = builder.build(context)) {
+            // the build itself stored the list in the cache
+        }
+        return true;
+    }
+
+    /**
+     * Create and configure the builder for the current bookshelf, style and criteria.
+     *
+     * @param context Current context
+     * @param db      Database Access
+     * @param style   to use
+     *
+     * @return builder, ready to build
+     */
+    @NonNull
+    private BooklistBuilder createBuilder(@NonNull final Context context,
+                                          @NonNull final SynchronizedDb db,
+                                          @NonNull final Style style) {
 
         final BooklistBuilder builder = new BooklistBuilder(db, style, bookshelf, rebuildMode);
 
@@ -397,27 +473,7 @@ public class BoBTask
 
         addFilters(context, builder, style);
 
-        Booklist booklist = null;
-        try {
-            // Build the underlying data
-            booklist = builder.build(context);
-
-            // pre-count and cache these while we're in the background.
-            // They are used for the header, and will not change even if the list cursor changes.
-            if (style.isShowHeaderField(BooklistHeader.SHOW_BOOK_COUNT)) {
-                booklist.countBooks();
-                booklist.countDistinctBooks();
-            }
-
-            // Get the row(s) which will be used to determine new cursor position
-            return new Outcome(booklist, booklist.getVisibleBookNodes(desiredCentralBookId));
-
-        } catch (@SuppressWarnings("OverlyBroadCatchBlock") @NonNull final Exception e) {
-            if (booklist != null) {
-                booklist.close();
-            }
-            throw e;
-        }
+        return builder;
     }
 
 
@@ -63,6 +63,7 @@ import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BO
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKSHELF;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_AUTHOR;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_BOOKSHELF;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_PUBLISHER;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_SERIES;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PSEUDONYM_AUTHOR;
@@ -245,8 +246,10 @@ class BooklistBuilder {
         final Synchronizer.SyncLock txLock = db.beginTransaction(true);
         try {
             // Construct the list table and all needed structures.
+            final String initialSelect = tableBuilder
+                    .prepare(context, db, leftOuterJoins, bookDomains.values(), filters);
             final Pair<TableDefinition, TableDefinition> tables = tableBuilder
-                    .build(context, db, leftOuterJoins, bookDomains.values(), filters);
+                    .build(db, initialSelect);
 
             final TableDefinition listTable = tables.first;
             final TableDefinition navTable = tables.second;
@@ -283,6 +286,22 @@ class BooklistBuilder {
     }
 
 
+    /**
+     * Check if {@link #build(Context)} would copy the list from the {@link BooklistCacheDao},
+     * i.e. if the cache has an entry for this list which is valid for the current data.
+     *
+     * @param context Current context
+     *
+     * @return {@code true} if the cache is up to date for this list
+     */
+    boolean isCached(@NonNull final Context context) {
+        // The tables are never created; no need for a unique instance id.
+        final TableBuilder tableBuilder = new TableBuilder(0, style, bookshelf, rebuildMode);
+        final String initialSelect = tableBuilder
+                .prepare(context, db, leftOuterJoins, bookDomains.values(), filters);
+        return new BooklistCacheDao(db).isCurrent(tableBuilder.createCacheKey(initialSelect));
+    }
+
     /**
      * A Builder to accumulates data while building the list table
      * and produce the initial SQL insert statement.
@@ -304,6 +323,8 @@ class BooklistBuilder {
         @NonNull
         private final Style style;
 
+        /** The id of the {@link Bookshelf} we're building the list for. */
+        private final long bookshelfId;
         /** Set to {@code true} if we're filtering on a specific {@link Bookshelf}. */
         private final boolean filteredOnBookshelf;
 
@@ -370,7 +391,8 @@ class BooklistBuilder {
             this.style = style;
             // whether we're filtering on a specific Bookshelf,
             // or if we're using the 'all books'
-            filteredOnBookshelf = bookshelf.getId() != Bookshelf.ALL_BOOKS;
+            bookshelfId = bookshelf.getId();
+            filteredOnBookshelf = bookshelfId != Bookshelf.ALL_BOOKS;
             this.rebuildMode = rebuildMode;
 
             /*
@@ -403,7 +425,8 @@ class BooklistBuilder {
 
         /**
          * Using the collected domain info, create the various SQL phrases used to build
-         * the resulting flat list table and build the SQL that does the initial table load.
+         * the resulting flat list table and the SQL that does the initial table load.
+         * Must be called once, before {@link #build}.
          *
          * @param context        Current context
          * @param db             Underlying database
@@ -411,15 +434,14 @@ class BooklistBuilder {
          * @param bookDomains    list of domains to add on the book level
          * @param filters        to use for the WHERE clause
          *
-         * @return a Pair with the fully populated list-table and the navigation-table
+         * @return the initial insert statement without the {@code INSERT INTO table} prefix
          */
         @NonNull
-        Pair<TableDefinition, TableDefinition> build(
-                @NonNull final Context context,
-                @NonNull final SynchronizedDb db,
-                @NonNull final Collection<TableDefinition> leftOuterJoins,
-                @NonNull final Collection<DomainExpression> bookDomains,
-                @NonNull final Collection<Filter> filters) {
+        String prepare(@NonNull final Context context,
+                       @NonNull final SynchronizedDb db,
+                       @NonNull final Collection<TableDefinition> leftOuterJoins,
+                       @NonNull final Collection<DomainExpression> bookDomains,
+                       @NonNull final Collection<Filter> filters) {
 
             // {@link BooklistGroup#GroupKey}.
             // The actual value is set on a by-group/book basis.
@@ -489,11 +511,38 @@ class BooklistBuilder {
                              .add("0" + _AS_ + DBDefinitions.DOM_BL_NODE_VISIBLE.getName());
             }
 
-            final String sqlForInitialInsert =
-                    INSERT_INTO_ + listTable.getName() + " (" + destColumns + ") "
-                    + SELECT_ + sourceColumns
-                    + _FROM_ + buildFrom(leftOuterJoins) + buildWhere(context, filters)
-                    + _ORDER_BY_ + buildOrderBy(db.isCollationCaseSensitive());
+            // The table name is unique for each instance; it's left out of the cache key.
+            return " (" + destColumns + ") "
+                   + SELECT_ + sourceColumns
+                   + _FROM_ + buildFrom(leftOuterJoins) + buildWhere(context, filters)
+                   + _ORDER_BY_ + buildOrderBy(db.isCollationCaseSensitive());
+        }
+
+        /**
+         * Create the {@link BooklistCacheDao} key for the list.
+         *
+         * @param initialSelect as returned by {@link #prepare}
+         *
+         * @return the key
+         */
+        @NonNull
+        String createCacheKey(@NonNull final String initialSelect) {
+            return BooklistCacheDao.createKey(bookshelfId, style.getUuid(), rebuildMode,
+                                              initialSelect);
+        }
+
+        /**
+         * Create the list table and populate it; from the cache if possible.
+         *
+         * @param db            Underlying database
+         * @param initialSelect as returned by {@link #prepare}
+         *
+         * @return a Pair with the fully populated list-table and the navigation-table
+         */
+        @NonNull
+        Pair<TableDefinition, TableDefinition> build(@NonNull final SynchronizedDb db,
+                                                     @NonNull final String initialSelect) {
+            final String sqlForInitialInsert = INSERT_INTO_ + listTable.getName() + initialSelect;
 
             if (BuildConfig.DEBUG && DEBUG_SWITCHES.BOB_THE_BUILDER) {
                 LoggerFactory.getLogger()
@@ -510,24 +559,39 @@ class BooklistBuilder {
             //IMPORTANT: withDomainConstraints MUST BE false
             db.recreate(listTable, false);
 
-            // get the triggers in place, ready to act on our upcoming initial insert.
-            createTriggers(db);
+            // If nothing changed since we last build this exact list, just copy it.
+            final BooklistCacheDao cacheDao = new BooklistCacheDao(db);
+            final String cacheKey = createCacheKey(initialSelect);
+            final boolean fromCache = cacheDao.restore(cacheKey, listTable);
 
-            // Build the lowest level (i.e. books) using our initial insert statement
-            // The triggers will do the other levels.
-            final int initialInsertCount;
+            if (!fromCache) {
+                // get the triggers in place, ready to act on our upcoming initial insert.
+                createTriggers(db);
 
-            final long t0 = System.nanoTime();
+                // Build the lowest level (i.e. books) using our initial insert statement
+                // The triggers will do the other levels.
+                final int initialInsertCount;
 
-            try (SynchronizedStatement stmt = db.compileStatement(sqlForInitialInsert)) {
-                initialInsertCount = stmt.executeUpdateDelete();
-            }
+                final long t0 = System.nanoTime();
+
+                try (SynchronizedStatement stmt = db.compileStatement(sqlForInitialInsert)) {
+                    initialInsertCount = stmt.executeUpdateDelete();
+                }
 
-            if (BuildConfig.DEBUG && DEBUG_SWITCHES.BOB_THE_BUILDER_TIMERS) {
                 // only measure the insert... all other operations are very fast compared to it
-                LoggerFactory.getLogger().d(TAG, "build",
-                                            "insert(" + initialInsertCount + "): "
-                                            + ((System.nanoTime() - t0) / NANO_TO_MILLIS) + " ms");
+                final long insertMillis = (System.nanoTime() - t0) / NANO_TO_MILLIS;
+
+                if (BuildConfig.DEBUG && DEBUG_SWITCHES.BOB_THE_BUILDER_TIMERS) {
+                    LoggerFactory.getLogger().d(TAG, "build",
+                                                "insert(" + initialInsertCount + "): "
+                                                + insertMillis + " ms");
+                }
+
+                // remove the no longer needed triggers
+                cleanupTriggers(db);
+
+                // and keep a copy for the next time we need this list, if worth it.
+                cacheDao.save(cacheKey, listTable, insertMillis);
             }
 
             if (!db.isCollationCaseSensitive()) {
@@ -545,9 +609,6 @@ class BooklistBuilder {
             // The list table is now fully populated.
             db.analyze(listTable);
 
-            // remove the no longer needed triggers
-            cleanupTriggers(db);
-
             // Create the navigation table.
             // This is a mapping table between row-id + book-id and a plain sequential id.
             // The latter is needed for a RecyclerView adapter.
@@ -924,6 +985,7 @@ class BooklistBuilder {
          *      + {@link DBDefinitions#TBL_PUBLISHERS}</li>
          *      <li>{@link DBDefinitions#TBL_BOOK_BOOKSHELF}
          *      + {@link DBDefinitions#TBL_BOOKSHELF}</li>
+         *      <li>{@link DBDefinitions#TBL_BOOK_LIST_KEYS}</li>
          *      <li>{@link #leftOuterJoins}</li>
          * </ul>
          *
@@ -956,6 +1018,13 @@ class BooklistBuilder {
                 joinWithPublishers(sb);
             }
 
+            // The pre-computed group keys are one row per book; a cheap join on the PK
+            if (style.getGroupList().stream()
+                     .map(BooklistGroup::getId)
+                     .anyMatch(BooklistGroup::isUsingBookListKeys)) {
+                sb.append(TBL_BOOKS.leftOuterJoin(TBL_BOOK_LIST_KEYS));
+            }
+
             // Add LEFT OUTER JOIN tables as needed
             leftOuterJoins.forEach(table -> sb.append(TBL_BOOKS.leftOuterJoin(table)));
 
@@ -0,0 +1,358 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.booklist;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+import com.hardbacknutter.nevertoomanybooks.BuildConfig;
+import com.hardbacknutter.nevertoomanybooks.DEBUG_SWITCHES;
+import com.hardbacknutter.nevertoomanybooks.core.database.Domain;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
+import com.hardbacknutter.nevertoomanybooks.core.database.TableDefinition;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.util.logger.LoggerFactory;
+
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_CACHE;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_DATA_VERSION;
+
+/**
+ * Keeps copies of fully built list tables across sessions.
+ * <p>
+ * A cached list is identified by a hash of everything which determines its content:
+ * the bookshelf, the style, the SQL used to populate the list
+ * (i.e. groups, domains, joins and filters), the rebuild mode, and the locale/time zone
+ * used by the collation and date expressions.
+ * The entry is only valid for the {@link DBKey#DATA_VERSION} at the time it was stored.
+ * Triggers increment the latter whenever booklist related data changes.
+ * <p>
+ * The node state is not stored here; it's already kept by {@link BooklistNodeDao}.
+ * The list table only holds the initial expanded/visible flags, which are derived
+ * from the style and hence covered by the key.
+ * The navigation table is cheap to derive from the list table and is not stored either.
+ * <p>
+ * Only lists which took at least {@link #MIN_BUILD_MILLIS} to build are stored;
+ * copying a smaller list into the cache costs about as much as building it again.
+ * The least recently used entries are dropped when there are more
+ * than {@link #MAX_ENTRIES}.
+ */
+public final class BooklistCacheDao {
+
+    /** Log tag. */
+    private static final String TAG = "BooklistCacheDao";
+
+    /** The maximum number of lists we keep. */
+    private static final int MAX_ENTRIES = 5;
+
+    /**
+     * The minimum time the initial insert must have taken before we keep a copy.
+     * Below this, the 'CREATE TABLE AS SELECT' on a miss and the 'INSERT ... SELECT'
+     * on a hit together cost more than they save.
+     */
+    static final long MIN_BUILD_MILLIS = 100;
+
+    /** Prefix for the name of the table holding a cached list. */
+    private static final String CACHE_TABLE_PREFIX = "book_list_cache_";
+
+    /** Database Access. */
+    @NonNull
+    private final SynchronizedDb db;
+
+    /**
+     * Constructor.
+     *
+     * @param db Database Access
+     */
+    BooklistCacheDao(@NonNull final SynchronizedDb db) {
+        this.db = db;
+    }
+
+    /**
+     * Insert the initial row for the {@link DBKey#DATA_VERSION} counter.
+     * Must be called when the database is created, or when the table is first added.
+     *
+     * @param db Database Access
+     */
+    public static void onPostCreate(@NonNull final SQLiteDatabase db) {
+        db.execSQL(Sql.INSERT_DATA_VERSION);
+    }
+
+    /**
+     * Drop <strong>all</strong> cached lists.
+     *
+     * @param db Database Access
+     */
+    public static void clearAll(@NonNull final SynchronizedDb db) {
+        final List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(Sql.SELECT_ALL_IDS, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        ids.forEach(id -> db.drop(CACHE_TABLE_PREFIX + id));
+        db.execSQL(Sql.DELETE_ALL);
+    }
+
+    /**
+     * Create the key for a list.
+     *
+     * @param bookshelfId the list is for
+     * @param styleUuid   the list is for
+     * @param rebuildMode the list was build with
+     * @param sql         the SQL used to populate the list table
+     *
+     * @return the key
+     */
+    @NonNull
+    static String createKey(final long bookshelfId,
+                            @NonNull final String styleUuid,
+                            @NonNull final RebuildBooklist rebuildMode,
+                            @NonNull final String sql) {
+        final String text = bookshelfId
+                            + '|' + styleUuid
+                            + '|' + rebuildMode
+                            + '|' + Locale.getDefault()
+                            + '|' + TimeZone.getDefault().getID()
+                            + '|' + sql;
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : md.digest(text.getBytes(StandardCharsets.UTF_8))) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (@NonNull final NoSuchAlgorithmException e) {
+            // Should never happen; SHA-256 is mandatory for all Java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Populate the given (empty) list table from the cache.
+     *
+     * @param key       as created by {@link #createKey}
+     * @param listTable to populate; must exist and be empty
+     *
+     * @return {@code true} if the list was found and copied;
+     *         {@code false} if the caller must build the list
+     */
+    boolean restore(@NonNull final String key,
+                    @NonNull final TableDefinition listTable) {
+        final long id = find(key);
+        if (id == 0) {
+            return false;
+        }
+
+        final String columns = getColumns(listTable);
+        db.execSQL("INSERT INTO " + listTable.getName() + " (" + columns + ")"
+                   + " SELECT " + columns + " FROM " + CACHE_TABLE_PREFIX + id);
+
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.TOUCH)) {
+            stmt.bindLong(1, System.currentTimeMillis());
+            stmt.bindLong(2, id);
+            stmt.executeUpdateDelete();
+        }
+
+        if (BuildConfig.DEBUG && DEBUG_SWITCHES.BOB_THE_BUILDER) {
+            LoggerFactory.getLogger().d(TAG, "restore", "id=" + id);
+        }
+        return true;
+    }
+
+    /**
+     * Check if there is an entry for the given key which is valid for the current data.
+     *
+     * @param key as created by {@link #createKey}
+     *
+     * @return {@code true} if {@link #restore} would find the list
+     */
+    boolean isCurrent(@NonNull final String key) {
+        return find(key) != 0;
+    }
+
+    /**
+     * Find the entry for the given key which is valid for the current data.
+     *
+     * @param key as created by {@link #createKey}
+     *
+     * @return the id of the entry, or {@code 0} if not found
+     */
+    private long find(@NonNull final String key) {
+        final long dataVersion = getDataVersion();
+        if (dataVersion == 0) {
+            return 0;
+        }
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.FIND)) {
+            stmt.bindString(1, key);
+            stmt.bindLong(2, dataVersion);
+            return stmt.simpleQueryForLongOrZero();
+        }
+    }
+
+    /**
+     * Store a copy of the given list table, replacing any previous entry with the same key.
+     * Nothing is stored if the list was fast enough to build.
+     *
+     * @param key         as created by {@link #createKey}
+     * @param listTable   fully built list table; before any node state has been applied
+     * @param buildMillis the time it took to populate the list table
+     */
+    void save(@NonNull final String key,
+              @NonNull final TableDefinition listTable,
+              final long buildMillis) {
+        if (buildMillis < MIN_BUILD_MILLIS) {
+            return;
+        }
+        final long dataVersion = getDataVersion();
+        if (dataVersion == 0) {
+            return;
+        }
+
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.FIND_BY_KEY)) {
+            stmt.bindString(1, key);
+            final long oldId = stmt.simpleQueryForLongOrZero();
+            if (oldId != 0) {
+                delete(oldId);
+            }
+        }
+
+        final long id;
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.INSERT)) {
+            stmt.bindString(1, key);
+            stmt.bindLong(2, dataVersion);
+            stmt.bindLong(3, System.currentTimeMillis());
+            id = stmt.executeInsert();
+        }
+        if (id <= 0) {
+            return;
+        }
+
+        db.execSQL("CREATE TABLE " + CACHE_TABLE_PREFIX + id
+                   + " AS SELECT " + getColumns(listTable)
+                   + " FROM " + listTable.getName());
+
+        purge();
+    }
+
+    /**
+     * Drop the least recently used entries if we have more than {@link #MAX_ENTRIES}.
+     */
+    private void purge() {
+        final List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(Sql.SELECT_LRU_IDS,
+                                         new String[]{String.valueOf(MAX_ENTRIES)})) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        ids.forEach(this::delete);
+    }
+
+    private void delete(final long id) {
+        db.drop(CACHE_TABLE_PREFIX + id);
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.DELETE_BY_ID)) {
+            stmt.bindLong(1, id);
+            stmt.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Get the current {@link DBKey#DATA_VERSION}.
+     *
+     * @return version, or {@code 0} if not available
+     */
+    long getDataVersion() {
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.SELECT_DATA_VERSION)) {
+            return stmt.simpleQueryForLongOrZero();
+        }
+    }
+
+    @NonNull
+    private String getColumns(@NonNull final TableDefinition listTable) {
+        return listTable.getDomains()
+                        .stream()
+                        .map(Domain::getName)
+                        .collect(Collectors.joining(","));
+    }
+
+    private static final class Sql {
+
+        private static final String SELECT_ = "SELECT ";
+        private static final String _FROM_ = " FROM ";
+        private static final String _WHERE_ = " WHERE ";
+        private static final String DELETE_FROM_ = "DELETE FROM ";
+
+        /** The counter starts at 1; a value of 0 means "no counter" and disables the cache. */
+        private static final String INSERT_DATA_VERSION =
+                "INSERT OR IGNORE INTO " + TBL_DATA_VERSION.getName()
+                + " (" + DBKey.PK_ID + ',' + DBKey.DATA_VERSION + ") VALUES (1,1)";
+
+        private static final String SELECT_DATA_VERSION =
+                SELECT_ + DBKey.DATA_VERSION + _FROM_ + TBL_DATA_VERSION.getName()
+                + _WHERE_ + DBKey.PK_ID + "=1";
+
+        private static final String FIND =
+                SELECT_ + DBKey.PK_ID + _FROM_ + TBL_BOOK_LIST_CACHE.getName()
+                + _WHERE_ + DBKey.BL_CACHE_KEY + "=? AND " + DBKey.DATA_VERSION + "=?";
+
+        private static final String FIND_BY_KEY =
+                SELECT_ + DBKey.PK_ID + _FROM_ + TBL_BOOK_LIST_CACHE.getName()
+                + _WHERE_ + DBKey.BL_CACHE_KEY + "=?";
+
+        private static final String INSERT =
+                "INSERT INTO " + TBL_BOOK_LIST_CACHE.getName()
+                + " (" + DBKey.BL_CACHE_KEY
+                + ',' + DBKey.DATA_VERSION
+                + ',' + DBKey.BL_CACHE_LAST_USED
+                + ") VALUES (?,?,?)";
+
+        private static final String TOUCH =
+                "UPDATE " + TBL_BOOK_LIST_CACHE.getName()
+                + " SET " + DBKey.BL_CACHE_LAST_USED + "=?"
+                + _WHERE_ + DBKey.PK_ID + "=?";
+
+        private static final String SELECT_ALL_IDS =
+                SELECT_ + DBKey.PK_ID + _FROM_ + TBL_BOOK_LIST_CACHE.getName();
+
+        /** All entries except the {@link #MAX_ENTRIES} most recently used ones. */
+        private static final String SELECT_LRU_IDS =
+                SELECT_ + DBKey.PK_ID + _FROM_ + TBL_BOOK_LIST_CACHE.getName()
+                + " ORDER BY " + DBKey.BL_CACHE_LAST_USED + " DESC"
+                + " LIMIT -1 OFFSET ?";
+
+        private static final String DELETE_BY_ID =
+                DELETE_FROM_ + TBL_BOOK_LIST_CACHE.getName() + _WHERE_ + DBKey.PK_ID + "=?";
+
+        private static final String DELETE_ALL =
+                DELETE_FROM_ + TBL_BOOK_LIST_CACHE.getName();
+    }
+}
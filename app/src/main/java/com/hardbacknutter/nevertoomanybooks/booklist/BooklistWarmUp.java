@@ -0,0 +1,129 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.booklist;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import com.hardbacknutter.nevertoomanybooks.BuildConfig;
+import com.hardbacknutter.nevertoomanybooks.DEBUG_SWITCHES;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
+import com.hardbacknutter.util.logger.LoggerFactory;
+
+/**
+ * Builds the lists for the most recently used bookshelves in the background,
+ * so that switching to one of them only needs to copy the list from the {@link BooklistCacheDao}.
+ * Lists which build faster than {@link BooklistCacheDao#MIN_BUILD_MILLIS} are not kept;
+ * for those the warm-up costs little and saves nothing.
+ * Lists which the cache already has for the current data are skipped.
+ * <p>
+ * The lists are build one after the other on {@link ASyncExecutor#SERIAL}.
+ * Each build runs in its own exclusive transaction, so there is nothing to gain
+ * from running them in parallel on our single database connection.
+ * A warm-up stops as soon as it's cancelled, or when the data changes.
+ */
+public final class BooklistWarmUp {
+
+    /** Log tag. */
+    private static final String TAG = "BooklistWarmUp";
+
+    /**
+     * The maximum number of lists to build ahead.
+     * Must be less than the number of entries the cache keeps, so the list
+     * currently displayed is never evicted by a warm-up.
+     */
+    private static final int MAX_LISTS = 3;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Start a warm-up, unless one is already running.
+     *
+     * @param currentBookshelfId the shelf currently displayed; it will be skipped
+     * @param mode               the mode a shelf will be build with when selected
+     */
+    public void start(final long currentBookshelfId,
+                      @NonNull final RebuildBooklist mode) {
+        cancelled.set(false);
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        ASyncExecutor.SERIAL.execute(() -> {
+            try {
+                run(currentBookshelfId, mode);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Stop the warm-up after the list currently being build (if any).
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    @WorkerThread
+    private void run(final long currentBookshelfId,
+                     @NonNull final RebuildBooklist mode) {
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        final Context context = serviceLocator.getLocalizedAppContext();
+        final BookshelfDao bookshelfDao = serviceLocator.getBookshelfDao();
+        final BooklistCacheDao cacheDao = new BooklistCacheDao(serviceLocator.getDb());
+
+        final long dataVersion = cacheDao.getDataVersion();
+        if (dataVersion == 0) {
+            return;
+        }
+
+        final List<Long> ids = bookshelfDao.getRecentIds(context)
+                                           .stream()
+                                           .filter(id -> id != currentBookshelfId)
+                                           .limit(MAX_LISTS)
+                                           .collect(Collectors.toList());
+        for (final long id : ids) {
+            if (cancelled.get() || cacheDao.getDataVersion() != dataVersion) {
+                return;
+            }
+            bookshelfDao.getBookshelf(context, id).ifPresent(bookshelf -> {
+                try {
+                    final boolean built = BoBTask.warmUp(context, bookshelf, mode);
+                    if (BuildConfig.DEBUG && DEBUG_SWITCHES.BOB_THE_BUILDER) {
+                        LoggerFactory.getLogger().d(TAG, "run", "bookshelf=" + id,
+                                                    "built=" + built);
+                    }
+                } catch (@NonNull final RuntimeException e) {
+                    // Not fatal; the list will be build when the user selects the shelf.
+                    LoggerFactory.getLogger().e(TAG, e, "bookshelf=" + id);
+                }
+            });
+        }
+    }
+}
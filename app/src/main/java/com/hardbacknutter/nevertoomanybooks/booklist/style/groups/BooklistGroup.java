@@ -35,6 +35,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -71,6 +72,7 @@ import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.DOM_LO
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.DOM_TITLE;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_AUTHORS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LOANEE;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_SERIES;
 
@@ -297,6 +299,66 @@ public class BooklistGroup {
                + _END;
     }
 
+    /**
+     * Get the expressions used to compute the columns of
+     * {@link DBDefinitions#TBL_BOOK_LIST_KEYS} from a row in {@link DBDefinitions#TBL_BOOKS}.
+     * <p>
+     * The booklist groups which use these keys no longer need to evaluate
+     * the GLOB/SUBSTR expressions for each book (twice: for the key and the node key)
+     * each time the list is build.
+     * Only keys which do not depend on the device time zone can be pre-computed.
+     * Cheap expressions (e.g. the read-status) are not worth the join and are not stored.
+     *
+     * @return an ordered map with the column name as key, and the expression as value
+     */
+    @NonNull
+    public static Map<String, String> getBookListKeyExpressions() {
+        final Map<String, String> map = new LinkedHashMap<>();
+        map.put(DBKey.BLK_PUB_YEAR,
+                year(false, TBL_BOOKS.dot(DBKey.BOOK_PUBLICATION__DATE)));
+        map.put(DBKey.BLK_PUB_MONTH,
+                month(false, TBL_BOOKS.dot(DBKey.BOOK_PUBLICATION__DATE)));
+        map.put(DBKey.BLK_FIRST_PUB_YEAR,
+                year(false, TBL_BOOKS.dot(DBKey.FIRST_PUBLICATION__DATE)));
+        map.put(DBKey.BLK_FIRST_PUB_MONTH,
+                month(false, TBL_BOOKS.dot(DBKey.FIRST_PUBLICATION__DATE)));
+        return map;
+    }
+
+    /**
+     * Check if the given group uses the pre-computed keys from
+     * {@link DBDefinitions#TBL_BOOK_LIST_KEYS}.
+     *
+     * @param id of the group
+     *
+     * @return {@code true} if the table must be joined when building the list
+     */
+    public static boolean isUsingBookListKeys(@Id final int id) {
+        switch (id) {
+            case DATE_PUBLISHED_YEAR:
+            case DATE_PUBLISHED_MONTH:
+            case DATE_FIRST_PUBLICATION_YEAR:
+            case DATE_FIRST_PUBLICATION_MONTH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Create the expression to read a column from {@link DBDefinitions#TBL_BOOK_LIST_KEYS}.
+     * The table is LEFT OUTER JOIN'd, so default to the same value the expression
+     * would have returned for an empty date.
+     *
+     * @param key column name
+     *
+     * @return expression
+     */
+    @NonNull
+    private static String bookListKey(@NonNull final String key) {
+        return "COALESCE(" + TBL_BOOK_LIST_KEYS.dot(key) + ",'')";
+    }
+
     /**
      * General remark on the use of GLOB instead of 'strftime(format, date)':
      * strftime() only works on full date(time) strings. i.e. 'YYYY-MM-DD*'
@@ -486,7 +548,7 @@ public class BooklistGroup {
                         new Domain.Builder(BlgKey.READ_STATUS, SqLiteDataType.Text)
                                 .notNull()
                                 .build(),
-                        // Ww could also test for books where the start/end dates
+                        // We could also test for books where the start/end dates
                         // are set and the flag is NOT set...
                         // But that situation should never occur anyhow... flw
                         CASE
@@ -552,7 +614,7 @@ public class BooklistGroup {
                 // UTC. Formatting is done after fetching.
                 final DomainExpression keyDomainExpression = new DomainExpression(
                         new Domain.Builder(BlgKey.PUB_YEAR, SqLiteDataType.Integer).build(),
-                        year(false, TBL_BOOKS.dot(DBKey.BOOK_PUBLICATION__DATE)),
+                        bookListKey(DBKey.BLK_PUB_YEAR),
                         Sort.Desc);
                 return new GroupKey(id, R.string.lbl_date_published_year, "yrp",
                                     keyDomainExpression)
@@ -562,7 +624,7 @@ public class BooklistGroup {
                 // UTC. Formatting is done after fetching.
                 final DomainExpression keyDomainExpression = new DomainExpression(
                         new Domain.Builder(BlgKey.PUB_MONTH, SqLiteDataType.Integer).build(),
-                        month(false, TBL_BOOKS.dot(DBKey.BOOK_PUBLICATION__DATE)),
+                        bookListKey(DBKey.BLK_PUB_MONTH),
                         Sort.Desc);
                 return new GroupKey(id, R.string.lbl_date_published_month, "mp",
                                     keyDomainExpression)
@@ -574,7 +636,7 @@ public class BooklistGroup {
                 // UTC. Formatting is done in the sql expression.
                 final DomainExpression keyDomainExpression = new DomainExpression(
                         new Domain.Builder(BlgKey.FIRST_PUB_YEAR, SqLiteDataType.Integer).build(),
-                        year(false, TBL_BOOKS.dot(DBKey.FIRST_PUBLICATION__DATE)),
+                        bookListKey(DBKey.BLK_FIRST_PUB_YEAR),
                         Sort.Desc);
                 return new GroupKey(id, R.string.lbl_date_first_publication_year, "yfp",
                                     keyDomainExpression)
@@ -584,7 +646,7 @@ public class BooklistGroup {
                 // Local for the user. Formatting is done after fetching.
                 final DomainExpression keyDomainExpression = new DomainExpression(
                         new Domain.Builder(BlgKey.FIRST_PUB_MONTH, SqLiteDataType.Integer).build(),
-                        month(false, TBL_BOOKS.dot(DBKey.FIRST_PUBLICATION__DATE)),
+                        bookListKey(DBKey.BLK_FIRST_PUB_MONTH),
                         Sort.Desc);
                 return new GroupKey(id, R.string.lbl_date_first_publication_month, "mfp",
                                     keyDomainExpression)
@@ -20,7 +20,6 @@
 
 package com.hardbacknutter.nevertoomanybooks.covers;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.res.Resources;
@@ -198,6 +197,8 @@ class CoverBrowserDelegate
         // the task throws no exceptions; but paranoia... dismiss silently is fine
         vm.onSearchEditionsTaskFailure().observe(owner.getViewLifecycleOwner(),
                                                  message -> owner.dismiss());
+        vm.onEditionsFound().observe(owner.getViewLifecycleOwner(), message
+                -> message.process(this::addToGallery));
         vm.onSearchEditionsTaskFinished().observe(owner.getViewLifecycleOwner(), message
                 -> message.process(this::showGallery));
 
@@ -274,21 +275,36 @@ class CoverBrowserDelegate
     }
 
     /**
-     * Show the user a selection of alternative edition covers and allow selection of a replacement.
+     * Add any new editions to the gallery while the search is still running.
+     * The gallery will start fetching their images as they are bound.
      *
-     * @param list editions
+     * @param list all editions found so far
      */
-    @SuppressLint("NotifyDataSetChanged")
-    private void showGallery(@Nullable final Collection<AltEdition> list) {
+    private void addToGallery(@NonNull final Collection<AltEdition> list) {
         Objects.requireNonNull(galleryAdapter, ERROR_GALLERY_ADAPTER);
 
-        if (vm.setEditions(list)) {
-            galleryAdapter.notifyDataSetChanged();
+        final int start = vm.getEditions().size();
+        final int added = vm.addEditions(list);
+        if (added > 0) {
+            galleryAdapter.notifyItemRangeInserted(start, added);
             vb.statusMessage.setText(R.string.info_tap_on_thumbnail_to_zoom);
-        } else {
+        }
+    }
+
+    /**
+     * Show the user a selection of alternative edition covers and allow selection of a replacement.
+     *
+     * @param list the final list of editions
+     */
+    private void showGallery(@NonNull final Collection<AltEdition> list) {
+        addToGallery(list);
+
+        if (vm.getEditions().isEmpty()) {
             vb.progressBar.hide();
             vb.statusMessage.setText(R.string.warning_no_editions);
             vb.statusMessage.postDelayed(owner::dismiss, Delay.LONG_MS);
+        } else {
+            selectIfOnlyOne();
         }
     }
 
@@ -324,23 +340,15 @@ class CoverBrowserDelegate
             // No file. Remove the defunct view from the gallery
             vm.getEditions().remove(editionIndex);
             galleryAdapter.notifyItemRemoved(editionIndex);
+        }
 
-            // If there is only 1 alternative edition with a cover, auto-select it.
-            // The user still has to accept it manually.
-            if (vm.getEditions().size() == 1) {
-                final AltEdition altEdition = vm.getEditions().get(0);
-                final ImageFileInfo onlyOne = vm.getFileInfo(altEdition);
-                // Sanity check
-                if (onlyOne != null && onlyOne.getFile().isPresent()) {
-                    // Hide the now useless gallery and fetch/show the single image.
-                    // This does mean that if the user saw the gallery image,
-                    // and decided it's not the one they want...
-                    // we STILL potentially fetch a larger copy. Oh well...
-                    vb.statusMessage.setVisibility(View.GONE);
-                    vb.gallery.setVisibility(View.GONE);
-                    setSelectedImage(onlyOne, true);
-                }
-            }
+        // While the search is running, more editions can still arrive.
+        if (vm.isSearchEditionsTaskRunning()) {
+            return;
+        }
+
+        if (editionIndex >= 0) {
+            selectIfOnlyOne();
         }
 
         // if none left, flash a warning, and dismiss after a small delay.
@@ -351,6 +359,27 @@ class CoverBrowserDelegate
         }
     }
 
+    /**
+     * If there is only 1 alternative edition with a cover, auto-select it.
+     * The user still has to accept it manually.
+     */
+    private void selectIfOnlyOne() {
+        if (vm.getEditions().size() == 1) {
+            final AltEdition altEdition = vm.getEditions().get(0);
+            final ImageFileInfo onlyOne = vm.getFileInfo(altEdition);
+            // Sanity check
+            if (onlyOne != null && onlyOne.getFile().isPresent()) {
+                // Hide the now useless gallery and fetch/show the single image.
+                // This does mean that if the user saw the gallery image,
+                // and decided it's not the one they want...
+                // we STILL potentially fetch a larger copy. Oh well...
+                vb.statusMessage.setVisibility(View.GONE);
+                vb.gallery.setVisibility(View.GONE);
+                setSelectedImage(onlyOne, true);
+            }
+        }
+    }
+
     /**
      * Display the given image in the preview View.
      * The 'verify' flag:
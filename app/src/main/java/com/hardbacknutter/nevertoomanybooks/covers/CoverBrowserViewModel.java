@@ -33,8 +33,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -88,6 +90,12 @@ public class CoverBrowserViewModel
     /** List of alternative editions. The base list for the gallery adapter. */
     @NonNull
     private final List<AltEdition> editions = new ArrayList<>();
+    /**
+     * All editions received from the search so far, including the ones
+     * which were discarded or removed from {@link #editions}.
+     */
+    @NonNull
+    private final Set<AltEdition> seenEditions = new HashSet<>();
 
     /** SelectedImage. */
     @Nullable
@@ -151,7 +159,7 @@ public class CoverBrowserViewModel
         cancelAllTasks();
 
         if (fileManager != null) {
-            fileManager.purge();
+            fileManager.close();
         }
     }
 
@@ -176,7 +184,7 @@ public class CoverBrowserViewModel
                                                   .filter(Site::isActive)
                                                   .map(Site::getEngineId)
                                                   .collect(Collectors.toList());
-            fileManager = new FileManager(engineIds);
+            fileManager = new FileManager(engineIds, cIdx);
         }
     }
 
@@ -248,36 +256,33 @@ public class CoverBrowserViewModel
     }
 
     /**
-     * Set the given list as the editions list.
+     * Add the editions from the given list which we have not seen before
+     * to the end of the editions list.
+     * <p>
+     * The search sends us all editions found so far each time a site replies,
+     * so editions we already have, or removed because they turned out to have no image,
+     * are skipped.
      *
      * @param list editions
      *
-     * @return {@code true} if we have at least one edition which <strong>might</strong>
-     *         have images.
+     * @return the number of editions added
      */
-    public boolean setEditions(@Nullable final Collection<AltEdition> list) {
-        editions.clear();
-
+    int addEditions(@NonNull final Collection<AltEdition> list) {
         if (BuildConfig.DEBUG /* always */) {
-            LoggerFactory.getLogger().d(
-                    TAG, "list=" + (list != null ? list.size() + ", " + list : "null"));
+            LoggerFactory.getLogger().d(TAG, "list=" + list.size() + ", " + list);
         }
 
-        if (list == null || list.isEmpty()) {
-            return false;
-        }
-
-        // Some AltEdition implementations know for certain whether they have / do not have images.
-        // Others *may* have images. Discard the ones we are sure NOT to have images.
-        final List<AltEdition> filtered = list.stream()
-                                              .filter(AltEdition::mayHaveCover)
-                                              .collect(Collectors.toList());
-        if (filtered.isEmpty()) {
-            return false;
+        int added = 0;
+        for (final AltEdition edition : list) {
+            // Some AltEdition implementations know for certain whether they
+            // have / do not have images. Others *may* have images.
+            // Discard the ones we are sure NOT to have images.
+            if (seenEditions.add(edition) && edition.mayHaveCover()) {
+                editions.add(edition);
+                added++;
+            }
         }
-
-        editions.addAll(list);
-        return true;
+        return added;
     }
 
     @Nullable
@@ -389,6 +394,16 @@ public class CoverBrowserViewModel
         return selectedImage;
     }
 
+    /**
+     * Observable to receive the editions found so far while the search is running.
+     *
+     * @return a snapshot of all editions found so far
+     */
+    @NonNull
+    LiveData<LiveDataEvent<Collection<AltEdition>>> onEditionsFound() {
+        return searchEditionsTask.onEditionsFound();
+    }
+
     @NonNull
     LiveData<LiveDataEvent<Collection<AltEdition>>> onSearchEditionsTaskFinished() {
         return searchEditionsTask.onFinished();
@@ -46,6 +46,7 @@ import com.hardbacknutter.nevertoomanybooks.DEBUG_SWITCHES;
 import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.VersionedFileService;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CoverCacheDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
 import com.hardbacknutter.nevertoomanybooks.settings.Prefs;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
@@ -55,7 +56,7 @@ import com.hardbacknutter.util.logger.LoggerFactory;
  * Storing is generally done as png, but filenames use the ".jpg" extension for historic reasons.
  * Loading an image will always try ".jpg" first, ".png" second.
  * <p>
- * Serves as a wrapper over the file system AND the covers cache dao.
+ * Serves as a wrapper over the file system AND the covers cache/hash dao.
  */
 public class CoverStorage {
 
@@ -76,17 +77,22 @@ public class CoverStorage {
     private final Supplier<Context> appContextSupplier;
     @NonNull
     private final Supplier<CoverCacheDao> coverCacheDaoSupplier;
+    @NonNull
+    private final Supplier<CoverHashDao> coverHashDaoSupplier;
 
     /**
      * Constructor.
      *
      * @param appContextSupplier    deferred supplier for the raw Application Context
      * @param coverCacheDaoSupplier deferred supplier for the {@link CoverCacheDao}
+     * @param coverHashDaoSupplier  deferred supplier for the {@link CoverHashDao}
      */
     public CoverStorage(@NonNull final Supplier<Context> appContextSupplier,
-                        @NonNull final Supplier<CoverCacheDao> coverCacheDaoSupplier) {
+                        @NonNull final Supplier<CoverCacheDao> coverCacheDaoSupplier,
+                        @NonNull final Supplier<CoverHashDao> coverHashDaoSupplier) {
         this.appContextSupplier = appContextSupplier;
         this.coverCacheDaoSupplier = coverCacheDaoSupplier;
+        this.coverHashDaoSupplier = coverHashDaoSupplier;
     }
 
     static boolean isTooSmall(@NonNull final BitmapFactory.Options opt) {
@@ -422,6 +428,7 @@ public class CoverStorage {
                 }
             }
             FileUtils.delete(file);
+            coverHashDaoSupplier.get().delete(file.getName());
         }
 
         // Delete from the cache. And yes, we also delete the ones
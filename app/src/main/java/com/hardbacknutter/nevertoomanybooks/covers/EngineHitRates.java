@@ -0,0 +1,173 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.covers;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.searchengines.EngineId;
+
+/**
+ * Keeps track of how often each site delivered a cover of a given {@link Size},
+ * so {@link FileManager} can try the likely winners first.
+ * <p>
+ * The counters are stored in the preferences so they survive restarts.
+ * Once a site reaches {@link #MAX_ATTEMPTS} for a size, both its counters are halved,
+ * so the order follows any changes in the site's behaviour.
+ */
+final class EngineHitRates {
+
+    /** Preference key prefix; followed by the engine key, the size and the counter name. */
+    private static final String PK_PREFIX = "covers.hits.";
+    private static final String PK_ATTEMPTS = ".attempts";
+    private static final String PK_HITS = ".hits";
+
+    private static final int MAX_ATTEMPTS = 200;
+
+    /** Singleton. */
+    private static EngineHitRates instance;
+
+    /** key: see {@link #createKey}; value: {attempts, hits}. */
+    private final Map<String, int[]> counters = new HashMap<>();
+    /** The keys which were changed since the last {@link #save()}. */
+    private final Collection<String> dirty = new ArrayList<>();
+
+    private EngineHitRates() {
+    }
+
+    /**
+     * Get the singleton.
+     *
+     * @return instance
+     */
+    @NonNull
+    static synchronized EngineHitRates getInstance() {
+        if (instance == null) {
+            instance = new EngineHitRates();
+        }
+        return instance;
+    }
+
+    @NonNull
+    private static String createKey(@NonNull final EngineId engineId,
+                                    @NonNull final Size size) {
+        return PK_PREFIX + engineId.getPreferenceKey() + '.' + size.name();
+    }
+
+    @NonNull
+    private static SharedPreferences getPreferences() {
+        return PreferenceManager.getDefaultSharedPreferences(
+                ServiceLocator.getInstance().getAppContext());
+    }
+
+    @NonNull
+    private int[] get(@NonNull final String key) {
+        int[] values = counters.get(key);
+        if (values == null) {
+            final SharedPreferences prefs = getPreferences();
+            values = new int[]{prefs.getInt(key + PK_ATTEMPTS, 0),
+                               prefs.getInt(key + PK_HITS, 0)};
+            counters.put(key, values);
+        }
+        return values;
+    }
+
+    /**
+     * Record the outcome of a search.
+     *
+     * @param engineId the site which was searched
+     * @param size     the size which was searched for
+     * @param hit      {@code true} if the site delivered an acceptable image
+     */
+    @AnyThread
+    synchronized void record(@NonNull final EngineId engineId,
+                             @NonNull final Size size,
+                             final boolean hit) {
+        final String key = createKey(engineId, size);
+        final int[] values = get(key);
+        values[0]++;
+        if (hit) {
+            values[1]++;
+        }
+        if (values[0] >= MAX_ATTEMPTS) {
+            values[0] /= 2;
+            values[1] /= 2;
+        }
+        if (!dirty.contains(key)) {
+            dirty.add(key);
+        }
+    }
+
+    /**
+     * Sort the given sites on their hit rate for the given size, best first.
+     * Sites with equal (or no) statistics keep their original (user preferred) order.
+     *
+     * @param engineIds to sort
+     * @param size      the size which will be searched for
+     *
+     * @return a new list
+     */
+    @AnyThread
+    @NonNull
+    synchronized List<EngineId> sort(@NonNull final Collection<EngineId> engineIds,
+                                     @NonNull final Size size) {
+        final Map<EngineId, Float> rates = new HashMap<>();
+        for (final EngineId engineId : engineIds) {
+            final int[] values = get(createKey(engineId, size));
+            // Smoothed, so an unknown site starts at 0.5 and is not ignored forever
+            rates.put(engineId, (values[1] + 1f) / (values[0] + 2f));
+        }
+        final List<EngineId> list = new ArrayList<>(engineIds);
+        // List.sort is stable
+        //noinspection DataFlowIssue
+        list.sort(Comparator.comparing(rates::get, Comparator.reverseOrder()));
+        return list;
+    }
+
+    /**
+     * Write any changed counters to the preferences.
+     */
+    @AnyThread
+    synchronized void save() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        final SharedPreferences.Editor editor = getPreferences().edit();
+        for (final String key : dirty) {
+            //noinspection DataFlowIssue
+            final int[] values = counters.get(key);
+            editor.putInt(key + PK_ATTEMPTS, values[0])
+                  .putInt(key + PK_HITS, values[1]);
+        }
+        editor.apply();
+        dirty.clear();
+    }
+}
@@ -20,6 +20,8 @@
 package com.hardbacknutter.nevertoomanybooks.covers;
 
 import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
@@ -27,21 +29,34 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
-import java.util.Collections;
+import java.io.File;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.DEBUG_SWITCHES;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
 import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
 import com.hardbacknutter.nevertoomanybooks.searchengines.AltEdition;
 import com.hardbacknutter.nevertoomanybooks.searchengines.EngineId;
@@ -53,30 +68,171 @@ import com.hardbacknutter.util.logger.LoggerFactory;
  * Given an {@link AltEdition}, this class uses the list of {@link SearchEngine}s to
  * search for a matching book and download cover images as needed.
  * Downloaded images are checked for suitability.
- * Unused downloads are cleaned up.
+ * <p>
+ * For each size, the sites are raced against each other, and the first acceptable
+ * image wins. The sites which delivered most often before are started first.
+ * <p>
+ * The results, including the editions for which no image was found,
+ * are kept in a bounded cache shared by all instances,
+ * so reopening the cover browser does not search/download again.
+ * The cache lives as long as the process; the files it leaves behind are deleted
+ * the first time a {@link FileManager} is created in the next process.
  */
 class FileManager {
 
     /** Log tag. */
     private static final String TAG = "FileManager";
 
+    /** The maximum number of sites searched at the same time for a single edition. */
+    private static final int MAX_CONCURRENT_SEARCHES = 3;
+    /** How often we check for the user cancelling us while waiting for the sites. */
+    private static final long CANCEL_CHECK_MS = 250;
+    /** The maximum number of editions kept in the {@link #CACHE}. */
+    private static final int MAX_CACHE_SIZE = 200;
+    /** How long we remember that no image was found for an edition. */
+    private static final long NOT_FOUND_EXPIRY_MS = TimeUnit.HOURS.toMillis(1);
+
+    /** The name of the files downloaded by {@link ImageDownloader#getTempFilename}. */
+    private static final Pattern DOWNLOAD_FILENAME = Pattern.compile("\\d+_.+_[01]_.*\\.jpg");
+
     /**
-     * Downloaded files.
+     * Downloaded files and failed searches. The least recently used entry is
+     * removed (and its file deleted unless in use) when full.
+     * Access must be synchronized on the map itself.
      */
     @NonNull
-    private final Map<AltEdition, ImageFileInfo> downloads =
-            Collections.synchronizedMap(new HashMap<>());
+    private static final Map<CacheKey, CacheEntry> CACHE =
+            new LinkedHashMap<>(MAX_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        @NonNull final Map.Entry<CacheKey, CacheEntry> eldest) {
+                    if (size() > MAX_CACHE_SIZE) {
+                        eldest.getValue().imageFileInfo.getFile()
+                              .ifPresent(FileManager::deleteUnlessInUse);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    /**
+     * The files handed out by the open {@link FileManager}s, with the number of instances
+     * using them. These might be on display, and are never deleted when they leave the cache.
+     * Access must be synchronized on {@link #CACHE}.
+     */
+    private static final Map<File, Integer> IN_USE = new HashMap<>();
+    /** Set once the files left behind by a previous process have been deleted. */
+    private static final AtomicBoolean ORPHANS_DELETED = new AtomicBoolean();
 
     /** The sites the user wants to search for cover images. */
+    @NonNull
     private final List<EngineId> engineIds;
+    /** Image index we're handling. */
+    @IntRange(from = 0, to = 1)
+    private final int cIdx;
+    @NonNull
+    private final EngineHitRates hitRates = EngineHitRates.getInstance();
+    /** The files this instance handed out; access must be synchronized on {@link #CACHE}. */
+    private final Set<File> used = new HashSet<>();
 
     /**
      * Constructor.
      *
      * @param engineIds to search on
+     * @param cIdx      0..n image index
      */
-    FileManager(@NonNull final List<EngineId> engineIds) {
+    FileManager(@NonNull final List<EngineId> engineIds,
+                @IntRange(from = 0, to = 1) final int cIdx) {
         this.engineIds = engineIds;
+        this.cIdx = cIdx;
+
+        if (!ORPHANS_DELETED.getAndSet(true)) {
+            ASyncExecutor.SERVICE.execute(FileManager::deleteOrphans);
+        }
+    }
+
+    /**
+     * Delete the files downloaded by a previous process. The cache did not survive,
+     * so nobody knows about these files anymore.
+     * Files created by this process are left alone; they could still be in use
+     * elsewhere, e.g. when editing a book.
+     */
+    @WorkerThread
+    private static void deleteOrphans() {
+        final long processStart = System.currentTimeMillis()
+                                  - (SystemClock.elapsedRealtime()
+                                     - Process.getStartElapsedRealtime());
+        try {
+            FileUtils.deleteDirectory(
+                    ServiceLocator.getInstance().getCoverStorage().getTempDir(),
+                    file -> file.lastModified() < processStart
+                            && DOWNLOAD_FILENAME.matcher(file.getName()).matches());
+        } catch (@NonNull final StorageException ignore) {
+            // ignore, nothing to delete
+        }
+    }
+
+    /**
+     * Delete a file which is no longer cached. A file still in use by an open
+     * {@link FileManager} is left for {@link #deleteOrphans()} in the next process.
+     * Must be called while synchronized on {@link #CACHE}.
+     *
+     * @param file to delete
+     */
+    private static void deleteUnlessInUse(@NonNull final File file) {
+        if (!IN_USE.containsKey(file)) {
+            FileUtils.delete(file);
+        }
+    }
+
+    /**
+     * Register the file (if any) as being in use by this instance.
+     *
+     * @param imageFileInfo as handed out
+     *
+     * @return the given info, for chaining
+     */
+    @NonNull
+    private ImageFileInfo use(@NonNull final ImageFileInfo imageFileInfo) {
+        imageFileInfo.getFile().ifPresent(file -> {
+            synchronized (CACHE) {
+                if (used.add(file)) {
+                    IN_USE.merge(file, 1, Integer::sum);
+                }
+            }
+        });
+        return imageFileInfo;
+    }
+
+    @Nullable
+    private static ImageFileInfo getCached(@NonNull final CacheKey key) {
+        synchronized (CACHE) {
+            final CacheEntry entry = CACHE.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.found ? entry.imageFileInfo.getFile().isPresent()
+                            : entry.expires > System.currentTimeMillis()) {
+                return entry.imageFileInfo;
+            }
+            // Either the file is gone (used/cleaned up), or the 'not found' has expired
+            CACHE.remove(key);
+            return null;
+        }
+    }
+
+    private static void putCached(@NonNull final CacheKey key,
+                                  @NonNull final ImageFileInfo imageFileInfo) {
+        synchronized (CACHE) {
+            final CacheEntry previous = CACHE.put(key, new CacheEntry(imageFileInfo));
+            // We replace a smaller image with a larger one; the old one can go.
+            if (previous != null) {
+                final Optional<File> previousFile = previous.imageFileInfo.getFile();
+                if (previousFile.isPresent()
+                    && !previousFile.equals(imageFileInfo.getFile())) {
+                    deleteUnlessInUse(previousFile.get());
+                }
+            }
+        }
     }
 
     /**
@@ -90,7 +246,8 @@ class FileManager {
     @Nullable
     @AnyThread
     ImageFileInfo getFileInfo(@NonNull final AltEdition edition) {
-        return downloads.get(edition);
+        final ImageFileInfo imageFileInfo = getCached(new CacheKey(edition, cIdx));
+        return imageFileInfo != null ? use(imageFileInfo) : null;
     }
 
     /**
@@ -98,9 +255,8 @@ class FileManager {
      * <p>
      * First checks the cache. If we already have a good image, abort the search and use it.
      * <p>
-     * We loop on {@link Size} first, and for each, loop again on {@link EngineId}.
-     * The for() loop will break/return <strong>as soon as a cover file is found.</strong>
-     * The first Site which has an image is accepted.
+     * We loop on {@link Size} first, and for each, race the sites.
+     * The loop will return <strong>as soon as a cover file is found.</strong>
      *
      * @param context          Current context
      * @param progressListener to check for any cancellations
@@ -122,11 +278,17 @@ class FileManager {
                                 @NonNull final Size... sizes)
             throws StorageException, CredentialsException {
 
+        final CacheKey key = new CacheKey(edition, cIdx);
+
         // We need to disable sites on the fly for the *current* search without modifying the list
-        // so take a COPY of the set of engines
-        final Set<EngineId> currentSearch = EnumSet.copyOf(engineIds);
+        // so take a COPY of the set of engines; skipping the ones which are not suitable.
+        final Set<EngineId> currentSearch = EnumSet.noneOf(EngineId.class);
+        engineIds.stream()
+                 .filter(engineId -> engineId.supports(SearchEngine.CoverByEdition.class))
+                 .forEach(currentSearch::add);
 
-        final Map<EngineId, SearchEngine> engineCache = new EnumMap<>(EngineId.class);
+        final Map<EngineId, SearchEngine.CoverByEdition> engineCache =
+                new EnumMap<>(EngineId.class);
 
         // We need to use the size as the outer loop.
         // The idea is to check all sites for the same size first.
@@ -137,119 +299,284 @@ class FileManager {
             }
 
             // Do we already have a file previously downloaded?
-            final ImageFileInfo previous = downloads.get(edition);
+            final ImageFileInfo previous = getCached(key);
             if (previous != null && previous.isUsable(size)) {
-                return previous;
+                return use(previous);
             }
 
-            for (final EngineId engineId : engineIds) {
-                // Should we search this site ?
-                if (currentSearch.contains(engineId)) {
+            final Optional<ImageFileInfo> imageFileInfo =
+                    race(context, progressListener, edition, cIdx, size,
+                         currentSearch, engineCache);
+            if (imageFileInfo.isPresent()) {
+                putCached(key, imageFileInfo.get());
+                return use(imageFileInfo.get());
+            }
+            // loop for next size
+        }
 
-                    if (progressListener.isCancelled()) {
-                        return new ImageFileInfo(edition);
-                    }
+        if (progressListener.isCancelled()) {
+            // Don't remember a failure which might just be due to the cancellation
+            return new ImageFileInfo(edition);
+        }
 
-                    // Is this Site's SearchEngine available and suitable?
-                    if (engineId.supports(SearchEngine.CoverByEdition.class)) {
+        if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
+            LoggerFactory.getLogger().d(TAG, "search|FAILED|edition=" + edition);
+        }
 
-                        SearchEngine.CoverByEdition se = (SearchEngine.CoverByEdition)
-                                engineCache.get(engineId);
-                        if (se == null) {
-                            se = (SearchEngine.CoverByEdition) engineId.createSearchEngine(context);
-                            // caller is the FetchImageTask
-                            se.setCaller(progressListener);
-                            engineCache.put(engineId, se);
-                        }
+        // Failed to find any size on all sites, record the failure to prevent future attempt
+        final ImageFileInfo failure = new ImageFileInfo(edition);
+        putCached(key, failure);
+        return failure;
+    }
 
-                        if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
-                            LoggerFactory.getLogger()
-                                         .d(TAG, "search|SEARCHING",
-                                            "searchEngine=" + se.getName(context),
-                                            "edition=" + edition,
-                                            "cIdx=" + cIdx,
-                                            "size=" + size);
-                        }
+    /**
+     * Search the given sites concurrently for an image of the given size.
+     * At most {@link #MAX_CONCURRENT_SEARCHES} sites are searched at the same time.
+     * The first acceptable image wins, and the searches still running are cancelled.
+     *
+     * @param context          Current context
+     * @param progressListener to check for any cancellations
+     * @param edition          to search for
+     * @param cIdx             0..n image index
+     * @param size             to search for
+     * @param currentSearch    the sites to search; will be updated
+     *                         with the sites no longer worth searching
+     * @param engineCache      the engines created so far
+     *
+     * @return the image found
+     *
+     * @throws CredentialsException on authentication/login failures
+     * @throws StorageException     on storage related failures
+     */
+    @NonNull
+    @WorkerThread
+    private Optional<ImageFileInfo> race(
+            @NonNull final Context context,
+            @NonNull final ProgressListener progressListener,
+            @NonNull final AltEdition edition,
+            @IntRange(from = 0, to = 1) final int cIdx,
+            @NonNull final Size size,
+            @NonNull final Set<EngineId> currentSearch,
+            @NonNull final Map<EngineId, SearchEngine.CoverByEdition> engineCache)
+            throws StorageException, CredentialsException {
 
-                        try {
-                            // Note that the SearchEngine might not support the given edition
-                            // type in which case, it will simply return an Optional.empty()
-                            final Optional<String> oFileSpec =
-                                    se.searchCoverByEdition(context, edition, cIdx, size);
-
-                            if (oFileSpec.isPresent()) {
-                                final ImageFileInfo imageFileInfo = new ImageFileInfo(
-                                        edition, oFileSpec.get(), size, engineId);
-
-                                downloads.put(edition, imageFileInfo);
-
-                                if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
-                                    LoggerFactory.getLogger()
-                                                 .d(TAG, "search|SUCCESS",
-                                                    "searchEngine=" + se.getName(context),
-                                                    "imageFileInfo=" + imageFileInfo);
-                                }
-                                // abort search, we got an image
-                                return imageFileInfo;
-                            }
-                        } catch (@NonNull final SearchException e) {
-                            // ignore, don't let a single search break the loop.
-                            // but disable the engine for THIS search
-                            currentSearch.remove(engineId);
-
-                            if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
-                                LoggerFactory.getLogger()
-                                             .d(TAG, "search|FAILED",
-                                                "searchEngine=" + se.getName(context), e);
-                            }
-                        }
+        // Keep the user preferred order for sites with equal hit rates
+        final List<EngineId> sites = engineIds.stream()
+                                              .filter(currentSearch::contains)
+                                              .collect(Collectors.toList());
+        final Iterator<EngineId> candidates = hitRates.sort(sites, size).iterator();
+
+        final CompletionService<Optional<String>> completionService =
+                new ExecutorCompletionService<>(ASyncExecutor.SERVICE);
+        final Map<Future<Optional<String>>, EngineId> running = new HashMap<>();
+        // Set when we have a winner; any later downloads are deleted right away.
+        final AtomicBoolean finished = new AtomicBoolean();
+
+        try {
+            while (running.size() < MAX_CONCURRENT_SEARCHES && candidates.hasNext()) {
+                submit(context, progressListener, edition, cIdx, size, candidates.next(),
+                       engineCache, completionService, running, finished);
+            }
+
+            while (!running.isEmpty()) {
+                if (progressListener.isCancelled()) {
+                    return Optional.empty();
+                }
+                final Future<Optional<String>> future =
+                        completionService.poll(CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    continue;
+                }
+
+                final EngineId engineId = Objects.requireNonNull(running.remove(future));
+                final SearchEngine.CoverByEdition se =
+                        Objects.requireNonNull(engineCache.get(engineId));
+                try {
+                    final Optional<String> oFileSpec = future.get();
+                    hitRates.record(engineId, size, oFileSpec.isPresent());
+
+                    if (oFileSpec.isPresent()) {
+                        finished.set(true);
+                        final ImageFileInfo imageFileInfo = new ImageFileInfo(
+                                edition, oFileSpec.get(), size, engineId);
 
                         if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
                             LoggerFactory.getLogger()
-                                         .d(TAG, "search|NO FILE",
+                                         .d(TAG, "search|SUCCESS",
                                             "searchEngine=" + se.getName(context),
-                                            "edition=" + edition,
-                                            "cIdx=" + cIdx,
-                                            "size=" + size);
+                                            "imageFileInfo=" + imageFileInfo);
                         }
+                        // abort search, we got an image
+                        return Optional.of(imageFileInfo);
+                    }
 
-                        // if the site we just searched only supports one image,
-                        // disable it for THIS search
-                        if (!se.supportsMultipleCoverSizes()) {
-                            currentSearch.remove(engineId);
-                        }
-                    } else {
-                        // if the site we just searched was not available,
-                        // disable it for THIS search
+                    if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
+                        LoggerFactory.getLogger()
+                                     .d(TAG, "search|NO FILE",
+                                        "searchEngine=" + se.getName(context),
+                                        "edition=" + edition,
+                                        "cIdx=" + cIdx,
+                                        "size=" + size);
+                    }
+
+                    // if the site we just searched only supports one image,
+                    // disable it for THIS search
+                    if (!se.supportsMultipleCoverSizes()) {
                         currentSearch.remove(engineId);
                     }
+
+                } catch (@NonNull final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof StorageException) {
+                        throw (StorageException) cause;
+                    } else if (cause instanceof CredentialsException) {
+                        throw (CredentialsException) cause;
+                    }
+
+                    // ignore, don't let a single search break the loop.
+                    // but disable the engine for THIS search
+                    currentSearch.remove(engineId);
+
+                    if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
+                        LoggerFactory.getLogger()
+                                     .d(TAG, "search|FAILED",
+                                        "searchEngine=" + se.getName(context), cause);
+                    }
+                }
+
+                // Replace the site which just finished with the next one.
+                if (candidates.hasNext()) {
+                    submit(context, progressListener, edition, cIdx, size, candidates.next(),
+                           engineCache, completionService, running, finished);
                 }
-                // loop for next site
             }
-            // loop for next size
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished.set(true);
+            // Cancel the losers, and delete anything they already downloaded
+            running.forEach((future, engineId) -> {
+                Objects.requireNonNull(engineCache.get(engineId)).cancel();
+                if (!future.cancel(true)) {
+                    deleteResult(future);
+                }
+            });
         }
+        return Optional.empty();
+    }
+
+    private void submit(@NonNull final Context context,
+                        @NonNull final ProgressListener progressListener,
+                        @NonNull final AltEdition edition,
+                        @IntRange(from = 0, to = 1) final int cIdx,
+                        @NonNull final Size size,
+                        @NonNull final EngineId engineId,
+                        @NonNull final Map<EngineId, SearchEngine.CoverByEdition> engineCache,
+                        @NonNull final CompletionService<Optional<String>> completionService,
+                        @NonNull final Map<Future<Optional<String>>, EngineId> running,
+                        @NonNull final AtomicBoolean finished) {
+
+        SearchEngine.CoverByEdition se = engineCache.get(engineId);
+        if (se == null) {
+            se = (SearchEngine.CoverByEdition) engineId.createSearchEngine(context);
+            engineCache.put(engineId, se);
+        }
+        // caller is the FetchImageTask; this also resets a previous cancel
+        se.setCaller(progressListener);
 
         if (BuildConfig.DEBUG && DEBUG_SWITCHES.COVERS) {
-            LoggerFactory.getLogger().d(TAG, "search|FAILED|edition=" + edition);
+            LoggerFactory.getLogger()
+                         .d(TAG, "search|SEARCHING",
+                            "searchEngine=" + se.getName(context),
+                            "edition=" + edition,
+                            "cIdx=" + cIdx,
+                            "size=" + size);
         }
 
-        // Failed to find any size on all sites, record the failure to prevent future attempt
-        final ImageFileInfo failure = new ImageFileInfo(edition);
-        downloads.put(edition, failure);
-        return failure;
+        final SearchEngine.CoverByEdition searchEngine = se;
+        running.put(completionService.submit(() -> {
+            // Note that the SearchEngine might not support the given edition
+            // type in which case, it will simply return an Optional.empty()
+            final Optional<String> oFileSpec =
+                    searchEngine.searchCoverByEdition(context, edition, cIdx, size);
+            if (oFileSpec.isPresent() && finished.get()) {
+                // Too late, another site won
+                FileUtils.delete(new File(oFileSpec.get()));
+                return Optional.empty();
+            }
+            return oFileSpec;
+        }), engineId);
+    }
+
+    private static void deleteResult(@NonNull final Future<Optional<String>> future) {
+        try {
+            future.get().ifPresent(fileSpec -> FileUtils.delete(new File(fileSpec)));
+        } catch (@NonNull final ExecutionException | InterruptedException ignore) {
+            // ignore, there is nothing to delete
+        }
     }
 
     /**
-     * Clean up all files we handled in this class.
+     * Called when the cover browser is closed.
+     * <p>
+     * The downloads are kept in the cache for the next time;
+     * the hit rates are saved.
+     * The files no longer in the cache are not deleted here; the caller might
+     * still be using the selected one. They are deleted in the next process.
      */
-    public void purge() {
-        downloads.values()
-                 .stream()
-                 .filter(Objects::nonNull)
-                 .map(ImageFileInfo::getFile)
-                 .forEach(file -> file.ifPresent(FileUtils::delete));
-
-        // not strictly needed, but future-proof
-        downloads.clear();
+    public void close() {
+        synchronized (CACHE) {
+            for (final File file : used) {
+                IN_USE.computeIfPresent(file, (f, count) -> count > 1 ? count - 1 : null);
+            }
+            used.clear();
+        }
+        hitRates.save();
+    }
+
+    private static class CacheKey {
+
+        @NonNull
+        private final AltEdition edition;
+        private final int cIdx;
+
+        CacheKey(@NonNull final AltEdition edition,
+                 final int cIdx) {
+            this.edition = edition;
+            this.cIdx = cIdx;
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CacheKey that = (CacheKey) o;
+            return cIdx == that.cIdx && edition.equals(that.edition);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(edition, cIdx);
+        }
+    }
+
+    private static class CacheEntry {
+
+        @NonNull
+        final ImageFileInfo imageFileInfo;
+        /** Whether an image was found; if so, the entry is valid as long as the file exists. */
+        final boolean found;
+        /** Only used if no image was found. */
+        final long expires;
+
+        CacheEntry(@NonNull final ImageFileInfo imageFileInfo) {
+            this.imageFileInfo = imageFileInfo;
+            this.found = imageFileInfo.getFile().isPresent();
+            this.expires = System.currentTimeMillis() + NOT_FOUND_EXPIRY_MS;
+        }
     }
 }
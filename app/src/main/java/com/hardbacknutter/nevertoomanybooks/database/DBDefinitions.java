@@ -104,6 +104,18 @@ public final class DBDefinitions {
      * permanent booklist management tables
      * {@link #TBL_BOOK_LIST_NODE_STATE}: storage of the expanded/collapsed status
      * of the book list tree.
+     * {@link #TBL_PENDING_UPDATES}: journal of booklist quick-actions not yet
+     * written to the actual tables.
+     * {@link #TBL_BOOK_LIST_KEYS}: pre-computed group keys for each book,
+     * maintained by triggers.
+     * {@link #TBL_DATA_VERSION}: single row counter, incremented by triggers.
+     * {@link #TBL_BOOK_LIST_CACHE}: registry of cached booklist tables.
+     * <p>
+     * {@link #TBL_BOOK_CHANGES}: journal of inserted/updated/deleted books,
+     * maintained by triggers.
+     * {@link #TBL_BOOK_CHANGE_MARKS}: the position in the journal of each exporter/sync writer.
+     * {@link #TBL_COVER_HASHES}: the content hash of each cover file.
+     * {@link #TBL_BOOK_ISBN_KEYS}: the normalised ISBN of each book, maintained by triggers.
      * <p>
      * {@link #TBL_STRIPINFO_COLLECTION}: stores external id's for new books to import
      * from this site. Used as a means to split the relatively fast process of getting
@@ -153,6 +165,22 @@ public final class DBDefinitions {
     public static final TableDefinition TBL_BOOKLIST_STYLES;
     /** Keeps track of nodes in the list across application restarts. */
     public static final TableDefinition TBL_BOOK_LIST_NODE_STATE;
+    /** Journal of booklist quick-actions waiting to be written to the actual tables. */
+    public static final TableDefinition TBL_PENDING_UPDATES;
+    /** Pre-computed booklist group keys; one row for each book. */
+    public static final TableDefinition TBL_BOOK_LIST_KEYS;
+    /** A single row table with a counter bumped on each change to booklist related data. */
+    public static final TableDefinition TBL_DATA_VERSION;
+    /** Registry of the booklist tables kept across sessions. */
+    public static final TableDefinition TBL_BOOK_LIST_CACHE;
+    /** Journal of book changes; one row for each book, the row id is the sequence number. */
+    public static final TableDefinition TBL_BOOK_CHANGES;
+    /** The last journal sequence number processed by each exporter/sync writer. */
+    public static final TableDefinition TBL_BOOK_CHANGE_MARKS;
+    /** Content hash index of the cover files. */
+    public static final TableDefinition TBL_COVER_HASHES;
+    /** Normalised ISBN index; one row for each book. */
+    public static final TableDefinition TBL_BOOK_ISBN_KEYS;
 
     /** A bridge to a Calibre database. Partially imported data. */
     public static final TableDefinition TBL_CALIBRE_BOOKS;
@@ -517,6 +545,50 @@ public final class DBDefinitions {
     /** {@link #TBL_BOOK_LIST_NODE_STATE} {@link Booklist}. */
     public static final Domain DOM_BL_NODE_VISIBLE;
 
+    /** {@link #TBL_PENDING_UPDATES}. */
+    public static final Domain DOM_PENDING_ACTION;
+    /** {@link #TBL_PENDING_UPDATES}. The id of the Book, Author, ... to update. */
+    public static final Domain DOM_PENDING_TARGET_ID;
+    /** {@link #TBL_PENDING_UPDATES}. */
+    public static final Domain DOM_PENDING_VALUE;
+
+    /** {@link #TBL_BOOK_LIST_KEYS}. */
+    public static final Domain DOM_BLK_PUB_YEAR;
+    /** {@link #TBL_BOOK_LIST_KEYS}. */
+    public static final Domain DOM_BLK_PUB_MONTH;
+    /** {@link #TBL_BOOK_LIST_KEYS}. */
+    public static final Domain DOM_BLK_FIRST_PUB_YEAR;
+    /** {@link #TBL_BOOK_LIST_KEYS}. */
+    public static final Domain DOM_BLK_FIRST_PUB_MONTH;
+
+    /** {@link #TBL_DATA_VERSION} and {@link #TBL_BOOK_LIST_CACHE}. */
+    public static final Domain DOM_DATA_VERSION;
+    /** {@link #TBL_BOOK_LIST_CACHE}. */
+    public static final Domain DOM_BL_CACHE_KEY;
+    /** {@link #TBL_BOOK_LIST_CACHE}. */
+    public static final Domain DOM_BL_CACHE_LAST_USED;
+
+    /** {@link #TBL_BOOK_CHANGES}. */
+    public static final Domain DOM_BOOK_CHANGE_BOOK_ID;
+    /** {@link #TBL_BOOK_CHANGES}. */
+    public static final Domain DOM_BOOK_CHANGE_TYPE;
+    /** {@link #TBL_BOOK_CHANGE_MARKS}. */
+    public static final Domain DOM_BOOK_CHANGE_CONSUMER;
+    /** {@link #TBL_BOOK_CHANGE_MARKS}. */
+    public static final Domain DOM_BOOK_CHANGE_SEQUENCE;
+
+    /** {@link #TBL_COVER_HASHES}. */
+    public static final Domain DOM_COVER_FILENAME;
+    /** {@link #TBL_COVER_HASHES}. */
+    public static final Domain DOM_COVER_HASH;
+    /** {@link #TBL_COVER_HASHES}. */
+    public static final Domain DOM_COVER_FILE_SIZE;
+    /** {@link #TBL_COVER_HASHES}. */
+    public static final Domain DOM_COVER_LAST_MODIFIED;
+
+    /** {@link #TBL_BOOK_ISBN_KEYS}. */
+    public static final Domain DOM_ISBN_KEY;
+
     /* ======================================================================================
      *  {@link TBL_FTS_BOOKS}.
      * ====================================================================================== */
@@ -1756,6 +1828,203 @@ public final class DBDefinitions {
         ALL_TABLES.put(TBL_BOOK_LIST_NODE_STATE.getName(),
                        TBL_BOOK_LIST_NODE_STATE);
 
+        TBL_PENDING_UPDATES = new TableDefinition("pending_updates", "pu");
+
+        DOM_PENDING_ACTION =
+                new Domain.Builder(DBKey.PENDING_ACTION, SqLiteDataType.Integer)
+                        .notNull()
+                        .build();
+
+        DOM_PENDING_TARGET_ID =
+                new Domain.Builder(DBKey.PENDING_TARGET_ID, SqLiteDataType.Integer)
+                        .notNull()
+                        .build();
+
+        DOM_PENDING_VALUE =
+                new Domain.Builder(DBKey.PENDING_VALUE, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        // The primary key coalesces repeated actions on the same target.
+        TBL_PENDING_UPDATES
+                .addDomains(DOM_PENDING_ACTION,
+                            DOM_PENDING_TARGET_ID,
+                            DOM_PENDING_VALUE)
+                .setPrimaryKey(DOM_PENDING_ACTION,
+                               DOM_PENDING_TARGET_ID);
+        ALL_TABLES.put(TBL_PENDING_UPDATES.getName(),
+                       TBL_PENDING_UPDATES);
+
+        TBL_BOOK_LIST_KEYS = new TableDefinition("book_list_keys", "blk");
+
+        DOM_BLK_PUB_YEAR =
+                new Domain.Builder(DBKey.BLK_PUB_YEAR, SqLiteDataType.Text)
+                        .notNull()
+                        .withDefaultEmptyString()
+                        .build();
+
+        DOM_BLK_PUB_MONTH =
+                new Domain.Builder(DBKey.BLK_PUB_MONTH, SqLiteDataType.Text)
+                        .notNull()
+                        .withDefaultEmptyString()
+                        .build();
+
+        DOM_BLK_FIRST_PUB_YEAR =
+                new Domain.Builder(DBKey.BLK_FIRST_PUB_YEAR, SqLiteDataType.Text)
+                        .notNull()
+                        .withDefaultEmptyString()
+                        .build();
+
+        DOM_BLK_FIRST_PUB_MONTH =
+                new Domain.Builder(DBKey.BLK_FIRST_PUB_MONTH, SqLiteDataType.Text)
+                        .notNull()
+                        .withDefaultEmptyString()
+                        .build();
+
+        // Only keys which do not depend on the device time zone can be stored here.
+        TBL_BOOK_LIST_KEYS
+                .addDomains(DOM_FK_BOOK,
+                            DOM_BLK_PUB_YEAR,
+                            DOM_BLK_PUB_MONTH,
+                            DOM_BLK_FIRST_PUB_YEAR,
+                            DOM_BLK_FIRST_PUB_MONTH)
+                .setPrimaryKey(DOM_FK_BOOK)
+                .addReference(TBL_BOOKS, DOM_FK_BOOK);
+        ALL_TABLES.put(TBL_BOOK_LIST_KEYS.getName(),
+                       TBL_BOOK_LIST_KEYS);
+
+        TBL_DATA_VERSION = new TableDefinition("data_version", "dv");
+        TBL_BOOK_LIST_CACHE = new TableDefinition("book_list_cache", "blc");
+        TBL_BOOK_CHANGES = new TableDefinition("book_changes", "bch");
+        TBL_BOOK_CHANGE_MARKS = new TableDefinition("book_change_marks", "bchm");
+        TBL_COVER_HASHES = new TableDefinition("cover_hashes", "ch");
+
+        DOM_DATA_VERSION =
+                new Domain.Builder(DBKey.DATA_VERSION, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        DOM_BL_CACHE_KEY =
+                new Domain.Builder(DBKey.BL_CACHE_KEY, SqLiteDataType.Text)
+                        .notNull()
+                        .build();
+
+        DOM_BL_CACHE_LAST_USED =
+                new Domain.Builder(DBKey.BL_CACHE_LAST_USED, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        TBL_DATA_VERSION
+                .addDomains(DOM_PK_ID,
+                            DOM_DATA_VERSION)
+                .setPrimaryKey(DOM_PK_ID);
+        ALL_TABLES.put(TBL_DATA_VERSION.getName(),
+                       TBL_DATA_VERSION);
+
+        TBL_BOOK_LIST_CACHE
+                .addDomains(DOM_PK_ID,
+                            DOM_BL_CACHE_KEY,
+                            DOM_DATA_VERSION,
+                            DOM_BL_CACHE_LAST_USED)
+                .setPrimaryKey(DOM_PK_ID)
+                .addIndex(DBKey.BL_CACHE_KEY, true, DOM_BL_CACHE_KEY);
+        ALL_TABLES.put(TBL_BOOK_LIST_CACHE.getName(),
+                       TBL_BOOK_LIST_CACHE);
+
+        DOM_BOOK_CHANGE_BOOK_ID =
+                new Domain.Builder(DBKey.BOOK_CHANGE_BOOK_ID, SqLiteDataType.Integer)
+                        .notNull()
+                        .build();
+
+        DOM_BOOK_CHANGE_TYPE =
+                new Domain.Builder(DBKey.BOOK_CHANGE_TYPE, SqLiteDataType.Integer)
+                        .notNull()
+                        .build();
+
+        DOM_BOOK_CHANGE_CONSUMER =
+                new Domain.Builder(DBKey.BOOK_CHANGE_CONSUMER, SqLiteDataType.Text)
+                        .notNull()
+                        .build();
+
+        DOM_BOOK_CHANGE_SEQUENCE =
+                new Domain.Builder(DBKey.BOOK_CHANGE_SEQUENCE, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        TBL_BOOK_CHANGES
+                .addDomains(DOM_PK_ID,
+                            DOM_BOOK_CHANGE_BOOK_ID,
+                            DOM_BOOK_UUID,
+                            DOM_BOOK_CHANGE_TYPE)
+                .setPrimaryKey(DOM_PK_ID)
+                .addIndex(DBKey.BOOK_CHANGE_BOOK_ID, true, DOM_BOOK_CHANGE_BOOK_ID);
+        ALL_TABLES.put(TBL_BOOK_CHANGES.getName(),
+                       TBL_BOOK_CHANGES);
+
+        TBL_BOOK_CHANGE_MARKS
+                .addDomains(DOM_PK_ID,
+                            DOM_BOOK_CHANGE_CONSUMER,
+                            DOM_BOOK_CHANGE_SEQUENCE)
+                .setPrimaryKey(DOM_PK_ID)
+                .addIndex(DBKey.BOOK_CHANGE_CONSUMER, true, DOM_BOOK_CHANGE_CONSUMER);
+        ALL_TABLES.put(TBL_BOOK_CHANGE_MARKS.getName(),
+                       TBL_BOOK_CHANGE_MARKS);
+
+        DOM_COVER_FILENAME =
+                new Domain.Builder(DBKey.COVER_FILENAME, SqLiteDataType.Text)
+                        .notNull()
+                        .build();
+
+        DOM_COVER_HASH =
+                new Domain.Builder(DBKey.COVER_HASH, SqLiteDataType.Text)
+                        .notNull()
+                        .build();
+
+        DOM_COVER_FILE_SIZE =
+                new Domain.Builder(DBKey.COVER_FILE_SIZE, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        DOM_COVER_LAST_MODIFIED =
+                new Domain.Builder(DBKey.COVER_LAST_MODIFIED, SqLiteDataType.Integer)
+                        .notNull()
+                        .withDefault(0)
+                        .build();
+
+        TBL_COVER_HASHES
+                .addDomains(DOM_PK_ID,
+                            DOM_COVER_FILENAME,
+                            DOM_COVER_HASH,
+                            DOM_COVER_FILE_SIZE,
+                            DOM_COVER_LAST_MODIFIED)
+                .setPrimaryKey(DOM_PK_ID)
+                .addIndex(DBKey.COVER_FILENAME, true, DOM_COVER_FILENAME)
+                .addIndex(DBKey.COVER_HASH, false, DOM_COVER_HASH);
+        ALL_TABLES.put(TBL_COVER_HASHES.getName(),
+                       TBL_COVER_HASHES);
+
+        TBL_BOOK_ISBN_KEYS = new TableDefinition("book_isbn_keys", "bik");
+
+        DOM_ISBN_KEY =
+                new Domain.Builder(DBKey.ISBN_KEY, SqLiteDataType.Text)
+                        .notNull()
+                        .withDefaultEmptyString()
+                        .build();
+
+        TBL_BOOK_ISBN_KEYS
+                .addDomains(DOM_FK_BOOK,
+                            DOM_ISBN_KEY)
+                .setPrimaryKey(DOM_FK_BOOK)
+                .addReference(TBL_BOOKS, DOM_FK_BOOK)
+                .addIndex(DBKey.ISBN_KEY, false, DOM_ISBN_KEY);
+        ALL_TABLES.put(TBL_BOOK_ISBN_KEYS.getName(),
+                       TBL_BOOK_ISBN_KEYS);
+
 
         EXP_BOOKSHELF_NAME_CSV =
                 "(SELECT GROUP_CONCAT(" + TBL_BOOKSHELF.dot(DBKey.BOOKSHELF_NAME) + ",', ')"
@@ -50,6 +50,7 @@ import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.StartupActivity;
 import com.hardbacknutter.nevertoomanybooks.StartupViewModel;
+import com.hardbacknutter.nevertoomanybooks.booklist.BooklistCacheDao;
 import com.hardbacknutter.nevertoomanybooks.booklist.header.BooklistHeader;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.CoverScale;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.FieldVisibility;
@@ -80,12 +81,20 @@ import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BO
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKSHELF;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKSHELF_FILTERS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_ISBN_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_AUTHOR;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGE_MARKS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_CACHE;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_TOC_ENTRIES;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_CALIBRE_CUSTOM_FIELDS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_COVER_HASHES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_DATA_VERSION;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_DELETED_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_FTS_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PSEUDONYM_AUTHOR;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PENDING_UPDATES;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PUBLISHERS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_SERIES;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_STRIPINFO_COLLECTION;
@@ -113,7 +122,7 @@ public class DBHelper
      * <p>
      * Current version.
      */
-    public static final int DATABASE_VERSION = 34;
+    public static final int DATABASE_VERSION = 40;
 
     /** NEVER change this name. */
     private static final String DATABASE_NAME = "nevertoomanybooks.db";
@@ -440,6 +449,8 @@ public class DBHelper
 
         CalibreCustomFieldDaoImpl.onPostCreate(db);
 
+        BooklistCacheDao.onPostCreate(db);
+
         //IMPORTANT: withDomainConstraints MUST BE false (FTS columns don't use a type/constraints)
         TBL_FTS_BOOKS.create(db, false);
 
@@ -832,6 +843,32 @@ public class DBHelper
             db.beginTransaction();
         }
 
+        if (oldVersion < 35) {
+            TBL_PENDING_UPDATES.create(db, true);
+        }
+        if (oldVersion < 36) {
+            TBL_BOOK_LIST_KEYS.create(db, true);
+            // The triggers will maintain it from now on; populate it once for existing books.
+            db.execSQL(Triggers.insertBookListKeys());
+        }
+        if (oldVersion < 37) {
+            TBL_DATA_VERSION.create(db, true);
+            TBL_BOOK_LIST_CACHE.create(db, true);
+            BooklistCacheDao.onPostCreate(db);
+        }
+        if (oldVersion < 38) {
+            TBL_BOOK_CHANGES.create(db, true);
+            TBL_BOOK_CHANGE_MARKS.create(db, true);
+        }
+        if (oldVersion < 39) {
+            TBL_COVER_HASHES.create(db, true);
+        }
+        if (oldVersion < 40) {
+            TBL_BOOK_ISBN_KEYS.create(db, true);
+            // The triggers will maintain it from now on; populate it once for existing books.
+            db.execSQL(Triggers.insertIsbnKeys(""));
+        }
+
         //NEWTHINGS: adding a new search engine: optional: add external id DOM
         //TBL_BOOKS.alterTableAddColumn(db, DBDefinitions.DOM_your_engine_external_id);
 
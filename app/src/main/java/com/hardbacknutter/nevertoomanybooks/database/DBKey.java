@@ -326,6 +326,63 @@ public final class DBKey {
     public static final String BL_NODE_EXPANDED = "node_expanded";
 
 
+    /** {@link DBDefinitions#TBL_PENDING_UPDATES}. */
+    public static final String PENDING_ACTION = "pending_action";
+    /** {@link DBDefinitions#TBL_PENDING_UPDATES}. */
+    public static final String PENDING_TARGET_ID = "pending_target_id";
+    /** {@link DBDefinitions#TBL_PENDING_UPDATES}. */
+    public static final String PENDING_VALUE = "pending_value";
+
+    /** {@link DBDefinitions#TBL_BOOK_LIST_KEYS}. */
+    public static final String BLK_PUB_YEAR = "blk_pub_y";
+    /** {@link DBDefinitions#TBL_BOOK_LIST_KEYS}. */
+    public static final String BLK_PUB_MONTH = "blk_pub_m";
+    /** {@link DBDefinitions#TBL_BOOK_LIST_KEYS}. */
+    public static final String BLK_FIRST_PUB_YEAR = "blk_1pub_y";
+    /** {@link DBDefinitions#TBL_BOOK_LIST_KEYS}. */
+    public static final String BLK_FIRST_PUB_MONTH = "blk_1pub_m";
+
+    /**
+     * {@link DBDefinitions#TBL_DATA_VERSION} and {@link DBDefinitions#TBL_BOOK_LIST_CACHE}.
+     * A counter incremented by triggers whenever data shown in a booklist changes.
+     */
+    public static final String DATA_VERSION = "data_version";
+    /** {@link DBDefinitions#TBL_BOOK_LIST_CACHE}. */
+    public static final String BL_CACHE_KEY = "cache_key";
+    /** {@link DBDefinitions#TBL_BOOK_LIST_CACHE}. */
+    public static final String BL_CACHE_LAST_USED = "last_used";
+
+    /**
+     * {@link DBDefinitions#TBL_BOOK_CHANGES}.
+     * The id of the book; NOT a foreign key as the entry must survive the book deletion.
+     */
+    public static final String BOOK_CHANGE_BOOK_ID = "book_id";
+    /** {@link DBDefinitions#TBL_BOOK_CHANGES}. */
+    public static final String BOOK_CHANGE_TYPE = "change_type";
+    /** {@link DBDefinitions#TBL_BOOK_CHANGE_MARKS}. */
+    public static final String BOOK_CHANGE_CONSUMER = "consumer";
+    /**
+     * {@link DBDefinitions#TBL_BOOK_CHANGE_MARKS}.
+     * The highest {@link DBDefinitions#TBL_BOOK_CHANGES} row id processed by the consumer.
+     */
+    public static final String BOOK_CHANGE_SEQUENCE = "change_seq";
+
+    /** {@link DBDefinitions#TBL_COVER_HASHES}. The name of the file in the cover directory. */
+    public static final String COVER_FILENAME = "cover_filename";
+    /** {@link DBDefinitions#TBL_COVER_HASHES}. SHA-256 hash of the file content. */
+    public static final String COVER_HASH = "cover_hash";
+    /** {@link DBDefinitions#TBL_COVER_HASHES}. File size when the hash was calculated. */
+    public static final String COVER_FILE_SIZE = "cover_file_size";
+    /** {@link DBDefinitions#TBL_COVER_HASHES}. File last-modified when the hash was calculated. */
+    public static final String COVER_LAST_MODIFIED = "cover_last_modified";
+
+    /**
+     * {@link DBDefinitions#TBL_BOOK_ISBN_KEYS}.
+     * The {@link #BOOK_ISBN} without separators; an ISBN-10 is stored as its ISBN-13.
+     */
+    public static final String ISBN_KEY = "isbn_key";
+
+
     /**
      * Column alias.
      * <p>
@@ -24,19 +24,28 @@ import android.database.sqlite.SQLiteDatabase;
 
 import androidx.annotation.NonNull;
 
+import java.util.Map;
+import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
+import com.hardbacknutter.nevertoomanybooks.booklist.style.groups.BooklistGroup;
 import com.hardbacknutter.nevertoomanybooks.core.database.TableDefinition;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.searchengines.SearchEngineConfig;
 
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_AUTHORS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKSHELF;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_ISBN_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_AUTHOR;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_BOOKSHELF;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LIST_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LOANEE;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_PUBLISHER;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_SERIES;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_TOC_ENTRIES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_DATA_VERSION;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_DELETED_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_FTS_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PUBLISHERS;
@@ -53,6 +62,11 @@ final class Triggers {
     private static final String AFTER_INSERT_ON_ = "AFTER INSERT ON ";
     private static final String AFTER_UPDATE_OF_ = "AFTER UPDATE OF ";
 
+    /** Increment the counter used to invalidate cached booklists. */
+    private static final String BUMP_DATA_VERSION =
+            " UPDATE " + TBL_DATA_VERSION.getName()
+            + " SET " + DBKey.DATA_VERSION + '=' + DBKey.DATA_VERSION + "+1;";
+
 
     private Triggers() {
     }
@@ -74,6 +88,16 @@ final class Triggers {
      * <p>
      * Others:
      * - When a books ISBN is updated, reset external data.
+     * - When a book is inserted, or one of the relevant columns is updated,
+     *   (re)compute its row in {@link DBDefinitions#TBL_BOOK_LIST_KEYS}.
+     *   Deleting is handled by the foreign key.
+     * - When a book is inserted, or its ISBN is updated, (re)compute its row in
+     *   {@link DBDefinitions#TBL_BOOK_ISBN_KEYS}. Deleting is handled by the foreign key.
+     * - Increment the {@link DBKey#DATA_VERSION} when a Book is inserted/updated/deleted,
+     *   a Book is linked to an Author/Series/Publisher/Bookshelf, or a Bookshelf is renamed.
+     *   Updating Authors/Series/Publishers and deleting links already update the Book.
+     * - Record each inserted/updated/deleted Book in {@link DBDefinitions#TBL_BOOK_CHANGES}.
+     *   As with the data version, changes to linked data are covered by the Book update.
      *
      * <p>
      * not needed + why now:
@@ -225,6 +249,7 @@ final class Triggers {
          * <ul>
          * <li>Delete the book from FTS.</li>
          * <li>Add the uuid to {@link DBDefinitions#TBL_DELETED_BOOKS} unless already present.</li>
+         * <li>Journal the deletion.</li>
          * </ul>
          */
         name = "after_delete_on_" + TBL_BOOKS.getName();
@@ -238,6 +263,8 @@ final class Triggers {
                // and we're syncing the delete on the local device.
                + " INSERT OR IGNORE INTO " + TBL_DELETED_BOOKS.getName()
                + " (" + DBKey.BOOK_UUID + ") VALUES(OLD." + DBKey.BOOK_UUID + ");"
+               + journalBookChange("OLD", BookChangesDao.Change.Deleted)
+               + BUMP_DATA_VERSION
                + " END";
 
         db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
@@ -266,8 +293,197 @@ final class Triggers {
 
         db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
         db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
+
+        /*
+         * Inserting a {@link Book}.
+         *
+         * Compute the booklist keys and journal the insert.
+         */
+        name = "after_insert_on_" + TBL_BOOKS.getName();
+        body = AFTER_INSERT_ON_ + TBL_BOOKS.getName()
+               + " FOR EACH ROW"
+               + " BEGIN "
+               + insertBookListKeys()
+               + " WHERE " + TBL_BOOKS.dot(DBKey.PK_ID) + "=NEW." + DBKey.PK_ID + ';'
+               + insertIsbnKeys(" WHERE " + DBKey.PK_ID + "=NEW." + DBKey.PK_ID) + ';'
+               + journalBookChange("NEW", BookChangesDao.Change.Inserted)
+               + BUMP_DATA_VERSION
+               + " END";
+
+        db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
+        db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
+
+        /*
+         * Updating any of the columns of a {@link Book} which are used by the booklist keys.
+         *
+         * Recompute the booklist keys.
+         */
+        name = "after_update_of_keys_on_" + TBL_BOOKS.getName();
+        body = AFTER_UPDATE_OF_ + DBKey.BOOK_PUBLICATION__DATE
+               + ',' + DBKey.FIRST_PUBLICATION__DATE
+               + " ON " + TBL_BOOKS.getName()
+               + " FOR EACH ROW"
+               + " BEGIN "
+               + insertBookListKeys()
+               + " WHERE " + TBL_BOOKS.dot(DBKey.PK_ID) + "=NEW." + DBKey.PK_ID + ';'
+               + " END";
+
+        db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
+        db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
+
+        /*
+         * Updating the ISBN of a {@link Book}.
+         *
+         * Recompute the ISBN key.
+         */
+        name = "after_update_of_" + DBKey.BOOK_ISBN + "_keys_on_" + TBL_BOOKS.getName();
+        body = AFTER_UPDATE_OF_ + DBKey.BOOK_ISBN + " ON " + TBL_BOOKS.getName()
+               + " FOR EACH ROW"
+               + " BEGIN "
+               + insertIsbnKeys(" WHERE " + DBKey.PK_ID + "=NEW." + DBKey.PK_ID) + ';'
+               + " END";
+
+        db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
+        db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
+
+        /*
+         * Updating a {@link Book}.
+         *
+         * Journal the update.
+         */
+        name = "after_update_on_" + TBL_BOOKS.getName() + "_journal";
+        body = AFTER_UPDATE_ON_ + TBL_BOOKS.getName()
+               + " FOR EACH ROW"
+               + " BEGIN"
+               + journalBookChange("NEW", BookChangesDao.Change.Updated)
+               + " END";
+
+        db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
+        db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
+
+        /*
+         * Any other change which can alter the content of a booklist.
+         *
+         * Increment the data version.
+         */
+        bumpDataVersionOn(db, "after_update_on_", AFTER_UPDATE_ON_, TBL_BOOKS);
+        bumpDataVersionOn(db, "after_update_on_", AFTER_UPDATE_ON_, TBL_BOOKSHELF);
+        bumpDataVersionOn(db, "after_insert_on_", AFTER_INSERT_ON_, TBL_BOOK_AUTHOR);
+        bumpDataVersionOn(db, "after_insert_on_", AFTER_INSERT_ON_, TBL_BOOK_SERIES);
+        bumpDataVersionOn(db, "after_insert_on_", AFTER_INSERT_ON_, TBL_BOOK_PUBLISHER);
+        bumpDataVersionOn(db, "after_insert_on_", AFTER_INSERT_ON_, TBL_BOOK_BOOKSHELF);
+    }
+
+    /**
+     * Create a trigger which only increments the {@link DBKey#DATA_VERSION}.
+     *
+     * @param db         Underlying database
+     * @param namePrefix for the trigger name
+     * @param event      the "AFTER ... ON " clause
+     * @param table      on which to set the trigger
+     */
+    private static void bumpDataVersionOn(@NonNull final SQLiteDatabase db,
+                                          @NonNull final String namePrefix,
+                                          @NonNull final String event,
+                                          @NonNull final TableDefinition table) {
+
+        final String name = namePrefix + table.getName() + "_data_version";
+        final String body = event + table.getName()
+                            + " FOR EACH ROW"
+                            + " BEGIN"
+                            + BUMP_DATA_VERSION
+                            + " END";
+
+        db.execSQL(DROP_TRIGGER_IF_EXISTS_ + " " + name);
+        db.execSQL(CREATE_TRIGGER_ + name + ' ' + body);
     }
 
+    /**
+     * Create the statement to record a change in {@link DBDefinitions#TBL_BOOK_CHANGES}.
+     * <p>
+     * The journal keeps a single row for each book. Using REPLACE deletes any
+     * previous row, and the new row gets a new (higher) id which acts
+     * as the sequence number of the change.
+     *
+     * @param row    the trigger row alias; "NEW" or "OLD"
+     * @param change the type of change
+     *
+     * @return the SQL statement, including the terminating ';'
+     */
+    @NonNull
+    private static String journalBookChange(@NonNull final String row,
+                                            @NonNull final BookChangesDao.Change change) {
+        return " INSERT OR REPLACE INTO " + TBL_BOOK_CHANGES.getName()
+               + " (" + DBKey.BOOK_CHANGE_BOOK_ID
+               + ',' + DBKey.BOOK_UUID
+               + ',' + DBKey.BOOK_CHANGE_TYPE
+               + ") VALUES(" + row + '.' + DBKey.PK_ID
+               + ',' + row + '.' + DBKey.BOOK_UUID
+               + ',' + change.getId() + ");";
+    }
+
+    /**
+     * Create the statement to (re)compute the rows in {@link DBDefinitions#TBL_BOOK_LIST_KEYS}.
+     * The caller must add a WHERE clause on {@link DBDefinitions#TBL_BOOKS} if needed.
+     *
+     * @return the (partial) SQL statement
+     */
+    @NonNull
+    static String insertBookListKeys() {
+        final Map<String, String> expressions = BooklistGroup.getBookListKeyExpressions();
+
+        final StringJoiner columns = new StringJoiner(",", "(", ")")
+                .add(DBKey.FK_BOOK);
+        final StringJoiner values = new StringJoiner(",")
+                .add(TBL_BOOKS.dot(DBKey.PK_ID));
+        expressions.forEach((column, expression) -> {
+            columns.add(column);
+            values.add(expression);
+        });
+
+        return "INSERT OR REPLACE INTO " + TBL_BOOK_LIST_KEYS.getName() + ' ' + columns
+               + " SELECT " + values
+               + " FROM " + TBL_BOOKS.ref();
+    }
+
+    /**
+     * Create the statement to (re)compute the rows in {@link DBDefinitions#TBL_BOOK_ISBN_KEYS}.
+     * <p>
+     * The key is the {@link DBKey#BOOK_ISBN} in upper case without ' ' and '-' separators.
+     * A valid ISBN-10 is converted to its ISBN-13. Any other code is used as-is.
+     * This must produce the same key as {@code BookDaoImpl#toIsbnKey} does for an ISBN.
+     *
+     * @param where the WHERE clause on {@link DBDefinitions#TBL_BOOKS};
+     *              use an empty string for all books.
+     *
+     * @return the SQL statement, without the terminating ';'
+     */
+    @NonNull
+    static String insertIsbnKeys(@NonNull final String where) {
+        // "c" is the cleaned ISBN text as selected in the sub-query.
+        final StringJoiner isbn10Sum = new StringJoiner("+");
+        // The first 3 digits of the ISBN-13 are "978": 9*1 + 7*3 + 8*1 = 38
+        final StringJoiner isbn13Sum = new StringJoiner("+", "38+", "");
+        for (int i = 1; i <= 9; i++) {
+            final String digit = "CAST(substr(c," + i + ",1) AS INTEGER)";
+            isbn10Sum.add((11 - i) + "*" + digit);
+            // ISBN-10 digit i is at ISBN-13 position i+3; even positions have weight 3
+            isbn13Sum.add((i % 2 == 1 ? 3 : 1) + "*" + digit);
+        }
+        isbn10Sum.add("(CASE substr(c,10,1) WHEN 'X' THEN 10"
+                      + " ELSE CAST(substr(c,10,1) AS INTEGER) END)");
+
+        return "INSERT OR REPLACE INTO " + TBL_BOOK_ISBN_KEYS.getName()
+               + " (" + DBKey.FK_BOOK + ',' + DBKey.ISBN_KEY + ')'
+               + " SELECT " + DBKey.PK_ID + ','
+               + " CASE WHEN c GLOB '" + "[0-9]".repeat(9) + "[0-9X]'"
+               + " AND (" + isbn10Sum + ")%11=0"
+               + " THEN '978'||substr(c,1,9)||((10-(" + isbn13Sum + ")%10)%10)"
+               + " ELSE c END"
+               + " FROM (SELECT " + DBKey.PK_ID + ','
+               + " UPPER(REPLACE(REPLACE(" + DBKey.BOOK_ISBN + ",'-',''),' ','')) AS c"
+               + " FROM " + TBL_BOOKS.getName() + where + ')';
+    }
 
     /**
      * Create an "AFTER DELETE ON" on a TBL_BOOK_* table.
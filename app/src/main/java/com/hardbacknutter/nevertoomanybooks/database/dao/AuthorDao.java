@@ -21,6 +21,7 @@ package com.hardbacknutter.nevertoomanybooks.database.dao;
 
 import android.content.Context;
 
+import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringDef;
@@ -89,6 +90,20 @@ public interface AuthorDao
     boolean setComplete(@NonNull Author author,
                         boolean complete);
 
+    /**
+     * Update the 'complete' status for the given {@link Author}.
+     * <p>
+     * This method should only be called from places where only the id is available.
+     * If the full Author is available, use {@link #setComplete(Author, boolean)} instead.
+     *
+     * @param id       of the Author to update
+     * @param complete Flag indicating the user considers this item to be 'complete'
+     *
+     * @return {@code true} for success.
+     */
+    boolean setComplete(@IntRange(from = 1) long id,
+                        boolean complete);
+
     /**
      * Remove duplicates. We keep the first occurrence.
      *
@@ -0,0 +1,107 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.database.dao;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * The journal of inserted, updated and deleted books.
+ * <p>
+ * The journal is maintained by database triggers and keeps a single entry for each book,
+ * i.e. the last change. Each entry has a sequence number which increases with every change.
+ * <p>
+ * Exporters and sync writers (the "consumers") store the sequence number up to which
+ * they have processed the journal, and on their next run only need to process the books
+ * with a higher sequence number; instead of scanning all books for a last-update date.
+ * Entries processed by all known consumers are purged automatically.
+ * A consumer which falls too far behind (e.g. a sync which is no longer used)
+ * loses its mark, and must start over as if it never stored one.
+ */
+public interface BookChangesDao {
+
+    /**
+     * Get the sequence number of the most recent change.
+     * <p>
+     * Consumers should get this value <strong>before</strong> they start reading
+     * the changed books, and store it with {@link #setMark(String, long)} when done.
+     * Changes made while the consumer was running will then be picked up again on the
+     * next run.
+     *
+     * @return sequence number, or {@code 0} if no changes were ever recorded
+     */
+    long getLastSequence();
+
+    /**
+     * Get the sequence number up to which the given consumer has processed the journal.
+     *
+     * @param consumer a unique and stable name
+     *
+     * @return sequence number, or {@code 0} if the consumer never stored a mark,
+     *         or if the mark has expired
+     */
+    long getMark(@NonNull String consumer);
+
+    /**
+     * Store the sequence number up to which the given consumer has processed the journal,
+     * and purge the entries no longer needed by any consumer.
+     *
+     * @param consumer a unique and stable name
+     * @param sequence as previously obtained from {@link #getLastSequence()}
+     */
+    void setMark(@NonNull String consumer,
+                 long sequence);
+
+    /**
+     * Get the UUIDs of the books deleted after the given sequence number.
+     *
+     * @param sinceSequence exclusive lower bound
+     *
+     * @return list of UUIDs
+     */
+    @NonNull
+    List<String> getDeletedBookUuids(long sinceSequence);
+
+    /**
+     * The type of change.
+     * <p>
+     * <strong>Never change the ids</strong>, they are stored in the journal.
+     */
+    enum Change {
+        /** A new book. */
+        Inserted(1),
+        /** An existing book, or any of its linked data, was modified. */
+        Updated(2),
+        /** The book was deleted. */
+        Deleted(3);
+
+        private final int id;
+
+        Change(final int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import androidx.core.util.Pair;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,6 +37,7 @@ import com.hardbacknutter.nevertoomanybooks.bookreadstatus.ReadingProgress;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
 import com.hardbacknutter.nevertoomanybooks.core.database.TypedCursor;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
@@ -197,6 +199,22 @@ public interface BookDao {
     boolean setRead(@NonNull Book book,
                     boolean read);
 
+    /**
+     * Update the 'read' status of a book.
+     * The 'read end' date is updated as needed.
+     * Any 'progress' data is erased.
+     * <p>
+     * This method should only be called from places where only the book id is available.
+     * If the full Book is available, use {@link #setRead(Book, boolean)} instead.
+     *
+     * @param bookId to update
+     * @param read   the status to set
+     *
+     * @return {@code true} for success.
+     */
+    boolean setRead(@IntRange(from = 1) long bookId,
+                    boolean read);
+
     /**
      * Update the 'read-progress' status of a book.
      * The 'read end' date is updated as needed.
@@ -326,6 +344,57 @@ public interface BookDao {
     @NonNull
     TypedCursor fetchBooksForExportToStripInfo(@Nullable LocalDateTime sinceDateTime);
 
+    /**
+     * Can be called before {@link #fetchBooksForExport(long)} to count
+     * the number of books before starting the actual export.
+     *
+     * @param sinceSequence exclusive lower bound; as stored by the consumer with
+     *                      {@link BookChangesDao#setMark(String, long)}
+     *
+     * @return number of books that would be exported
+     */
+    int countBooksForExport(long sinceSequence);
+
+    /**
+     * Return an Cursor with all Books inserted or updated after the given
+     * {@link BookChangesDao} sequence number.
+     * <p>
+     * Unlike the date based selection, this uses the change journal and
+     * does not need to scan the full books table.
+     *
+     * @param sinceSequence exclusive lower bound; as stored by the consumer with
+     *                      {@link BookChangesDao#setMark(String, long)}
+     *
+     * @return A Book Cursor with 0..n rows; ordered by book id
+     */
+    @NonNull
+    TypedCursor fetchBooksForExport(long sinceSequence);
+
+    /**
+     * Same as {@link #fetchBooksForExport(long)} but for a specific Calibre library.
+     *
+     * @param libraryId     row id for the physical library
+     * @param sinceSequence exclusive lower bound; as stored by the consumer with
+     *                      {@link BookChangesDao#setMark(String, long)}
+     *
+     * @return A Book Cursor with 0..n rows; ordered by book id
+     */
+    @NonNull
+    TypedCursor fetchBooksForExportToCalibre(@IntRange(from = 1) long libraryId,
+                                             long sinceSequence);
+
+    /**
+     * Same as {@link #fetchBooksForExport(long)} but specific to the stripinfo.be website;
+     * i.e. only the books which are linked to the stripinfo.be collection.
+     *
+     * @param sinceSequence exclusive lower bound; as stored by the consumer with
+     *                      {@link BookChangesDao#setMark(String, long)}
+     *
+     * @return A Book Cursor with 0..n rows; ordered by book id
+     */
+    @NonNull
+    TypedCursor fetchBooksForExportToStripInfo(long sinceSequence);
+
     /**
      * Fetch all book UUID, and return them as a List.
      *
@@ -334,6 +403,23 @@ public interface BookDao {
     @NonNull
     List<String> getBookUuidList();
 
+    /**
+     * Create a {@link BloomFilter} with the values of the given column for all books.
+     * Used to skip most of the existence lookups when importing books into
+     * an empty or near-empty database.
+     * <p>
+     * INTEGER columns (e.g. {@link DBKey#PK_ID}) are added as {@code long},
+     * others (e.g. {@link DBKey#BOOK_UUID}) as {@code String}.
+     *
+     * @param key           the books table column
+     * @param extraCapacity the number of keys the caller expects to add to the filter
+     *
+     * @return filter
+     */
+    @NonNull
+    BloomFilter createPresenceFilter(@NonNull String key,
+                                     @IntRange(from = 0) int extraCapacity);
+
     /**
      * Check that a book with the passed UUID exists and return the id of the book, or zero.
      *
@@ -354,6 +440,21 @@ public interface BookDao {
     @NonNull
     List<Pair<Long, String>> getBookIdAndTitleByIsbn(@NonNull ISBN isbn);
 
+    /**
+     * Get the book id/title's for a list of ISBN codes using a single query.
+     * <p>
+     * As with {@link #getBookIdAndTitleByIsbn(ISBN)}, an ISBN-10 and its ISBN-13
+     * are considered to be the same.
+     * Meant for bulk duplicate checks, e.g. before importing a list of books.
+     *
+     * @param isbnList to search for; can be generic/non-valid
+     *
+     * @return a map with an entry for each given ISBN which matched at least one book
+     */
+    @NonNull
+    Map<ISBN, List<Pair<Long, String>>> getBookIdAndTitleByIsbn(
+            @NonNull Collection<ISBN> isbnList);
+
     /**
      * Check that a book with the passed id exists.
      *
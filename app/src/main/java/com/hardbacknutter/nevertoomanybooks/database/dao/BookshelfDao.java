@@ -49,6 +49,16 @@ public interface BookshelfDao
     void setAsPreferred(@NonNull Context context,
                         @NonNull Bookshelf bookshelf);
 
+    /**
+     * Get the id's of the most recently set as preferred bookshelves.
+     *
+     * @param context Current context
+     *
+     * @return list of id's; the most recent first
+     */
+    @NonNull
+    List<Long> getRecentIds(@NonNull Context context);
+
     /**
      * Get the specified bookshelf.
      *
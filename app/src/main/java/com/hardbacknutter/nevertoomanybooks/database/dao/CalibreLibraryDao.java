@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Optional;
 
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.entities.Bookshelf;
 import com.hardbacknutter.nevertoomanybooks.sync.calibre.CalibreLibrary;
 import com.hardbacknutter.nevertoomanybooks.sync.calibre.CalibreVirtualLibrary;
@@ -149,4 +150,15 @@ public interface CalibreLibraryDao {
      */
     @IntRange(from = 0)
     long getBookIdFromCalibreUuid(@NonNull String uuid);
+
+    /**
+     * Create a {@link BloomFilter} with the Calibre UUID of all books we have
+     * linked to a Calibre book.
+     *
+     * @param extraCapacity the number of keys the caller expects to add to the filter
+     *
+     * @return filter
+     */
+    @NonNull
+    BloomFilter createCalibreUuidFilter(@IntRange(from = 0) int extraCapacity);
 }
@@ -0,0 +1,77 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.database.dao;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Content hash index of the cover files.
+ * <p>
+ * Calculating a hash requires reading the full file, so the hash is stored together
+ * with the file size and last-modified time; it's only recalculated when either changes.
+ * Used to avoid writing identical covers more than once to a backup,
+ * and to skip importing covers we already have.
+ */
+public interface CoverHashDao {
+
+    /**
+     * Get the SHA-256 hash of the given cover file.
+     *
+     * @param file to hash
+     *
+     * @return the hash as a lower case hex string
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @WorkerThread
+    @NonNull
+    String getHash(@NonNull File file)
+            throws IOException;
+
+    /**
+     * Find a cover file with the given content hash.
+     *
+     * @param dir  the cover directory
+     * @param hash to find
+     *
+     * @return the file
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @WorkerThread
+    @NonNull
+    Optional<File> findByHash(@NonNull File dir,
+                              @NonNull String hash)
+            throws IOException;
+
+    /**
+     * Remove the hash of the given cover file; to be called when the file is deleted.
+     *
+     * @param filename the name of the cover file
+     */
+    @WorkerThread
+    void delete(@NonNull String filename);
+}
@@ -0,0 +1,130 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.database.dao;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+
+/**
+ * A write-behind journal for the booklist quick-actions.
+ * <p>
+ * The booklist applies a quick-action to its own (temporary) list-table immediately,
+ * and records the action here. Repeated actions on the same target are coalesced;
+ * i.e. only the last value is kept.
+ * The actual updates to the main tables are done in a single transaction by
+ * {@link #flush()}.
+ * <p>
+ * Actions are kept in memory and written to a journal table in the background.
+ * Hence any actions not yet flushed will survive an app crash,
+ * and will be applied by the next {@link #flush()}.
+ */
+public interface PendingUpdatesDao {
+
+    /**
+     * Record an action.
+     * <p>
+     * Does not access the database on the calling thread;
+     * safe to call from the UI thread.
+     *
+     * @param action   to record
+     * @param targetId the id of the Book, Author or Series
+     * @param value    the new value
+     */
+    void enqueue(@NonNull Action action,
+                 @IntRange(from = 1) long targetId,
+                 boolean value);
+
+    /**
+     * Check if there are any actions waiting to be written.
+     *
+     * @return {@code true} if {@link #flush()} has work to do
+     */
+    boolean hasPending();
+
+    /**
+     * Apply the actions recorded during this run which are not written yet
+     * to the given Book, which was just loaded from the database.
+     * <p>
+     * Does not access the database; safe to call from the UI thread.
+     *
+     * @param book to update
+     */
+    void applyTo(@NonNull Book book);
+
+    /**
+     * Write all pending actions to the main tables and clear the journal.
+     * <p>
+     * Must be called before any code which reads the affected columns
+     * from the main tables; e.g. before building a new booklist.
+     * The journal is only cleared once the transaction has been committed.
+     *
+     * @return the number of actions written
+     */
+    @WorkerThread
+    int flush();
+
+    /**
+     * The supported actions.
+     * <p>
+     * <strong>Never change the ids</strong>, they are stored in the journal.
+     */
+    enum Action {
+        /** Set the read-status of a Book. */
+        BookRead(1),
+        /** Return a loaned Book. The value is not used. */
+        BookReturned(2),
+        /** Set the 'complete' status of an Author. */
+        AuthorComplete(3),
+        /** Set the 'complete' status of a Series. */
+        SeriesComplete(4);
+
+        private final int id;
+
+        Action(final int id) {
+            this.id = id;
+        }
+
+        /**
+         * Get the action for the given stored id.
+         *
+         * @param id as stored in the journal
+         *
+         * @return action
+         *
+         * @throws IllegalArgumentException if the id is unknown
+         */
+        @NonNull
+        public static Action byId(final int id) {
+            for (final Action action : values()) {
+                if (action.id == id) {
+                    return action;
+                }
+            }
+            throw new IllegalArgumentException(String.valueOf(id));
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+}
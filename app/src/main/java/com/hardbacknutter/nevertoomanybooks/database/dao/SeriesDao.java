@@ -71,6 +71,20 @@ public interface SeriesDao
     boolean setComplete(@NonNull Series series,
                         boolean complete);
 
+    /**
+     * Update the 'complete' status for the given {@link Series}.
+     * <p>
+     * This method should only be called from places where only the id is available.
+     * If the full Series is available, use {@link #setComplete(Series, boolean)} instead.
+     *
+     * @param id       of the Series to update
+     * @param complete Flag indicating the user considers this item to be 'complete'
+     *
+     * @return {@code true} for success.
+     */
+    boolean setComplete(@IntRange(from = 1) long id,
+                        boolean complete);
+
     /**
      * Remove duplicates. We keep the first occurrence.
      *
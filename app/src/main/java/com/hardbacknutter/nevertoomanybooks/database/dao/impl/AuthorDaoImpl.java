@@ -333,21 +333,23 @@ public class AuthorDaoImpl
     @Override
     public boolean setComplete(@NonNull final Author author,
                                final boolean complete) {
-        final int rowsAffected;
-        try (SynchronizedStatement stmt = db.compileStatement(Sql.SET_COMPLETE)) {
-            stmt.bindBoolean(1, complete);
-
-            stmt.bindLong(2, author.getId());
-            rowsAffected = stmt.executeUpdateDelete();
-        }
-
-        if (rowsAffected > 0) {
+        if (setComplete(author.getId(), complete)) {
             author.setComplete(complete);
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean setComplete(@IntRange(from = 1) final long id,
+                               final boolean complete) {
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.SET_COMPLETE)) {
+            stmt.bindBoolean(1, complete);
+            stmt.bindLong(2, id);
+            return stmt.executeUpdateDelete() > 0;
+        }
+    }
+
     /**
      * Remove duplicates.
      * Consolidates author/- and author/type.
@@ -28,6 +28,7 @@ import java.util.List;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
 class BaseDaoImpl {
@@ -72,6 +73,9 @@ class BaseDaoImpl {
     static final String _ELSE_ = " ELSE ";
     static final String _END = " END";
 
+    /** The false-positive rate for {@link #getColumnAsBloomFilter(String, int)}. */
+    private static final double BLOOM_FILTER_FPP = 0.01;
+
     /** Reference to the <strong>singleton</strong> which makes it safe to store/share here. */
     @NonNull
     final SynchronizedDb db;
@@ -126,4 +130,36 @@ class BaseDaoImpl {
             return list;
         }
     }
+
+    /**
+     * Execute the given SQL, and add column 0 of all rows to a new {@link BloomFilter}.
+     * INTEGER values are added as {@code long}, all others as {@code String}.
+     * {@code null} values are ignored.
+     *
+     * @param sql           SQL to execute
+     * @param extraCapacity the number of keys the caller expects to add to the filter
+     *
+     * @return filter
+     */
+    @NonNull
+    BloomFilter getColumnAsBloomFilter(@NonNull final String sql,
+                                       final int extraCapacity) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            final BloomFilter filter = new BloomFilter(cursor.getCount() + extraCapacity,
+                                                       BLOOM_FILTER_FPP);
+            while (cursor.moveToNext()) {
+                switch (cursor.getType(0)) {
+                    case Cursor.FIELD_TYPE_NULL:
+                        break;
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        filter.put(cursor.getLong(0));
+                        break;
+                    default:
+                        filter.put(cursor.getString(0));
+                        break;
+                }
+            }
+            return filter;
+        }
+    }
 }
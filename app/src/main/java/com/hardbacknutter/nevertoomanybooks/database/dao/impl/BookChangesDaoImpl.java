@@ -0,0 +1,165 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.database.dao.impl;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
+import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
+
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGE_MARKS;
+
+public class BookChangesDaoImpl
+        extends BaseDaoImpl
+        implements BookChangesDao {
+
+    /** Log tag. */
+    private static final String TAG = "BookChangesDaoImpl";
+
+    /**
+     * A mark which is more than this number of changes behind the last change has expired.
+     * The journal entries it still needs are purged regardless, so a consumer which is never
+     * run again does not keep the journal growing forever.
+     */
+    private static final long MAX_MARK_AGE = 10_000;
+
+    /**
+     * Constructor.
+     *
+     * @param db Underlying database
+     */
+    public BookChangesDaoImpl(@NonNull final SynchronizedDb db) {
+        super(db, TAG);
+    }
+
+    @Override
+    public long getLastSequence() {
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.LAST_SEQUENCE)) {
+            return stmt.simpleQueryForLongOrZero();
+        }
+    }
+
+    @Override
+    public long getMark(@NonNull final String consumer) {
+        final long mark;
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.GET_MARK)) {
+            stmt.bindString(1, consumer);
+            mark = stmt.simpleQueryForLongOrZero();
+        }
+        // The entries after an expired mark may have been purged;
+        // the consumer must start over as if it never stored a mark.
+        if (mark > 0 && mark < getLastSequence() - MAX_MARK_AGE) {
+            return 0;
+        }
+        return mark;
+    }
+
+    @Override
+    public void setMark(@NonNull final String consumer,
+                        final long sequence) {
+        Synchronizer.SyncLock txLock = null;
+        try {
+            if (!db.inTransaction()) {
+                txLock = db.beginTransaction(true);
+            }
+
+            try (SynchronizedStatement stmt = db.compileStatement(Sql.SET_MARK)) {
+                stmt.bindString(1, consumer);
+                stmt.bindLong(2, sequence);
+                stmt.executeInsert();
+            }
+            try (SynchronizedStatement stmt = db.compileStatement(Sql.PURGE)) {
+                stmt.bindLong(1, MAX_MARK_AGE);
+                stmt.executeUpdateDelete();
+            }
+
+            if (txLock != null) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (txLock != null) {
+                db.endTransaction(txLock);
+            }
+        }
+    }
+
+    @Override
+    @NonNull
+    public List<String> getDeletedBookUuids(final long sinceSequence) {
+        final List<String> list = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(Sql.DELETED_UUIDS, new String[]{
+                String.valueOf(Change.Deleted.getId()),
+                String.valueOf(sinceSequence)})) {
+            while (cursor.moveToNext()) {
+                list.add(cursor.getString(0));
+            }
+        }
+        return list;
+    }
+
+    private static final class Sql {
+
+        /**
+         * The journal entries are purged, so we can't use the MAX(id).
+         * Instead use the AUTOINCREMENT counter which is never decremented.
+         */
+        static final String LAST_SEQUENCE =
+                SELECT_ + "seq" + _FROM_ + "sqlite_sequence"
+                + _WHERE_ + "name='" + TBL_BOOK_CHANGES.getName() + '\'';
+
+        static final String GET_MARK =
+                SELECT_ + DBKey.BOOK_CHANGE_SEQUENCE
+                + _FROM_ + TBL_BOOK_CHANGE_MARKS.getName()
+                + _WHERE_ + DBKey.BOOK_CHANGE_CONSUMER + "=?";
+
+        static final String SET_MARK =
+                "INSERT OR REPLACE INTO " + TBL_BOOK_CHANGE_MARKS.getName()
+                + '(' + DBKey.BOOK_CHANGE_CONSUMER
+                + ',' + DBKey.BOOK_CHANGE_SEQUENCE
+                + ") VALUES (?,?)";
+
+        /**
+         * Delete the entries which have been processed by all consumers,
+         * ignoring the expired marks; see {@link #MAX_MARK_AGE}.
+         */
+        static final String PURGE =
+                DELETE_FROM_ + TBL_BOOK_CHANGES.getName()
+                + _WHERE_ + DBKey.PK_ID + "<=MAX("
+                + "COALESCE((SELECT MIN(" + DBKey.BOOK_CHANGE_SEQUENCE + ')'
+                + _FROM_ + TBL_BOOK_CHANGE_MARKS.getName() + "),0)"
+                + ",COALESCE((" + LAST_SEQUENCE + "),0)-?)";
+
+        static final String DELETED_UUIDS =
+                SELECT_ + DBKey.BOOK_UUID
+                + _FROM_ + TBL_BOOK_CHANGES.getName()
+                + _WHERE_ + DBKey.BOOK_CHANGE_TYPE + "=?"
+                + _AND_ + DBKey.PK_ID + ">?";
+    }
+}
@@ -34,8 +34,10 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -55,6 +57,7 @@ import com.hardbacknutter.nevertoomanybooks.core.database.TypedCursor;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.covers.CoverStorage;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
@@ -80,6 +83,8 @@ import com.hardbacknutter.nevertoomanybooks.utils.ReorderHelper;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOKS;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_CHANGES;
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_ISBN_KEYS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_BOOK_LOANEE;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_CALIBRE_BOOKS;
 import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_STRIPINFO_COLLECTION;
@@ -595,22 +600,31 @@ public class BookDaoImpl
         final String now = SqlEncode.dateTime(LocalDateTime.now());
         final String endDate = read ? now : "";
 
-        final boolean success;
+        if (updateRead(book.getId(), read, endDate)) {
+            book.internalSetReadingProgress(read, endDate);
+            book.putString(DBKey.DATE_LAST_UPDATED__UTC, now);
+            return true;
+        }
+        return false;
+    }
 
+    @Override
+    public boolean setRead(@IntRange(from = 1) final long bookId,
+                           final boolean read) {
+        final String endDate = read ? SqlEncode.dateTime(LocalDateTime.now()) : "";
+        return updateRead(bookId, read, endDate);
+    }
+
+    private boolean updateRead(final long bookId,
+                               final boolean read,
+                               @NonNull final String endDate) {
         try (SynchronizedStatement stmt = db.compileStatement(Sql.UPDATE_READ_PROGRESS)) {
             stmt.bindBoolean(1, read);
             stmt.bindString(2, endDate);
             stmt.bindString(3, "");
-            stmt.bindLong(4, book.getId());
-            success = 0 < stmt.executeUpdateDelete();
+            stmt.bindLong(4, bookId);
+            return 0 < stmt.executeUpdateDelete();
         }
-
-        if (success) {
-            book.internalSetReadingProgress(read, endDate);
-            book.putString(DBKey.DATE_LAST_UPDATED__UTC, now);
-        }
-
-        return success;
     }
 
     @Override
@@ -791,6 +805,43 @@ public class BookDaoImpl
         }
     }
 
+    @Override
+    public int countBooksForExport(final long sinceSequence) {
+        try (SynchronizedStatement stmt = db.compileStatement(
+                Sql.COUNT_ALL + _WHERE_ + DBKey.PK_ID + _IN_ + Sql.CHANGED_BOOK_IDS)) {
+            stmt.bindLong(1, sinceSequence);
+            return (int) stmt.simpleQueryForLongOrZero();
+        }
+    }
+
+    @Override
+    @NonNull
+    public TypedCursor fetchBooksForExport(final long sinceSequence) {
+        return getBookCursor(TBL_BOOKS.dot(DBKey.PK_ID) + _IN_ + Sql.CHANGED_BOOK_IDS,
+                             new String[]{String.valueOf(sinceSequence)},
+                             TBL_BOOKS.dot(DBKey.PK_ID));
+    }
+
+    @Override
+    @NonNull
+    public TypedCursor fetchBooksForExportToCalibre(@IntRange(from = 1) final long libraryId,
+                                                    final long sinceSequence) {
+        return getBookCursor(TBL_CALIBRE_BOOKS.dot(DBKey.FK_CALIBRE_LIBRARY) + "=?"
+                             + _AND_ + TBL_BOOKS.dot(DBKey.PK_ID) + _IN_ + Sql.CHANGED_BOOK_IDS,
+                             new String[]{String.valueOf(libraryId),
+                                     String.valueOf(sinceSequence)},
+                             TBL_BOOKS.dot(DBKey.PK_ID));
+    }
+
+    @Override
+    @NonNull
+    public TypedCursor fetchBooksForExportToStripInfo(final long sinceSequence) {
+        return getBookCursor(TBL_STRIPINFO_COLLECTION.dot(DBKey.FK_BOOK) + " IS NOT NULL"
+                             + _AND_ + TBL_BOOKS.dot(DBKey.PK_ID) + _IN_ + Sql.CHANGED_BOOK_IDS,
+                             new String[]{String.valueOf(sinceSequence)},
+                             TBL_BOOKS.dot(DBKey.PK_ID));
+    }
+
     @Override
     @NonNull
     public TypedCursor fetchByIsbn(@NonNull final List<ISBN> isbnList) {
@@ -820,6 +871,14 @@ public class BookDaoImpl
         return getColumnAsStringArrayList(Sql.SELECT_ALL_UUID);
     }
 
+    @Override
+    @NonNull
+    public BloomFilter createPresenceFilter(@NonNull final String key,
+                                            @IntRange(from = 0) final int extraCapacity) {
+        return getColumnAsBloomFilter(SELECT_ + key + _FROM_ + TBL_BOOKS.getName(),
+                                      extraCapacity);
+    }
+
     /**
      * Return the book UUID based on the id.
      *
@@ -844,33 +903,104 @@ public class BookDaoImpl
         }
     }
 
+    /**
+     * Get the key to search {@link DBKey#ISBN_KEY} with.
+     * <p>
+     * If the code is ISBN-10 compatible, i.e. an actual ISBN-10, or an ISBN-13 in
+     * the 978 range, the key is the ISBN-13.
+     * Otherwise, we search on the string as-is; regardless of validity
+     * (this would actually include valid ISBN-13 in the 979 range).
+     * <p>
+     * This must produce the same key as the database triggers;
+     * see {@code Triggers#insertIsbnKeys}.
+     *
+     * @param isbn to convert
+     *
+     * @return key, can be empty
+     */
+    @NonNull
+    private static String toIsbnKey(@NonNull final ISBN isbn) {
+        if (isbn.isIsbn10Compat()) {
+            return isbn.asText(ISBN.Type.Isbn13);
+        }
+        return isbn.asText()
+                   .replace("-", "")
+                   .replace(" ", "")
+                   .toUpperCase(Locale.ROOT);
+    }
+
     @Override
     @NonNull
     public List<Pair<Long, String>> getBookIdAndTitleByIsbn(@NonNull final ISBN isbn) {
         final List<Pair<Long, String>> list = new ArrayList<>();
-        // If the string is ISBN-10 compatible, we search on both formats;
-        // i.e. an actual ISBN-10, or an ISBN-13 in the 978 range.
-        if (isbn.isIsbn10Compat()) {
-            try (Cursor cursor = db.rawQuery(Sql.FIND_BY_ISBN_10_OR_13,
-                                             new String[]{isbn.asText(ISBN.Type.Isbn10),
-                                                     isbn.asText(ISBN.Type.Isbn13)})) {
-                while (cursor.moveToNext()) {
-                    list.add(new Pair<>(cursor.getLong(0),
-                                        cursor.getString(1)));
+        final String key = toIsbnKey(isbn);
+        if (key.isEmpty()) {
+            return list;
+        }
+
+        try (Cursor cursor = db.rawQuery(Sql.FIND_BY_ISBN_KEY, new String[]{key})) {
+            while (cursor.moveToNext()) {
+                list.add(new Pair<>(cursor.getLong(0),
+                                    cursor.getString(1)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    @NonNull
+    public Map<ISBN, List<Pair<Long, String>>> getBookIdAndTitleByIsbn(
+            @NonNull final Collection<ISBN> isbnList) {
+
+        final Map<String, List<Pair<Long, String>>> booksByKey = new HashMap<>();
+
+        Synchronizer.SyncLock txLock = null;
+        try {
+            if (!db.inTransaction()) {
+                txLock = db.beginTransaction(true);
+            }
+
+            // Load all keys into a temporary table, and join it with the index
+            db.execSQL(Sql.CREATE_TEMP_ISBN_KEYS);
+            db.execSQL(Sql.DELETE_TEMP_ISBN_KEYS);
+            try (SynchronizedStatement stmt = db.compileStatement(Sql.INSERT_TEMP_ISBN_KEY)) {
+                for (final ISBN isbn : isbnList) {
+                    final String key = toIsbnKey(isbn);
+                    if (!key.isEmpty()) {
+                        stmt.bindString(1, key);
+                        stmt.executeInsert();
+                    }
                 }
             }
-        } else {
-            // otherwise just search on the string as-is; regardless of validity
-            // (this would actually include valid ISBN-13 in the 979 range).
-            try (Cursor cursor = db.rawQuery(Sql.FIND_BY_ISBN, new String[]{isbn.asText()})) {
+
+            try (Cursor cursor = db.rawQuery(Sql.FIND_BY_TEMP_ISBN_KEYS, null)) {
                 while (cursor.moveToNext()) {
-                    list.add(new Pair<>(cursor.getLong(0),
-                                        cursor.getString(1)));
+                    booksByKey.computeIfAbsent(cursor.getString(0), k -> new ArrayList<>())
+                              .add(new Pair<>(cursor.getLong(1),
+                                              cursor.getString(2)));
                 }
             }
+            db.execSQL(Sql.DELETE_TEMP_ISBN_KEYS);
+
+            if (txLock != null) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (txLock != null) {
+                db.endTransaction(txLock);
+            }
         }
 
-        return list;
+        final Map<ISBN, List<Pair<Long, String>>> result = new HashMap<>();
+        if (!booksByKey.isEmpty()) {
+            isbnList.forEach(isbn -> {
+                final List<Pair<Long, String>> list = booksByKey.get(toIsbnKey(isbn));
+                if (list != null) {
+                    result.put(isbn, list);
+                }
+            });
+        }
+        return result;
     }
 
     @Override
@@ -884,22 +1014,13 @@ public class BookDaoImpl
 
     @Override
     public boolean bookExistsByIsbn(@NonNull final String isbnStr) {
-        final ISBN isbn = new ISBN(isbnStr, false);
-        // If the string is ISBN-10 compatible, we search on both formats;
-        // i.e. an actual ISBN-10, or an ISBN-13 in the 978 range.
-        if (isbn.isIsbn10Compat()) {
-            try (SynchronizedStatement stmt = db.compileStatement(Sql.BOOK_ISBN_10_OR_13_EXISTS)) {
-                stmt.bindString(1, isbn.asText(ISBN.Type.Isbn10));
-                stmt.bindString(2, isbn.asText(ISBN.Type.Isbn13));
-                return stmt.simpleQueryForLongOrZero() == 1;
-            }
-        } else {
-            // otherwise just search on the string as-is; regardless of validity
-            // (this would actually include valid ISBN-13 in the 979 range).
-            try (SynchronizedStatement stmt = db.compileStatement(Sql.BOOK_ISBN_EXISTS)) {
-                stmt.bindString(1, isbn.asText());
-                return stmt.simpleQueryForLongOrZero() == 1;
-            }
+        final String key = toIsbnKey(new ISBN(isbnStr, false));
+        if (key.isEmpty()) {
+            return false;
+        }
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.BOOK_ISBN_KEY_EXISTS)) {
+            stmt.bindString(1, key);
+            return stmt.simpleQueryForLongOrZero() == 1;
         }
     }
 
@@ -964,18 +1085,45 @@ public class BookDaoImpl
         static final String COUNT_ALL =
                 SELECT_COUNT_FROM_ + TBL_BOOKS.getName();
 
-        /** Find the {@link Book} id+title based on a search for the ISBN (both 10 & 13). */
-        static final String FIND_BY_ISBN_10_OR_13 =
-                SELECT_ + DBKey.PK_ID + ',' + DBKey.TITLE + _FROM_ + TBL_BOOKS.getName()
-                + _WHERE_ + DBKey.BOOK_ISBN + " LIKE ? OR " + DBKey.BOOK_ISBN + " LIKE ?";
+        /** Sub-select for the ids of the books changed after a given journal sequence. */
+        static final String CHANGED_BOOK_IDS =
+                "(SELECT " + DBKey.BOOK_CHANGE_BOOK_ID + _FROM_ + TBL_BOOK_CHANGES.getName()
+                + _WHERE_ + DBKey.PK_ID + ">?)";
 
         /**
-         * Find the {@link Book} id+title based on a search for the ISBN.
+         * Find the {@link Book} id+title based on a search for the {@link DBKey#ISBN_KEY}.
          * The isbn need not be valid and can in fact be any code whatsoever.
          */
-        static final String FIND_BY_ISBN =
-                SELECT_ + DBKey.PK_ID + ',' + DBKey.TITLE + _FROM_ + TBL_BOOKS.getName()
-                + _WHERE_ + DBKey.BOOK_ISBN + " LIKE ?";
+        static final String FIND_BY_ISBN_KEY =
+                SELECT_ + TBL_BOOKS.dot(DBKey.PK_ID) + ',' + TBL_BOOKS.dot(DBKey.TITLE)
+                + _FROM_ + TBL_BOOK_ISBN_KEYS.startJoin(TBL_BOOKS)
+                + _WHERE_ + TBL_BOOK_ISBN_KEYS.dot(DBKey.ISBN_KEY) + "=?";
+
+        /** The temporary table with the keys for a bulk lookup. */
+        static final String TMP_ISBN_KEYS = "tmp_isbn_keys";
+
+        /** Create the temporary table for a bulk lookup. */
+        static final String CREATE_TEMP_ISBN_KEYS =
+                "CREATE TEMPORARY TABLE IF NOT EXISTS " + TMP_ISBN_KEYS
+                + " (" + DBKey.ISBN_KEY + " TEXT PRIMARY KEY)";
+
+        /** Clear the temporary table. */
+        static final String DELETE_TEMP_ISBN_KEYS =
+                DELETE_FROM_ + TMP_ISBN_KEYS;
+
+        /** Add a key to the temporary table; duplicates are ignored. */
+        static final String INSERT_TEMP_ISBN_KEY =
+                "INSERT OR IGNORE INTO " + TMP_ISBN_KEYS + " VALUES(?)";
+
+        /** Find the key + {@link Book} id+title for all keys in the temporary table. */
+        static final String FIND_BY_TEMP_ISBN_KEYS =
+                SELECT_ + TBL_BOOK_ISBN_KEYS.dot(DBKey.ISBN_KEY)
+                + ',' + TBL_BOOKS.dot(DBKey.PK_ID) + ',' + TBL_BOOKS.dot(DBKey.TITLE)
+                + _FROM_ + TMP_ISBN_KEYS
+                + " JOIN " + TBL_BOOK_ISBN_KEYS.ref()
+                + " ON " + TBL_BOOK_ISBN_KEYS.dot(DBKey.ISBN_KEY)
+                + '=' + TMP_ISBN_KEYS + '.' + DBKey.ISBN_KEY
+                + TBL_BOOK_ISBN_KEYS.join(TBL_BOOKS);
 
         /** Find the UUID of a {@link Book} by its id. */
         static final String FIND_UUID_BY_ID =
@@ -1002,19 +1150,14 @@ public class BookDaoImpl
                 + ')';
 
         /**
-         * Check if a {@link Book} exists with a single specified {@link DBKey#BOOK_ISBN}.
+         * Check if a {@link Book} exists with the specified {@link DBKey#ISBN_KEY}.
          * The result will be {@code 0} or {@code 1}.
          */
-        static final String BOOK_ISBN_EXISTS =
-                SELECT_EXISTS_ + '(' + FIND_BY_ISBN + ')';
-
-        /**
-         * Check if a {@link Book} exists with a either a {@link DBKey#BOOK_ISBN}
-         * ISBN-10, or an ISBN-13 in the 978 range.
-         * The result will be {@code 0} or {@code 1}.
-         */
-        static final String BOOK_ISBN_10_OR_13_EXISTS =
-                SELECT_EXISTS_ + '(' + FIND_BY_ISBN_10_OR_13 + ')';
+        static final String BOOK_ISBN_KEY_EXISTS =
+                SELECT_EXISTS_ + '('
+                + SELECT_ + "null" + _FROM_ + TBL_BOOK_ISBN_KEYS.getName()
+                + _WHERE_ + DBKey.ISBN_KEY + "=?"
+                + ')';
 
         /** Book UUID only, for accessing all cover image files. */
         static final String SELECT_ALL_UUID =
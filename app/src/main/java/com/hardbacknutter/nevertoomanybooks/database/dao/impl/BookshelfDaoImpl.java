@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.R;
@@ -70,6 +71,13 @@ public class BookshelfDaoImpl
      * Storing the name and not the id. If you export/import... the id will be different.
      */
     private static final String PK_BOOKSHELF_CURRENT = "Bookshelf.CurrentBookshelf";
+    /**
+     * Preference name - CSV list of the most recently used bookshelf id's.
+     * Only used as a hint, so storing the id's is fine here.
+     */
+    private static final String PK_BOOKSHELF_RECENT = "Bookshelf.RecentBookshelves";
+    /** The number of recently used bookshelves we keep track of. */
+    private static final int MAX_RECENT = 5;
     /** Log tag. */
     private static final String TAG = "BookshelfDaoImpl";
     private static final String ERROR_INSERT_FROM = "Insert from\n";
@@ -151,12 +159,39 @@ public class BookshelfDaoImpl
     @Override
     public void setAsPreferred(@NonNull final Context context,
                                @NonNull final Bookshelf bookshelf) {
+        final List<Long> recent = getRecentIds(context);
+        recent.remove(Long.valueOf(bookshelf.getId()));
+        recent.add(0, bookshelf.getId());
+
         PreferenceManager.getDefaultSharedPreferences(context)
                          .edit()
                          .putString(PK_BOOKSHELF_CURRENT, bookshelf.getName())
+                         .putString(PK_BOOKSHELF_RECENT, recent
+                                 .stream()
+                                 .limit(MAX_RECENT)
+                                 .map(String::valueOf)
+                                 .collect(Collectors.joining(",")))
                          .apply();
     }
 
+    @NonNull
+    @Override
+    public List<Long> getRecentIds(@NonNull final Context context) {
+        final String csv = PreferenceManager.getDefaultSharedPreferences(context)
+                                            .getString(PK_BOOKSHELF_RECENT, "");
+        final List<Long> list = new ArrayList<>();
+        for (final String id : csv.split(",")) {
+            if (!id.isEmpty()) {
+                try {
+                    list.add(Long.parseLong(id));
+                } catch (@NonNull final NumberFormatException ignore) {
+                    // ignore
+                }
+            }
+        }
+        return list;
+    }
+
     @NonNull
     public Optional<Bookshelf> getBookshelf(@NonNull final Context context,
                                             final long id) {
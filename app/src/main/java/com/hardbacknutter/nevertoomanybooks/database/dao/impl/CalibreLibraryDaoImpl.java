@@ -38,6 +38,7 @@ import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
 import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
 import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.database.TransactionException;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.database.CursorRow;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
@@ -378,6 +379,12 @@ public class CalibreLibraryDaoImpl
         }
     }
 
+    @Override
+    @NonNull
+    public BloomFilter createCalibreUuidFilter(@IntRange(from = 0) final int extraCapacity) {
+        return getColumnAsBloomFilter(Sql.SELECT_ALL_CALIBRE_UUID, extraCapacity);
+    }
+
     private static final class Sql {
 
         /** Insert a {@link CalibreLibrary}. */
@@ -467,5 +474,9 @@ public class CalibreLibraryDaoImpl
         static final String FIND_BOOK_ID_BY_CALIBRE_UUID =
                 SELECT_ + DBKey.FK_BOOK + _FROM_ + TBL_CALIBRE_BOOKS.getName()
                 + _WHERE_ + DBKey.CALIBRE_BOOK_UUID + "=?";
+
+        /** All Calibre UUIDs; see {@link #createCalibreUuidFilter(int)}. */
+        static final String SELECT_ALL_CALIBRE_UUID =
+                SELECT_ + DBKey.CALIBRE_BOOK_UUID + _FROM_ + TBL_CALIBRE_BOOKS.getName();
     }
 }
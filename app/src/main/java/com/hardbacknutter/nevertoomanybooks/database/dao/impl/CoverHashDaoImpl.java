@@ -0,0 +1,143 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.database.dao.impl;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
+import com.hardbacknutter.nevertoomanybooks.core.storage.FileUtils;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.CoverHashDao;
+
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_COVER_HASHES;
+
+public class CoverHashDaoImpl
+        extends BaseDaoImpl
+        implements CoverHashDao {
+
+    /** Log tag. */
+    private static final String TAG = "CoverHashDaoImpl";
+
+    /**
+     * Constructor.
+     *
+     * @param db Underlying database
+     */
+    public CoverHashDaoImpl(@NonNull final SynchronizedDb db) {
+        super(db, TAG);
+    }
+
+    @Override
+    @WorkerThread
+    @NonNull
+    public String getHash(@NonNull final File file)
+            throws IOException {
+        final String filename = file.getName();
+        final long size = file.length();
+        final long lastModified = file.lastModified();
+
+        try (Cursor cursor = db.rawQuery(Sql.GET_BY_NAME, new String[]{filename})) {
+            if (cursor.moveToFirst()
+                && cursor.getLong(1) == size
+                && cursor.getLong(2) == lastModified) {
+                return cursor.getString(0);
+            }
+        }
+
+        final String hash = FileUtils.getSha256(file);
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.INSERT)) {
+            stmt.bindString(1, filename);
+            stmt.bindString(2, hash);
+            stmt.bindLong(3, size);
+            stmt.bindLong(4, lastModified);
+            stmt.executeInsert();
+        }
+        return hash;
+    }
+
+    @Override
+    @WorkerThread
+    @NonNull
+    public Optional<File> findByHash(@NonNull final File dir,
+                                     @NonNull final String hash)
+            throws IOException {
+        final List<String> filenames = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(Sql.FIND_BY_HASH, new String[]{hash})) {
+            while (cursor.moveToNext()) {
+                filenames.add(cursor.getString(0));
+            }
+        }
+        // The index can be stale; check the file still has the same content.
+        for (final String filename : filenames) {
+            final File file = new File(dir, filename);
+            if (file.exists() && hash.equals(getHash(file))) {
+                return Optional.of(file);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    @WorkerThread
+    public void delete(@NonNull final String filename) {
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.DELETE_BY_NAME)) {
+            stmt.bindString(1, filename);
+            stmt.executeUpdateDelete();
+        }
+    }
+
+    private static final class Sql {
+
+        static final String GET_BY_NAME =
+                SELECT_ + DBKey.COVER_HASH
+                + ',' + DBKey.COVER_FILE_SIZE
+                + ',' + DBKey.COVER_LAST_MODIFIED
+                + _FROM_ + TBL_COVER_HASHES.getName()
+                + _WHERE_ + DBKey.COVER_FILENAME + "=?";
+
+        static final String FIND_BY_HASH =
+                SELECT_ + DBKey.COVER_FILENAME
+                + _FROM_ + TBL_COVER_HASHES.getName()
+                + _WHERE_ + DBKey.COVER_HASH + "=?";
+
+        static final String INSERT =
+                "INSERT OR REPLACE INTO " + TBL_COVER_HASHES.getName()
+                + '(' + DBKey.COVER_FILENAME
+                + ',' + DBKey.COVER_HASH
+                + ',' + DBKey.COVER_FILE_SIZE
+                + ',' + DBKey.COVER_LAST_MODIFIED
+                + ") VALUES (?,?,?,?)";
+
+        static final String DELETE_BY_NAME =
+                "DELETE FROM " + TBL_COVER_HASHES.getName()
+                + _WHERE_ + DBKey.COVER_FILENAME + "=?";
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.database.dao.impl;
+
+import android.database.Cursor;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedStatement;
+import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.AuthorDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.LoaneeDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.PendingUpdatesDao;
+import com.hardbacknutter.nevertoomanybooks.database.dao.SeriesDao;
+import com.hardbacknutter.nevertoomanybooks.entities.Author;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.nevertoomanybooks.entities.Series;
+
+import static com.hardbacknutter.nevertoomanybooks.database.DBDefinitions.TBL_PENDING_UPDATES;
+
+public class PendingUpdatesDaoImpl
+        extends BaseDaoImpl
+        implements PendingUpdatesDao {
+
+    /** Log tag. */
+    private static final String TAG = "PendingUpdatesDaoImpl";
+
+    @NonNull
+    private final Supplier<BookDao> bookDaoSupplier;
+    @NonNull
+    private final Supplier<LoaneeDao> loaneeDaoSupplier;
+    @NonNull
+    private final Supplier<AuthorDao> authorDaoSupplier;
+    @NonNull
+    private final Supplier<SeriesDao> seriesDaoSupplier;
+
+    /**
+     * The actions recorded during this run and not yet written to the main tables.
+     * Written to the journal table in the background by {@link #persist(Target, boolean)}.
+     */
+    private final Map<Target, Boolean> journal = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the journal table might contain entries from a previous run.
+     * Starts as {@code true} and is cleared after the first successful {@link #flush()}.
+     */
+    private final AtomicBoolean previousRun = new AtomicBoolean(true);
+
+    /**
+     * Constructor.
+     *
+     * @param db                Underlying database
+     * @param bookDaoSupplier   deferred supplier for the {@link BookDao}
+     * @param loaneeDaoSupplier deferred supplier for the {@link LoaneeDao}
+     * @param authorDaoSupplier deferred supplier for the {@link AuthorDao}
+     * @param seriesDaoSupplier deferred supplier for the {@link SeriesDao}
+     */
+    public PendingUpdatesDaoImpl(@NonNull final SynchronizedDb db,
+                                 @NonNull final Supplier<BookDao> bookDaoSupplier,
+                                 @NonNull final Supplier<LoaneeDao> loaneeDaoSupplier,
+                                 @NonNull final Supplier<AuthorDao> authorDaoSupplier,
+                                 @NonNull final Supplier<SeriesDao> seriesDaoSupplier) {
+        super(db, TAG);
+        this.bookDaoSupplier = bookDaoSupplier;
+        this.loaneeDaoSupplier = loaneeDaoSupplier;
+        this.authorDaoSupplier = authorDaoSupplier;
+        this.seriesDaoSupplier = seriesDaoSupplier;
+    }
+
+    @Override
+    public void enqueue(@NonNull final Action action,
+                        @IntRange(from = 1) final long targetId,
+                        final boolean value) {
+        final Target target = new Target(action, targetId);
+        journal.put(target, value);
+        // The serial executor keeps the inserts in the order of the actions.
+        ASyncExecutor.SERIAL.execute(() -> persist(target, value));
+    }
+
+    /**
+     * Write a single action to the journal table.
+     *
+     * @param target the action and its target
+     * @param value  the new value
+     */
+    @WorkerThread
+    private synchronized void persist(@NonNull final Target target,
+                                      final boolean value) {
+        // Skip if a flush already wrote it, or if a newer action replaced it;
+        // the latter will be written by its own task.
+        if (!Objects.equals(journal.get(target), value)) {
+            return;
+        }
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.INSERT)) {
+            stmt.bindLong(1, target.action.getId());
+            stmt.bindLong(2, target.targetId);
+            stmt.bindBoolean(3, value);
+            stmt.executeInsert();
+        }
+    }
+
+    @Override
+    public boolean hasPending() {
+        return !journal.isEmpty() || previousRun.get();
+    }
+
+    @Override
+    public void applyTo(@NonNull final Book book) {
+        if (journal.isEmpty()) {
+            return;
+        }
+        final long bookId = book.getId();
+        final Boolean read = journal.get(new Target(Action.BookRead, bookId));
+        if (read != null) {
+            book.setReadNow(read);
+        }
+        if (journal.containsKey(new Target(Action.BookReturned, bookId))) {
+            book.putString(DBKey.LOANEE_NAME, "");
+        }
+        for (final Author author : book.getAuthors()) {
+            final Boolean complete = journal.get(
+                    new Target(Action.AuthorComplete, author.getId()));
+            if (complete != null) {
+                author.setComplete(complete);
+            }
+        }
+        for (final Series series : book.getSeries()) {
+            final Boolean complete = journal.get(
+                    new Target(Action.SeriesComplete, series.getId()));
+            if (complete != null) {
+                series.setComplete(complete);
+            }
+        }
+    }
+
+    @Override
+    @WorkerThread
+    public synchronized int flush() {
+        if (!hasPending()) {
+            return 0;
+        }
+
+        final Map<Target, Boolean> actions = new HashMap<>();
+        final Synchronizer.SyncLock txLock = db.beginTransaction(true);
+        try {
+            // Entries left behind by a previous run, and those already persisted.
+            try (Cursor cursor = db.rawQuery(Sql.SELECT_ALL, null)) {
+                while (cursor.moveToNext()) {
+                    actions.put(new Target(Action.byId(cursor.getInt(0)), cursor.getLong(1)),
+                                cursor.getInt(2) != 0);
+                }
+            }
+            // The in-memory values are the most recent ones.
+            actions.putAll(journal);
+
+            actions.forEach((target, value) -> {
+                switch (target.action) {
+                    case BookRead:
+                        bookDaoSupplier.get().setRead(target.targetId, value);
+                        break;
+                    case BookReturned:
+                        loaneeDaoSupplier.get().delete(target.targetId);
+                        break;
+                    case AuthorComplete:
+                        authorDaoSupplier.get().setComplete(target.targetId, value);
+                        break;
+                    case SeriesComplete:
+                        seriesDaoSupplier.get().setComplete(target.targetId, value);
+                        break;
+                }
+            });
+            db.execSQL(Sql.DELETE_ALL);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction(txLock);
+        }
+
+        // Only reached after a successful commit; on a rollback everything is kept.
+        previousRun.set(false);
+        // Keep any action which was replaced by a newer value while we were busy.
+        actions.forEach(journal::remove);
+        return actions.size();
+    }
+
+    /**
+     * The key of the journal: an action on a given target.
+     */
+    private static final class Target {
+
+        @NonNull
+        private final Action action;
+        private final long targetId;
+
+        Target(@NonNull final Action action,
+               final long targetId) {
+            this.action = action;
+            this.targetId = targetId;
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Target that = (Target) o;
+            return targetId == that.targetId && action == that.action;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(action, targetId);
+        }
+    }
+
+    private static final class Sql {
+
+        /** Insert or coalesce an action. */
+        static final String INSERT =
+                "INSERT OR REPLACE INTO " + TBL_PENDING_UPDATES.getName()
+                + '(' + DBKey.PENDING_ACTION
+                + ',' + DBKey.PENDING_TARGET_ID
+                + ',' + DBKey.PENDING_VALUE
+                + ") VALUES (?,?,?)";
+
+        static final String SELECT_ALL =
+                SELECT_ + DBKey.PENDING_ACTION
+                + ',' + DBKey.PENDING_TARGET_ID
+                + ',' + DBKey.PENDING_VALUE
+                + _FROM_ + TBL_PENDING_UPDATES.getName();
+
+        static final String DELETE_ALL = DELETE_FROM_ + TBL_PENDING_UPDATES.getName();
+    }
+}
@@ -182,21 +182,23 @@ public class SeriesDaoImpl
     @Override
     public boolean setComplete(@NonNull final Series series,
                                final boolean complete) {
-        final int rowsAffected;
-        try (SynchronizedStatement stmt = db.compileStatement(Sql.SET_COMPLETE)) {
-            stmt.bindBoolean(1, complete);
-
-            stmt.bindLong(2, series.getId());
-            rowsAffected = stmt.executeUpdateDelete();
-        }
-
-        if (rowsAffected > 0) {
+        if (setComplete(series.getId(), complete)) {
             series.setComplete(complete);
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean setComplete(@IntRange(from = 1) final long id,
+                               final boolean complete) {
+        try (SynchronizedStatement stmt = db.compileStatement(Sql.SET_COMPLETE)) {
+            stmt.bindBoolean(1, complete);
+            stmt.bindLong(2, id);
+            return stmt.executeUpdateDelete() > 0;
+        }
+    }
+
     /**
      * Remove duplicates.
      * Consolidates series/- and series/number.
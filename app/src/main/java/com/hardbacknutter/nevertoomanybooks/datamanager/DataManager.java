@@ -37,13 +37,12 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Currency;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.core.database.SqlEncode;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.BooleanParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
@@ -62,6 +61,9 @@ import com.hardbacknutter.util.logger.LoggerFactory;
  * parsing, easier list handling, nullability...
  * <p>
  * The actual data is stored in a single member variable {@link #rawData}.
+ * This is a {@link FieldStore} which keeps numeric values as primitives
+ * and avoids the per-instance {@code HashMap} of a {@link Bundle}.
+ * Conversion to a {@link Bundle} is only done at the UI boundaries.
  */
 public class DataManager
         implements DataHolder, Parcelable {
@@ -88,26 +90,31 @@ public class DataManager
 
     /** Raw data storage. */
     @NonNull
-    private final Bundle rawData;
+    private final FieldStore rawData = new FieldStore();
+
+    /**
+     * Constructor.
+     */
+    protected DataManager() {
+    }
 
     /**
      * Constructor. Loads the data <strong>without</strong> type checks.
      *
-     * @param rawData to use as-is
+     * @param rawData to copy
      */
     protected DataManager(@NonNull final Bundle rawData) {
-        this.rawData = rawData;
+        this.rawData.putAll(rawData);
     }
 
     protected DataManager(@NonNull final Parcel in) {
-        //noinspection DataFlowIssue
-        rawData = in.readBundle(getClass().getClassLoader());
+        rawData.readFromParcel(in, getClass().getClassLoader());
     }
 
     @Override
     public void writeToParcel(@NonNull final Parcel dest,
                               final int flags) {
-        dest.writeBundle(rawData);
+        rawData.writeToParcel(dest);
     }
 
     @Override
@@ -143,7 +150,7 @@ public class DataManager
     @NonNull
     @Override
     public Set<String> keySet() {
-        return Set.copyOf(rawData.keySet());
+        return rawData.keySet();
     }
 
     /**
@@ -163,7 +170,7 @@ public class DataManager
      * @return {@code true} if the underlying data contains the specified key.
      */
     public boolean contains(@NonNull final String key) {
-        return rawData.containsKey(key);
+        return rawData.contains(key);
     }
 
     /**
@@ -202,7 +209,7 @@ public class DataManager
             final String name = cursor.getColumnName(i);
             switch (cursor.getType(i)) {
                 case Cursor.FIELD_TYPE_STRING:
-                    rawData.putString(name, cursor.getString(i));
+                    rawData.putObject(name, cursor.getString(i));
                     break;
 
                 case Cursor.FIELD_TYPE_INTEGER:
@@ -248,7 +255,7 @@ public class DataManager
             putMoney(key, (Money) value);
 
         } else if (value instanceof CharSequence) {
-            rawData.putCharSequence(key, (CharSequence) value);
+            rawData.putObject(key, value);
         } else if (value instanceof Integer) {
             rawData.putInt(key, (int) value);
         } else if (value instanceof Long) {
@@ -267,13 +274,10 @@ public class DataManager
             // added since org.json:json:20201115
             rawData.putDouble(key, ((Number) value).doubleValue());
 
-        } else if (value instanceof Parcelable) {
-            rawData.putParcelable(key, (Parcelable) value);
-        } else if (value instanceof Parcelable[]) {
-            rawData.putParcelableArray(key, (Parcelable[]) value);
-        } else if (value instanceof ArrayList) {
-            //noinspection unchecked,rawtypes
-            rawData.putParcelableArrayList(key, (ArrayList) value);
+        } else if (value instanceof Parcelable
+                   || value instanceof Parcelable[]
+                   || value instanceof ArrayList) {
+            rawData.putObject(key, value);
 
         } else if (value instanceof Serializable) {
             putSerializable(key, (Serializable) value);
@@ -292,7 +296,7 @@ public class DataManager
     }
 
     /**
-     * Get the unprotected, underlying Bundle with the raw data.
+     * Get a copy of the underlying raw data as a Bundle.
      * Use for testing only.
      *
      * @return data
@@ -301,7 +305,20 @@ public class DataManager
     @RestrictTo(RestrictTo.Scope.TESTS)
     @NonNull
     public Bundle getRawData() {
-        return rawData;
+        return toBundle();
+    }
+
+    /**
+     * Get a copy of all data as a Bundle; e.g. for passing to the UI or saving state.
+     * <p>
+     * Values are copied by reference; i.e. the lists in the Bundle are the same
+     * objects as the ones in this instance.
+     *
+     * @return a new Bundle
+     */
+    @NonNull
+    public Bundle toBundle() {
+        return rawData.toBundle(ServiceLocator.getInstance().newBundle());
     }
 
     /**
@@ -341,6 +358,9 @@ public class DataManager
      */
     public boolean getBoolean(@NonNull final String key)
             throws NumberFormatException {
+        if (isPrimitive(key)) {
+            return rawData.getAsLong(key) != 0;
+        }
         return BooleanParser.toBoolean(rawData.get(key));
     }
 
@@ -367,6 +387,9 @@ public class DataManager
     @Override
     public int getInt(@NonNull final String key)
             throws NumberFormatException {
+        if (isPrimitive(key)) {
+            return (int) rawData.getAsLong(key);
+        }
         return (int) NumberParser.toLong(rawData.get(key));
     }
 
@@ -393,6 +416,9 @@ public class DataManager
     @Override
     public long getLong(@NonNull final String key)
             throws NumberFormatException {
+        if (isPrimitive(key)) {
+            return rawData.getAsLong(key);
+        }
         return NumberParser.toLong(rawData.get(key));
     }
 
@@ -420,6 +446,9 @@ public class DataManager
     public double getDouble(@NonNull final String key,
                             @NonNull final RealNumberParser parser)
             throws NumberFormatException {
+        if (isPrimitive(key)) {
+            return rawData.getAsDouble(key);
+        }
         return parser.toDouble(rawData.get(key));
     }
 
@@ -448,6 +477,9 @@ public class DataManager
     public float getFloat(@NonNull final String key,
                           @NonNull final RealNumberParser parser)
             throws NumberFormatException {
+        if (isPrimitive(key)) {
+            return (float) rawData.getAsDouble(key);
+        }
         return parser.toFloat(rawData.get(key));
     }
 
@@ -482,7 +514,7 @@ public class DataManager
      */
     public void putString(@NonNull final String key,
                           @NonNull final String value) {
-        rawData.putString(key, value);
+        rawData.putObject(key, value);
     }
 
     /**
@@ -508,7 +540,7 @@ public class DataManager
     public Money getMoney(@NonNull final String key,
                           @NonNull final RealNumberParser parser)
             throws NumberFormatException {
-        if (rawData.containsKey(key)) {
+        if (rawData.contains(key)) {
             return MoneyParser.parse(BigDecimal.valueOf(getDouble(key, parser)),
                                      getString(key + DBKey.CURRENCY_SUFFIX));
         } else {
@@ -527,7 +559,7 @@ public class DataManager
         rawData.putDouble(key, money.getValue().doubleValue());
         final Currency currency = money.getCurrency();
         if (currency != null) {
-            rawData.putString(key + DBKey.CURRENCY_SUFFIX, currency.getCurrencyCode());
+            rawData.putObject(key + DBKey.CURRENCY_SUFFIX, currency.getCurrencyCode());
         }
     }
 
@@ -543,8 +575,9 @@ public class DataManager
     protected Optional<LocalDateTime> getLocalDateTime(@SuppressWarnings("SameParameterValue")
                                                        @NonNull final String key,
                                                        @NonNull final DateParser dateParser) {
-        if (rawData.containsKey(key)) {
-            return dateParser.parse(rawData.getString(key));
+        final Object value = rawData.get(key);
+        if (value instanceof String) {
+            return dateParser.parse((String) value);
         } else {
             return Optional.empty();
         }
@@ -559,7 +592,7 @@ public class DataManager
     public void putLocalDateTime(@SuppressWarnings("SameParameterValue")
                                  @NonNull final String key,
                                  @NonNull final LocalDateTime dateTime) {
-        rawData.putString(key, SqlEncode.dateTime(dateTime));
+        rawData.putObject(key, SqlEncode.dateTime(dateTime));
     }
 
     /**
@@ -576,9 +609,8 @@ public class DataManager
     public List<String> getStringArrayList(@NonNull final String key) {
         Object o = rawData.get(key);
         if (o == null) {
-            o = new ArrayList<>();
-            //noinspection unchecked
-            rawData.putStringArrayList(key, (ArrayList<String>) o);
+            o = new ArrayList<String>();
+            rawData.putObject(key, o);
         }
         //noinspection unchecked
         return (List<String>) o;
@@ -592,7 +624,7 @@ public class DataManager
      */
     public void putStringArrayList(@NonNull final String key,
                                    @NonNull final ArrayList<String> value) {
-        rawData.putStringArrayList(key, value);
+        rawData.putObject(key, value);
     }
 
     /**
@@ -610,9 +642,8 @@ public class DataManager
     public <T extends Parcelable> ArrayList<T> getParcelableArrayList(@NonNull final String key) {
         Object o = rawData.get(key);
         if (o == null) {
-            o = new ArrayList<>();
-            //noinspection unchecked
-            rawData.putParcelableArrayList(key, (ArrayList<T>) o);
+            o = new ArrayList<T>();
+            rawData.putObject(key, o);
         }
         //noinspection unchecked
         return (ArrayList<T>) o;
@@ -635,9 +666,9 @@ public class DataManager
     public <T extends Parcelable> void putParcelableCollection(@NonNull final String key,
                                                                @NonNull final Collection<T> value) {
         if (value instanceof ArrayList) {
-            rawData.putParcelableArrayList(key, (ArrayList<T>) value);
+            rawData.putObject(key, value);
         } else {
-            rawData.putParcelableArrayList(key, new ArrayList<>(value));
+            rawData.putObject(key, new ArrayList<>(value));
         }
     }
 
@@ -651,7 +682,12 @@ public class DataManager
      */
     @Nullable
     public <T extends Parcelable> T getParcelable(@NonNull final String key) {
-        return rawData.getParcelable(key);
+        final Object value = rawData.get(key);
+        if (value instanceof Parcelable) {
+            //noinspection unchecked
+            return (T) value;
+        }
+        return null;
     }
 
     /**
@@ -665,7 +701,7 @@ public class DataManager
      */
     public <T extends Parcelable> void putParcelable(@NonNull final String key,
                                                      @NonNull final T value) {
-        rawData.putParcelable(key, value);
+        rawData.putObject(key, value);
     }
 
     /**
@@ -679,8 +715,12 @@ public class DataManager
     @SuppressWarnings("unused")
     @Nullable
     protected <T extends Serializable> T getSerializable(@NonNull final String key) {
-        //noinspection unchecked
-        return (T) rawData.getSerializable(key);
+        final Object value = rawData.get(key);
+        if (value instanceof Serializable) {
+            //noinspection unchecked
+            return (T) value;
+        }
+        return null;
     }
 
     /**
@@ -697,7 +737,7 @@ public class DataManager
                             "putSerializable|key=" + key
                             + "|type=" + value.getClass().getCanonicalName());
         }
-        rawData.putSerializable(key, value);
+        rawData.putObject(key, value);
     }
 
     /**
@@ -706,7 +746,7 @@ public class DataManager
      * @param key Key of data object
      */
     public void putNull(@NonNull final String key) {
-        rawData.putString(key, null);
+        rawData.putObject(key, null);
     }
 
     @Override
@@ -727,48 +767,22 @@ public class DataManager
         }
         final DataManager that = (DataManager) o;
 
-        return equalBundles(rawData, that.rawData);
+        return rawData.contentEquals(that.rawData);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(rawData);
+        return rawData.contentHashCode();
     }
 
-    private boolean equalBundles(@NonNull final Bundle b1,
-                                 @NonNull final Bundle b2) {
-
-        if (b1.size() != b2.size()) {
-            return false;
-        }
-
-        final Set<String> allKeys = new HashSet<>(b1.keySet());
-        allKeys.addAll(b2.keySet());
-
-        @Nullable
-        Object valueOne;
-        @Nullable
-        Object valueTwo;
-
-        for (final String key : allKeys) {
-            if (!b1.containsKey(key) || !b2.containsKey(key)) {
-                return false;
-            }
-
-            valueOne = b1.get(key);
-            valueTwo = b2.get(key);
-            if (valueOne instanceof Bundle && valueTwo instanceof Bundle
-                && !equalBundles((Bundle) valueOne, (Bundle) valueTwo)) {
-                return false;
-            } else if (valueOne == null) {
-                if (valueTwo != null) {
-                    return false;
-                }
-            } else if (!valueOne.equals(valueTwo)) {
-                return false;
-            }
-        }
-
-        return true;
+    /**
+     * Check if the value for the given key is stored as a primitive number or boolean.
+     *
+     * @param key Key of data object
+     *
+     * @return {@code true} if the value can be read without parsing
+     */
+    private boolean isPrimitive(@NonNull final String key) {
+        return rawData.getType(key) > FieldStore.TYPE_OBJECT;
     }
 }
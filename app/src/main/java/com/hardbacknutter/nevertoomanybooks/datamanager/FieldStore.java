@@ -0,0 +1,547 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.datamanager;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hardbacknutter.nevertoomanybooks.core.database.Domain;
+import com.hardbacknutter.nevertoomanybooks.database.DBDefinitions;
+
+/**
+ * Compact, typed storage for the key/value pairs of a {@link DataManager}.
+ * <p>
+ * Every key is mapped to a process-wide ordinal. The book table columns are
+ * registered first so they get the lowest (and contiguous) ordinals;
+ * any other key gets the next free ordinal the first time it is used.
+ * <p>
+ * Values are kept in dense parallel arrays:
+ * <ul>
+ *     <li>numeric and boolean values are stored as raw bits in a {@code long[]}
+ *         i.e. without boxing</li>
+ *     <li>Strings, lists, Parcelables, ... are stored in an {@code Object[]}</li>
+ * </ul>
+ * The original type of each value is remembered, so converting to/from
+ * a {@link Bundle} or {@link Parcel} is loss-less.
+ * <p>
+ * Not thread-safe; same as the {@link Bundle} it replaces.
+ */
+final class FieldStore {
+
+    static final byte TYPE_OBJECT = 0;
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_FLOAT = 3;
+    static final byte TYPE_DOUBLE = 4;
+    static final byte TYPE_BOOLEAN = 5;
+
+    /** Initial capacity; a fully loaded book has a little over 60 fields. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Key to ordinal. */
+    private static final Map<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+    /** The next free ordinal. */
+    private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+
+    static {
+        for (final Domain domain : DBDefinitions.TBL_BOOKS.getDomains()) {
+            ordinal(domain.getName());
+        }
+    }
+
+    /**
+     * Indexed by the key ordinal; the value is the slot index + 1.
+     * A {@code 0} means the key is not present.
+     */
+    @NonNull
+    private int[] slotByOrdinal = new int[0];
+
+    /** The ordinal of the key in each slot. */
+    @NonNull
+    private int[] ordinals = new int[INITIAL_CAPACITY];
+    @NonNull
+    private String[] keys = new String[INITIAL_CAPACITY];
+    @NonNull
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    @NonNull
+    private long[] bits = new long[INITIAL_CAPACITY];
+    @NonNull
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+
+    /** Number of slots in use. */
+    private int size;
+
+    /**
+     * Get the ordinal for the given key; registering it if needed.
+     *
+     * @param key to lookup
+     *
+     * @return ordinal
+     */
+    private static int ordinal(@NonNull final String key) {
+        final Integer ordinal = ORDINALS.get(key);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        return ORDINALS.computeIfAbsent(key, k -> NEXT_ORDINAL.getAndIncrement());
+    }
+
+    /**
+     * Get the slot for the given key.
+     *
+     * @param key to lookup
+     *
+     * @return the slot index, or {@code -1} if the key is not present
+     */
+    private int slotOf(@NonNull final String key) {
+        final Integer ordinal = ORDINALS.get(key);
+        if (ordinal == null || ordinal >= slotByOrdinal.length) {
+            return -1;
+        }
+        return slotByOrdinal[ordinal] - 1;
+    }
+
+    /**
+     * Get the slot for the given key; creating it if needed.
+     *
+     * @param key to lookup
+     *
+     * @return the slot index
+     */
+    private int slotFor(@NonNull final String key) {
+        final int ordinal = ordinal(key);
+        if (ordinal >= slotByOrdinal.length) {
+            slotByOrdinal = Arrays.copyOf(slotByOrdinal,
+                                          Math.max(NEXT_ORDINAL.get(), ordinal + 1));
+        }
+        final int slot = slotByOrdinal[ordinal] - 1;
+        if (slot >= 0) {
+            return slot;
+        }
+
+        if (size == keys.length) {
+            final int capacity = size * 2;
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        ordinals[size] = ordinal;
+        keys[size] = key;
+        slotByOrdinal[ordinal] = size + 1;
+        return size++;
+    }
+
+    private void putBits(@NonNull final String key,
+                         final byte type,
+                         final long value) {
+        final int slot = slotFor(key);
+        types[slot] = type;
+        bits[slot] = value;
+        objects[slot] = null;
+    }
+
+    void putInt(@NonNull final String key,
+                final int value) {
+        putBits(key, TYPE_INT, value);
+    }
+
+    void putLong(@NonNull final String key,
+                 final long value) {
+        putBits(key, TYPE_LONG, value);
+    }
+
+    void putFloat(@NonNull final String key,
+                  final float value) {
+        putBits(key, TYPE_FLOAT, Double.doubleToRawLongBits(value));
+    }
+
+    void putDouble(@NonNull final String key,
+                   final double value) {
+        putBits(key, TYPE_DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    void putBoolean(@NonNull final String key,
+                    final boolean value) {
+        putBits(key, TYPE_BOOLEAN, value ? 1 : 0);
+    }
+
+    /**
+     * Store a non-primitive value; a {@code null} is stored as-is.
+     *
+     * @param key   Key of data object
+     * @param value to store
+     */
+    void putObject(@NonNull final String key,
+                   @Nullable final Object value) {
+        final int slot = slotFor(key);
+        types[slot] = TYPE_OBJECT;
+        bits[slot] = 0;
+        objects[slot] = value;
+    }
+
+    boolean contains(@NonNull final String key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Get the type of the value stored for the given key.
+     *
+     * @param key Key of data object
+     *
+     * @return type, or {@code -1} if the key is not present
+     */
+    byte getType(@NonNull final String key) {
+        final int slot = slotOf(key);
+        return slot < 0 ? -1 : types[slot];
+    }
+
+    /**
+     * Get the value of a <strong>numeric or boolean</strong> entry as a long.
+     * The caller must have checked the type with {@link #getType(String)}.
+     *
+     * @param key Key of data object
+     *
+     * @return value
+     */
+    long getAsLong(@NonNull final String key) {
+        final int slot = slotOf(key);
+        switch (types[slot]) {
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+                return (long) Double.longBitsToDouble(bits[slot]);
+            default:
+                return bits[slot];
+        }
+    }
+
+    /**
+     * Get the value of a <strong>numeric or boolean</strong> entry as a double.
+     * The caller must have checked the type with {@link #getType(String)}.
+     *
+     * @param key Key of data object
+     *
+     * @return value
+     */
+    double getAsDouble(@NonNull final String key) {
+        final int slot = slotOf(key);
+        switch (types[slot]) {
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits[slot]);
+            default:
+                return bits[slot];
+        }
+    }
+
+    /**
+     * Get the (boxed if needed) value for the given key.
+     *
+     * @param key Key of data object
+     *
+     * @return value, or {@code null} if not present or the value is {@code null}
+     */
+    @Nullable
+    Object get(@NonNull final String key) {
+        final int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    @Nullable
+    private Object valueAt(final int slot) {
+        switch (types[slot]) {
+            case TYPE_INT:
+                return (int) bits[slot];
+            case TYPE_LONG:
+                return bits[slot];
+            case TYPE_FLOAT:
+                return (float) Double.longBitsToDouble(bits[slot]);
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits[slot]);
+            case TYPE_BOOLEAN:
+                return bits[slot] != 0;
+            default:
+                return objects[slot];
+        }
+    }
+
+    void remove(@NonNull final String key) {
+        final int slot = slotOf(key);
+        if (slot < 0) {
+            return;
+        }
+        slotByOrdinal[ordinals[slot]] = 0;
+
+        // move the last slot into the gap
+        final int last = size - 1;
+        if (slot != last) {
+            ordinals[slot] = ordinals[last];
+            keys[slot] = keys[last];
+            types[slot] = types[last];
+            bits[slot] = bits[last];
+            objects[slot] = objects[last];
+            slotByOrdinal[ordinals[slot]] = slot + 1;
+        }
+        keys[last] = null;
+        objects[last] = null;
+        size = last;
+    }
+
+    void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            slotByOrdinal[ordinals[slot]] = 0;
+            keys[slot] = null;
+            objects[slot] = null;
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @NonNull
+    Set<String> keySet() {
+        if (size == 0) {
+            return Collections.emptySet();
+        }
+        final Set<String> set = new LinkedHashSet<>(size);
+        Collections.addAll(set, Arrays.copyOf(keys, size));
+        return set;
+    }
+
+    /**
+     * Copy all values from the given store, replacing existing values.
+     * Objects are copied by reference; same as {@link Bundle#putAll(Bundle)}.
+     *
+     * @param src to copy from
+     */
+    void putAll(@NonNull final FieldStore src) {
+        for (int i = 0; i < src.size; i++) {
+            final int slot = slotFor(src.keys[i]);
+            types[slot] = src.types[i];
+            bits[slot] = src.bits[i];
+            objects[slot] = src.objects[i];
+        }
+    }
+
+    /**
+     * Load all values from the given Bundle, preserving their types.
+     *
+     * @param bundle to read from
+     */
+    void putAll(@NonNull final Bundle bundle) {
+        for (final String key : bundle.keySet()) {
+            final Object value = bundle.get(key);
+            if (value instanceof Integer) {
+                putInt(key, (int) value);
+            } else if (value instanceof Long) {
+                putLong(key, (long) value);
+            } else if (value instanceof Double) {
+                putDouble(key, (double) value);
+            } else if (value instanceof Float) {
+                putFloat(key, (float) value);
+            } else if (value instanceof Boolean) {
+                putBoolean(key, (boolean) value);
+            } else {
+                putObject(key, value);
+            }
+        }
+    }
+
+    /**
+     * Write all values to the given Bundle, preserving their types.
+     *
+     * @param bundle to write to
+     *
+     * @return the bundle, for chaining
+     */
+    @NonNull
+    Bundle toBundle(@NonNull final Bundle bundle) {
+        for (int slot = 0; slot < size; slot++) {
+            final String key = keys[slot];
+            switch (types[slot]) {
+                case TYPE_INT:
+                    bundle.putInt(key, (int) bits[slot]);
+                    break;
+                case TYPE_LONG:
+                    bundle.putLong(key, bits[slot]);
+                    break;
+                case TYPE_FLOAT:
+                    bundle.putFloat(key, (float) Double.longBitsToDouble(bits[slot]));
+                    break;
+                case TYPE_DOUBLE:
+                    bundle.putDouble(key, Double.longBitsToDouble(bits[slot]));
+                    break;
+                case TYPE_BOOLEAN:
+                    bundle.putBoolean(key, bits[slot] != 0);
+                    break;
+                default:
+                    putObject(bundle, key, objects[slot]);
+                    break;
+            }
+        }
+        return bundle;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void putObject(@NonNull final Bundle bundle,
+                                  @NonNull final String key,
+                                  @Nullable final Object value) {
+        if (value instanceof CharSequence) {
+            bundle.putCharSequence(key, (CharSequence) value);
+        } else if (value instanceof Parcelable) {
+            bundle.putParcelable(key, (Parcelable) value);
+        } else if (value instanceof Parcelable[]) {
+            bundle.putParcelableArray(key, (Parcelable[]) value);
+        } else if (value instanceof ArrayList) {
+            bundle.putParcelableArrayList(key, (ArrayList) value);
+        } else if (value instanceof Serializable) {
+            bundle.putSerializable(key, (Serializable) value);
+        } else {
+            // null, or a type a Bundle cannot hold anyhow
+            bundle.putString(key, null);
+        }
+    }
+
+    /**
+     * Write all values to the given Parcel.
+     *
+     * @param dest to write to
+     */
+    void writeToParcel(@NonNull final Parcel dest) {
+        dest.writeInt(size);
+        for (int slot = 0; slot < size; slot++) {
+            dest.writeString(keys[slot]);
+            dest.writeByte(types[slot]);
+            if (types[slot] == TYPE_OBJECT) {
+                dest.writeValue(objects[slot]);
+            } else {
+                dest.writeLong(bits[slot]);
+            }
+        }
+    }
+
+    /**
+     * Read all values from the given Parcel as written by {@link #writeToParcel(Parcel)}.
+     *
+     * @param in          to read from
+     * @param classLoader to use for reading Parcelable values
+     */
+    void readFromParcel(@NonNull final Parcel in,
+                        @Nullable final ClassLoader classLoader) {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            //noinspection DataFlowIssue
+            final int slot = slotFor(in.readString());
+            types[slot] = in.readByte();
+            if (types[slot] == TYPE_OBJECT) {
+                objects[slot] = in.readValue(classLoader);
+            } else {
+                bits[slot] = in.readLong();
+            }
+        }
+    }
+
+    /**
+     * Compare the content of two stores.
+     * <p>
+     * Values must be of the same type to be considered equal,
+     * which mirrors comparing the boxed values of a Bundle.
+     *
+     * @param that other store
+     *
+     * @return {@code true} if both contain the same keys with equal values
+     */
+    boolean contentEquals(@NonNull final FieldStore that) {
+        if (size != that.size) {
+            return false;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            final int other = that.slotOf(keys[slot]);
+            if (other < 0 || types[slot] != that.types[other]) {
+                return false;
+            }
+            if (types[slot] == TYPE_OBJECT) {
+                if (!Objects.equals(objects[slot], that.objects[other])) {
+                    return false;
+                }
+            } else if (bits[slot] != that.bits[other]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculate a hash code over the content; consistent with {@link #contentEquals}.
+     * <p>
+     * The slot order depends on the insertion order, so the per-slot hashes
+     * are summed, which does not depend on the order.
+     *
+     * @return hash code
+     */
+    int contentHashCode() {
+        int hash = 0;
+        for (int slot = 0; slot < size; slot++) {
+            final int valueHash;
+            if (types[slot] == TYPE_OBJECT) {
+                valueHash = Objects.hashCode(objects[slot]);
+            } else {
+                valueHash = 31 * types[slot] + Long.hashCode(bits[slot]);
+            }
+            hash += keys[slot].hashCode() ^ valueHash;
+        }
+        return hash;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("FieldStore{");
+        for (int slot = 0; slot < size; slot++) {
+            if (slot > 0) {
+                sb.append(", ");
+            }
+            sb.append(keys[slot]).append('=').append(valueAt(slot));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -230,7 +230,7 @@ public class Book
      * Constructor.
      */
     public Book() {
-        super(ServiceLocator.getInstance().newBundle());
+        super();
         stage = new EntityStage();
     }
 
@@ -270,10 +270,14 @@ public class Book
             throw new IllegalArgumentException(ERROR_INVALID_BOOK_ID);
         }
 
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
         final Book book = new Book();
-        try (Cursor bookCursor = ServiceLocator.getInstance().getBookDao().fetchById(bookId)) {
+        try (Cursor bookCursor = serviceLocator.getBookDao().fetchById(bookId)) {
             if (bookCursor.moveToFirst()) {
                 book.load(bookId, bookCursor);
+                // Take any booklist quick-actions which are not written yet into account.
+                // We can be called from the UI thread, so they are not flushed here.
+                serviceLocator.getPendingUpdatesDao().applyTo(book);
             }
         }
         return book;
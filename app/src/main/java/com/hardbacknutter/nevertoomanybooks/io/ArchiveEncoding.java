@@ -34,6 +34,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
@@ -287,6 +288,9 @@ public enum ArchiveEncoding
      * @param context      Current context
      * @param systemLocale to use for ISO date parsing
      * @param uri          to read from
+     * @param deltaUris    the differential archives to apply after the main {@code uri};
+     *                     in the order they were written.
+     *                     Only supported for {@link #Zip}; pass an empty list for all others.
      * @param updateOption options
      * @param recordTypes  the record types to accept and read
      *
@@ -304,6 +308,7 @@ public enum ArchiveEncoding
             @NonNull final Context context,
             @NonNull final Locale systemLocale,
             @NonNull final Uri uri,
+            @NonNull final List<Uri> deltaUris,
             @NonNull final DataReader.Updates updateOption,
             @NonNull final Set<RecordType> recordTypes)
             throws DataReaderException,
@@ -313,11 +318,15 @@ public enum ArchiveEncoding
         if (recordTypes.isEmpty()) {
             throw new IllegalArgumentException("no recordTypes set");
         }
+        if (this != Zip && !deltaUris.isEmpty()) {
+            throw new DataReaderException(context.getString(
+                    R.string.error_import_file_not_supported));
+        }
 
         final DataReader<ArchiveMetaData, ImportResults> reader;
         switch (this) {
             case Zip: {
-                reader = new ZipArchiveReader(context, systemLocale, uri,
+                reader = new ZipArchiveReader(context, systemLocale, uri, deltaUris,
                                               updateOption, recordTypes);
                 break;
             }
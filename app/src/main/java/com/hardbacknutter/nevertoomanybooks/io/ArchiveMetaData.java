@@ -57,6 +57,11 @@ public class ArchiveMetaData
     private static final String INFO_SDK = "SDK";
     /** Stores the database version. */
     private static final String INFO_DATABASE_VERSION = "DatabaseVersionCode";
+    /**
+     * Differential archives only: the SHA-256 hash of the archive this one is based on.
+     * i.e. the full archive, or the previous differential archive in the chain.
+     */
+    private static final String INFO_BASE_ARCHIVE_HASH = "BaseArchiveHash";
 
     /**
      * Constructor used while <strong>reading</strong> from an Archive.
@@ -158,6 +163,29 @@ public class ArchiveMetaData
         }
     }
 
+    /**
+     * Mark this archive as being a differential archive.
+     *
+     * @param hash the SHA-256 hash of the archive this one is based on
+     */
+    public void setBaseArchiveHash(@NonNull final String hash) {
+        getData().putString(INFO_BASE_ARCHIVE_HASH, hash);
+    }
+
+    /**
+     * Get the hash of the archive this one is based on.
+     *
+     * @return the SHA-256 hash; or an empty Optional if this is not a differential archive
+     */
+    @NonNull
+    public Optional<String> getBaseArchiveHash() {
+        final String hash = getData().getString(INFO_BASE_ARCHIVE_HASH);
+        if (hash == null || hash.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(hash);
+    }
+
     /**
      * Get the date from the creation-date field.
      *
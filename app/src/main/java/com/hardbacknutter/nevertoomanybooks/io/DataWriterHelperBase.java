@@ -23,6 +23,7 @@ import android.content.Context;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import java.io.IOException;
@@ -95,7 +96,8 @@ public abstract class DataWriterHelperBase<RESULTS> {
         return incremental;
     }
 
-    void setIncremental(final boolean incremental) {
+    @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
+    public void setIncremental(final boolean incremental) {
         this.incremental = incremental;
     }
 
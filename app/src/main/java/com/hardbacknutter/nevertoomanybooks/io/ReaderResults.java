@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.StringJoiner;
 
 import com.hardbacknutter.nevertoomanybooks.R;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 
 /**
  * Value class to report back what was read/imported.
@@ -82,6 +83,13 @@ public class ReaderResults
     /** # covers which explicitly failed. */
     public int coversFailed;
 
+    /** The total size in bits of the filters used to skip existence lookups. */
+    public int presenceFilterBits;
+    /** The highest expected false-positive rate of those filters. */
+    public double presenceFilterFpp;
+    /** #existence lookups which were skipped thanks to those filters. */
+    public int presenceLookupsSkipped;
+
     /**
      * Constructor.
      */
@@ -107,6 +115,10 @@ public class ReaderResults
         coversDeleted = in.readInt();
         coversSkipped = in.readInt();
         coversFailed = in.readInt();
+
+        presenceFilterBits = in.readInt();
+        presenceFilterFpp = in.readDouble();
+        presenceLookupsSkipped = in.readInt();
     }
 
     /**
@@ -128,6 +140,21 @@ public class ReaderResults
         coversDeleted += results.coversDeleted;
         coversSkipped += results.coversSkipped;
         coversFailed += results.coversFailed;
+
+        presenceFilterBits += results.presenceFilterBits;
+        presenceFilterFpp = Math.max(presenceFilterFpp, results.presenceFilterFpp);
+        presenceLookupsSkipped += results.presenceLookupsSkipped;
+    }
+
+    /**
+     * Add the statistics of a filter used to skip existence lookups.
+     * Should be called when the filter is no longer updated.
+     *
+     * @param filter to add
+     */
+    public void addPresenceFilter(@NonNull final BloomFilter filter) {
+        presenceFilterBits += filter.getBitSize();
+        presenceFilterFpp = Math.max(presenceFilterFpp, filter.getExpectedFpp());
     }
 
     /**
@@ -243,6 +270,10 @@ public class ReaderResults
         dest.writeInt(coversDeleted);
         dest.writeInt(coversSkipped);
         dest.writeInt(coversFailed);
+
+        dest.writeInt(presenceFilterBits);
+        dest.writeDouble(presenceFilterFpp);
+        dest.writeInt(presenceLookupsSkipped);
     }
 
     @Override
@@ -267,6 +298,10 @@ public class ReaderResults
                + ", coversDeleted=" + coversDeleted
                + ", coversSkipped=" + coversSkipped
                + ", coversFailed=" + coversFailed
+
+               + ", presenceFilterBits=" + presenceFilterBits
+               + ", presenceFilterFpp=" + presenceFilterFpp
+               + ", presenceLookupsSkipped=" + presenceLookupsSkipped
                + '}';
     }
 }
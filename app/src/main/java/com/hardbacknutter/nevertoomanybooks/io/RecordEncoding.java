@@ -31,10 +31,13 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
+import com.hardbacknutter.nevertoomanybooks.backup.bin.BinaryRecordReader;
+import com.hardbacknutter.nevertoomanybooks.backup.bin.BinaryRecordWriter;
 import com.hardbacknutter.nevertoomanybooks.backup.csv.CsvRecordReader;
 import com.hardbacknutter.nevertoomanybooks.backup.json.JsonRecordReader;
 import com.hardbacknutter.nevertoomanybooks.backup.json.JsonRecordWriter;
 import com.hardbacknutter.nevertoomanybooks.backup.xml.XmlRecordReader;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.util.logger.LoggerFactory;
 
 /**
@@ -44,6 +47,8 @@ public enum RecordEncoding {
     Xml(".xml", ".+\\.xml$"),
     Csv(".csv", ".+\\.csv$"),
     Json(".json", ".+\\.json$"),
+    /** Books only. The blocks are compressed, so don't compress it again in an archive. */
+    Binary(".nbin", ".+\\.nbin$"),
     Cover(".jpg", ".+\\.(?:jpg|png|jpeg)$");
 
     /** Log tag. */
@@ -122,6 +127,9 @@ public enum RecordEncoding {
             case Json: {
                 return new JsonRecordWriter(utcSinceDateTime);
             }
+            case Binary: {
+                return new BinaryRecordWriter(utcSinceDateTime, true);
+            }
             case Cover:
                 // Not useful, won't implement. It's just a File copy operation
             case Xml:
@@ -134,6 +142,26 @@ public enum RecordEncoding {
         throw new IllegalStateException(DataWriter.ERROR_NO_WRITER_AVAILABLE);
     }
 
+    /**
+     * Create a {@link RecordWriter} for this encoding which only writes the books
+     * and deleted-books changed after the given {@link BookChangesDao} sequence number.
+     *
+     * @param sinceSequence exclusive lower bound; must be {@code > 0}
+     *
+     * @return {@link RecordWriter}
+     *
+     * @throws IllegalStateException if there is no writer available (which would be a bug)
+     */
+    @NonNull
+    public RecordWriter createWriter(final long sinceSequence) {
+        if (this == Json) {
+            return new JsonRecordWriter(sinceSequence);
+        } else if (this == Binary) {
+            return new BinaryRecordWriter(sinceSequence, true);
+        }
+        throw new IllegalStateException(DataWriter.ERROR_NO_WRITER_AVAILABLE);
+    }
+
     /**
      * Create a {@link RecordReader} for this encoding.
      *
@@ -159,6 +187,10 @@ public enum RecordEncoding {
                 return Optional.of(new JsonRecordReader(systemLocale,
                                                         allowedTypes,
                                                         updateOption));
+            case Binary:
+                return Optional.of(new BinaryRecordReader(systemLocale,
+                                                          allowedTypes,
+                                                          updateOption));
             case Csv: {
                 return Optional.of(new CsvRecordReader(systemLocale,
                                                        updateOption));
@@ -119,6 +119,15 @@ public enum RecordType {
      */
     Books("books"),
 
+    /**
+     * The content hash of each {@link #Cover}; covers with identical content
+     * are only stored once in the archive.
+     * ONLY ONE PER ARCHIVE.
+     * <p>
+     * If written, it <strong>MUST</strong> precede the covers.
+     */
+    CoverIndex("coverindex"),
+
     /**
      * A <strong>Single</strong> cover.
      * MULTIPLE per archive.
@@ -24,9 +24,13 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
 
+import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 import com.hardbacknutter.nevertoomanybooks.backup.ExportResults;
@@ -84,6 +88,37 @@ public interface RecordWriter
             throws DataWriterException,
                    IOException;
 
+    /**
+     * Write a Set of {@link RecordType} records to a byte stream.
+     * <p>
+     * The default implementation writes the text using UTF-8.
+     * Binary encodings must override this method.
+     *
+     * @param context          Current context
+     * @param outputStream     Stream to write to; will be flushed but <strong>not</strong> closed
+     * @param recordTypes      The set of records which should be written.
+     * @param progressListener Progress and cancellation interface
+     *
+     * @return results summary
+     *
+     * @throws DataWriterException on a decoding/parsing of data issue
+     * @throws IOException         on generic/other IO failures
+     */
+    @WorkerThread
+    @NonNull
+    default ExportResults write(@NonNull final Context context,
+                                @NonNull final OutputStream outputStream,
+                                @NonNull final Set<RecordType> recordTypes,
+                                @NonNull final ProgressListener progressListener)
+            throws DataWriterException,
+                   IOException {
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        final ExportResults results = write(context, writer, recordTypes, progressListener);
+        writer.flush();
+        return results;
+    }
+
     /**
      * Override if the implementation needs to close something.
      */
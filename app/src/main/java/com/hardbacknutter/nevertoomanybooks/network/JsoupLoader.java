@@ -28,7 +28,12 @@ import androidx.annotation.WorkerThread;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
 import java.util.Map;
 import javax.net.ssl.SSLProtocolException;
 
@@ -63,6 +68,12 @@ public class JsoupLoader {
     /** {@code null} by default: for Jsoup to figure it out. */
     @Nullable
     private String charSetName;
+    /**
+     * The selectors used to parse the {@link #document} in streaming mode;
+     * or {@code null} if the document was parsed in full.
+     */
+    @Nullable
+    private JsoupSelectors docSelectors;
 
     /**
      * Constructor.
@@ -88,6 +99,7 @@ public class JsoupLoader {
      */
     public void reset() {
         document = null;
+        docSelectors = null;
     }
 
     /**
@@ -111,15 +123,48 @@ public class JsoupLoader {
                                  @NonNull final String url,
                                  @Nullable final Map<String, String> requestProperties)
             throws IOException {
+        return loadDocument(context, url, requestProperties, null);
+    }
+
+    /**
+     * Fetch the URL and parse it into {@link #document}.
+     * Will silently return if it has downloaded the document before,
+     * and the previous document was parsed in full or with the same selectors.
+     * Call {@link #reset()} before to force a clean/new download.
+     * <p>
+     * When {@code selectors} are given, the page is parsed in streaming mode
+     * and the download stops as soon as all selectors are satisfied.
+     * See {@link JsoupSelectors} for what this means for the returned document.
+     * If the character set is not known up front,
+     * or the selectors decline the final location, the page is parsed in full.
+     *
+     * @param context           Current context
+     * @param url               to fetch
+     * @param requestProperties optional
+     * @param selectors         optional; to parse the page in streaming mode
+     *
+     * @return the parsed Document
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @WorkerThread
+    @NonNull
+    public Document loadDocument(@NonNull final Context context,
+                                 @NonNull final String url,
+                                 @Nullable final Map<String, String> requestProperties,
+                                 @Nullable final JsoupSelectors selectors)
+            throws IOException {
 
         // are we requesting the same url again ?
-        if (document != null && url.equals(docRequestUrl)) {
+        if (document != null && url.equals(docRequestUrl)
+            && (docSelectors == null || docSelectors == selectors)) {
             // return the previously parsed doc
             return document;
         }
 
         // new download
         document = null;
+        docSelectors = null;
         docRequestUrl = url;
 
         // If the site drops connection, we retry once
@@ -144,7 +189,8 @@ public class JsoupLoader {
                     requestProperties.forEach(futureHttpGet::setRequestProperty);
                 }
 
-                document = futureHttpGet.get(docRequestUrl, this::processResponse);
+                document = futureHttpGet.get(docRequestUrl, (response, is) ->
+                        processResponse(response, is, selectors));
                 return document;
 
             } catch (@NonNull final SSLProtocolException | EOFException e) {
@@ -205,7 +251,8 @@ public class JsoupLoader {
 
     @NonNull
     private Document processResponse(@NonNull final HttpURLConnection response,
-                                     @NonNull final InputStream is)
+                                     @NonNull final InputStream is,
+                                     @Nullable final JsoupSelectors selectors)
             throws IOException {
         if (BuildConfig.DEBUG && DEBUG_SWITCHES.JSOUP) {
             LoggerFactory.getLogger()
@@ -246,17 +293,62 @@ public class JsoupLoader {
         However that is WRONG (org.jsoup:jsoup:1.11.3)
         It will NOT resolve the redirect itself and 'location' == 'baseUri'
         */
-        final Document parsedDocument = Jsoup.parse(is, charSetName, locationHeader);
+        final Document parsedDocument;
+        final Charset charset = selectors != null ? getCharset(response) : null;
+        if (charset != null && selectors.isStreamable(locationHeader)) {
+            // Any unread input is discarded when the connection is closed.
+            parsedDocument = selectors.parse(new InputStreamReader(is, charset),
+                                             locationHeader);
+            docSelectors = selectors;
+        } else {
+            parsedDocument = Jsoup.parse(is, charSetName, locationHeader);
+        }
         if (BuildConfig.DEBUG && DEBUG_SWITCHES.JSOUP) {
             LoggerFactory.getLogger()
                          .d(TAG, "loadDocument",
                             "AFTER parsing|document.location()="
-                            + parsedDocument.location());
+                            + parsedDocument.location()
+                            + "|docSelectors=" + docSelectors);
         }
 
         return parsedDocument;
     }
 
+    /**
+     * Get the character set for a streaming parse.
+     * <p>
+     * A full parse can sniff the {@code <meta>} tags, a streaming parse cannot.
+     * Hence we only use the override set by the engine, or the charset from the
+     * "Content-Type" response header.
+     *
+     * @param response to read the headers from
+     *
+     * @return the charset, or {@code null} if unknown
+     */
+    @Nullable
+    private Charset getCharset(@NonNull final HttpURLConnection response) {
+        String name = charSetName;
+        if (name == null) {
+            final String contentType = response.getContentType();
+            if (contentType != null) {
+                final int pos = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+                if (pos >= 0) {
+                    name = contentType.substring(pos + 8).split(";", 2)[0]
+                                      .replace("\"", "").trim();
+                }
+            }
+        }
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        try {
+            return Charset.forName(name);
+        } catch (@NonNull final IllegalCharsetNameException
+                                | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
     public void cancel() {
         synchronized (futureHttpGet) {
             futureHttpGet.cancel();
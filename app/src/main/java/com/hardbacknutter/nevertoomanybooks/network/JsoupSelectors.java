@@ -0,0 +1,139 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+/**
+ * A declarative set of CSS queries for which a page is parsed in streaming mode.
+ * <p>
+ * Instead of building the DOM for the entire page, the page is tokenised in a single pass
+ * and reading stops as soon as an element matching each of the queries has been completed.
+ * The resulting {@link Document} is a partial DOM, but every element up to and including
+ * the last wanted element is fully present. Hence calling {@link Element#selectFirst(String)}
+ * for one of the declared queries (or {@link Element#select(String)} <strong>inside</strong>
+ * a matched element) returns exactly what a full parse would have returned.
+ * <p>
+ * If one of the queries does not match, the page is simply read until the end.
+ * <p>
+ * Engines opt-in by passing an instance to
+ * {@link JsoupLoader#loadDocument(android.content.Context, String, java.util.Map,
+ * JsoupSelectors)}.
+ * Instances are immutable and should be kept as constants.
+ */
+public final class JsoupSelectors {
+
+    @NonNull
+    private final List<Evaluator> evaluators;
+    @NonNull
+    private final String queries;
+    @NonNull
+    private final Predicate<String> streamable;
+
+    /**
+     * Constructor.
+     *
+     * @param streamable tested with the final location (after any redirects) of the page;
+     *                   when it returns {@code false} the page is parsed in full
+     * @param queries    the CSS queries for all elements the engine will need
+     */
+    public JsoupSelectors(@NonNull final Predicate<String> streamable,
+                          @NonNull final String... queries) {
+        this.streamable = streamable;
+        this.queries = String.join(", ", queries);
+        evaluators = Arrays.stream(queries)
+                           .map(QueryParser::parse)
+                           .collect(Collectors.toList());
+    }
+
+    /**
+     * Check if a page from the given location can be parsed in streaming mode.
+     *
+     * @param location the final url of the page
+     *
+     * @return {@code true} if a partial document will suffice
+     */
+    public boolean isStreamable(@NonNull final String location) {
+        return streamable.test(location);
+    }
+
+    /**
+     * Parse the input until all queries are satisfied.
+     * <p>
+     * The reader is <strong>not</strong> closed. Any unread input is left for the caller
+     * to discard (i.e. by closing the connection).
+     *
+     * @param reader  to read from
+     * @param baseUri the final url of the page, used as the document location
+     *
+     * @return the partial document
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @NonNull
+    public Document parse(@NonNull final Reader reader,
+                          @NonNull final String baseUri)
+            throws IOException {
+        final List<Evaluator> pending = new ArrayList<>(evaluators);
+        final StreamParser parser = new StreamParser(Parser.htmlParser());
+        // The tokeniser needs mark() support
+        parser.parse(reader.markSupported() ? reader : new BufferedReader(reader), baseUri);
+        try {
+            // Elements are emitted when their end tag is seen,
+            // so a match found here is always complete.
+            final Iterator<Element> it = parser.iterator();
+            while (!pending.isEmpty() && it.hasNext()) {
+                final Element element = it.next();
+                pending.removeIf(element::is);
+            }
+            return parser.document();
+        } catch (@NonNull final UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            parser.stop();
+        }
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "JsoupSelectors{"
+               + "queries=`" + queries + '`'
+               + '}';
+    }
+}
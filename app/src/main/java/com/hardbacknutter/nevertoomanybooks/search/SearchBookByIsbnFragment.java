@@ -49,6 +49,7 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.zxing.Result;
 
 import java.util.List;
+import java.util.Map;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.R;
@@ -56,6 +57,7 @@ import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.EditBookCont
 import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.EditBookOutput;
 import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.GetContentUriForReadingContract;
 import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.ScannerContract;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.LiveDataEvent;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.core.widgets.ScreenSize;
 import com.hardbacknutter.nevertoomanybooks.core.widgets.insets.InsetsListenerBuilder;
@@ -64,6 +66,7 @@ import com.hardbacknutter.nevertoomanybooks.databinding.FragmentBooksearchByIsbn
 import com.hardbacknutter.nevertoomanybooks.dialogs.TipManager;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
 import com.hardbacknutter.nevertoomanybooks.searchengines.EngineId;
+import com.hardbacknutter.nevertoomanybooks.searchengines.SearchIsbnQueueTask;
 import com.hardbacknutter.nevertoomanybooks.utils.SoundManager;
 import com.hardbacknutter.tinyzxingwrapper.ScanOptions;
 import com.hardbacknutter.tinyzxingwrapper.scanner.BarcodeFamily;
@@ -179,6 +182,8 @@ public class SearchBookByIsbnFragment
         }
 
         vm.onScanQueueUpdate().observe(getViewLifecycleOwner(), this::onQueueUpdated);
+        vm.onQueueResolved().observe(getViewLifecycleOwner(), this::onQueueResolved);
+        vm.onQueueFinished().observe(getViewLifecycleOwner(), this::onQueueFinished);
 
         final Toolbar toolbar = getToolbar();
         toolbar.setTitle(R.string.lbl_search_isbn);
@@ -475,6 +480,22 @@ public class SearchBookByIsbnFragment
      * @param code to search for
      */
     private void prepareSearch(@NonNull final ISBN code) {
+        prepareSearch(code, null);
+    }
+
+    /**
+     * Prepare to search with ISBN or, if allowed, with a generic code.
+     * If successful, and the book was already found by the background lookup of the queue,
+     * {@link #onSearchResults(Book)} will be called as the next step;
+     * otherwise {@link #startSearch()}.
+     *
+     * @param code  to search for
+     * @param found the book found by the background lookup, or {@code null} if none
+     */
+    private void prepareSearch(@NonNull final ISBN code,
+                               @Nullable final Book found) {
+        final Runnable next = found != null ? () -> onSearchResults(found) : this::startSearch;
+
         coordinator.setIsbnSearchText(code.asText());
 
         // See if ISBN already exists in our database, if not then start the search.
@@ -485,7 +506,7 @@ public class SearchBookByIsbnFragment
             // bad/unexpected data - OpenLibrary being notorious...
             // If a user reports this crash, we'll have the ISBN to try and reproduce.
             ACRA.getErrorReporter().putCustomData(DBKey.BOOK_ISBN, code.asText());
-            startSearch();
+            next.run();
 
         } else {
             // always quit scanning until the user manually starts it again
@@ -512,7 +533,7 @@ public class SearchBookByIsbnFragment
                             -> editBookLauncher.launch(new EditBookContract
                             .Input(firstFound, vm.getStyle())))
                     // User wants to add regardless
-                    .setPositiveButton(R.string.action_add, (d, w) -> startSearch())
+                    .setPositiveButton(R.string.action_add, (d, w) -> next.run())
                     .create()
                     .show();
         }
@@ -567,19 +588,87 @@ public class SearchBookByIsbnFragment
             // RTL-friendly Chip Layout
             chip.setLayoutDirection(View.LAYOUT_DIRECTION_LOCALE);
             chip.setOnClickListener(v -> {
+                final SearchIsbnQueueTask.Resolution resolution =
+                        vm.getResolution((ISBN) v.getTag());
                 final ISBN clickedCode = removeFromQueue(v);
                 vb.isbn.setText(clickedCode.asText());
-                prepareSearch(clickedCode);
+                prepareSearch(clickedCode, resolution != null ? resolution.getBook() : null);
             });
             chip.setOnCloseIconClickListener(this::removeFromQueue);
             chip.setTag(code);
             chip.setText(code.asText());
+            setChipIcon(chip, vm.getResolution(code));
             vb.queue.addView(chip);
         });
 
         updateQueueViewsVisibility();
     }
 
+    private void onQueueResolved(
+            @NonNull final LiveDataEvent<Map<ISBN, SearchIsbnQueueTask.Resolution>> message) {
+        message.process(this::updateChipIcons);
+    }
+
+    private void onQueueFinished(
+            @NonNull final LiveDataEvent<Map<ISBN, SearchIsbnQueueTask.Resolution>> message) {
+        message.process(results -> {
+            updateChipIcons(results);
+            // Pick up any codes scanned while the task was finishing.
+            vm.resumeQueue();
+
+            if (!results.isEmpty()) {
+                final int[] count = new int[SearchIsbnQueueTask.Status.values().length];
+                results.values().forEach(r -> count[r.getStatus().ordinal()]++);
+                Snackbar.make(vb.getRoot(), getString(
+                                      R.string.info_scan_queue_resolved,
+                                      count[SearchIsbnQueueTask.Status.Found.ordinal()],
+                                      count[SearchIsbnQueueTask.Status.NotFound.ordinal()]
+                                      + count[SearchIsbnQueueTask.Status.Failed.ordinal()],
+                                      count[SearchIsbnQueueTask.Status.Duplicate.ordinal()]),
+                              Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void updateChipIcons(
+            @NonNull final Map<ISBN, SearchIsbnQueueTask.Resolution> results) {
+        for (int i = 0; i < vb.queue.getChildCount(); i++) {
+            final Chip chip = (Chip) vb.queue.getChildAt(i);
+            setChipIcon(chip, results.get((ISBN) chip.getTag()));
+        }
+    }
+
+    /**
+     * Show the background resolution status of the code on its chip.
+     *
+     * @param chip       to update
+     * @param resolution the status; {@code null} while the code has not been resolved
+     */
+    private void setChipIcon(@NonNull final Chip chip,
+                             @Nullable final SearchIsbnQueueTask.Resolution resolution) {
+        if (resolution == null) {
+            chip.setChipIcon(null);
+            return;
+        }
+
+        switch (resolution.getStatus()) {
+            case Found:
+                chip.setChipIconResource(R.drawable.check_24px);
+                break;
+            case NotFound:
+                chip.setChipIconResource(R.drawable.help_24px);
+                break;
+            case Duplicate:
+                chip.setChipIconResource(R.drawable.warning_24px);
+                break;
+            case Failed:
+            default:
+                chip.setChipIconResource(R.drawable.error_24px);
+                break;
+        }
+        chip.setChipIconVisible(true);
+    }
+
     @NonNull
     private ISBN removeFromQueue(@NonNull final View chip) {
         final ISBN code = (ISBN) chip.getTag();
@@ -613,6 +702,8 @@ public class SearchBookByIsbnFragment
         public void onPrepareMenu(@NonNull final Menu menu) {
             menu.findItem(R.id.MENU_ISBN_VALIDITY_STRICT)
                 .setChecked(coordinator.isStrictIsbn());
+            menu.findItem(R.id.MENU_SCAN_QUEUE_LOOKUP)
+                .setChecked(vm.isQueueLookup());
         }
 
         @Override
@@ -636,6 +727,14 @@ public class SearchBookByIsbnFragment
                                                  () -> openUriLauncher.launch(ANY_URI));
                 return true;
 
+            } else if (menuItemId == R.id.MENU_SCAN_QUEUE_LOOKUP) {
+                final boolean checked = !menuItem.isChecked();
+                vm.setQueueLookup(requireContext(), checked);
+                if (!checked) {
+                    updateChipIcons(Map.of());
+                }
+                return true;
+
             } else if (menuItemId == R.id.MENU_ISBN_VALIDITY_STRICT) {
                 final boolean checked = !menuItem.isChecked();
                 coordinator.setStrictIsbn(checked);
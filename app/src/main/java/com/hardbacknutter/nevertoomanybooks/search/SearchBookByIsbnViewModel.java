@@ -21,6 +21,7 @@ package com.hardbacknutter.nevertoomanybooks.search;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 
@@ -28,6 +29,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 import androidx.preference.PreferenceManager;
@@ -42,15 +44,18 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.activityresultcontracts.EditBookOutput;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.Style;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.LiveDataEvent;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StylesHelper;
+import com.hardbacknutter.nevertoomanybooks.searchengines.SearchIsbnQueueTask;
 
 public class SearchBookByIsbnViewModel
         extends ViewModel {
@@ -63,6 +68,8 @@ public class SearchBookByIsbnViewModel
 
     /** Storage key into preferences for the current queue. */
     private static final String PREF_SCAN_QUEUE = "scan.queue";
+    /** Storage key into preferences: look up the queued codes in the background. */
+    private static final String PREF_SCAN_QUEUE_LOOKUP = "scan.queue.lookup";
 
     private static final int BUFFER_SIZE = 65535;
 
@@ -70,6 +77,15 @@ public class SearchBookByIsbnViewModel
     private final List<ISBN> scanQueue = new ArrayList<>();
 
     private final MutableLiveData<List<ISBN>> scanQueueUpdate = new MutableLiveData<>();
+
+    /**
+     * Resolves the batch mode queue in the background while the user keeps scanning.
+     * Only used if the user opted in; see {@link #isQueueLookup()}.
+     */
+    private final SearchIsbnQueueTask queueTask = new SearchIsbnQueueTask();
+    /** Flag: the user opted in to the background lookup of the queue. */
+    private boolean queueLookup;
+
     @NonNull
     private final EditBookOutput resultData = new EditBookOutput();
     /** Database Access. */
@@ -83,6 +99,12 @@ public class SearchBookByIsbnViewModel
     /** Only start the scanner automatically upon the very first start of the fragment. */
     private boolean firstStart = true;
 
+    @Override
+    protected void onCleared() {
+        queueTask.cancel();
+        super.onCleared();
+    }
+
     @NonNull
     Intent createResultIntent() {
         return resultData.createResultIntent();
@@ -105,13 +127,17 @@ public class SearchBookByIsbnViewModel
         if (bookDao == null) {
             bookDao = ServiceLocator.getInstance().getBookDao();
 
-            final String qs = PreferenceManager.getDefaultSharedPreferences(context)
-                                               .getString(PREF_SCAN_QUEUE, "");
+            final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            final String qs = prefs.getString(PREF_SCAN_QUEUE, "");
             scanQueue.addAll(Arrays.stream(qs.split(","))
                                    .distinct()
                                    .filter(s -> !s.isBlank())
                                    .map(s -> new ISBN(s, strictIsbn))
                                    .collect(Collectors.toList()));
+            queueLookup = prefs.getBoolean(PREF_SCAN_QUEUE_LOOKUP, false);
+            if (queueLookup) {
+                scanQueue.forEach(queueTask::add);
+            }
 
             if (args != null) {
                 final Scanning scanning = args.getParcelable(BKEY_SCANNER_MODE);
@@ -160,8 +186,78 @@ public class SearchBookByIsbnViewModel
         return scanQueueUpdate;
     }
 
+    /**
+     * Observable to receive the background resolution results for the queue so far.
+     *
+     * @return all results so far
+     */
+    @NonNull
+    LiveData<LiveDataEvent<Map<ISBN, SearchIsbnQueueTask.Resolution>>> onQueueResolved() {
+        return queueTask.onResolved();
+    }
+
+    /**
+     * Observable to receive the end of the background resolution of the queue.
+     * The observer <strong>must</strong> call {@link #resumeQueue()}.
+     *
+     * @return all results
+     */
+    @NonNull
+    LiveData<LiveDataEvent<Map<ISBN, SearchIsbnQueueTask.Resolution>>> onQueueFinished() {
+        return queueTask.onFinished();
+    }
+
+    /**
+     * Check if the queued codes are looked up in the background.
+     *
+     * @return flag
+     */
+    boolean isQueueLookup() {
+        return queueLookup;
+    }
+
+    /**
+     * Enable or disable the background lookup of the queued codes.
+     * Enabling starts the lookup for the current queue;
+     * disabling cancels it, and forgets all results.
+     *
+     * @param context Current context
+     * @param enable  flag
+     */
+    void setQueueLookup(@NonNull final Context context,
+                        final boolean enable) {
+        queueLookup = enable;
+        PreferenceManager.getDefaultSharedPreferences(context)
+                         .edit().putBoolean(PREF_SCAN_QUEUE_LOOKUP, enable).apply();
+        if (enable) {
+            scanQueue.forEach(queueTask::add);
+        } else {
+            queueTask.clear();
+        }
+    }
+
+    /**
+     * Restart the background resolution for any codes queued while it was finishing.
+     */
+    void resumeQueue() {
+        queueTask.start();
+    }
+
+    /**
+     * Get the background resolution result for the given code.
+     *
+     * @param code to get
+     *
+     * @return the result, or {@code null} if not resolved (yet)
+     */
+    @Nullable
+    SearchIsbnQueueTask.Resolution getResolution(@NonNull final ISBN code) {
+        return queueTask.get(code);
+    }
+
     void clearQueue(@NonNull final Context context) {
         scanQueue.clear();
+        queueTask.clear();
         PreferenceManager.getDefaultSharedPreferences(context)
                          .edit().remove(PREF_SCAN_QUEUE).apply();
         scanQueueUpdate.setValue(scanQueue);
@@ -174,6 +270,9 @@ public class SearchBookByIsbnViewModel
             // don't trigger scanQueueUpdate here as we're scanning in a loop
             scanQueue.add(code);
             storeQueue(context);
+            if (queueLookup) {
+                queueTask.add(code);
+            }
         }
     }
 
@@ -182,6 +281,7 @@ public class SearchBookByIsbnViewModel
         // don't trigger scanQueueUpdate here as we're updating the queue views manually
         scanQueue.remove(code);
         storeQueue(context);
+        queueTask.remove(code);
     }
 
 
@@ -208,14 +308,17 @@ public class SearchBookByIsbnViewModel
                 try (Reader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
                      BufferedReader reader = new BufferedReader(isr, BUFFER_SIZE)) {
 
-                    scanQueue.addAll(
-                            reader.lines()
-                                  .distinct()
-                                  .filter(s -> !s.isBlank())
-                                  .map(s -> new ISBN(s, strictIsbn))
-                                  .filter(isbn -> isbn.isValid(strictIsbn))
-                                  .filter(isbn -> !scanQueue.contains(isbn))
-                                  .collect(Collectors.toList()));
+                    final List<ISBN> codes = reader.lines()
+                                                   .distinct()
+                                                   .filter(s -> !s.isBlank())
+                                                   .map(s -> new ISBN(s, strictIsbn))
+                                                   .filter(isbn -> isbn.isValid(strictIsbn))
+                                                   .filter(isbn -> !scanQueue.contains(isbn))
+                                                   .collect(Collectors.toList());
+                    scanQueue.addAll(codes);
+                    if (queueLookup) {
+                        codes.forEach(queueTask::add);
+                    }
 
                     storeQueue(context);
                     scanQueueUpdate.setValue(scanQueue);
@@ -244,6 +347,7 @@ public class SearchBookByIsbnViewModel
         // If we're starting a new scan, clear the queue.
         if (this.scanning != Scanning.Off) {
             scanQueue.clear();
+            queueTask.clear();
         }
         scanQueueUpdate.setValue(scanQueue);
     }
@@ -32,6 +32,7 @@ import java.util.Map;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
 import com.hardbacknutter.nevertoomanybooks.network.JsoupLoader;
+import com.hardbacknutter.nevertoomanybooks.network.JsoupSelectors;
 
 import org.jsoup.nodes.Document;
 
@@ -96,12 +97,38 @@ public abstract class JsoupSearchEngineBase
                                  @NonNull final String url,
                                  @Nullable final Map<String, String> requestProperties)
             throws SearchException, CredentialsException {
+        return loadDocument(context, url, requestProperties, null);
+    }
+
+    /**
+     * Load the url into a parsed {@link org.jsoup.nodes.Document},
+     * optionally in streaming mode.
+     *
+     * @param context           Current context
+     * @param url               to load
+     * @param requestProperties optional
+     * @param selectors         optional; the elements the engine will use from the page.
+     *                          When set, the returned document can be incomplete;
+     *                          see {@link JsoupSelectors}
+     *
+     * @return the document
+     *
+     * @throws SearchException      on generic exceptions (wrapped) during search
+     * @throws CredentialsException on authentication/login failures
+     */
+    @WorkerThread
+    @NonNull
+    public Document loadDocument(@NonNull final Context context,
+                                 @NonNull final String url,
+                                 @Nullable final Map<String, String> requestProperties,
+                                 @Nullable final JsoupSelectors selectors)
+            throws SearchException, CredentialsException {
         try {
             if (jsoupLoader == null) {
                 jsoupLoader = new JsoupLoader(createFutureGetRequest(context));
                 jsoupLoader.setCharSetName(charSetName);
             }
-            return jsoupLoader.loadDocument(context, url, requestProperties);
+            return jsoupLoader.loadDocument(context, url, requestProperties, selectors);
 
         } catch (@NonNull final IOException e) {
             throw new SearchException(getEngineId(), e);
@@ -22,18 +22,30 @@ package com.hardbacknutter.nevertoomanybooks.searchengines;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
-import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
 import com.hardbacknutter.nevertoomanybooks.core.network.NetworkUnavailableException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.LiveDataEvent;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.MTask;
 import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
 import com.hardbacknutter.util.logger.LoggerFactory;
@@ -41,13 +53,24 @@ import com.hardbacknutter.util.logger.LoggerFactory;
 /**
  * Fetch alternative edition isbn numbers.
  * <p>
- * The sites are contacted one by one, in the order as set in user preferences.
+ * All sites are contacted concurrently; each engine still uses its own throttler.
+ * The editions found so far are published with {@link #onEditionsFound()}
+ * as each site replies, so the caller can start fetching covers
+ * without waiting for the slowest site.
+ * A site which does not reply within twice its connect and read timeouts
+ * is cancelled and ignored.
  */
 public class SearchEditionsTask
         extends MTask<Collection<AltEdition>> {
 
     /** Log tag. */
     private static final String TAG = "SearchEditionsTask";
+    /** How often we check for the user cancelling us while waiting for the sites. */
+    private static final long CANCEL_CHECK_MS = 250;
+
+    private final MutableLiveData<LiveDataEvent<Collection<AltEdition>>> onEditionsFound =
+            new MutableLiveData<>();
+
     /** the book to look up. */
     private String validIsbn;
 
@@ -75,6 +98,20 @@ public class SearchEditionsTask
         execute();
     }
 
+    /**
+     * Observable to receive the editions found so far while the task is running.
+     * <p>
+     * Each event contains <strong>all</strong> editions found so far and not just the
+     * new ones, as intermediate values can be dropped by {@link LiveData}.
+     * The final list is delivered as usual with {@link #onFinished()}.
+     *
+     * @return a snapshot of the editions found so far
+     */
+    @NonNull
+    public LiveData<LiveDataEvent<Collection<AltEdition>>> onEditionsFound() {
+        return onEditionsFound;
+    }
+
     @NonNull
     @Override
     @WorkerThread
@@ -92,30 +129,141 @@ public class SearchEditionsTask
             throw new NetworkUnavailableException(this.getClass().getName());
         }
 
-        Site.Type.AltEditions
-                .getSites()
-                .stream()
-                .filter(Site::isActive)
-                .map(site -> site.getEngineId().createSearchEngine(context))
-                .map(se -> ((SearchEngine.AlternativeEditions<? extends AltEdition>) se))
-                .forEach(searchEngine -> {
-                    searchEngine.setCaller(this);
-                    try {
-                        // can we reach the site ?
-                        searchEngine.ping(context);
-                        // search for and add the editions
-                        editions.addAll(searchEngine.searchAlternativeEditions(context, validIsbn));
-
-                    } catch (@NonNull final IOException
-                                            | CredentialsException
-                                            | SearchException
-                                            | RuntimeException e) {
-                        // Silently ignore individual failures,
-                        // we'll return what we get from the sites that worked.
-                        LoggerFactory.getLogger().e(TAG, e, "searchEngine="
-                                                            + searchEngine.getName(context));
+        // Let the caller start on the original isbn while we search.
+        publishEditions(editions);
+
+        final List<SearchEngine.AlternativeEditions<? extends AltEdition>> searchEngines =
+                Site.Type.AltEditions
+                        .getSites()
+                        .stream()
+                        .filter(Site::isActive)
+                        .map(site -> site.getEngineId().createSearchEngine(context))
+                        .map(se -> (SearchEngine.AlternativeEditions<? extends AltEdition>) se)
+                        .collect(Collectors.toList());
+
+        final CompletionService<List<? extends AltEdition>> completionService =
+                new ExecutorCompletionService<>(ASyncExecutor.SERVICE);
+        final List<PendingSearch> pending = new ArrayList<>();
+        try {
+            for (final SearchEngine.AlternativeEditions<? extends AltEdition> searchEngine
+                    : searchEngines) {
+                searchEngine.setCaller(this);
+                final long deadline = System.currentTimeMillis()
+                                      + getTimeoutInMs(context, searchEngine);
+                pending.add(new PendingSearch(searchEngine, deadline, completionService.submit(
+                        () -> {
+                            // can we reach the site ?
+                            searchEngine.ping(context);
+                            // search for the editions
+                            return searchEngine.searchAlternativeEditions(context, validIsbn);
+                        })));
+            }
+
+            while (!pending.isEmpty() && !isCancelled()) {
+                final long now = System.currentTimeMillis();
+                final long wait = pending.stream()
+                                         .mapToLong(search -> search.deadline - now)
+                                         .min()
+                                         .orElse(0);
+                final Future<List<? extends AltEdition>> future = completionService.poll(
+                        Math.max(0, Math.min(wait, CANCEL_CHECK_MS)), TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    final PendingSearch search = remove(pending, future);
+                    // A cancelled (timed out) search is no longer pending
+                    if (search != null) {
+                        try {
+                            if (editions.addAll(future.get())) {
+                                publishEditions(editions);
+                            }
+                        } catch (@NonNull final ExecutionException e) {
+                            // Silently ignore individual failures,
+                            // we'll return what we get from the sites that worked.
+                            LoggerFactory.getLogger().e(TAG, e.getCause(), "searchEngine="
+                                                        + search.searchEngine.getName(context));
+                        }
                     }
-                });
+                } else {
+                    cancelExpired(context, pending);
+                }
+            }
+        } catch (@NonNull final InterruptedException e) {
+            // we're being shut down; return what we have
+            Thread.currentThread().interrupt();
+        } finally {
+            // Only non-empty if we were cancelled or interrupted
+            pending.forEach(PendingSearch::cancel);
+        }
         return editions;
     }
+
+    /**
+     * Get the time we allow a site to ping and search.
+     *
+     * @param context      Current context
+     * @param searchEngine to use
+     *
+     * @return milli seconds
+     */
+    private long getTimeoutInMs(@NonNull final Context context,
+                                @NonNull final SearchEngine searchEngine) {
+        final SearchEngineConfig config = searchEngine.getEngineId().getConfig();
+        // The ping and at least one search request.
+        return 2L * (config.getConnectTimeoutInMs(context) + config.getReadTimeoutInMs(context));
+    }
+
+    @WorkerThread
+    private void publishEditions(@NonNull final Collection<AltEdition> editions) {
+        onEditionsFound.postValue(LiveDataEvent.of(new ArrayList<>(editions)));
+    }
+
+    @Nullable
+    private static PendingSearch remove(@NonNull final List<PendingSearch> pending,
+                                        @NonNull final Future<?> future) {
+        final Iterator<PendingSearch> it = pending.iterator();
+        while (it.hasNext()) {
+            final PendingSearch search = it.next();
+            if (search.future == future) {
+                it.remove();
+                return search;
+            }
+        }
+        return null;
+    }
+
+    private static void cancelExpired(@NonNull final Context context,
+                                      @NonNull final List<PendingSearch> pending) {
+        final long now = System.currentTimeMillis();
+        final Iterator<PendingSearch> it = pending.iterator();
+        while (it.hasNext()) {
+            final PendingSearch search = it.next();
+            if (search.deadline <= now) {
+                it.remove();
+                search.cancel();
+                LoggerFactory.getLogger().w(TAG, "Timeout, searchEngine="
+                                                 + search.searchEngine.getName(context));
+            }
+        }
+    }
+
+    private static class PendingSearch {
+
+        @NonNull
+        final SearchEngine searchEngine;
+        final long deadline;
+        @NonNull
+        final Future<List<? extends AltEdition>> future;
+
+        PendingSearch(@NonNull final SearchEngine searchEngine,
+                      final long deadline,
+                      @NonNull final Future<List<? extends AltEdition>> future) {
+            this.searchEngine = searchEngine;
+            this.deadline = deadline;
+            this.future = future;
+        }
+
+        void cancel() {
+            searchEngine.cancel();
+            future.cancel(true);
+        }
+    }
 }
@@ -0,0 +1,551 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.searchengines;
+
+import android.content.Context;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+import androidx.core.util.Pair;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.hardbacknutter.nevertoomanybooks.R;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+import com.hardbacknutter.nevertoomanybooks.core.network.CredentialsException;
+import com.hardbacknutter.nevertoomanybooks.core.network.NetworkUnavailableException;
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.LiveDataEvent;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.MTask;
+import com.hardbacknutter.nevertoomanybooks.core.utils.ISBN;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.util.logger.LoggerFactory;
+
+/**
+ * Resolves a queue of scanned ISBN codes in the background.
+ * <p>
+ * Codes can be added at any time with {@link #add(ISBN)}; the task runs until the
+ * queue is empty. Up to {@link #MAX_PARALLEL} codes are resolved concurrently.
+ * Each code is searched on all active {@link Site.Type#Data} sites in the user's order;
+ * as all codes use the same engine classes, each site's static throttler
+ * limits the combined requests to that site.
+ * <p>
+ * Codes for which a book already exists in the database are not searched but
+ * reported as {@link Status#Duplicate}. New codes are checked for this in bulk,
+ * so importing a list of thousands of codes costs a single query.
+ * <p>
+ * This is a triage of the queue only: at most {@link #MAX_CODES} codes are accepted,
+ * and covers are not downloaded. The book found is kept with its {@link Resolution},
+ * so when the user reviews a code the book can be edited without searching again.
+ */
+public class SearchIsbnQueueTask
+        extends MTask<Map<ISBN, SearchIsbnQueueTask.Resolution>> {
+
+    /** Log tag. */
+    private static final String TAG = "SearchIsbnQueueTask";
+    /** The number of codes we resolve at the same time. */
+    private static final int MAX_PARALLEL = 3;
+    /**
+     * The maximum number of codes accepted until the queue is cleared.
+     * Each code costs a request to every active site.
+     */
+    private static final int MAX_CODES = 50;
+    /** How often we check for the user cancelling us while waiting for the sites. */
+    private static final long CANCEL_CHECK_MS = 250;
+
+    private final MutableLiveData<LiveDataEvent<Map<ISBN, Resolution>>> onResolved =
+            new MutableLiveData<>();
+
+    /**
+     * Guards {@link #unchecked}, {@link #checking}, {@link #pending}, {@link #running}
+     * and {@link #results}.
+     */
+    private final Object lock = new Object();
+    /** The codes not yet checked for being a duplicate. */
+    private final List<ISBN> unchecked = new ArrayList<>();
+    /** The codes being checked for being a duplicate. */
+    private final List<ISBN> checking = new ArrayList<>();
+    /** The codes waiting to be resolved. */
+    private final Deque<ISBN> pending = new ArrayDeque<>();
+    /** The codes being resolved. */
+    private final Map<ISBN, Future<Resolution>> running = new HashMap<>();
+    /** All codes resolved so far, in order of completion. */
+    private final Map<ISBN, Resolution> results = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public SearchIsbnQueueTask() {
+        super(R.id.TASK_ID_SEARCH_ISBN_QUEUE, TAG);
+    }
+
+    /**
+     * Add a code to the queue and start the task if needed.
+     * Codes already queued or resolved are ignored.
+     *
+     * @param code to resolve
+     *
+     * @return {@code false} if the code was not accepted as the maximum
+     *         number of codes was reached
+     */
+    @UiThread
+    public boolean add(@NonNull final ISBN code) {
+        synchronized (lock) {
+            if (unchecked.contains(code) || checking.contains(code)
+                || pending.contains(code) || running.containsKey(code)
+                || results.containsKey(code)) {
+                return true;
+            }
+            if (unchecked.size() + checking.size() + pending.size() + running.size()
+                + results.size() >= MAX_CODES) {
+                return false;
+            }
+            unchecked.add(code);
+        }
+        start();
+        return true;
+    }
+
+    /**
+     * (Re)start the task if there are codes waiting and it's not running.
+     * <p>
+     * Must be called from the {@link #onFinished()} observer, as codes added
+     * while the task was finishing would otherwise not be resolved.
+     */
+    @UiThread
+    public void start() {
+        final boolean hasPending;
+        synchronized (lock) {
+            hasPending = !unchecked.isEmpty() || !pending.isEmpty();
+        }
+        if (hasPending && !isActive() && !isCancelled()) {
+            execute();
+        }
+    }
+
+    /**
+     * Remove a code from the queue, and forget its result.
+     * A search already running for the code is cancelled, and its result dropped.
+     *
+     * @param code to remove
+     */
+    @AnyThread
+    public void remove(@NonNull final ISBN code) {
+        synchronized (lock) {
+            unchecked.remove(code);
+            checking.remove(code);
+            pending.remove(code);
+            final Future<Resolution> future = running.remove(code);
+            if (future != null) {
+                future.cancel(true);
+            }
+            results.remove(code);
+        }
+    }
+
+    /**
+     * Remove all codes from the queue, and forget all results.
+     * Searches already running are cancelled, and their results dropped.
+     */
+    @AnyThread
+    public void clear() {
+        synchronized (lock) {
+            unchecked.clear();
+            checking.clear();
+            pending.clear();
+            running.values().forEach(future -> future.cancel(true));
+            running.clear();
+            results.clear();
+        }
+    }
+
+    /**
+     * Get the result for the given code.
+     *
+     * @param code to get
+     *
+     * @return result, or {@code null} if not resolved (yet)
+     */
+    @AnyThread
+    @Nullable
+    public Resolution get(@NonNull final ISBN code) {
+        synchronized (lock) {
+            return results.get(code);
+        }
+    }
+
+    /**
+     * Observable to receive the results so far while the task is running.
+     * <p>
+     * Each event contains <strong>all</strong> results so far and not just the
+     * new one, as intermediate values can be dropped by {@link LiveData}.
+     *
+     * @return a snapshot of the results
+     */
+    @NonNull
+    public LiveData<LiveDataEvent<Map<ISBN, Resolution>>> onResolved() {
+        return onResolved;
+    }
+
+    @NonNull
+    @Override
+    @WorkerThread
+    protected Map<ISBN, Resolution> doWork()
+            throws NetworkUnavailableException {
+        final Context context = ServiceLocator.getInstance().getLocalizedAppContext();
+        final BookDao bookDao = ServiceLocator.getInstance().getBookDao();
+
+        if (!ServiceLocator.getInstance().getNetworkChecker().isNetworkAvailable()) {
+            throw new NetworkUnavailableException(this.getClass().getName());
+        }
+
+        final List<Site> sites = Site.Type.Data
+                .getSites()
+                .stream()
+                .filter(Site::isActive)
+                .filter(site -> site.getEngineId().supports(SearchEngine.SearchBy.Isbn))
+                .collect(Collectors.toList());
+
+        final CompletionService<Resolution> completionService =
+                new ExecutorCompletionService<>(ASyncExecutor.SERVICE);
+        // The submitted searches, including the ones cancelled by the user
+        // which the completion service will still return.
+        int submitted = 0;
+        try {
+            while (!isCancelled()) {
+                checkDuplicates(bookDao);
+
+                synchronized (lock) {
+                    while (running.size() < MAX_PARALLEL && !pending.isEmpty()) {
+                        final ISBN code = pending.poll();
+                        running.put(code, completionService.submit(
+                                () -> resolve(context, sites, code)));
+                        submitted++;
+                    }
+                }
+                if (submitted == 0) {
+                    break;
+                }
+
+                final Future<Resolution> future = completionService.poll(
+                        CANCEL_CHECK_MS, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    submitted--;
+                    if (!future.isCancelled()) {
+                        try {
+                            onResolved(future, future.get());
+                        } catch (@NonNull final ExecutionException e) {
+                            // resolve() handles its own failures; this should never happen
+                            LoggerFactory.getLogger().e(TAG, e.getCause());
+                        }
+                    }
+                }
+            }
+        } catch (@NonNull final InterruptedException e) {
+            // we're being shut down; return what we have
+            Thread.currentThread().interrupt();
+        } finally {
+            // Only non-empty if we were cancelled or interrupted
+            synchronized (lock) {
+                running.values().forEach(future -> future.cancel(true));
+                running.clear();
+            }
+        }
+
+        synchronized (lock) {
+            return new LinkedHashMap<>(results);
+        }
+    }
+
+    /**
+     * Store the result of a finished search.
+     * The result is dropped if the user removed the code while it was being searched.
+     *
+     * @param future     the finished search
+     * @param resolution its result
+     */
+    @WorkerThread
+    private void onResolved(@NonNull final Future<Resolution> future,
+                            @NonNull final Resolution resolution) {
+        final ISBN code = resolution.getCode();
+        synchronized (lock) {
+            // The same code might have been removed, and added again.
+            if (running.get(code) != future) {
+                return;
+            }
+            running.remove(code);
+            results.put(code, resolution);
+        }
+        publishResults();
+    }
+
+    /**
+     * Check all new codes for being a duplicate with a single query.
+     * Duplicates are added to the results, all others are queued for searching.
+     *
+     * @param bookDao Database Access
+     */
+    @WorkerThread
+    private void checkDuplicates(@NonNull final BookDao bookDao) {
+        final List<ISBN> codes;
+        synchronized (lock) {
+            if (unchecked.isEmpty()) {
+                return;
+            }
+            checking.addAll(unchecked);
+            unchecked.clear();
+            codes = new ArrayList<>(checking);
+        }
+
+        final Map<ISBN, List<Pair<Long, String>>> existing =
+                bookDao.getBookIdAndTitleByIsbn(codes);
+
+        synchronized (lock) {
+            // Codes removed by the user while we were checking are no longer in the list
+            for (final ISBN code : checking) {
+                final List<Pair<Long, String>> books = existing.get(code);
+                if (books == null) {
+                    pending.add(code);
+                } else {
+                    results.put(code, new Resolution(code, Status.Duplicate,
+                                                     books.get(0).second));
+                }
+            }
+            checking.clear();
+        }
+
+        if (!existing.isEmpty()) {
+            publishResults();
+        }
+    }
+
+    @WorkerThread
+    private void publishResults() {
+        synchronized (lock) {
+            onResolved.postValue(LiveDataEvent.of(new LinkedHashMap<>(results)));
+        }
+    }
+
+    /**
+     * Resolve a single code.
+     *
+     * @param context Current context
+     * @param sites   to search
+     * @param code    to resolve
+     *
+     * @return the result, never {@code null}
+     */
+    @WorkerThread
+    @NonNull
+    private Resolution resolve(@NonNull final Context context,
+                               @NonNull final List<Site> sites,
+                               @NonNull final ISBN code) {
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        // Covers are only downloaded when the user reviews the code.
+        final boolean[] fetchCovers = {false, false};
+        final boolean strictIsbn = code.isValid(true);
+
+        // Sites which returned the isbn we searched for come first
+        final List<Pair<Locale, Book>> matching = new ArrayList<>();
+        final List<Pair<Locale, Book>> others = new ArrayList<>();
+        int searched = 0;
+        int failed = 0;
+        for (final Site site : sites) {
+            if (isCancelled()) {
+                break;
+            }
+            final SearchEngine searchEngine = site.getEngineId().createSearchEngine(context);
+            if (!strictIsbn && !(searchEngine instanceof SearchEngine.ByBarcode)) {
+                continue;
+            }
+            searchEngine.setCaller(this);
+            searched++;
+            try {
+                final Book book = search(context, searchEngine, code, strictIsbn, fetchCovers);
+                if (!book.isEmpty()) {
+                    final Pair<Locale, Book> result =
+                            new Pair<>(searchEngine.getLocale(context), book);
+                    final String isbnFound = book.getString(DBKey.BOOK_ISBN, null);
+                    if (isbnFound != null && code.equals(new ISBN(isbnFound, strictIsbn))) {
+                        matching.add(result);
+                    } else {
+                        others.add(result);
+                    }
+                }
+            } catch (@NonNull final SearchException | CredentialsException | StorageException
+                                    | RuntimeException e) {
+                failed++;
+                LoggerFactory.getLogger().w(TAG, "resolve|code=" + code.asText()
+                                                 + "|site=" + searchEngine.getName(context)
+                                                 + "|e=" + e.getMessage());
+            }
+        }
+
+        matching.addAll(others);
+        if (matching.isEmpty()) {
+            return new Resolution(code, searched > 0 && failed == searched
+                                        ? Status.Failed : Status.NotFound, null);
+        }
+
+        final Book book = new Book();
+        final Locale systemLocale = serviceLocator.getSystemLocaleList().get(0);
+        new ResultsAccumulator(context, systemLocale, serviceLocator::getLanguages)
+                .process(context, matching, book);
+        // Always use the code we searched for
+        book.putString(DBKey.BOOK_ISBN, code.asText());
+
+        // Same rule as for a single search: a title, or at least 3 fields.
+        final String title = book.getString(DBKey.TITLE, null);
+        if ((title == null || title.isEmpty()) && book.size() <= 2) {
+            return new Resolution(code, Status.NotFound, null);
+        }
+        return new Resolution(code, Status.Found, title, book);
+    }
+
+    @WorkerThread
+    @NonNull
+    private Book search(@NonNull final Context context,
+                        @NonNull final SearchEngine searchEngine,
+                        @NonNull final ISBN code,
+                        final boolean strictIsbn,
+                        @NonNull final boolean[] fetchCovers)
+            throws SearchException, CredentialsException, StorageException {
+        if (strictIsbn) {
+            final String isbnStr;
+            //noinspection DataFlowIssue
+            if (searchEngine.getEngineId().getConfig().prefersIsbn10(context)
+                && code.isIsbn10Compat()) {
+                isbnStr = code.asText(ISBN.Type.Isbn10);
+            } else {
+                isbnStr = code.asText();
+            }
+            return ((SearchEngine.ByIsbn) searchEngine).searchByIsbn(context, isbnStr,
+                                                                     fetchCovers);
+        } else {
+            return ((SearchEngine.ByBarcode) searchEngine).searchByBarcode(context,
+                                                                           code.asText(),
+                                                                           fetchCovers);
+        }
+    }
+
+    public enum Status {
+        /** A book was found; the user can review it without searching again. */
+        Found,
+        /** The sites were searched, but none knew the code. */
+        NotFound,
+        /** All sites failed, e.g. due to network problems. */
+        Failed,
+        /** We already have a book with this code. */
+        Duplicate
+    }
+
+    /**
+     * The outcome for a single code.
+     */
+    public static final class Resolution {
+
+        @NonNull
+        private final ISBN code;
+        @NonNull
+        private final Status status;
+        @Nullable
+        private final String title;
+        /** Only set for {@link Status#Found}. */
+        @Nullable
+        private final Book book;
+
+        Resolution(@NonNull final ISBN code,
+                   @NonNull final Status status,
+                   @Nullable final String title) {
+            this(code, status, title, null);
+        }
+
+        Resolution(@NonNull final ISBN code,
+                   @NonNull final Status status,
+                   @Nullable final String title,
+                   @Nullable final Book book) {
+            this.code = code;
+            this.status = status;
+            this.title = title;
+            this.book = book;
+        }
+
+        @NonNull
+        public ISBN getCode() {
+            return code;
+        }
+
+        @NonNull
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the title of the book found, or of the existing book for a duplicate.
+         *
+         * @return title
+         */
+        @Nullable
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Get the book found. It has no covers.
+         *
+         * @return book, or {@code null} if the status is not {@link Status#Found}
+         */
+        @Nullable
+        public Book getBook() {
+            return book;
+        }
+
+        @Override
+        @NonNull
+        public String toString() {
+            return "Resolution{"
+                   + "code=" + code
+                   + ", status=" + status
+                   + ", title=`" + title + '`'
+                   + '}';
+        }
+    }
+}
@@ -55,7 +55,7 @@ public final class ASIN {
         }
 
         // A Book ASIN is basically an ISBN-10.
-        if (new ISBN(asin, true).isValid(true)) {
+        if (ISBN.isValid(asin)) {
             return true;
         }
 
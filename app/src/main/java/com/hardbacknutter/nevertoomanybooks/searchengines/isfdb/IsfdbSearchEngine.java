@@ -64,6 +64,7 @@ import com.hardbacknutter.nevertoomanybooks.entities.Book;
 import com.hardbacknutter.nevertoomanybooks.entities.Publisher;
 import com.hardbacknutter.nevertoomanybooks.entities.Series;
 import com.hardbacknutter.nevertoomanybooks.entities.TocEntry;
+import com.hardbacknutter.nevertoomanybooks.network.JsoupSelectors;
 import com.hardbacknutter.nevertoomanybooks.searchengines.AltEdition;
 import com.hardbacknutter.nevertoomanybooks.searchengines.AltEditionIsbn;
 import com.hardbacknutter.nevertoomanybooks.searchengines.CoverFileSpecArray;
@@ -149,6 +150,17 @@ public class IsfdbSearchEngine
     /** View in browser. */
     private static final String CGI_BROWSER = CGI_BIN + CGI_PL + "?";
 
+    /**
+     * The elements used by {@link #parseEditions(Context, Document)}.
+     * The list of editions is followed by the cover gallery and the footer
+     * which we don't need to parse.
+     * A redirect to a single book needs the full page.
+     */
+    @VisibleForTesting
+    static final JsoupSelectors EDITIONS_SELECTORS = new JsoupSelectors(
+            location -> !location.contains(CGI_PL),
+            "div.ContentBox", "table.publications");
+
     private static final String REST_BIN = CGI_BIN + "/rest";
     private static final String REST_BY_EXTERNAL_ID = REST_BIN + "/getpub_by_internal_ID.cgi?%1$s";
 
@@ -1333,7 +1345,7 @@ public class IsfdbSearchEngine
                                                 @NonNull final String url)
             throws SearchException, CredentialsException {
 
-        final Document document = loadDocument(context, url, null);
+        final Document document = loadDocument(context, url, null, EDITIONS_SELECTORS);
 
         if (!isCancelled()) {
             return parseEditions(context, document);
@@ -0,0 +1,433 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.sync.calibre;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONException;
+import com.hardbacknutter.org.json.JSONObject;
+
+/**
+ * Fetches the books of a library ahead of the caller which imports them.
+ * <p>
+ * A producer task pages through the book ids, fetches the full book data for each page
+ * and queues the result for {@link #next()}. The page size adapts to the server response
+ * time. Covers are downloaded concurrently by a small, fixed size pool.
+ * <p>
+ * At most {@link #MAX_QUEUED_PAGES} pages are kept waiting, so a slow importer
+ * will stop the producer (and the cover downloads) from running too far ahead.
+ */
+class CalibreBookFetcher
+        implements Closeable {
+
+    /**
+     * The initial and minimum number of books we fetch per request.
+     * Tested with CCS running on a RaspberryPi 1b+.
+     */
+    @VisibleForTesting
+    static final int MIN_PAGE_SIZE = 10;
+    /** The maximum number of books we fetch per request. */
+    @VisibleForTesting
+    static final int MAX_PAGE_SIZE = 200;
+    /** The time we'd like a single page to take. */
+    private static final long TARGET_PAGE_MS = 2_000;
+
+    /** The number of pages we allow to be waiting for the importer. */
+    private static final int MAX_QUEUED_PAGES = 2;
+    /** The number of concurrent cover downloads. */
+    private static final int MAX_COVER_DOWNLOADS = 4;
+    /** How long {@link #next()} waits before checking if the producer is still alive. */
+    private static final long POLL_MS = 250;
+
+    @NonNull
+    private final Source source;
+    @NonNull
+    private final BooleanSupplier isCancelled;
+    @NonNull
+    private final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(MAX_QUEUED_PAGES);
+    @Nullable
+    private final ExecutorService coverExecutor;
+    @Nullable
+    private Future<Void> producer;
+
+    /**
+     * Constructor.
+     *
+     * @param source      the server (or a stand-in) to fetch from
+     * @param doCovers    whether to download the covers
+     * @param isCancelled checked between pages
+     */
+    CalibreBookFetcher(@NonNull final Source source,
+                       final boolean doCovers,
+                       @NonNull final BooleanSupplier isCancelled) {
+        this.source = source;
+        this.isCancelled = isCancelled;
+        if (doCovers) {
+            coverExecutor = Executors.newFixedThreadPool(
+                    MAX_COVER_DOWNLOADS, r -> new Thread(r, "CalibreCover"));
+        } else {
+            coverExecutor = null;
+        }
+    }
+
+    /**
+     * Calculate the page size to use for the next request.
+     *
+     * @param pageSize  the page size used for the last request
+     * @param elapsedMs the time the last request took
+     *
+     * @return the new page size
+     */
+    @VisibleForTesting
+    static int adjustPageSize(final int pageSize,
+                              final long elapsedMs) {
+        if (elapsedMs < TARGET_PAGE_MS / 2) {
+            return Math.min(pageSize * 2, MAX_PAGE_SIZE);
+        } else if (elapsedMs > TARGET_PAGE_MS * 2) {
+            return Math.max(pageSize / 2, MIN_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    /**
+     * Unwrap the cause of a failed background task.
+     *
+     * @param e the exception from the task
+     *
+     * @throws IOException      on generic/other IO failures
+     * @throws StorageException on storage related failures
+     */
+    private static void rethrow(@NonNull final ExecutionException e)
+            throws IOException, StorageException {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof StorageException) {
+            throw (StorageException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else {
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Start fetching in the background.
+     */
+    void start() {
+        producer = ASyncExecutor.SERVICE.submit(this::produce);
+    }
+
+    /**
+     * Get the next page of books.
+     *
+     * @return the next page, or {@code null} when all books have been fetched.
+     *
+     * @throws IOException      on generic/other IO failures
+     * @throws StorageException on storage related failures
+     */
+    @WorkerThread
+    @Nullable
+    Page next()
+            throws IOException, StorageException {
+        Objects.requireNonNull(producer, "start() was not called");
+        try {
+            while (true) {
+                Page page = pages.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (page != null) {
+                    return page;
+                }
+                if (producer.isDone()) {
+                    // the producer might have queued a last page just before it finished
+                    page = pages.poll();
+                    if (page != null) {
+                        return page;
+                    }
+                    // we're done; rethrow any failure
+                    producer.get();
+                    return null;
+                }
+            }
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (@NonNull final ExecutionException e) {
+            rethrow(e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private Void produce()
+            throws IOException, StorageException, InterruptedException {
+        int pageSize = MIN_PAGE_SIZE;
+        int offset = 0;
+        int totalNum;
+        do {
+            final long start = System.currentTimeMillis();
+
+            final JSONObject root = source.getBookIds(pageSize, offset);
+            // assume valid result if at least the "total_num" param is there.
+            if (!root.has(CalibreContentServer.RESPONSE_TAG_TOTAL_NUM)) {
+                return null;
+            }
+            totalNum = root.getInt(CalibreContentServer.RESPONSE_TAG_TOTAL_NUM);
+            final int num = root.getInt(CalibreContentServer.RESPONSE_TAG_NUM);
+            // the list of books (id only) returned by the server
+            final JSONArray bookIds = root.optJSONArray(
+                    CalibreContentServer.RESPONSE_TAG_BOOK_IDS);
+            if (num <= 0 || bookIds == null || bookIds.isEmpty()) {
+                return null;
+            }
+
+            // with the above book-ids, get the full book objects
+            final JSONObject bookList = source.getBooks(bookIds);
+            final JSONObject bookListVirtualLibs = source.getVirtualLibrariesForBooks(bookIds);
+
+            final List<Entry> entries = new ArrayList<>(bookIds.length());
+            final Iterator<String> it = bookList.keys();
+            while (it.hasNext()) {
+                final String key = it.next();
+                final JSONObject calibreBook = bookList.optJSONObject(key);
+                // The book was deleted on the server since we got the id.
+                if (calibreBook != null) {
+                    final JSONArray virtualLibraries = bookListVirtualLibs != null
+                                                       ? bookListVirtualLibs.optJSONArray(key)
+                                                       : null;
+                    entries.add(new Entry(calibreBook, virtualLibraries,
+                                          submitCover(calibreBook)));
+                }
+            }
+
+            // Measure the server time only; not the time we're waiting for the importer.
+            final long elapsedMs = System.currentTimeMillis() - start;
+
+            // Blocks while the importer is MAX_QUEUED_PAGES behind.
+            pages.put(new Page(totalNum, entries));
+
+            offset += num;
+            pageSize = adjustPageSize(pageSize, elapsedMs);
+
+        } while (offset < totalNum && !isCancelled.getAsBoolean());
+
+        return null;
+    }
+
+    @Nullable
+    private Future<Optional<File>> submitCover(@NonNull final JSONObject calibreBook) {
+        if (coverExecutor != null && !calibreBook.isNull(CalibreBookJsonKey.COVER)) {
+            final String coverUrl = calibreBook.optString(CalibreBookJsonKey.COVER);
+            if (coverUrl != null && !coverUrl.isEmpty()) {
+                final int calibreBookId = calibreBook.getInt(CalibreBookJsonKey.ID);
+                return coverExecutor.submit(() -> source.getCover(calibreBookId, coverUrl));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop fetching, and cancel all outstanding cover downloads.
+     */
+    @Override
+    public void close() {
+        if (producer != null) {
+            producer.cancel(true);
+        }
+        if (coverExecutor != null) {
+            coverExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * The server calls needed by the fetcher.
+     * Implemented by the reader on top of {@link CalibreContentServer}.
+     */
+    interface Source {
+
+        /**
+         * Get a page of book ids.
+         *
+         * @param num    the number of ids to get
+         * @param offset the offset of the first id
+         *
+         * @return the response with at least the {@code total_num}, {@code num}
+         *         and {@code book_ids} fields
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         * @throws JSONException    upon any parsing error
+         * @see CalibreContentServer#getBookIds(String, int, int)
+         */
+        @NonNull
+        JSONObject getBookIds(int num,
+                              int offset)
+                throws StorageException, IOException, JSONException;
+
+        /**
+         * Get the full data for the given books.
+         *
+         * @param calibreIds the list of books (id only)
+         *
+         * @return JSONObject with the Calibre book objects, keyed by id
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         * @throws JSONException    upon any parsing error
+         * @see CalibreContentServer#getBooks(String, JSONArray)
+         */
+        @NonNull
+        JSONObject getBooks(@NonNull JSONArray calibreIds)
+                throws StorageException, IOException, JSONException;
+
+        /**
+         * Get the virtual libraries for the given books.
+         *
+         * @param calibreIds the list of books (id only)
+         *
+         * @return the virtual library names, keyed by id; or {@code null} if not supported
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         * @throws JSONException    upon any parsing error
+         * @see CalibreContentServer#getVirtualLibrariesForBooks(String, JSONArray)
+         */
+        @Nullable
+        JSONObject getVirtualLibrariesForBooks(@NonNull JSONArray calibreIds)
+                throws StorageException, IOException, JSONException;
+
+        /**
+         * Download a cover to a temporary file.
+         * <p>
+         * Called concurrently from multiple threads.
+         *
+         * @param calibreId of the book
+         * @param coverUrl  the (relative) url as found in the book data
+         *
+         * @return the file
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         * @see CalibreContentServer#getCover(int, String)
+         */
+        @NonNull
+        Optional<File> getCover(int calibreId,
+                                @NonNull String coverUrl)
+                throws StorageException, IOException;
+    }
+
+    static final class Page {
+
+        /** The total number of books as reported by the server. */
+        final int totalNum;
+        @NonNull
+        final List<Entry> books;
+
+        Page(final int totalNum,
+             @NonNull final List<Entry> books) {
+            this.totalNum = totalNum;
+            this.books = books;
+        }
+
+        /**
+         * Wait for the cover downloads of all books on this page to finish.
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         */
+        @WorkerThread
+        void awaitCovers()
+                throws IOException, StorageException {
+            for (final Entry entry : books) {
+                entry.getCover();
+            }
+        }
+    }
+
+    static final class Entry {
+
+        @NonNull
+        final JSONObject calibreBook;
+        @Nullable
+        final JSONArray virtualLibraries;
+        @Nullable
+        private final Future<Optional<File>> cover;
+
+        Entry(@NonNull final JSONObject calibreBook,
+              @Nullable final JSONArray virtualLibraries,
+              @Nullable final Future<Optional<File>> cover) {
+            this.calibreBook = calibreBook;
+            this.virtualLibraries = virtualLibraries;
+            this.cover = cover;
+        }
+
+        /**
+         * Get the cover; waits for the download to finish if needed.
+         *
+         * @return the cover file, if the book has one and the download succeeded.
+         *
+         * @throws IOException      on generic/other IO failures
+         * @throws StorageException on storage related failures
+         */
+        @WorkerThread
+        @NonNull
+        Optional<File> getCover()
+                throws IOException, StorageException {
+            if (cover == null) {
+                return Optional.empty();
+            }
+            try {
+                return cover.get();
+            } catch (@NonNull final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (@NonNull final CancellationException e) {
+                return Optional.empty();
+            } catch (@NonNull final ExecutionException e) {
+                rethrow(e);
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -63,6 +63,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -208,14 +209,14 @@ public final class CalibreContentServer
     /** The header string: "Basic user:password". (in base64) */
     @Nullable
     private final String authHeader;
-    @Nullable
-    private FutureHttpPost<Void> futureHttpPost;
+    /** The POST requests in progress; {@link #pushChanges} can be called concurrently. */
+    private final Set<FutureHttpPost<Void>> futureHttpPosts = ConcurrentHashMap.newKeySet();
     @Nullable
     private FutureHttpGet<String> futureJsonFetchRequest;
     @Nullable
     private FutureHttpGet<Uri> futureFileFetchRequest;
-    @Nullable
-    private ImageDownloader imageDownloader;
+    /** The cover downloads in progress; {@link #getCover} can be called concurrently. */
+    private final Set<ImageDownloader> imageDownloaders = ConcurrentHashMap.newKeySet();
     /** As read from the Content Server. */
     @Nullable
     private CalibreLibrary defaultLibrary;
@@ -745,7 +746,7 @@ public final class CalibreContentServer
     @WorkerThread
     @NonNull
     public JSONObject getBookIds(@NonNull final String libraryStringId,
-                                 @SuppressWarnings("SameParameterValue") final int num,
+                                 final int num,
                                  final int offset)
             throws StorageException,
                    IOException,
@@ -797,7 +798,7 @@ public final class CalibreContentServer
     @WorkerThread
     @NonNull
     public JSONObject search(@NonNull final String libraryId,
-                             @SuppressWarnings("SameParameterValue") final int num,
+                             final int num,
                              final int offset,
                              @NonNull final String query)
             throws StorageException,
@@ -1167,18 +1168,18 @@ public final class CalibreContentServer
                             @NonNull final String coverUrl)
             throws StorageException, IOException {
 
-        synchronized (this) {
-            if (imageDownloader == null) {
-                imageDownloader =
-                        new ImageDownloader(createFutureGetRequest(true)
-                        );
-            }
-        }
-
         final String tempFilename = ImageDownloader.getTempFilename(
                 FILENAME_SUFFIX, String.valueOf(calibreId), 0, null);
 
-        return imageDownloader.fetch(serverUri + coverUrl, tempFilename);
+        // A downloader can only handle one request at a time, so use a new one each call.
+        final ImageDownloader imageDownloader =
+                new ImageDownloader(createFutureGetRequest(true));
+        imageDownloaders.add(imageDownloader);
+        try {
+            return imageDownloader.fetch(serverUri + coverUrl, tempFilename);
+        } finally {
+            imageDownloaders.remove(imageDownloader);
+        }
     }
 
     /**
@@ -1416,12 +1417,14 @@ public final class CalibreContentServer
         if (postBody == null) {
             throw new JSONException("postBody was null");
         }
-        synchronized (this) {
-            if (futureHttpPost == null) {
-                futureHttpPost = createFuturePostRequest();
-            }
+        // A request object can only handle one request at a time, so use a new one each call.
+        final FutureHttpPost<Void> futureHttpPost = createFuturePostRequest();
+        futureHttpPosts.add(futureHttpPost);
+        try {
+            futureHttpPost.post(url, postBody, null);
+        } finally {
+            futureHttpPosts.remove(futureHttpPost);
         }
-        futureHttpPost.post(url, postBody, null);
     }
 
     public void cancel() {
@@ -1432,12 +1435,8 @@ public final class CalibreContentServer
             if (futureFileFetchRequest != null) {
                 futureFileFetchRequest.cancel();
             }
-            if (imageDownloader != null) {
-                imageDownloader.cancel();
-            }
-            if (futureHttpPost != null) {
-                futureHttpPost.cancel();
-            }
+            imageDownloaders.forEach(ImageDownloader::cancel);
+            futureHttpPosts.forEach(FutureHttpPost::cancel);
         }
     }
 
@@ -50,11 +50,14 @@ import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.booklist.style.MapDBKey;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.RealNumberParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.core.utils.LocaleListUtils;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
@@ -118,8 +121,6 @@ public class CalibreContentServerReader
     private static final String TAG = "CalibreServerReader";
     private static final String BKEY_VIRTUAL_LIBRARY_LIST = TAG + ":vlibs";
 
-    /** The number of books we fetch per request. Tested with CCS running on a RaspberryPi 1b+. */
-    private static final int NUM = 10;
     /** error text for {@link #VALUE_IS_NULL}. */
     private static final String ERROR_NULL_STRING = "'null' string";
 
@@ -165,6 +166,13 @@ public class CalibreContentServerReader
     private CalibreLibrary library;
     private ReaderResults results;
 
+    /**
+     * The Calibre UUID of all books in the database.
+     * Created when the first page is read, so we can size it for the whole library.
+     */
+    @Nullable
+    private BloomFilter calibreUuidFilter;
+
     /**
      * Constructor.
      *
@@ -343,6 +351,7 @@ public class CalibreContentServerReader
                    IOException {
 
         results = new ReaderResults();
+        calibreUuidFilter = null;
 
         progressListener.setIndeterminate(true);
         progressListener.publishProgress(0, context.getString(R.string.progress_msg_connecting));
@@ -354,13 +363,6 @@ public class CalibreContentServerReader
             // Don't assume we still have the same instance as when readMetaData was called.
             readLibraryMetaData(context);
 
-            //noinspection DataFlowIssue
-            final int totalNum = library.getTotalBooks();
-
-            int num = 0;
-            int offset = 0;
-            boolean valid;
-
             String query = null;
             // If we want new-books-only (Updates.Skip)
             // or new-books-and-updates (Updates.OnlyNewer),
@@ -377,52 +379,47 @@ public class CalibreContentServerReader
                 }
             }
 
-            do {
-                // Reminder: the NUM for this first call might seem very low,
-                // but the full book data for each of the id's (max == NUM)
-                // will be fetched in ONE GO in the second call further below.
-                final JSONObject root;
-                if (query == null) {
-                    // all-books
-                    root = server.getBookIds(library.getLibraryStringId(), NUM, offset);
-                } else {
-                    // search based on the last-sync-date
-                    root = server.search(library.getLibraryStringId(), NUM, offset, query);
-                }
+            //noinspection DataFlowIssue
+            final String libraryStringId = library.getLibraryStringId();
+            final CalibreBookFetcher.Source source = createSource(libraryStringId, query);
+
+            final SynchronizedDb db = ServiceLocator.getInstance().getDb();
 
-                // assume valid result if at least the "total_num" param is there.
-                valid = root.has(CalibreContentServer.RESPONSE_TAG_TOTAL_NUM);
-                if (valid) {
+            // The fetcher downloads the book data and covers ahead of us,
+            // while we import the books a page at a time.
+            try (CalibreBookFetcher fetcher = new CalibreBookFetcher(
+                    source, doCovers, progressListener::isCancelled)) {
+                fetcher.start();
+
+                CalibreBookFetcher.Page page;
+                while (!progressListener.isCancelled() && (page = fetcher.next()) != null) {
                     // yes, we're reading/setting this on every iteration... less code.
-                    progressListener.setMaxPos(root.getInt(
-                            CalibreContentServer.RESPONSE_TAG_TOTAL_NUM));
-
-                    num = root.getInt(CalibreContentServer.RESPONSE_TAG_NUM);
-                    // the list of books (id only) returned by the server
-                    final JSONArray bookIds = root.optJSONArray(
-                            CalibreContentServer.RESPONSE_TAG_BOOK_IDS);
-
-                    valid = bookIds != null && !bookIds.isEmpty();
-                    if (valid) {
-                        // with the above book-ids, get the full book objects
-                        final JSONObject bookList = server.getBooks(library.getLibraryStringId(),
-                                                                    bookIds);
-                        final JSONObject bookListVirtualLibs =
-                                server.getVirtualLibrariesForBooks(library.getLibraryStringId(),
-                                                                   bookIds);
-
-                        final Iterator<String> it = bookList.keys();
-                        while (it.hasNext() && !progressListener.isCancelled()) {
-                            final String key = it.next();
-                            final JSONObject calibreBook = bookList.getJSONObject(key);
+                    progressListener.setMaxPos(page.totalNum);
+
+                    if (calibreUuidFilter == null) {
+                        calibreUuidFilter = calibreLibraryDao
+                                .createCalibreUuidFilter(page.totalNum);
+                    }
+
+                    // Don't hold the exclusive lock while waiting for the network.
+                    page.awaitCovers();
 
+                    // We're committing by page.
+                    Synchronizer.SyncLock txLock = null;
+                    try {
+                        txLock = db.beginTransaction(true);
+
+                        for (final CalibreBookFetcher.Entry entry : page.books) {
+                            if (progressListener.isCancelled()) {
+                                break;
+                            }
                             // inject the virtual library list into the main book object
-                            if (bookListVirtualLibs != null) {
-                                calibreBook.put(BKEY_VIRTUAL_LIBRARY_LIST,
-                                                bookListVirtualLibs.getJSONArray(key));
+                            if (entry.virtualLibraries != null) {
+                                entry.calibreBook.put(BKEY_VIRTUAL_LIBRARY_LIST,
+                                                      entry.virtualLibraries);
                             }
 
-                            importBook(context, convert(context, calibreBook));
+                            importBook(context, convert(context, entry));
 
                             results.booksProcessed++;
                             // Due to the network access, we're not adding
@@ -430,11 +427,19 @@ public class CalibreContentServerReader
                             progressListener.publishProgress(
                                     1, results.createBooksSummaryLine(context));
                         }
+
+                        db.setTransactionSuccessful();
+                    } finally {
+                        if (txLock != null) {
+                            db.endTransaction(txLock);
+                        }
                     }
-                    offset += num;
                 }
-            } while (valid && num > 0 && totalNum > offset + num
-                     && !progressListener.isCancelled());
+            }
+
+            if (calibreUuidFilter != null) {
+                results.addPresenceFilter(calibreUuidFilter);
+            }
 
             // always set the sync date!
             library.setLastSyncDate(LocalDateTime.now(ZoneOffset.UTC));
@@ -447,6 +452,56 @@ public class CalibreContentServerReader
         return results;
     }
 
+    /**
+     * Create the {@link CalibreBookFetcher.Source} for the given library.
+     *
+     * @param libraryStringId the Calibre native {@code stringId} for the library to read from
+     * @param query           (optional) search query; when {@code null} all books are read
+     *
+     * @return source
+     */
+    @NonNull
+    private CalibreBookFetcher.Source createSource(@NonNull final String libraryStringId,
+                                                   @Nullable final String query) {
+        return new CalibreBookFetcher.Source() {
+            @NonNull
+            @Override
+            public JSONObject getBookIds(final int num,
+                                         final int offset)
+                    throws StorageException, IOException, JSONException {
+                if (query == null) {
+                    // all-books
+                    return server.getBookIds(libraryStringId, num, offset);
+                } else {
+                    // search based on the last-sync-date
+                    return server.search(libraryStringId, num, offset, query);
+                }
+            }
+
+            @NonNull
+            @Override
+            public JSONObject getBooks(@NonNull final JSONArray calibreIds)
+                    throws StorageException, IOException, JSONException {
+                return server.getBooks(libraryStringId, calibreIds);
+            }
+
+            @Nullable
+            @Override
+            public JSONObject getVirtualLibrariesForBooks(@NonNull final JSONArray calibreIds)
+                    throws StorageException, IOException, JSONException {
+                return server.getVirtualLibrariesForBooks(libraryStringId, calibreIds);
+            }
+
+            @NonNull
+            @Override
+            public Optional<File> getCover(final int calibreId,
+                                           @NonNull final String coverUrl)
+                    throws StorageException, IOException {
+                return server.getCover(calibreId, coverUrl);
+            }
+        };
+    }
+
     /**
      * Process the book, and update the local data if allowed, or insert if not present.
      *
@@ -463,7 +518,7 @@ public class CalibreContentServerReader
         try {
             final String calibreUuid = calibreBook.getString(DBKey.CALIBRE_BOOK_UUID);
             // check if we already have the calibre book in the local database
-            final long databaseBookId = calibreLibraryDao.getBookIdFromCalibreUuid(calibreUuid);
+            final long databaseBookId = getBookIdFromCalibreUuid(calibreUuid);
             if (databaseBookId > 0) {
                 // yes, we do - handle the update according to the users choice
                 switch (updateOption) {
@@ -517,6 +572,9 @@ public class CalibreContentServerReader
                 }
             } else {
                 insertBook(context, calibreBook);
+                if (calibreUuidFilter != null) {
+                    calibreUuidFilter.put(calibreUuid);
+                }
             }
 
         } catch (@NonNull final DaoWriteException | SQLiteDoneException | JSONException e) {
@@ -556,6 +614,22 @@ public class CalibreContentServerReader
         }
     }
 
+    /**
+     * Find the local book for the given Calibre UUID.
+     * The query is skipped if the filter tells us we definitely do not have it.
+     *
+     * @param calibreUuid Calibre UUID
+     *
+     * @return id of the book, or 0 'new' if not found
+     */
+    private long getBookIdFromCalibreUuid(@NonNull final String calibreUuid) {
+        if (calibreUuidFilter != null && !calibreUuidFilter.mightContain(calibreUuid)) {
+            results.presenceLookupsSkipped++;
+            return 0;
+        }
+        return calibreLibraryDao.getBookIdFromCalibreUuid(calibreUuid);
+    }
+
     private void insertBook(@NonNull final Context context,
                             @NonNull final Book book)
             throws StorageException,
@@ -582,8 +656,8 @@ public class CalibreContentServerReader
     /**
      * Convert the given JSON data to a {@link Book}.
      *
-     * @param context     Current context
-     * @param calibreBook to convert
+     * @param context Current context
+     * @param entry   to convert
      *
      * @return a Book
      *
@@ -593,8 +667,9 @@ public class CalibreContentServerReader
      * @throws IllegalArgumentException if a value has unexpectedly the text "null".
      */
     private Book convert(@NonNull final Context context,
-                         @NonNull final JSONObject calibreBook)
+                         @NonNull final CalibreBookFetcher.Entry entry)
             throws IOException, StorageException {
+        final JSONObject calibreBook = entry.calibreBook;
         final Book book = new Book();
         book.setStage(EntityStage.Stage.Dirty);
 
@@ -650,7 +725,7 @@ public class CalibreContentServerReader
         }
 
         if (doCovers) {
-            convertCovers(calibreBook, book, calibreBookId);
+            convertCovers(entry, book);
         }
 
         if (!calibreBook.isNull(CalibreBookJsonKey.USER_METADATA)) {
@@ -892,20 +967,17 @@ public class CalibreContentServerReader
         }
     }
 
-    private void convertCovers(@NonNull final JSONObject calibreBook,
-                               @NonNull final Book book,
-                               final int calibreBookId)
+    private void convertCovers(@NonNull final CalibreBookFetcher.Entry entry,
+                               @NonNull final Book book)
             throws StorageException, IOException {
-        if (!calibreBook.isNull(CalibreBookJsonKey.COVER)) {
-            final String coverUrl = calibreBook.optString(CalibreBookJsonKey.COVER);
-            if (coverUrl != null && !coverUrl.isEmpty()) {
-                final File file = server.getCover(calibreBookId, coverUrl)
-                                        .orElse(null);
-                try {
-                    book.setCover(0, file);
-                } catch (@NonNull final IOException ignore) {
-                    // ignore
-                }
+        // The download was started by the fetcher, and finished before the
+        // page transaction was started.
+        final File file = entry.getCover().orElse(null);
+        if (file != null) {
+            try {
+                book.setCover(0, file);
+            } catch (@NonNull final IOException ignore) {
+                // ignore
             }
         }
     }
@@ -29,24 +29,36 @@ import androidx.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.security.cert.CertificateException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.hardbacknutter.nevertoomanybooks.R;
 import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
 import com.hardbacknutter.nevertoomanybooks.core.database.DaoWriteException;
+import com.hardbacknutter.nevertoomanybooks.core.database.SynchronizedDb;
+import com.hardbacknutter.nevertoomanybooks.core.database.Synchronizer;
 import com.hardbacknutter.nevertoomanybooks.core.network.HttpNotFoundException;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.RealNumberParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
 import com.hardbacknutter.nevertoomanybooks.core.utils.LocaleListUtils;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.CalibreLibraryDao;
@@ -67,8 +79,9 @@ import com.hardbacknutter.util.logger.LoggerFactory;
  * Export <strong>all</strong> libraries currently present on the server.
  * <p>
  * If the user asked for "new and updated books" only,
- * the 'last-sync-date' from the library is used to only fetch books added/modified
- * later then this timestamp FROM THE LOCAL DATABASE.
+ * the {@link BookChangesDao} journal is used to only fetch books added/modified
+ * since the previous sync of the library FROM THE LOCAL DATABASE.
+ * For the very first sync the 'last-sync-date' from the library is used instead.
  * <p>
  * Each local book is compared to the remote book 'last-modified' date to
  * decide to update it or not.
@@ -82,6 +95,12 @@ public class CalibreContentServerWriter
 
     /** Log tag. */
     private static final String TAG = "CalibreServerWriter";
+    /** Number of books for which the remote data is fetched in a single request. */
+    private static final int BATCH_SIZE = 100;
+    /** Maximum number of concurrent requests to push the changes to the server. */
+    private static final int MAX_PENDING_PUSHES = 4;
+    /** Prefix for the {@link BookChangesDao} consumer name; suffixed with the library id. */
+    private static final String JOURNAL_CONSUMER = "calibre.";
 
     @NonNull
     private final CalibreContentServer server;
@@ -146,23 +165,39 @@ public class CalibreContentServerWriter
             server.readMetaData(context);
             final CalibreLibraryDao libraryDao = ServiceLocator.getInstance()
                                                                .getCalibreLibraryDao();
+            final BookChangesDao bookChangesDao = ServiceLocator.getInstance()
+                                                                .getBookChangesDao();
             for (final CalibreLibrary library : server.getLibraries()) {
-
-                @Nullable
-                final LocalDateTime dateSince;
-                if (helper.isIncremental()) {
-                    dateSince = dateParser.parse(library.getLastSyncDateAsString()).orElse(null);
-                } else {
-                    dateSince = null;
-                }
+                final String consumer = JOURNAL_CONSUMER + library.getId();
+                // get this BEFORE reading the books; see BookChangesDao#getLastSequence
+                final long lastSequence = bookChangesDao.getLastSequence();
 
                 // sanity check, we only update existing books... no books -> skip library.
                 if (library.getTotalBooks() > 0) {
-                    syncLibrary(library, dateSince, progressListener);
+                    final long sinceSequence = helper.isIncremental()
+                                               ? bookChangesDao.getMark(consumer) : 0;
+                    final BookDao bookDao = ServiceLocator.getInstance().getBookDao();
+                    if (sinceSequence > 0) {
+                        syncLibrary(library, bookDao.fetchBooksForExportToCalibre(
+                                library.getId(), sinceSequence), progressListener);
+                    } else {
+                        // First (journaled) sync, or the user asked for all books.
+                        @Nullable
+                        final LocalDateTime dateSince;
+                        if (helper.isIncremental()) {
+                            dateSince = dateParser.parse(library.getLastSyncDateAsString())
+                                                  .orElse(null);
+                        } else {
+                            dateSince = null;
+                        }
+                        syncLibrary(library, bookDao.fetchBooksForExportToCalibre(
+                                library.getId(), dateSince), progressListener);
+                    }
                 }
-                // always set the sync date!
+                // always set the sync date and journal mark!
                 library.setLastSyncDate(LocalDateTime.now(ZoneOffset.UTC));
                 libraryDao.update(library);
+                bookChangesDao.setMark(consumer, lastSequence);
             }
         } catch (@NonNull final JSONException | DaoWriteException e) {
             throw new DataWriterException(e);
@@ -171,61 +206,119 @@ public class CalibreContentServerWriter
     }
 
     private void syncLibrary(@NonNull final CalibreLibrary library,
-                             @Nullable final LocalDateTime dateSince,
+                             @NonNull final Cursor booksToSync,
                              @NonNull final ProgressListener progressListener)
             throws StorageException, IOException {
-        final BookDao bookDao = ServiceLocator.getInstance().getBookDao();
-        try (Cursor cursor = bookDao.fetchBooksForExportToCalibre(library.getId(), dateSince)) {
+        try (Cursor cursor = booksToSync) {
 
-            int delta = 0;
-            long lastUpdate = 0;
             progressListener.setMaxPos(cursor.getCount());
 
-            final CalibreDao calibreDao = ServiceLocator.getInstance().getCalibreDao();
-
+            final List<Book> batch = new ArrayList<>(BATCH_SIZE);
             while (cursor.moveToNext() && !progressListener.isCancelled()) {
-                final Book book = Book.from(cursor);
-                try {
-                    syncBook(library, book);
+                batch.add(Book.from(cursor));
+                if (batch.size() == BATCH_SIZE) {
+                    syncBatch(library, batch, progressListener);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty() && !progressListener.isCancelled()) {
+                syncBatch(library, batch, progressListener);
+            }
+        }
+    }
 
-                } catch (@NonNull final HttpNotFoundException e404) {
-                    // The book no longer exists on the server.
-                    if (deleteLocalBook) {
-                        bookDao.delete(book);
-                    } else {
-                        // keep the book but remove the calibre data for it
-                        calibreDao.delete(book);
-                        book.setCalibreLibrary(null);
+    /**
+     * Sync a batch of books.
+     * <p>
+     * The remote data for the whole batch is fetched with a single request.
+     * The updates are then pushed with up to {@link #MAX_PENDING_PUSHES} requests
+     * running concurrently, while the next changes are being collected.
+     * Books which no longer exist on the server are handled in a single transaction
+     * at the end of the batch.
+     *
+     * @param library          the library to which the given books belongs
+     * @param batch            the local books to sync
+     * @param progressListener Progress and cancellation interface
+     *
+     * @throws IOException      on generic/other IO failures
+     * @throws StorageException on storage related failures
+     */
+    private void syncBatch(@NonNull final CalibreLibrary library,
+                           @NonNull final List<Book> batch,
+                           @NonNull final ProgressListener progressListener)
+            throws StorageException, IOException {
+
+        final String libraryStringId = library.getLibraryStringId();
+
+        final JSONObject calibreBooks;
+        try {
+            final JSONArray calibreIds = new JSONArray();
+            batch.forEach(book -> calibreIds.put(book.getInt(DBKey.CALIBRE_BOOK_ID)));
+            calibreBooks = server.getBooks(libraryStringId, calibreIds);
+        } catch (@NonNull final JSONException e) {
+            // ignore, just move on to the next batch
+            LoggerFactory.getLogger().e(TAG, e, "libraryStringId=" + libraryStringId);
+            progressListener.publishProgress(batch.size(), null);
+            return;
+        }
+
+        final List<Book> notFound = new ArrayList<>();
+        final Deque<PendingPush> pending = new ArrayDeque<>();
+        try {
+            for (final Book book : batch) {
+                if (progressListener.isCancelled()) {
+                    break;
+                }
+                try {
+                    final int calibreId = book.getInt(DBKey.CALIBRE_BOOK_ID);
+                    final JSONObject calibreBook =
+                            calibreBooks.optJSONObject(String.valueOf(calibreId));
+
+                    // Calibre can reuse the id of a deleted book, so check the uuid as well.
+                    if (calibreBook == null
+                        || !book.getString(DBKey.CALIBRE_BOOK_UUID).equals(
+                            calibreBook.optString(CalibreBookJsonKey.UUID))) {
+                        // The book no longer exists on the server.
+                        notFound.add(book);
+
+                    } else if (isLocalNewer(book, calibreBook)) {
+                        final JSONObject identifiers =
+                                calibreBook.optJSONObject(CalibreBookJsonKey.IDENTIFIERS);
+                        final JSONObject changes = collectChanges(library, identifiers, book);
+
+                        if (pending.size() >= MAX_PENDING_PUSHES) {
+                            awaitPush(pending.removeFirst(), notFound);
+                        }
+                        pending.addLast(new PendingPush(book, ASyncExecutor.SERVICE.submit(
+                                () -> {
+                                    server.pushChanges(libraryStringId, calibreId, changes);
+                                    return null;
+                                })));
                     }
                 } catch (@NonNull final JSONException e) {
                     // ignore, just move on to the next book
                     LoggerFactory.getLogger()
                                  .e(TAG, e, "bookId=" + book.getId());
                 }
+            }
 
-                delta++;
-                final long now = System.currentTimeMillis();
-                if ((now - lastUpdate) > progressListener.getUpdateIntervalInMs()) {
-                    progressListener.publishProgress(delta, book.getTitle());
-                    lastUpdate = now;
-                    delta = 0;
-                }
+            while (!pending.isEmpty()) {
+                awaitPush(pending.removeFirst(), notFound);
             }
+        } finally {
+            // Only non-empty if we got an exception
+            pending.forEach(push -> push.future.cancel(true));
         }
-    }
-
-    private void syncBook(@NonNull final CalibreLibrary library,
-                          @NonNull final Book book)
-            throws IOException, StorageException, JSONException {
 
-        final int calibreId = book.getInt(DBKey.CALIBRE_BOOK_ID);
-        final String calibreUuid = book.getString(DBKey.CALIBRE_BOOK_UUID);
+        if (!notFound.isEmpty()) {
+            removeNotFound(notFound);
+        }
 
-        // ENHANCE: full sync in one go.
-        //  The logic below is slow as we fetch each book individually
-        //  but on a local/home network it's good enough
-        final JSONObject calibreBook = server.getBook(library.getLibraryStringId(), calibreUuid);
+        progressListener.publishProgress(batch.size(), batch.get(batch.size() - 1).getTitle());
+    }
 
+    private boolean isLocalNewer(@NonNull final Book book,
+                                 @NonNull final JSONObject calibreBook) {
         Optional<LocalDateTime> remoteDate = Optional.empty();
         if (!calibreBook.isNull(CalibreBookJsonKey.LAST_MODIFIED)) {
             try {
@@ -239,15 +332,88 @@ public class CalibreContentServerWriter
         final Optional<LocalDateTime> localDate = book.getLastModified(dateParser);
 
         // Both should always be present, but paranoia...
-        final boolean isNewer = localDate.isPresent() && remoteDate.isPresent()
-                                // is our data newer then the server data ?
-                                && localDate.get().isAfter(remoteDate.get());
-        if (isNewer) {
-            final JSONObject identifiers =
-                    calibreBook.optJSONObject(CalibreBookJsonKey.IDENTIFIERS);
-            final JSONObject changes = collectChanges(library, identifiers, book);
-            server.pushChanges(library.getLibraryStringId(), calibreId, changes);
-            results.addBook(book.getId());
+        return localDate.isPresent() && remoteDate.isPresent()
+               // is our data newer then the server data ?
+               && localDate.get().isAfter(remoteDate.get());
+    }
+
+    /**
+     * Wait for the given push request to finish.
+     *
+     * @param push     to wait for
+     * @param notFound list to which the book is added if it no longer exists on the server
+     *
+     * @throws IOException      on generic/other IO failures
+     * @throws StorageException on storage related failures
+     */
+    private void awaitPush(@NonNull final PendingPush push,
+                           @NonNull final List<Book> notFound)
+            throws StorageException, IOException {
+        try {
+            push.future.get();
+            results.addBook(push.book.getId());
+
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+
+        } catch (@NonNull final CancellationException e) {
+            // the user cancelled; the book was not updated.
+
+        } catch (@NonNull final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof HttpNotFoundException) {
+                notFound.add(push.book);
+            } else if (cause instanceof JSONException) {
+                // ignore, just move on to the next book
+                LoggerFactory.getLogger()
+                             .e(TAG, cause, "bookId=" + push.book.getId());
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof StorageException) {
+                throw (StorageException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Process the books which no longer exist on the server.
+     * If {@link SyncWriterHelper#isDeleteLocalBooks()} is set they are deleted,
+     * otherwise only the Calibre data is removed from them.
+     *
+     * @param books to process
+     */
+    private void removeNotFound(@NonNull final List<Book> books) {
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        final SynchronizedDb db = serviceLocator.getDb();
+        final BookDao bookDao = serviceLocator.getBookDao();
+        final CalibreDao calibreDao = serviceLocator.getCalibreDao();
+
+        Synchronizer.SyncLock txLock = null;
+        try {
+            if (!db.inTransaction()) {
+                txLock = db.beginTransaction(true);
+            }
+            for (final Book book : books) {
+                if (deleteLocalBook) {
+                    bookDao.delete(book);
+                } else {
+                    // keep the book but remove the calibre data for it
+                    calibreDao.delete(book);
+                    book.setCalibreLibrary(null);
+                }
+            }
+            if (txLock != null) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (txLock != null) {
+                db.endTransaction(txLock);
+            }
         }
     }
 
@@ -401,4 +567,18 @@ public class CalibreContentServerWriter
     public void close() {
         ServiceLocator.getInstance().getMaintenanceDao().purge();
     }
+
+    private static class PendingPush {
+
+        @NonNull
+        final Book book;
+        @NonNull
+        final Future<Void> future;
+
+        PendingPush(@NonNull final Book book,
+                    @NonNull final Future<Void> future) {
+            this.book = book;
+            this.future = future;
+        }
+    }
 }
@@ -52,6 +52,7 @@ import com.hardbacknutter.nevertoomanybooks.core.network.NetworkUnavailableExcep
 import com.hardbacknutter.nevertoomanybooks.core.parsers.RealNumberParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.core.utils.BloomFilter;
 import com.hardbacknutter.nevertoomanybooks.core.utils.LocaleListUtils;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
@@ -111,6 +112,13 @@ public class StripInfoReader
 
     private ReaderResults results;
 
+    /**
+     * The StripInfo id of all books in the database.
+     * Created when the first page is read, so we can size it for the whole collection.
+     */
+    @Nullable
+    private BloomFilter externalIdFilter;
+
     /**
      * Constructor.
      *
@@ -238,6 +246,7 @@ public class StripInfoReader
                                                      new BookshelfMapper());
 
         results = new ReaderResults();
+        externalIdFilter = null;
 
         int pageNr = 0;
         try {
@@ -246,6 +255,10 @@ public class StripInfoReader
 
                 final List<Book> page = uc.fetchPage(context, ++pageNr, progressListener);
                 if (!page.isEmpty()) {
+                    if (externalIdFilter == null) {
+                        externalIdFilter = bookDao.createPresenceFilter(
+                                DBKey.SID_STRIP_INFO, page.size() * uc.getMaxPages());
+                    }
                     // We're committing by page.
                     Synchronizer.SyncLock txLock = null;
                     try {
@@ -273,6 +286,13 @@ public class StripInfoReader
             }
         } catch (@NonNull final CredentialsException | SearchException e) {
             throw new DataReaderException(e);
+        } finally {
+            // stop the look-ahead if we did not get to the end
+            uc.cancel();
+        }
+
+        if (externalIdFilter != null) {
+            results.addPresenceFilter(externalIdFilter);
         }
 
         // always set the sync date!
@@ -310,11 +330,18 @@ public class StripInfoReader
                    IOException {
 
         final long externalId = siBook.getLong(DBKey.SID_STRIP_INFO);
+        // No need to look it up if the filter tells us we definitely do not have it.
+        final boolean mightExist = externalIdFilter == null
+                                   || externalIdFilter.mightContain(externalId);
+        if (!mightExist) {
+            results.presenceLookupsSkipped++;
+        }
         // lookup locally using the externalId column.
-        try (Cursor cursor = bookDao.fetchByKey(DBKey.SID_STRIP_INFO,
-                                                String.valueOf(externalId))) {
+        try (Cursor cursor = mightExist ? bookDao.fetchByKey(DBKey.SID_STRIP_INFO,
+                                                             String.valueOf(externalId))
+                                        : null) {
             // check if we already have the StripInfo book in the local database
-            if (cursor.moveToFirst()) {
+            if (cursor != null && cursor.moveToFirst()) {
                 // yes, we do - handle the update according to the users choice
                 switch (updateOption) {
                     case Overwrite: {
@@ -342,6 +369,9 @@ public class StripInfoReader
                 CoverFileSpecArray.process(book);
 
                 insertBook(context, book);
+                if (externalIdFilter != null) {
+                    externalIdFilter.put(externalId);
+                }
             }
 
         } catch (@NonNull final DaoWriteException | SQLiteDoneException | JSONException e) {
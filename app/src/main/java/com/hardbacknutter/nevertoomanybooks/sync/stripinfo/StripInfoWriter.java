@@ -40,6 +40,7 @@ import com.hardbacknutter.nevertoomanybooks.core.parsers.DateParser;
 import com.hardbacknutter.nevertoomanybooks.core.parsers.ISODateParser;
 import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookChangesDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.BookDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StripInfoDao;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
@@ -54,6 +55,8 @@ public class StripInfoWriter
 
     /** Log tag. */
     private static final String TAG = "StripInfoWriter";
+    /** The {@link BookChangesDao} consumer name. */
+    private static final String JOURNAL_CONSUMER = "stripinfo";
 
     /** Export configuration. */
     @NonNull
@@ -103,20 +106,34 @@ public class StripInfoWriter
         // reset; won't take effect until the next publish call.
         progressListener.setIndeterminate(null);
 
+        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
+        final BookDao bookDao = serviceLocator.getBookDao();
+        final StripInfoDao stripInfoDao = serviceLocator.getStripInfoDao();
+        final BookChangesDao bookChangesDao = serviceLocator.getBookChangesDao();
+
+        // get this BEFORE reading the books; see BookChangesDao#getLastSequence
+        final long lastSequence = bookChangesDao.getLastSequence();
+        final long sinceSequence = syncWriterHelper.isIncremental()
+                                   ? bookChangesDao.getMark(JOURNAL_CONSUMER) : 0;
+
         final SharedPreferences global = PreferenceManager.getDefaultSharedPreferences(context);
-        @Nullable
-        final LocalDateTime dateSince;
-        if (syncWriterHelper.isIncremental()) {
-            dateSince = dateParser.parse(global.getString(StripInfoAuth.PK_LAST_SYNC, null))
-                                  .orElse(null);
+        final Cursor booksToSync;
+        if (sinceSequence > 0) {
+            booksToSync = bookDao.fetchBooksForExportToStripInfo(sinceSequence);
         } else {
-            dateSince = null;
+            // First (journaled) sync, or the user asked for all books.
+            @Nullable
+            final LocalDateTime dateSince;
+            if (syncWriterHelper.isIncremental()) {
+                dateSince = dateParser.parse(global.getString(StripInfoAuth.PK_LAST_SYNC, null))
+                                      .orElse(null);
+            } else {
+                dateSince = null;
+            }
+            booksToSync = bookDao.fetchBooksForExportToStripInfo(dateSince);
         }
 
-        final ServiceLocator serviceLocator = ServiceLocator.getInstance();
-        final BookDao bookDao = serviceLocator.getBookDao();
-        final StripInfoDao stripInfoDao = serviceLocator.getStripInfoDao();
-        try (Cursor cursor = bookDao.fetchBooksForExportToStripInfo(dateSince)) {
+        try (Cursor cursor = booksToSync) {
             int delta = 0;
             long lastUpdate = 0;
             progressListener.setMaxPos(cursor.getCount());
@@ -154,11 +171,12 @@ public class StripInfoWriter
             }
         }
 
-        // always set the sync date!
+        // always set the sync date and journal mark!
         global.edit()
               .putString(StripInfoAuth.PK_LAST_SYNC, LocalDateTime.now(ZoneOffset.UTC).format(
                       DateTimeFormatter.ISO_LOCAL_DATE_TIME))
               .apply();
+        bookChangesDao.setMark(JOURNAL_CONSUMER, lastSequence);
         return results;
     }
 
@@ -25,15 +25,20 @@ import android.content.Context;
 import androidx.annotation.AnyThread;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
 import com.hardbacknutter.nevertoomanybooks.R;
+import com.hardbacknutter.nevertoomanybooks.core.tasks.ASyncExecutor;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.ProgressListener;
 import com.hardbacknutter.nevertoomanybooks.database.DBKey;
 import com.hardbacknutter.nevertoomanybooks.entities.Book;
@@ -58,6 +63,9 @@ import org.jsoup.nodes.Element;
  * This class allows visiting each page, and parsing the specific collection row.
  * These are NOT full-book data sets.
  * <p>
+ * While the caller processes a page, the next page is already being loaded
+ * in the background. Pages must be fetched in order for this to be of use.
+ * <p>
  * Use this class with a simple loop/fetch:
  *
  * <pre>
@@ -137,6 +145,14 @@ public class UserCollection {
     private final CollectionParser rowParser;
     private int maxPages = 1;
 
+    /**
+     * The next page, fetched in the background while the caller is processing
+     * the current one. Only ever accessed from the caller's thread.
+     */
+    @Nullable
+    private Future<List<Book>> nextPage;
+    private int nextPageNr;
+
     /**
      * Constructor.
      *
@@ -188,6 +204,47 @@ public class UserCollection {
         progressListener.publishProgress(1, context.getString(
                 R.string.progress_msg_loading_page, pageNr));
 
+        List<Book> page = null;
+        if (nextPage != null) {
+            // Always wait for the look-ahead to finish, as we're sharing the loader.
+            final boolean wanted = nextPageNr == pageNr;
+            final List<Book> next = getNextPage();
+            if (wanted) {
+                page = next;
+            }
+        }
+        if (page == null) {
+            page = loadPage(context, pageNr, progressListener);
+        }
+
+        // Look ahead: load the next page while the caller is processing this one.
+        // The network requests are still subject to the site Throttler.
+        if (pageNr < maxPages) {
+            final int nr = pageNr + 1;
+            nextPageNr = nr;
+            nextPage = ASyncExecutor.SERVICE.submit(
+                    () -> loadPage(context, nr, progressListener));
+        }
+        return page;
+    }
+
+    /**
+     * Stop loading the next page, if we were.
+     */
+    void cancel() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+            jsoupLoader.cancel();
+        }
+    }
+
+    @WorkerThread
+    @NonNull
+    private List<Book> loadPage(@NonNull final Context context,
+                                @IntRange(from = 1) final int pageNr,
+                                @NonNull final ProgressListener progressListener)
+            throws SearchException, IOException {
         final String url = searchEngine.getHostUrl(context)
                            + String.format(URL_MY_BOOKS, userId, pageNr, FLAGS);
 
@@ -195,6 +252,32 @@ public class UserCollection {
         return parseDocument(document, pageNr, progressListener);
     }
 
+    @WorkerThread
+    @NonNull
+    private List<Book> getNextPage()
+            throws SearchException, IOException {
+        //noinspection DataFlowIssue
+        final Future<List<Book>> future = nextPage;
+        nextPage = null;
+        try {
+            return future.get();
+        } catch (@NonNull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (@NonNull final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SearchException) {
+                throw (SearchException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new SearchException(searchEngine.getEngineId(), cause);
+            }
+        }
+    }
+
     private int parseMaxPages(@NonNull final Element root,
                               @NonNull final ProgressListener progressListener)
             throws SearchException {
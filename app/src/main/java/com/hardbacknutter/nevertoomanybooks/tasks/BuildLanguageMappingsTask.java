@@ -32,8 +32,8 @@ import com.hardbacknutter.nevertoomanybooks.core.tasks.LTask;
 import com.hardbacknutter.nevertoomanybooks.core.tasks.TaskListener;
 
 /**
- * Build the dedicated SharedPreferences file with the language mappings.
- * Only build once per Locale.
+ * Load the language indexes for the user locales.
+ * They are only built once per Locale; after that this is just reading a few small files.
  */
 public class BuildLanguageMappingsTask
         extends LTask<Boolean>
@@ -31,7 +31,6 @@ import androidx.preference.PreferenceManager;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -40,6 +39,7 @@ import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.hardbacknutter.nevertoomanybooks.BuildConfig;
@@ -60,8 +60,11 @@ public final class AppLocaleImpl
     @NonNull
     private final Collection<WeakReference<OnLocaleChangedListener>>
             localeChangedListeners = new ArrayList<>();
-    /** Cache for Locales; key: the BOOK language (ISO3). */
-    private final Map<String, Locale> cache = new HashMap<>();
+    /**
+     * Cache for Locales; key: the BOOK language (ISO3).
+     * Concurrent, as books are decoded on multiple threads during an import.
+     */
+    private final Map<String, Locale> cache = new ConcurrentHashMap<>();
     /** an <strong>unmodifiable</strong> List. */
     @NonNull
     private final List<Locale> systemLocales;
@@ -0,0 +1,207 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An immutable index from the (lowercase) display name of a language
+ * in a given {@link Locale} to its ISO code.
+ * <p>
+ * The names are kept in a sorted array and looked up with a binary search.
+ * <p>
+ * Creating an index means asking every available Locale for its display name,
+ * so once created it's stored in a small binary file which is memory mapped
+ * when needed again. The file carries a signature of the OS build;
+ * a file created by a different build is ignored and recreated.
+ */
+final class LanguageIndex {
+
+    /** Version of the file format. */
+    private static final int FORMAT = 1;
+
+    /** Sorted. */
+    @NonNull
+    private final String[] names;
+    /** The ISO code for the name at the same position in {@link #names}. */
+    @NonNull
+    private final String[] codes;
+
+    private LanguageIndex(@NonNull final String[] names,
+                          @NonNull final String[] codes) {
+        this.names = names;
+        this.codes = codes;
+    }
+
+    /**
+     * Create the index for the given Locale.
+     *
+     * @param locale     for which to create the index
+     * @param isoFactory to get the ISO code for a Locale
+     *
+     * @return new index
+     */
+    @NonNull
+    static LanguageIndex create(@NonNull final Locale locale,
+                                @NonNull final Function<Locale, String> isoFactory) {
+        final Map<String, String> map = new HashMap<>();
+        for (final Locale loc : Locale.getAvailableLocales()) {
+            final String name = loc.getDisplayLanguage(locale).toLowerCase(locale);
+            if (!name.isEmpty()) {
+                map.put(name, isoFactory.apply(loc));
+            }
+        }
+
+        final String[] names = map.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        final String[] codes = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            codes[i] = map.get(names[i]);
+        }
+        return new LanguageIndex(names, codes);
+    }
+
+    /**
+     * Read an index from the given file.
+     *
+     * @param file      to read
+     * @param signature the file must have been written with
+     *
+     * @return the index, or {@code null} if the file does not exist or is not usable
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @Nullable
+    static LanguageIndex read(@NonNull final File file,
+                              @NonNull final String signature)
+            throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                  0, channel.size());
+            if (buffer.getInt() != FORMAT || !signature.equals(readString(buffer))) {
+                return null;
+            }
+            final int size = buffer.getInt();
+            final String[] names = new String[size];
+            final String[] codes = new String[size];
+            for (int i = 0; i < size; i++) {
+                names[i] = readString(buffer);
+                codes[i] = readString(buffer);
+            }
+            return new LanguageIndex(names, codes);
+
+        } catch (@NonNull final BufferUnderflowException | IllegalArgumentException e) {
+            // truncated or otherwise corrupt; it will be recreated
+            return null;
+        }
+    }
+
+    @NonNull
+    private static String readString(@NonNull final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NonNull final DataOutputStream out,
+                                     @NonNull final String s)
+            throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Write this index to the given file.
+     *
+     * @param file      to write
+     * @param signature to write
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    void write(@NonNull final File file,
+               @NonNull final String signature)
+            throws IOException {
+        //noinspection DataFlowIssue
+        final File dir = file.getParentFile();
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+
+        // Write to a temp file first, so a reader never sees a partial file
+        final File tmpFile = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(FORMAT);
+            writeString(out, signature);
+            out.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                writeString(out, names[i]);
+                writeString(out, codes[i]);
+            }
+        }
+        if (!tmpFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tmpFile.delete();
+            throw new IOException("Failed to rename " + tmpFile + " to " + file);
+        }
+    }
+
+    /**
+     * Get the ISO code for the given display name.
+     *
+     * @param name the display name of a language in all lowercase
+     *
+     * @return the ISO code, or {@code null} if not found
+     */
+    @Nullable
+    String get(@NonNull final String name) {
+        final int i = Arrays.binarySearch(names, name);
+        return i >= 0 ? codes[i] : null;
+    }
+
+    /**
+     * Get the number of names in this index.
+     *
+     * @return size
+     */
+    int size() {
+        return names.length;
+    }
+}
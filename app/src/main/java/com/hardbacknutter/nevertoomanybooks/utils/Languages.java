@@ -20,16 +20,18 @@
 package com.hardbacknutter.nevertoomanybooks.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.os.Build;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.annotation.VisibleForTesting;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -56,20 +58,22 @@ import com.hardbacknutter.nevertoomanybooks.tasks.BuildLanguageMappingsTask;
 public class Languages {
 
     /**
-     * The SharedPreferences name where we'll maintain our language to ISO mappings.
-     * <br>
-     * Key: the {@link Locale#getDisplayLanguage()} in all lowercase
-     * (i.e. WITHOUT country/script)
-     * <br>
-     * Value: {@link #getIsoCode(Locale)}
+     * The SharedPreferences name where we used to maintain our language to ISO mappings.
+     * Now only used to delete the obsolete file.
      */
-    @VisibleForTesting
-    public static final String LANGUAGE_MAP = "language2iso3";
-    /** Prefix added to the iso code for the 'done' flag in the language cache. */
-    private static final String LANG_CREATED_PREFIX = "___";
+    private static final String LANGUAGE_MAP = "language2iso3";
+    /** Sub directory of the cache directory where we store the {@link LanguageIndex} files. */
+    private static final String INDEX_DIR = "language2iso3";
 
     @NonNull
     private final Map<String, String> lang3ToLang2Map;
+    /**
+     * The language indexes loaded so far.
+     * Key: {@link Locale#toLanguageTag()}.
+     * Access must be synchronized on the map itself.
+     */
+    @NonNull
+    private final Map<String, LanguageIndex> indexes = new LinkedHashMap<>();
     @NonNull
     private final Supplier<AppLocale> appLocaleSupplier;
 
@@ -129,9 +133,9 @@ public class Languages {
 
     /**
      * Try to convert a language string to an ISO3 code.
-     * At installation time we generated the users System Locale + Locale.ENGLISH
-     * Each time the user switches language, we generate an additional set.
-     * That probably covers a lot if not all.
+     * At startup we load the index for the users System Locale + Locale.ENGLISH
+     * Each time the user switches language, we load an additional one.
+     * The given locale is checked first, followed by all other loaded indexes.
      *
      * @param context  Current context
      * @param locale   the locale of the language string
@@ -148,10 +152,18 @@ public class Languages {
         if (source.isEmpty()) {
             return "";
         }
-        // create the mappings for the given locale if they don't exist yet
-        createLanguageMappingCache(context, locale);
-
-        return getCacheFile(context).getString(source, source);
+        String iso = getIndex(context, locale).get(source);
+        if (iso == null) {
+            synchronized (indexes) {
+                for (final LanguageIndex index : indexes.values()) {
+                    iso = index.get(source);
+                    if (iso != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        return iso != null ? iso : source;
     }
 
     /**
@@ -404,43 +416,59 @@ public class Languages {
 
 
     /**
-     * Create all cache files. This method is called during startup
-     * from {@link BuildLanguageMappingsTask}.
+     * Load, or create if needed, the language indexes for the user locales and English.
+     * This method is called during startup from {@link BuildLanguageMappingsTask}.
      *
      * @param context Current context
      */
     public void createLanguageMappingCache(@NonNull final Context context) {
+        // The mappings used to be stored in a SharedPreferences file.
+        context.deleteSharedPreferences(LANGUAGE_MAP);
+
         final List<Locale> locales = new ArrayList<>(LocaleListUtils.asList(context));
         // Always add English
         locales.add(Locale.ENGLISH);
-        locales.forEach(locale -> createLanguageMappingCache(context, locale));
+        locales.forEach(locale -> getIndex(context, locale));
 
         // Locales from SearchEngine's are added automatically as/when needed
     }
 
     /**
-     * Generate language mappings for a given Locale.
+     * Get the index for the given Locale, loading or creating it as needed.
      *
      * @param context Current context
-     * @param locale  the Locale for which to create a mapping
+     * @param locale  the Locale for which to get the index
+     *
+     * @return index
      */
-    private void createLanguageMappingCache(@NonNull final Context context,
-                                            @NonNull final Locale locale) {
-        final SharedPreferences cacheFile = getCacheFile(context);
-
-        final String isoCode = getIsoCode(locale);
-
-        // just return if already done for this Locale.
-        if (cacheFile.getBoolean(LANG_CREATED_PREFIX + isoCode, false)) {
-            return;
-        }
-        final SharedPreferences.Editor ed = cacheFile.edit();
-        for (final Locale loc : Locale.getAvailableLocales()) {
-            ed.putString(loc.getDisplayLanguage(locale).toLowerCase(locale), getIsoCode(loc));
+    @NonNull
+    private LanguageIndex getIndex(@NonNull final Context context,
+                                   @NonNull final Locale locale) {
+        final String key = locale.toLanguageTag();
+        synchronized (indexes) {
+            LanguageIndex index = indexes.get(key);
+            if (index == null) {
+                final File file = new File(new File(context.getCacheDir(), INDEX_DIR),
+                                           key + ".bin");
+                // The display names come from the OS, so an OS update can change them.
+                final String signature = String.valueOf(Build.FINGERPRINT);
+                try {
+                    index = LanguageIndex.read(file, signature);
+                } catch (@NonNull final IOException ignore) {
+                    // ignore, we'll recreate it
+                }
+                if (index == null) {
+                    index = LanguageIndex.create(locale, this::getIsoCode);
+                    try {
+                        index.write(file, signature);
+                    } catch (@NonNull final IOException ignore) {
+                        // ignore, we'll just create it again next time
+                    }
+                }
+                indexes.put(key, index);
+            }
+            return index;
         }
-        // signal this Locale was done
-        ed.putBoolean(LANG_CREATED_PREFIX + isoCode, true);
-        ed.apply();
     }
 
     /**
@@ -467,18 +495,6 @@ public class Languages {
         return isoCode;
     }
 
-    /**
-     * Convenience method to get the language SharedPreferences file.
-     *
-     * @param context Current context
-     *
-     * @return the SharedPreferences representing the language mapper
-     */
-    @NonNull
-    private SharedPreferences getCacheFile(@NonNull final Context context) {
-        return context.getSharedPreferences(LANGUAGE_MAP, Context.MODE_PRIVATE);
-    }
-
     /**
      * Check if the device or user locale has the given language enabled.
      * <p>
@@ -46,7 +46,6 @@ import com.hardbacknutter.nevertoomanybooks.searchengines.SearchEngineConfig;
 import com.hardbacknutter.nevertoomanybooks.searchengines.amazon.AmazonSearchEngine;
 import com.hardbacknutter.nevertoomanybooks.settings.Prefs;
 import com.hardbacknutter.nevertoomanybooks.utils.AppLocale;
-import com.hardbacknutter.nevertoomanybooks.utils.Languages;
 import com.hardbacknutter.util.logger.LoggerFactory;
 import com.hardbacknutter.util.logger.SystemOutLogger;
 
@@ -138,9 +137,8 @@ public class Base {
         setupSearchEnginePreferences();
         when(context.getSharedPreferences(eq(PACKAGE_NAME + "_preferences"), anyInt()))
                 .thenReturn(sharedPreferences);
-        final SharedPreferences languageMap = createLanguageMap();
-        when(context.getSharedPreferences(eq(Languages.LANGUAGE_MAP), anyInt()))
-                .thenReturn(languageMap);
+        // Used for the language indexes
+        when(context.getCacheDir()).thenReturn(getTmpDir());
 
         // String resource
         setupStringResources(resources);
@@ -181,36 +179,6 @@ public class Base {
         SearchEngineConfig.createRegistry(context, serviceLocatorMock.getLanguages());
     }
 
-    private SharedPreferences createLanguageMap() {
-        /*
-         * SharedPreferences for the language map.
-         */
-        final SharedPreferences languageMap = SharedPreferencesMock.create();
-        languageMap.edit()
-                   .putString("english", "eng")
-                   .putString("engels", "eng")
-                   .putString("anglais", "eng")
-                   .putString("englisch", "eng")
-
-                   .putString("french", "fra")
-                   .putString("français", "fra")
-                   .putString("französisch", "fra")
-                   .putString("frans", "fra")
-
-                   .putString("german", "ger")
-                   .putString("allemand", "ger")
-                   .putString("deutsch", "ger")
-                   .putString("duits", "ger")
-
-                   .putString("dutch", "nld")
-                   .putString("néerlandais", "nld")
-                   .putString("niederländisch", "nld")
-                   .putString("nederlands", "nld")
-
-                   .apply();
-        return languageMap;
-    }
-
     private void setupSearchEnginePreferences() {
         sharedPreferences.edit()
                          .putString(Prefs.PK_UI_LOCALE, AppLocale.SYSTEM_LANGUAGE)
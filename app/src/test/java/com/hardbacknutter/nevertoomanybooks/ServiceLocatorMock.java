@@ -29,10 +29,13 @@ import androidx.annotation.NonNull;
 import com.hardbacknutter.nevertoomanybooks._mocks.os.BundleMock;
 import com.hardbacknutter.nevertoomanybooks.core.network.NetworkChecker;
 import com.hardbacknutter.nevertoomanybooks.covers.CoverStorage;
+import com.hardbacknutter.nevertoomanybooks.database.dao.BookshelfDao;
 import com.hardbacknutter.nevertoomanybooks.database.dao.StylesHelper;
 
 import org.mockito.Mock;
 
+import static org.mockito.Mockito.mock;
+
 /**
  * Some services are mocked / passed into the constructor.
  * Others are used as-is.
@@ -47,6 +50,9 @@ public class ServiceLocatorMock
     private final StylesHelper stylesHelper;
     @Mock
     private final CoverStorage coverStorage;
+    /** The real one needs a database; all lookups come back empty. */
+    @NonNull
+    private final BookshelfDao bookshelfDao = mock(BookshelfDao.class);
 
     public ServiceLocatorMock(@NonNull final Context context,
                               @NonNull final LocaleList systemLocaleList,
@@ -87,4 +93,10 @@ public class ServiceLocatorMock
     public CoverStorage getCoverStorage() {
         return coverStorage;
     }
+
+    @NonNull
+    @Override
+    public BookshelfDao getBookshelfDao() {
+        return bookshelfDao;
+    }
 }
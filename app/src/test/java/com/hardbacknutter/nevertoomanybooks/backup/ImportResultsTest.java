@@ -80,4 +80,20 @@ class ImportResultsTest
         assertEquals(ImportResults.MAX_FAIL_LINES_REPORTED, results.failedLinesNr.size());
         assertEquals(ImportResults.MAX_FAIL_LINES_REPORTED, results.failedLinesMessage.size());
     }
+
+    @Test
+    void knownIsbn() {
+        final ImportResults results = new ImportResults();
+        results.booksCreated = 3;
+        results.booksWithKnownIsbn = 2;
+
+        final ImportResults results2 = new ImportResults();
+        results2.booksCreated = 1;
+        results2.booksWithKnownIsbn = 1;
+
+        results.add(results2);
+
+        assertEquals(4, results.booksCreated);
+        assertEquals(3, results.booksWithKnownIsbn);
+    }
 }
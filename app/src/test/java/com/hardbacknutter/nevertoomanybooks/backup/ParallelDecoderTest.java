@@ -0,0 +1,144 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelDecoderTest {
+
+    private static final int COUNT = ParallelDecoder.MAX_AHEAD * 8;
+
+    @Test
+    void ordered()
+            throws IOException {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        try (ParallelDecoder<String, IOException> decoder = new ParallelDecoder<>(
+                COUNT, () -> index -> {
+            threads.add(Thread.currentThread());
+            // uneven decoding times to shuffle the completion order
+            if (index % 7 == 0) {
+                Thread.yield();
+            }
+            return "book-" + index;
+        })) {
+            decoder.start();
+            for (int i = 0; i < COUNT; i++) {
+                final ParallelDecoder.Result<String, IOException> result = decoder.next();
+                //noinspection DataFlowIssue
+                assertEquals(i, result.index);
+                assertEquals("book-" + i, result.get());
+            }
+            assertNull(decoder.next());
+        }
+        assertTrue(threads.size() >= 1);
+    }
+
+    @Test
+    void failures()
+            throws IOException {
+        try (ParallelDecoder<Integer, IOException> decoder = new ParallelDecoder<>(
+                COUNT, () -> index -> {
+            if (index % 10 == 3) {
+                throw new IOException("bad row " + index);
+            }
+            return index;
+        })) {
+            decoder.start();
+            int failed = 0;
+            ParallelDecoder.Result<Integer, IOException> result;
+            while ((result = decoder.next()) != null) {
+                try {
+                    assertEquals(result.index, (int) result.get());
+                } catch (@NonNull final IOException e) {
+                    assertEquals("bad row " + result.index, e.getMessage());
+                    failed++;
+                }
+            }
+            // indexes 3, 13, 23, ...
+            assertEquals((COUNT + 6) / 10, failed);
+        }
+    }
+
+    @Test
+    void runtimeException()
+            throws IOException {
+        try (ParallelDecoder<Integer, IOException> decoder = new ParallelDecoder<>(
+                10, () -> index -> {
+            throw new IllegalArgumentException("row " + index);
+        })) {
+            decoder.start();
+            final ParallelDecoder.Result<Integer, IOException> result = decoder.next();
+            //noinspection DataFlowIssue
+            assertThrows(IllegalArgumentException.class, result::get);
+        }
+    }
+
+    @Test
+    void closeEarly()
+            throws IOException {
+        // the workers must not hang when we stop reading
+        try (ParallelDecoder<Integer, IOException> decoder = new ParallelDecoder<>(
+                COUNT, () -> index -> index)) {
+            decoder.start();
+            //noinspection DataFlowIssue
+            assertEquals(0, (int) decoder.next().get());
+        }
+    }
+
+    @Test
+    void unknownCount()
+            throws IOException {
+        // the input ends somewhere in the middle of a window
+        final int count = ParallelDecoder.MAX_AHEAD * 3 + 17;
+        try (ParallelDecoder<Integer, IOException> decoder = new ParallelDecoder<>(
+                () -> index -> index < count ? index : null, 0)) {
+            decoder.start();
+            int read = 0;
+            ParallelDecoder.Result<Integer, IOException> result;
+            while ((result = decoder.next()) != null) {
+                assertEquals(read, (int) result.get());
+                read++;
+            }
+            assertEquals(count, read);
+            assertNull(decoder.next());
+        }
+    }
+
+    @Test
+    void empty()
+            throws IOException {
+        try (ParallelDecoder<Integer, IOException> decoder = new ParallelDecoder<>(
+                0, () -> index -> index)) {
+            decoder.start();
+            assertNull(decoder.next());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.hardbacknutter.nevertoomanybooks.Base;
+import com.hardbacknutter.nevertoomanybooks.backup.json.coders.BookCoder;
+import com.hardbacknutter.nevertoomanybooks.entities.Book;
+import com.hardbacknutter.nevertoomanybooks.io.RecordType;
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONObject;
+import com.hardbacknutter.org.json.JSONTokener;
+import com.hardbacknutter.util.logger.Logger;
+import com.hardbacknutter.util.logger.LoggerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the size and the write/read speed of the {@link RecordType#Books}
+ * in the binary format against the JSON text.
+ * <p>
+ * Each run does for every book what the record writers and readers do, minus the database:
+ * <ul>
+ *     <li>JsonRecordWriter: {@link BookCoder#encode} into one {@link JSONArray},
+ *         and write the whole object as text.</li>
+ *     <li>JsonRecordReader: parse the text with a {@link JSONTokener},
+ *         and {@link BookCoder#decode} each book.</li>
+ *     <li>BinaryRecordWriter: {@link BookCoder#encode} each book into a {@link BlockWriter}.</li>
+ *     <li>BinaryRecordReader: read the blocks with a {@link BlockReader},
+ *         and {@link BookCoder#decode} each book.</li>
+ * </ul>
+ * Both readers decode the books in parallel; here it's done on the calling thread.
+ * The format alone, i.e. without the {@link BookCoder}, is reported as well.
+ * The JSON is also deflated, as it would be in a zip archive.
+ * <p>
+ * Not part of the normal test run; set the environment variable {@code BENCHMARK=true}.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class BinaryFormatBenchmarkTest
+        extends Base {
+
+    private static final String TAG = "BinaryFormatBenchmark";
+
+    private static final int BOOKS = 10_000;
+    private static final int WARMUP = 2;
+    private static final int ROUNDS = 5;
+
+    private BookCoder bookCoder;
+    private List<Book> books;
+
+    @FunctionalInterface
+    private interface Task {
+        int run()
+                throws IOException, DataFormatException;
+    }
+
+    /**
+     * Run the task a number of times.
+     *
+     * @return the fastest run in ms
+     */
+    private static double time(@NonNull final Task task,
+                               final int expected)
+            throws IOException, DataFormatException {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(expected, task.run());
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long start = System.nanoTime();
+            assertEquals(expected, task.run());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000d;
+    }
+
+    @NonNull
+    private static String report(@NonNull final String format,
+                                 final int bytes,
+                                 final double write,
+                                 final double read,
+                                 final double formatWrite,
+                                 final double formatRead) {
+        return String.format(Locale.ENGLISH,
+                             "%-17s: %9d bytes, write %7.1f ms, read %7.1f ms"
+                             + " (format only: write %7.1f ms, read %7.1f ms)",
+                             format, bytes, write, read, formatWrite, formatRead);
+    }
+
+    @NonNull
+    private static byte[] writeJson(@NonNull final List<JSONObject> records)
+            throws IOException {
+        final JSONArray array = new JSONArray();
+        records.forEach(array::put);
+        final JSONObject root = new JSONObject();
+        root.put(RecordType.Books.getName(), array);
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+            writer.write(root.toString());
+        }
+        return os.toByteArray();
+    }
+
+    @NonNull
+    private static JSONArray readJson(@NonNull final byte[] data) {
+        final JSONObject root = new JSONObject(new JSONTokener(new InputStreamReader(
+                new ByteArrayInputStream(data), StandardCharsets.UTF_8)));
+        return root.getJSONArray(RecordType.Books.getName());
+    }
+
+    @NonNull
+    private static byte[] deflate(@NonNull final byte[] data)
+            throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(os, deflater)) {
+            dos.write(data);
+        } finally {
+            deflater.end();
+        }
+        return os.toByteArray();
+    }
+
+    @Override
+    @BeforeEach
+    public void setup()
+            throws Exception {
+        super.setup();
+        bookCoder = new BookCoder(context, style);
+        books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookCoder.decode(BinaryFormatTest.createBook(i)));
+        }
+    }
+
+    @NonNull
+    private List<JSONObject> encode() {
+        final List<JSONObject> records = new ArrayList<>(books.size());
+        for (final Book book : books) {
+            records.add(bookCoder.encode(book));
+        }
+        return records;
+    }
+
+    @NonNull
+    private byte[] writeBinary(final boolean compress)
+            throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (BlockWriter writer = new BlockWriter(os, books.size(), compress)) {
+            for (final Book book : books) {
+                writer.write(bookCoder.encode(book));
+            }
+        }
+        return os.toByteArray();
+    }
+
+    private int readJsonBooks(@NonNull final byte[] data) {
+        final JSONArray array = readJson(data);
+        int count = 0;
+        for (int i = 0; i < array.length(); i++) {
+            bookCoder.decode(array.getJSONObject(i));
+            count++;
+        }
+        return count;
+    }
+
+    private int readBinaryBooks(@NonNull final byte[] data)
+            throws IOException, DataFormatException {
+        int count = 0;
+        try (BlockReader reader = new BlockReader(new ByteArrayInputStream(data))) {
+            List<JSONObject> block;
+            while ((block = reader.nextBlock()) != null) {
+                for (final JSONObject record : block) {
+                    bookCoder.decode(record);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    void compareWithJson()
+            throws IOException, DataFormatException {
+        final List<JSONObject> records = encode();
+
+        final byte[] json = writeJson(records);
+        final byte[] jsonDeflated = deflate(json);
+        final byte[] stored = writeBinary(false);
+        final byte[] compressed = writeBinary(true);
+
+        // With the BookCoder
+        final double jsonWrite = time(() -> writeJson(encode()).length, json.length);
+        final double jsonRead = time(() -> readJsonBooks(json), BOOKS);
+        final double storedWrite = time(() -> writeBinary(false).length, stored.length);
+        final double storedRead = time(() -> readBinaryBooks(stored), BOOKS);
+        final double compressedWrite = time(() -> writeBinary(true).length, compressed.length);
+        final double compressedRead = time(() -> readBinaryBooks(compressed), BOOKS);
+
+        // The format only
+        final double jsonFormatWrite = time(() -> writeJson(records).length, json.length);
+        final double jsonFormatRead = time(() -> readJson(json).length(), BOOKS);
+        final double storedFormatWrite = time(
+                () -> BinaryFormatTest.write(records, false).length, stored.length);
+        final double storedFormatRead = time(
+                () -> BinaryFormatTest.read(stored).size(), BOOKS);
+        final double compressedFormatWrite = time(
+                () -> BinaryFormatTest.write(records, true).length, compressed.length);
+        final double compressedFormatRead = time(
+                () -> BinaryFormatTest.read(compressed).size(), BOOKS);
+
+        final Logger logger = LoggerFactory.getLogger();
+        logger.d(TAG, "compareWithJson", BOOKS + " books, best of " + ROUNDS);
+        logger.d(TAG, "compareWithJson", report("json", json.length, jsonWrite, jsonRead,
+                                                jsonFormatWrite, jsonFormatRead));
+        logger.d(TAG, "compareWithJson", report("binary", stored.length,
+                                                storedWrite, storedRead,
+                                                storedFormatWrite, storedFormatRead));
+        logger.d(TAG, "compareWithJson", report("binary compressed", compressed.length,
+                                                compressedWrite, compressedRead,
+                                                compressedFormatWrite, compressedFormatRead));
+        logger.d(TAG, "compareWithJson", "json deflated: " + jsonDeflated.length + " bytes");
+
+        // The string table alone must make a big difference
+        assertTrue(stored.length < json.length / 2);
+        assertTrue(compressed.length < stored.length);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.backup.bin;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONObject;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFormatTest {
+
+    /**
+     * Create a record which looks like a book as encoded by the BookCoder.
+     *
+     * @param i the book number
+     *
+     * @return book
+     */
+    @NonNull
+    static JSONObject createBook(final int i) {
+        final JSONObject book = new JSONObject();
+        book.put("_id", i);
+        book.put("book_uuid", String.format("%032x", i * 7919L));
+        book.put("title", "The title of book number " + i);
+        book.put("isbn", String.valueOf(9780000000000L + i * 13L));
+        book.put("date_published", (1950 + i % 70) + "-0" + (1 + i % 9) + "-15");
+        book.put("date_added", "2023-01-" + (10 + i % 20) + " 12:" + (10 + i % 50) + ":00");
+        book.put("language", i % 3 == 0 ? "eng" : "nld");
+        book.put("format", i % 2 == 0 ? "Paperback" : "Hardcover");
+        book.put("price_listed", new BigDecimal("12.95"));
+        book.put("price_listed_currency", "EUR");
+        book.put("pages", String.valueOf(100 + i % 400));
+        book.put("read", i % 5 == 0);
+        book.put("rating", 3.5d);
+        book.put("description", "A long description which is unique for each book; "
+                                + "it is not added to the string table. Book " + i);
+
+        final JSONArray authors = new JSONArray();
+        final JSONObject author = new JSONObject();
+        author.put("_id", 1 + i % 40);
+        author.put("family_name", "Family" + (i % 40));
+        author.put("given_names", "Given" + (i % 40));
+        author.put("complete", false);
+        author.put("type", 1);
+        authors.put(author);
+        book.put("author_list", authors);
+
+        final JSONArray series = new JSONArray();
+        final JSONObject serie = new JSONObject();
+        serie.put("_id", 1 + i % 25);
+        serie.put("title", "Series title " + (i % 25));
+        serie.put("complete", i % 2 == 0);
+        serie.put("number", String.valueOf(i % 12));
+        series.put(serie);
+        book.put("series_list", series);
+
+        final JSONArray publishers = new JSONArray();
+        final JSONObject publisher = new JSONObject();
+        publisher.put("_id", 1 + i % 10);
+        publisher.put("name", "Publisher " + (i % 10));
+        publishers.put(publisher);
+        book.put("publisher_list", publishers);
+
+        final JSONArray bookshelves = new JSONArray();
+        final JSONObject bookshelf = new JSONObject();
+        bookshelf.put("name", "Default");
+        bookshelves.put(bookshelf);
+        book.put("fk_bookshelf", bookshelves);
+        return book;
+    }
+
+    @NonNull
+    static byte[] write(@NonNull final List<JSONObject> records,
+                        final boolean compress)
+            throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (BlockWriter writer = new BlockWriter(os, records.size(), compress)) {
+            for (final JSONObject record : records) {
+                writer.write(record);
+            }
+        }
+        return os.toByteArray();
+    }
+
+    @NonNull
+    static List<JSONObject> read(@NonNull final byte[] data)
+            throws IOException, DataFormatException {
+        final List<JSONObject> records = new ArrayList<>();
+        try (BlockReader reader = new BlockReader(new ByteArrayInputStream(data))) {
+            List<JSONObject> block;
+            while ((block = reader.nextBlock()) != null) {
+                records.addAll(block);
+            }
+            // The end is sticky
+            assertNull(reader.nextBlock());
+        }
+        return records;
+    }
+
+    @Test
+    void values()
+            throws IOException, DataFormatException {
+        final JSONObject in = new JSONObject();
+        in.put("int", 42);
+        in.put("negative", -42);
+        in.put("long", 1L + Integer.MAX_VALUE);
+        in.put("minLong", Long.MIN_VALUE);
+        in.put("bigInt", new BigInteger("123456789012345678901234567890"));
+        in.put("decimal", new BigDecimal("-1234.5678"));
+        in.put("double", 0.25d);
+        in.put("true", true);
+        in.put("false", false);
+        in.put("null", JSONObject.NULL);
+        in.put("empty", "");
+        in.put("unicode", "\u00dcn\u00efc\u00f6d\u00e9 \u2013 \u0436 \ud83d\udcda");
+        final char[] chars = new char[BinaryFormat.MAX_INTERNED_LENGTH * 4];
+        Arrays.fill(chars, 'x');
+        in.put("long string", new String(chars));
+        in.put("array", new JSONArray().put(1).put("a").put(new JSONObject().put("b", 2)));
+
+        final List<JSONObject> out = read(write(List.of(in, in), false));
+        assertEquals(2, out.size());
+        for (final JSONObject o : out) {
+            assertTrue(in.similar(o), o.toString());
+            // The types must be the same as when parsing the JSON text
+            final JSONObject parsed = new JSONObject(in.toString());
+            for (final String key : parsed.keySet()) {
+                assertEquals(parsed.get(key).getClass(), o.get(key).getClass(), key);
+            }
+        }
+    }
+
+    @Test
+    void blocks()
+            throws IOException, DataFormatException {
+        final List<JSONObject> books = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            books.add(createBook(i));
+        }
+
+        final byte[] stored = write(books, false);
+        final byte[] compressed = write(books, true);
+        // Must be multiple blocks
+        assertTrue(stored.length > 2 * BinaryFormat.BLOCK_SIZE);
+        assertTrue(compressed.length < stored.length);
+
+        for (final byte[] data : List.of(stored, compressed)) {
+            final List<JSONObject> out = read(data);
+            assertEquals(books.size(), out.size());
+            for (int i = 0; i < books.size(); i++) {
+                assertTrue(books.get(i).similar(out.get(i)), String.valueOf(i));
+            }
+        }
+
+        try (BlockReader reader = new BlockReader(new ByteArrayInputStream(stored))) {
+            assertEquals(books.size(), reader.getEstimatedRecordCount());
+        }
+    }
+
+    @Test
+    void empty()
+            throws IOException, DataFormatException {
+        assertEquals(0, read(write(List.of(), true)).size());
+    }
+
+    @Test
+    void corrupt()
+            throws IOException {
+        final List<JSONObject> books = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            books.add(createBook(i));
+        }
+        final byte[] data = write(books, true);
+
+        // Not our format
+        final byte[] badMagic = data.clone();
+        badMagic[0] = 'X';
+        assertThrows(DataFormatException.class, () -> read(badMagic));
+
+        // Newer version
+        final byte[] badVersion = data.clone();
+        badVersion[BinaryFormat.MAGIC.length] = BinaryFormat.VERSION + 1;
+        assertThrows(DataFormatException.class, () -> read(badVersion));
+
+        // Truncated
+        final byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(EOFException.class, () -> read(truncated));
+
+        // Missing the end marker
+        final byte[] noEnd = Arrays.copyOf(data, data.length - 1);
+        assertThrows(EOFException.class, () -> read(noEnd));
+
+        // Unknown block method; the file header is 6 bytes, followed by the record count
+        final byte[] badMethod = write(books, false);
+        int pos = BinaryFormat.MAGIC.length + 3;
+        // skip the raw length
+        while ((badMethod[pos] & 0x80) != 0) {
+            pos++;
+        }
+        badMethod[pos + 1] = 9;
+        assertThrows(DataFormatException.class, () -> read(badMethod));
+
+        // Unknown value tag; the first record (length 2 bytes) starts with an OBJECT tag
+        final byte[] badTag = write(books, false);
+        pos += 2;
+        while ((badTag[pos] & 0x80) != 0) {
+            pos++;
+        }
+        assertEquals(BinaryFormat.OBJECT, badTag[pos + 3]);
+        badTag[pos + 3] = 99;
+        assertThrows(DataFormatException.class, () -> read(badTag));
+    }
+}
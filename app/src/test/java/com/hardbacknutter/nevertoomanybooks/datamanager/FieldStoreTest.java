@@ -0,0 +1,138 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.datamanager;
+
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hardbacknutter.nevertoomanybooks._mocks.os.BundleMock;
+import com.hardbacknutter.nevertoomanybooks.database.DBKey;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldStoreTest {
+
+    @Test
+    void typedValues() {
+        final FieldStore store = new FieldStore();
+        store.putLong(DBKey.PK_ID, 42L);
+        store.putDouble(DBKey.PRICE_LISTED, 12.34d);
+        store.putBoolean(DBKey.READ__BOOL, true);
+        store.putInt("some_int", 7);
+        store.putObject(DBKey.TITLE, "The title");
+
+        assertEquals(5, store.size());
+        assertEquals(FieldStore.TYPE_LONG, store.getType(DBKey.PK_ID));
+        assertEquals(42L, store.getAsLong(DBKey.PK_ID));
+        assertEquals(12.34d, store.getAsDouble(DBKey.PRICE_LISTED));
+        assertEquals(12L, store.getAsLong(DBKey.PRICE_LISTED));
+        assertEquals(1L, store.getAsLong(DBKey.READ__BOOL));
+
+        assertInstanceOf(Long.class, store.get(DBKey.PK_ID));
+        assertInstanceOf(Double.class, store.get(DBKey.PRICE_LISTED));
+        assertInstanceOf(Boolean.class, store.get(DBKey.READ__BOOL));
+        assertInstanceOf(Integer.class, store.get("some_int"));
+        assertEquals("The title", store.get(DBKey.TITLE));
+
+        // overwriting a primitive with an object changes the type
+        store.putObject(DBKey.PK_ID, null);
+        assertTrue(store.contains(DBKey.PK_ID));
+        assertEquals(FieldStore.TYPE_OBJECT, store.getType(DBKey.PK_ID));
+        assertNull(store.get(DBKey.PK_ID));
+    }
+
+    @Test
+    void remove() {
+        final FieldStore store = new FieldStore();
+        for (int i = 0; i < 40; i++) {
+            store.putLong("key" + i, i);
+        }
+        store.remove("key0");
+        store.remove("key20");
+        store.remove("not present");
+
+        assertEquals(38, store.size());
+        assertFalse(store.contains("key0"));
+        assertFalse(store.contains("key20"));
+        // the last slot was moved into the gap
+        assertEquals(39L, store.getAsLong("key39"));
+        assertEquals(21L, store.getAsLong("key21"));
+
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertFalse(store.contains("key39"));
+        assertEquals(-1, store.getType("key39"));
+    }
+
+    @Test
+    void bundleRoundTrip() {
+        final ArrayList<String> list = new ArrayList<>(List.of("a", "b"));
+
+        final FieldStore store = new FieldStore();
+        store.putLong(DBKey.PK_ID, 42L);
+        store.putDouble(DBKey.PRICE_LISTED, 12.34d);
+        store.putObject(DBKey.TITLE, "The title");
+        store.putObject("list", list);
+
+        final Bundle bundle = store.toBundle(BundleMock.create());
+        assertInstanceOf(Long.class, bundle.get(DBKey.PK_ID));
+        assertInstanceOf(Double.class, bundle.get(DBKey.PRICE_LISTED));
+
+        final FieldStore copy = new FieldStore();
+        copy.putAll(bundle);
+        assertTrue(store.contentEquals(copy));
+        assertSame(list, copy.get("list"));
+
+        copy.putDouble(DBKey.PRICE_LISTED, 1d);
+        assertFalse(store.contentEquals(copy));
+    }
+
+    @Test
+    void hashCodeMatchesEquals() {
+        final FieldStore store = new FieldStore();
+        store.putLong(DBKey.PK_ID, 42L);
+        store.putObject(DBKey.TITLE, "The title");
+        store.putBoolean(DBKey.READ__BOOL, true);
+
+        // Same content, different insertion order
+        final FieldStore other = new FieldStore();
+        other.putBoolean(DBKey.READ__BOOL, true);
+        other.putObject(DBKey.TITLE, new String("The title"));
+        other.putLong(DBKey.PK_ID, 42L);
+
+        assertTrue(store.contentEquals(other));
+        assertEquals(store.contentHashCode(), other.contentHashCode());
+
+        other.putLong(DBKey.PK_ID, 43L);
+        assertFalse(store.contentEquals(other));
+        assertNotEquals(store.contentHashCode(), other.contentHashCode());
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.nevertoomanybooks.sync.calibre;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hardbacknutter.nevertoomanybooks.core.storage.StorageException;
+import com.hardbacknutter.org.json.JSONArray;
+import com.hardbacknutter.org.json.JSONObject;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalibreBookFetcherTest {
+
+    @Test
+    void pageSize() {
+        final int min = CalibreBookFetcher.MIN_PAGE_SIZE;
+        final int max = CalibreBookFetcher.MAX_PAGE_SIZE;
+        // fast responses grow the page, up to the max
+        assertEquals(min * 2, CalibreBookFetcher.adjustPageSize(min, 10));
+        assertEquals(max, CalibreBookFetcher.adjustPageSize(max, 10));
+        // slow responses shrink it, down to the min
+        assertEquals(min * 2, CalibreBookFetcher.adjustPageSize(min * 4, 10_000));
+        assertEquals(min, CalibreBookFetcher.adjustPageSize(min, 10_000));
+        // on target
+        assertEquals(min * 4, CalibreBookFetcher.adjustPageSize(min * 4, 2_000));
+    }
+
+    @Test
+    void allBooks()
+            throws IOException, StorageException {
+        final StandInServer server = new StandInServer(1000, false);
+        final Set<Integer> ids = new HashSet<>();
+        int covers = 0;
+        int vlibs = 0;
+        try (CalibreBookFetcher fetcher = new CalibreBookFetcher(server, true, () -> false)) {
+            fetcher.start();
+            CalibreBookFetcher.Page page;
+            while ((page = fetcher.next()) != null) {
+                assertEquals(1000, page.totalNum);
+                for (final CalibreBookFetcher.Entry entry : page.books) {
+                    final int id = entry.calibreBook.getInt(CalibreBookJsonKey.ID);
+                    assertTrue(ids.add(id));
+                    final Optional<File> cover = entry.getCover();
+                    if (id % 2 == 0) {
+                        assertEquals("cover-" + id, cover.orElseThrow().getName());
+                        covers++;
+                    } else {
+                        assertFalse(cover.isPresent());
+                    }
+                    if (entry.virtualLibraries != null) {
+                        assertEquals("vlib-" + id, entry.virtualLibraries.getString(0));
+                        vlibs++;
+                    }
+                }
+            }
+        }
+        assertEquals(1000, ids.size());
+        assertEquals(500, covers);
+        assertEquals(1000, vlibs);
+        assertEquals(500, server.coverRequests.get());
+        // the stand-in is fast, so the page size must have grown
+        assertTrue(server.pageSizes.size() < 1000 / CalibreBookFetcher.MIN_PAGE_SIZE);
+        assertEquals(CalibreBookFetcher.MAX_PAGE_SIZE,
+                     (int) server.pageSizes.get(server.pageSizes.size() - 1));
+    }
+
+    @Test
+    void slowImporter()
+            throws IOException, StorageException, InterruptedException {
+        // fetching is fast, but the importer is slower than half the target page time;
+        // waiting for the importer must not be mistaken for a slow server.
+        final StandInServer server = new StandInServer(310, false);
+        try (CalibreBookFetcher fetcher = new CalibreBookFetcher(server, false, () -> false)) {
+            fetcher.start();
+            while (fetcher.next() != null) {
+                Thread.sleep(1_100);
+            }
+        }
+        assertEquals(List.of(10, 20, 40, 80, 160), server.pageSizes);
+    }
+
+    @Test
+    void noCovers()
+            throws IOException, StorageException {
+        final StandInServer server = new StandInServer(25, false);
+        int count = 0;
+        try (CalibreBookFetcher fetcher = new CalibreBookFetcher(server, false, () -> false)) {
+            fetcher.start();
+            CalibreBookFetcher.Page page;
+            while ((page = fetcher.next()) != null) {
+                for (final CalibreBookFetcher.Entry entry : page.books) {
+                    assertFalse(entry.getCover().isPresent());
+                    count++;
+                }
+            }
+        }
+        assertEquals(25, count);
+        assertEquals(0, server.coverRequests.get());
+    }
+
+    @Test
+    void failure() {
+        final StandInServer server = new StandInServer(100, true);
+        assertThrows(IOException.class, () -> {
+            try (CalibreBookFetcher fetcher = new CalibreBookFetcher(server, true,
+                                                                     () -> false)) {
+                fetcher.start();
+                //noinspection StatementWithEmptyBody
+                while (fetcher.next() != null) {
+                    // just consume
+                }
+            }
+        });
+    }
+
+    /**
+     * Serves a library of books with ids 1..total in the same format
+     * as the Calibre content server does.
+     */
+    private static class StandInServer
+            implements CalibreBookFetcher.Source {
+
+        final List<Integer> pageSizes = new ArrayList<>();
+        final AtomicInteger coverRequests = new AtomicInteger();
+        private final int total;
+        private final boolean failSecondPage;
+
+        StandInServer(final int total,
+                      final boolean failSecondPage) {
+            this.total = total;
+            this.failSecondPage = failSecondPage;
+        }
+
+        @NonNull
+        @Override
+        public JSONObject getBookIds(final int num,
+                                     final int offset)
+                throws IOException {
+            pageSizes.add(num);
+            if (failSecondPage && offset > 0) {
+                throw new IOException("stand-in failure");
+            }
+            final JSONArray bookIds = new JSONArray();
+            for (int id = offset + 1; id <= Math.min(offset + num, total); id++) {
+                bookIds.put(id);
+            }
+            return new JSONObject()
+                    .put(CalibreContentServer.RESPONSE_TAG_TOTAL_NUM, total)
+                    .put(CalibreContentServer.RESPONSE_TAG_NUM, bookIds.length())
+                    .put(CalibreContentServer.RESPONSE_TAG_BOOK_IDS, bookIds);
+        }
+
+        @NonNull
+        @Override
+        public JSONObject getBooks(@NonNull final JSONArray calibreIds) {
+            final JSONObject books = new JSONObject();
+            for (int i = 0; i < calibreIds.length(); i++) {
+                final int id = calibreIds.getInt(i);
+                final JSONObject book = new JSONObject()
+                        .put(CalibreBookJsonKey.ID, id)
+                        .put(CalibreBookJsonKey.TITLE, "Book " + id);
+                if (id % 2 == 0) {
+                    book.put(CalibreBookJsonKey.COVER, "/get/cover/" + id);
+                } else {
+                    book.put(CalibreBookJsonKey.COVER, JSONObject.NULL);
+                }
+                books.put(String.valueOf(id), book);
+            }
+            return books;
+        }
+
+        @Nullable
+        @Override
+        public JSONObject getVirtualLibrariesForBooks(@NonNull final JSONArray calibreIds) {
+            final JSONObject vlibs = new JSONObject();
+            for (int i = 0; i < calibreIds.length(); i++) {
+                final int id = calibreIds.getInt(i);
+                vlibs.put(String.valueOf(id), new JSONArray().put("vlib-" + id));
+            }
+            return vlibs;
+        }
+
+        @NonNull
+        @Override
+        public Optional<File> getCover(final int calibreId,
+                                       @NonNull final String coverUrl) {
+            coverRequests.incrementAndGet();
+            assertEquals("/get/cover/" + calibreId, coverUrl);
+            return Optional.of(new File("cover-" + calibreId));
+        }
+    }
+}
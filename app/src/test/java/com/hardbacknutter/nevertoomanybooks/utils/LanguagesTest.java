@@ -0,0 +1,83 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import com.hardbacknutter.nevertoomanybooks.Base;
+import com.hardbacknutter.nevertoomanybooks.ServiceLocator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LanguagesTest
+        extends Base {
+
+    @Test
+    void iso3FromDisplayLanguage() {
+        setLocale(Locale.ENGLISH);
+        final Languages languages = ServiceLocator.getInstance().getLanguages();
+
+        assertEquals("eng", languages.getISO3FromDisplayLanguage(
+                context, Locale.ENGLISH, "English"));
+        assertEquals("fra", languages.getISO3FromDisplayLanguage(
+                context, Locale.FRENCH, " Français "));
+        assertEquals("deu", languages.getISO3FromDisplayLanguage(
+                context, Locale.GERMAN, "Deutsch"));
+        // Not in the German index, but found in the English one
+        assertEquals("nld", languages.getISO3FromDisplayLanguage(
+                context, Locale.GERMAN, "Dutch"));
+
+        // not a language
+        assertEquals("foo", languages.getISO3FromDisplayLanguage(
+                context, Locale.ENGLISH, "Foo"));
+        assertEquals("", languages.getISO3FromDisplayLanguage(
+                context, Locale.ENGLISH, " "));
+    }
+
+    @Test
+    void indexFile()
+            throws IOException {
+        final LanguageIndex index = LanguageIndex.create(Locale.FRENCH,
+                                                         Locale::getISO3Language);
+        assertEquals("deu", index.get("allemand"));
+
+        final File file = new File(getTmpDir(), "LanguagesTest.bin");
+        index.write(file, "signature");
+
+        final LanguageIndex copy = LanguageIndex.read(file, "signature");
+        assertNotNull(copy);
+        assertEquals(index.size(), copy.size());
+        assertEquals("fra", copy.get("français"));
+        assertEquals("deu", copy.get("allemand"));
+        assertNull(copy.get("german"));
+
+        // Written by a different OS build
+        assertNull(LanguageIndex.read(file, "other"));
+        // Doesn't exist
+        assertNull(LanguageIndex.read(new File(getTmpDir(), "LanguagesTest.none"),
+                                      "signature"));
+    }
+}
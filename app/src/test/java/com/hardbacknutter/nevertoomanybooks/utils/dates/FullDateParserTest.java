@@ -102,6 +102,29 @@ class FullDateParserTest
                      parser.parse("06-25-1987"));
     }
 
+    @Test
+    void lastMatchFirst() {
+        setLocale(Locale.ENGLISH);
+        final DateParser parser = new FullDateParser(locales.get(0), locales);
+
+        // Matches due to MM-dd pattern being before dd-MM
+        assertEquals(w_2017_01_12, parser.parse("01-12-2017"));
+        // Only matches dd-MM
+        assertEquals(s_1987_06_25, parser.parse("25-06-1987"));
+        // Ambiguous; the last matching pattern is now tried first
+        assertEquals(Optional.of(LocalDateTime.of(2017, 12, 1, 0, 0)),
+                     parser.parse("01-12-2017"));
+
+        // Each shape has its own last match
+        assertEquals(Optional.of(LocalDateTime.of(2017, 1, 12, 11, 57)),
+                     parser.parse("01-12-2017 11:57"));
+
+        // Invalid input
+        assertTrue(parser.parse("13-13-2017").isEmpty());
+        assertTrue(parser.parse("01-12-2017 11:57:41:00").isEmpty());
+        assertTrue(parser.parse("12 foo 2017").isEmpty());
+    }
+
     @Test
     void goodreadsCsv() {
         setLocale(Locale.ENGLISH);
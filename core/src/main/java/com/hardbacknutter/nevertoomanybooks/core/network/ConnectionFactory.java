@@ -0,0 +1,52 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.core.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Opens the connection for all requests made by {@link FutureHttpBase}.
+ * <p>
+ * The default is simply {@link URL#openConnection()}.
+ * Tests can install their own to redirect all traffic to a local server,
+ * e.g. to record and replay the responses from a website.
+ *
+ * @see FutureHttpBase#setConnectionFactory(ConnectionFactory)
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    /**
+     * Open a connection for the given url.
+     *
+     * @param url to open
+     *
+     * @return the <strong>unconnected</strong> request
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @NonNull
+    HttpURLConnection open(@NonNull URL url)
+            throws IOException;
+}
@@ -23,6 +23,7 @@ import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import java.io.IOException;
@@ -70,6 +71,16 @@ public abstract class FutureHttpBase<T> {
     /** timeout for requests to website. */
     private static final int READ_TIMEOUT_MS = 10_000;
 
+    /**
+     * Replaceable for testing.
+     * {@code null} for the default {@link URL#openConnection()}.
+     */
+    @Nullable
+    private static volatile ConnectionFactory connectionFactory;
+
+    /** Testing only: set to {@code false} to skip all throttling. */
+    static volatile boolean throttlingEnabled = true;
+
     @StringRes
     private final int siteResId;
 
@@ -271,6 +282,28 @@ public abstract class FutureHttpBase<T> {
         return this;
     }
 
+    /**
+     * Install a {@link ConnectionFactory} for <strong>all</strong> requests.
+     *
+     * @param factory to use; or {@code null} to restore the default
+     */
+    @VisibleForTesting
+    public static void setConnectionFactory(@Nullable final ConnectionFactory factory) {
+        connectionFactory = factory;
+    }
+
+    /**
+     * Enable or disable the throttling of <strong>all</strong> requests.
+     * Only to be disabled when all requests go to a local server,
+     * e.g. one replaying recorded responses.
+     *
+     * @param enabled flag
+     */
+    @VisibleForTesting
+    public static void setThrottlingEnabled(final boolean enabled) {
+        throttlingEnabled = enabled;
+    }
+
     private int getFutureTimeout() {
         return connectTimeoutInMs + readTimeoutInMs + 10;
     }
@@ -281,7 +314,13 @@ public abstract class FutureHttpBase<T> {
                                             final boolean doOutput)
             throws IOException {
 
-        final HttpURLConnection request = (HttpURLConnection) url.openConnection();
+        final ConnectionFactory factory = connectionFactory;
+        final HttpURLConnection request;
+        if (factory != null) {
+            request = factory.open(url);
+        } else {
+            request = (HttpURLConnection) url.openConnection();
+        }
 
         request.setRequestMethod(method);
         request.setDoOutput(doOutput);
@@ -106,7 +106,7 @@ public class FutureHttpGetBase<T>
         while (retry > 0) {
             //noinspection OverlyBroadCatchBlock
             try {
-                if (throttler != null) {
+                if (throttler != null && throttlingEnabled) {
                     throttler.waitUntilRequestAllowed();
                 }
 
@@ -79,7 +79,7 @@ public class FutureHttpPost<T>
 
         return execute(url, POST, true, request -> {
 
-            if (throttler != null) {
+            if (throttler != null && throttlingEnabled) {
                 throttler.waitUntilRequestAllowed();
             }
 
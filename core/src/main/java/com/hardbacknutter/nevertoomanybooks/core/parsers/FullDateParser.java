@@ -22,16 +22,20 @@ package com.hardbacknutter.nevertoomanybooks.core.parsers;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.text.ParsePosition;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -39,72 +43,51 @@ import java.util.Optional;
  * <p>
  * This object is thread-safe, but user locale specific at creation time.
  * <p>
+ * The input is first classified by its {@link Shape}, and only the patterns which
+ * could possibly match that shape are tried. Matching is done without throwing exceptions
+ * for the (many) patterns which do not match.
+ * <p>
+ * Each shape remembers the pattern which matched last, and tries it first on the next call.
+ * Dates in an import file will normally all have the same format; so an ambiguous
+ * date like '01-02-2017' will be parsed the same way as the non-ambiguous date before it.
+ * <p>
  * TEST: <a href="https://issuetracker.google.com/issues/158417777">DateTimeParseException</a>
  * seems to be fixed, but the bug was never closed?
- * <p>
- * TODO: performance: create all parsers, then parse (and reuse the parsers)...
- * or create the parsers each time, but stop at first result.
  */
 public class FullDateParser
         implements DateParser {
 
-    /** All numerical (i.e. Locale independent) patterns. */
-    private static final String[] NUMERICAL_PATTERNS = {
-            // US format first
-            "MM-dd-yyyy HH:mm:ss",
-            "MM-dd-yyyy HH:mm",
-
-            // International next
-            "dd-MM-yyyy HH:mm:ss",
-            "dd-MM-yyyy HH:mm",
-
-            // same without time
-            "MM-dd-yyyy",
-            "dd-MM-yyyy",
-
-            // Goodreads csv (and yes, it IS mm/dd)
-            "yyyy/MM/dd"
+    /**
+     * The fields validated before resolving the parsed result;
+     * resolving throws an exception if they are out of range.
+     * {@link ChronoField#HOUR_OF_DAY} is not included as '24:00' is valid for resolving.
+     */
+    private static final ChronoField[] VALIDATED_FIELDS = {
+            ChronoField.MONTH_OF_YEAR,
+            ChronoField.DAY_OF_MONTH,
+            ChronoField.MINUTE_OF_HOUR,
+            ChronoField.SECOND_OF_MINUTE
     };
 
-    /** Patterns with Locale dependent text. */
-    private static final String[] TEXT_PATTERNS = {
-            // Abbreviated month
-            "dd-MMM-yyyy",
-            "dd MMM yyyy",
-            "dd MMM. yyyy",
-
-            // Just a dot after the day...
-            "d. MMM yyyy",
-            "dd. MMM yyyy",
-
-            // Month in full
-            "dd-MMMM-yyyy",
-            "dd MMMM yyyy",
-
-            // Dates of the form: 'Fri Apr 5 17:23:11 -0800 2012'
-            "EEE MMM dd HH:mm:ss ZZZZ yyyy",
-
-            // Used by OpenLibrary, maybe others
-            "MMM d, yyyy",
-            "MMMM d, yyyy",
-            "MMM yyyy",
-            "MMMM yyyy",
-
-            // Occasionally we have seen the year in old style 2 digits
-            "dd-MMM-yy",
-            "dd-MMMM-yy",
-    };
+    private static final List<Shape> NUMERICAL_DATE_TIME_SECONDS =
+            List.of(Shape.NumericalDateTimeSeconds);
+    private static final List<Shape> NUMERICAL_DATE_TIME = List.of(Shape.NumericalDateTime);
+    private static final List<Shape> NUMERICAL_DATE = List.of(Shape.NumericalDate);
+    private static final List<Shape> NUMERICAL_YEAR_FIRST = List.of(Shape.NumericalYearFirst);
+    private static final List<Shape> TEXT_WITH_TIME = List.of(Shape.TextWithTime);
+    private static final List<Shape> TEXT_MONTH_FIRST = List.of(Shape.TextMonthFirst);
+    // Some locales (e.g. Japanese) have month names starting with a digit.
+    private static final List<Shape> TEXT_DAY_FIRST = List.of(Shape.TextDayFirst,
+                                                              Shape.TextMonthFirst);
 
     /** Immutable. */
     @NonNull
     private final List<Locale> locales;
     @NonNull
     private final DateParser isoDateParser;
-    /** List of patterns we'll use to parse dates. */
-    @Nullable
-    private Collection<DateTimeFormatter> textParsers;
-    @Nullable
-    private Collection<DateTimeFormatter> numericalParsers;
+    /** The parsers for each shape; created as needed. */
+    @NonNull
+    private final Map<Shape, Group> groups = new EnumMap<>(Shape.class);
 
     /**
      * Constructor.
@@ -118,6 +101,64 @@ public class FullDateParser
         this.locales = locales;
     }
 
+    /**
+     * Classify the given string.
+     *
+     * @param dateStr to classify
+     *
+     * @return the shapes to try in order; can be empty
+     */
+    @NonNull
+    private static List<Shape> classify(@NonNull final CharSequence dateStr) {
+        int colons = 0;
+        boolean hasLetters = false;
+        // length of the leading run of digits
+        int leadingDigits = 0;
+        boolean leading = true;
+
+        final int len = dateStr.length();
+        for (int i = 0; i < len; i++) {
+            final char c = dateStr.charAt(i);
+            final boolean isDigit = c >= '0' && c <= '9';
+            if (leading) {
+                if (isDigit) {
+                    leadingDigits++;
+                } else {
+                    leading = false;
+                }
+            }
+            if (c == ':') {
+                colons++;
+            } else if (!isDigit && Character.isLetter(c)) {
+                hasLetters = true;
+            }
+        }
+
+        if (hasLetters) {
+            if (colons > 0) {
+                return TEXT_WITH_TIME;
+            } else if (leadingDigits == 0) {
+                return TEXT_MONTH_FIRST;
+            } else {
+                return TEXT_DAY_FIRST;
+            }
+        }
+
+        if (leadingDigits == 4) {
+            return colons == 0 ? NUMERICAL_YEAR_FIRST : List.of();
+        }
+        switch (colons) {
+            case 0:
+                return NUMERICAL_DATE;
+            case 1:
+                return NUMERICAL_DATE_TIME;
+            case 2:
+                return NUMERICAL_DATE_TIME_SECONDS;
+            default:
+                return List.of();
+        }
+    }
+
     /**
      * Attempt to parse a date string.
      *
@@ -148,67 +189,124 @@ public class FullDateParser
             return Optional.empty();
         }
 
-        // Try ISO first,
+        // Try ISO first, then the patterns matching the shape of the input.
         return isoDateParser.parse(dateStr).or(() -> {
-            // then numerical,
-            if (numericalParsers == null) {
-                numericalParsers = new ArrayList<>();
-                addPatterns(numericalParsers, NUMERICAL_PATTERNS, locales);
-            }
-            return parse(numericalParsers, dateStr, locale).or(() -> {
-                // or lastly the extensive text based.
-                if (textParsers == null) {
-                    textParsers = new ArrayList<>();
-                    addPatterns(textParsers, TEXT_PATTERNS, locales);
-                    //Create an English variant of a parser
-                    // if English is not already in the list of locales.
-                    if (locales.stream().noneMatch(Locale.ENGLISH::equals)) {
-                        addPatterns(textParsers, TEXT_PATTERNS, List.of(Locale.ENGLISH));
-                    }
+            for (final Shape shape : classify(dateStr)) {
+                final Optional<LocalDateTime> date = parse(getGroup(shape), dateStr, locale);
+                if (date.isPresent()) {
+                    return date;
                 }
-                return parse(textParsers, dateStr, locale);
-            });
+            }
+            return Optional.empty();
         });
     }
 
+    /**
+     * Get the parsers for the given shape, creating them if needed.
+     *
+     * @param shape to get
+     *
+     * @return the group
+     */
+    @NonNull
+    private synchronized Group getGroup(@NonNull final Shape shape) {
+        Group group = groups.get(shape);
+        if (group == null) {
+            final List<DateTimeFormatter> parsers = new ArrayList<>();
+            addPatterns(parsers, shape.patterns, locales);
+            //Create an English variant of a parser
+            // if English is not already in the list of locales.
+            if (shape.isText && locales.stream().noneMatch(Locale.ENGLISH::equals)) {
+                addPatterns(parsers, shape.patterns, List.of(Locale.ENGLISH));
+            }
+            group = new Group(parsers);
+            groups.put(shape, group);
+        }
+        return group;
+    }
+
     /**
      * Attempt to parse a date string.
      * Any missing parts of the pattern will get set to default: 1-Jan, 00:00:00
      * If the year is missing, {@code null} is returned.
      *
+     * @param group       the parsers to use
      * @param dateStr     String to parse
      * @param firstLocale (optional) Locale to apply/try before the default list.
      *
      * @return Resulting date if parsed, otherwise {@code Optional.empty()}
      */
     @NonNull
-    private Optional<LocalDateTime> parse(@NonNull final Iterable<DateTimeFormatter> parsers,
+    private Optional<LocalDateTime> parse(@NonNull final Group group,
                                           @NonNull final CharSequence dateStr,
                                           @Nullable final Locale firstLocale) {
+        Optional<LocalDateTime> date;
 
         // Try the specified Locale first
         if (firstLocale != null) {
-            for (final DateTimeFormatter dtf : parsers) {
-                try {
-                    return Optional.of(LocalDateTime.parse(dateStr, dtf.withLocale(firstLocale)));
-                } catch (@NonNull final DateTimeParseException ignore) {
-                    // ignore and try the next one
+            for (final DateTimeFormatter dtf : group.parsers) {
+                date = parse(dtf.withLocale(firstLocale), dateStr);
+                if (date.isPresent()) {
+                    return date;
                 }
             }
         }
 
-        // Parse with the default locales, using the default ResolverStyle
-        for (final DateTimeFormatter dtf : parsers) {
-            try {
-                return Optional.of(LocalDateTime.parse(dateStr, dtf));
-            } catch (@NonNull final DateTimeParseException ignore) {
-                // ignore and try the next one
+        // Parse with the default locales, using the default ResolverStyle;
+        // starting with the one which matched last.
+        final DateTimeFormatter lastMatch = group.lastMatch;
+        if (lastMatch != null) {
+            date = parse(lastMatch, dateStr);
+            if (date.isPresent()) {
+                return date;
+            }
+        }
+        for (final DateTimeFormatter dtf : group.parsers) {
+            if (dtf != lastMatch) {
+                date = parse(dtf, dateStr);
+                if (date.isPresent()) {
+                    group.lastMatch = dtf;
+                    return date;
+                }
             }
         }
 
         return Optional.empty();
     }
 
+    /**
+     * Attempt to parse a date string with a single parser.
+     * <p>
+     * The syntax and the field ranges are checked first; this does not throw exceptions.
+     * Only input which passes those checks is resolved.
+     *
+     * @param dtf     the parser
+     * @param dateStr String to parse
+     *
+     * @return Resulting date if parsed, otherwise {@code Optional.empty()}
+     */
+    @NonNull
+    private static Optional<LocalDateTime> parse(@NonNull final DateTimeFormatter dtf,
+                                                 @NonNull final CharSequence dateStr) {
+        final ParsePosition pos = new ParsePosition(0);
+        final TemporalAccessor parsed = dtf.parseUnresolved(dateStr, pos);
+        if (parsed == null || pos.getErrorIndex() >= 0 || pos.getIndex() < dateStr.length()) {
+            return Optional.empty();
+        }
+        for (final ChronoField field : VALIDATED_FIELDS) {
+            if (parsed.isSupported(field) && !field.range().isValidValue(parsed.getLong(field))) {
+                return Optional.empty();
+            }
+        }
+
+        try {
+            return Optional.of(LocalDateTime.parse(dateStr, dtf));
+        } catch (@NonNull final DateTimeParseException ignore) {
+            // e.g. a missing year
+            return Optional.empty();
+        }
+    }
+
     /**
      * <strong>Add</strong> patterns to the given group.
      *
@@ -240,4 +338,55 @@ public class FullDateParser
             }
         }
     }
+
+    /**
+     * The shape of the input; each with the only patterns which could match it.
+     * The order of the patterns within a shape is important.
+     */
+    private enum Shape {
+        /** Numerical (i.e. Locale independent); US format first, international next. */
+        NumericalDateTimeSeconds(false, "MM-dd-yyyy HH:mm:ss", "dd-MM-yyyy HH:mm:ss"),
+        NumericalDateTime(false, "MM-dd-yyyy HH:mm", "dd-MM-yyyy HH:mm"),
+        NumericalDate(false, "MM-dd-yyyy", "dd-MM-yyyy"),
+        /** Goodreads csv (and yes, it IS mm/dd). */
+        NumericalYearFirst(false, "yyyy/MM/dd"),
+
+        /** Dates of the form: 'Fri Apr 5 17:23:11 -0800 2012'. */
+        TextWithTime(true, "EEE MMM dd HH:mm:ss ZZZZ yyyy"),
+        /** Used by OpenLibrary, maybe others. */
+        TextMonthFirst(true, "MMM d, yyyy", "MMMM d, yyyy", "MMM yyyy", "MMMM yyyy"),
+        TextDayFirst(true,
+                     // Abbreviated month
+                     "dd-MMM-yyyy", "dd MMM yyyy", "dd MMM. yyyy",
+                     // Just a dot after the day...
+                     "d. MMM yyyy", "dd. MMM yyyy",
+                     // Month in full
+                     "dd-MMMM-yyyy", "dd MMMM yyyy",
+                     // Occasionally we have seen the year in old style 2 digits
+                     "dd-MMM-yy", "dd-MMMM-yy");
+
+        /** Patterns with Locale dependent text. */
+        private final boolean isText;
+        @NonNull
+        private final String[] patterns;
+
+        Shape(final boolean isText,
+              @NonNull final String... patterns) {
+            this.isText = isText;
+            this.patterns = patterns;
+        }
+    }
+
+    private static final class Group {
+
+        @NonNull
+        private final List<DateTimeFormatter> parsers;
+        /** The parser which matched last. */
+        @Nullable
+        private volatile DateTimeFormatter lastMatch;
+
+        private Group(@NonNull final List<DateTimeFormatter> parsers) {
+            this.parsers = parsers;
+        }
+    }
 }
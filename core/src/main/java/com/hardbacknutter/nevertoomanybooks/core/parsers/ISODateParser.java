@@ -79,6 +79,12 @@ public class ISODateParser
         if (len < 4 || len == 5 || len == 6 || len == 8 || len == 9) {
             return Optional.empty();
         }
+        // All supported formats start with a 4 digit year, optionally followed by '-'.
+        // Checking this first avoids the cost of the parse exceptions on non-ISO input,
+        // e.g. when used as the first step of the FullDateParser.
+        if (!isYear(dateStr) || len > 4 && dateStr.charAt(4) != '-') {
+            return Optional.empty();
+        }
 
         // Check the partial patterns first.
         try {
@@ -116,6 +122,23 @@ public class ISODateParser
         return Optional.empty();
     }
 
+    /**
+     * Check if the given string starts with 4 digits.
+     *
+     * @param dateStr to check; must be at least 4 characters
+     *
+     * @return {@code true} if it does
+     */
+    private static boolean isYear(@NonNull final CharSequence dateStr) {
+        for (int i = 0; i < 4; i++) {
+            final char c = dateStr.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Create the parser list.
      */
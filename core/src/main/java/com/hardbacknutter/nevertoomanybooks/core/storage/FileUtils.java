@@ -40,6 +40,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.CRC32;
@@ -330,6 +332,55 @@ public final class FileUtils {
         return crc32;
     }
 
+    /**
+     * Calculate the SHA-256 hash for the given file.
+     *
+     * @param file to parse
+     *
+     * @return the hash as a lower case hex string
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @NonNull
+    public static String getSha256(@NonNull final File file)
+            throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            return getSha256(is);
+        }
+    }
+
+    /**
+     * Calculate the SHA-256 hash for the given stream.
+     * The stream is read until the end, but not closed.
+     *
+     * @param is InputStream
+     *
+     * @return the hash as a lower case hex string
+     *
+     * @throws IOException on generic/other IO failures
+     */
+    @NonNull
+    public static String getSha256(@NonNull final InputStream is)
+            throws IOException {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (@NonNull final NoSuchAlgorithmException e) {
+            // Should never happen; SHA-256 is mandatory for all Java platforms
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[FILE_COPY_BUFFER_SIZE];
+        int nRead;
+        while ((nRead = is.read(buffer)) > 0) {
+            md.update(buffer, 0, nRead);
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : md.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
     /**
      * Mutate the given filename to make it valid for a FAT or ext4 filesystem,
      * replacing any invalid characters with "_".
@@ -0,0 +1,209 @@
+/*
+ * @Copyright 2018-2023 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.core.utils;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+
+/**
+ * A minimal Bloom filter for {@code long} and {@link CharSequence} keys.
+ * <p>
+ * {@link #mightContain} never returns {@code false} for a key which was {@link #put};
+ * it can return {@code true} for a key which was not, with a probability
+ * of roughly {@link #getExpectedFpp()}.
+ * <p>
+ * The {@code k} bit positions are derived from a single 64 bit hash
+ * using double hashing (Kirsch/Mitzenmacher).
+ * <p>
+ * Not thread-safe.
+ */
+public class BloomFilter {
+
+    /** We never go below this; a handful of longs costs nothing. */
+    private static final int MIN_BITS = 1024;
+    /** Hard limit (8MB) to protect against silly expected-insertion counts. */
+    private static final int MAX_BITS = 1 << 26;
+    /** More hash functions than this just costs time. */
+    private static final int MAX_HASH_COUNT = 16;
+
+    @NonNull
+    private final long[] bits;
+    /** The number of bits; always a multiple of 64. */
+    private final int bitSize;
+    /** The number of hash functions. */
+    private final int hashCount;
+    /** The number of keys added so far. */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedInsertions the number of keys we expect to add
+     * @param fpp                the desired false-positive probability, e.g. {@code 0.01}
+     *
+     * @throws IllegalArgumentException if the fpp is not between 0 and 1 (exclusive)
+     */
+    public BloomFilter(@IntRange(from = 0) final int expectedInsertions,
+                       final double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp=" + fpp);
+        }
+        final int n = Math.max(1, expectedInsertions);
+        // m = -n * ln(p) / (ln 2)^2
+        final double m = -n * Math.log(fpp) / (Math.log(2) * Math.log(2));
+        final long words = ((long) Math.max(MIN_BITS, Math.min(MAX_BITS, m)) + 63) / 64;
+
+        bits = new long[(int) words];
+        bitSize = bits.length * 64;
+        // k = m / n * ln 2
+        hashCount = (int) Math.max(1, Math.min(MAX_HASH_COUNT,
+                                               Math.round((double) bitSize / n * Math.log(2))));
+    }
+
+    /**
+     * Spread the bits of the given value; the splitmix64 finalizer.
+     *
+     * @param value to mix
+     *
+     * @return hash
+     */
+    private static long mix(final long value) {
+        long h = value;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters of the given key.
+     *
+     * @param key to hash
+     *
+     * @return hash
+     */
+    private static long hash(@NonNull final CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Add a key.
+     *
+     * @param key to add
+     */
+    public void put(final long key) {
+        set(mix(key));
+    }
+
+    /**
+     * Add a key.
+     *
+     * @param key to add
+     */
+    public void put(@NonNull final CharSequence key) {
+        set(hash(key));
+    }
+
+    /**
+     * Check whether the given key might have been added.
+     *
+     * @param key to check
+     *
+     * @return {@code false} if the key was definitely never added
+     */
+    public boolean mightContain(final long key) {
+        return test(mix(key));
+    }
+
+    /**
+     * Check whether the given key might have been added.
+     *
+     * @param key to check
+     *
+     * @return {@code false} if the key was definitely never added
+     */
+    public boolean mightContain(@NonNull final CharSequence key) {
+        return test(hash(key));
+    }
+
+    private void set(final long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            final int pos = ((h1 + i * h2) & Integer.MAX_VALUE) % bitSize;
+            bits[pos >>> 6] |= 1L << pos;
+        }
+        size++;
+    }
+
+    private boolean test(final long hash) {
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            final int pos = ((h1 + i * h2) & Integer.MAX_VALUE) % bitSize;
+            if ((bits[pos >>> 6] & (1L << pos)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the size of the filter.
+     *
+     * @return the number of bits
+     */
+    public int getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * Get the number of keys added.
+     *
+     * @return count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the expected false-positive probability based on the number of keys
+     * actually added; i.e. {@code (1 - e^(-k * n / m))^k}.
+     *
+     * @return probability between 0 and 1
+     */
+    public double getExpectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * size / bitSize), hashCount);
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "BloomFilter{"
+               + "bitSize=" + bitSize
+               + ", hashCount=" + hashCount
+               + ", size=" + size
+               + '}';
+    }
+}
@@ -30,12 +30,8 @@ import androidx.annotation.VisibleForTesting;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 import com.hardbacknutter.nevertoomanybooks.core.BuildConfig;
 import com.hardbacknutter.util.logger.LoggerFactory;
@@ -96,6 +92,13 @@ public class ISBN {
     private static final String ERROR_X_CAN_ONLY_BE_AT_THE_END_OF_AN_ISBN_10 =
             "X can only be at the end of an ISBN-10";
 
+    /** {@link #toDigit(char)}: a '-' or space character which is skipped. */
+    private static final int SEPARATOR = -1;
+    /** {@link #toDigit(char)}: any other character; parsing stops. */
+    private static final int INVALID = -2;
+    /** The digit value of an 'X'. */
+    private static final int X = 10;
+
     /**
      * The extended barcode combined with the UPC_A vendor prefix can be used to
      * reconstruct the ISBN.
@@ -115,51 +118,57 @@ public class ISBN {
      * That gets us a near complete ISBN-10 code: "0-345-30054-?"
      * The ISBN check digit is omitted from the bar code but can be calculated;
      * in this case it's 8, which makes the full ISBN "0-345-30054-8".
+     * <p>
+     * UPC_A Prefix -- ISBN Prefix mapping (may not be complete).
+     * Must be sorted on the UPC_A prefix.
      *
      * @see <a href="https://getsatisfaction.com/deliciousmonster/topics/cant-scan-a-barcode-with-5-digit-extension-no-barcodes-inside">Info</a>
      */
-    private static final Map<String, String> UPC_2_ISBN_PREFIX = new HashMap<>();
-    /** Remove '-' and space chars. */
-    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("[ -]");
+    private static final String[][] UPC_2_ISBN_PREFIX = {
+            {"014794", "08041"},
+            {"018926", "0445"},
+            {"027778", "0449"},
+            {"037145", "0812"},
+            {"042799", "0785"},
+            {"043144", "0688"},
+            {"044903", "0312"},
+            {"045863", "0517"},
+            {"046594", "0064"},
+            {"047132", "0152"},
+            {"051487", "08167"},
+            {"051488", "0140"},
+            {"060771", "0002"},
+            {"065373", "0373"},
+            {"070992", "0523"},
+            {"070993", "0446"},
+            {"070999", "0345"},
+            {"071001", "0380"},
+            {"071009", "0440"},
+            {"071125", "088677"},
+            {"071136", "0451"},
+            {"071149", "0451"},
+            {"071152", "0515"},
+            {"071162", "0451"},
+            {"071268", "08217"},
+            {"071831", "0425"},
+            {"071842", "08439"},
+            {"072742", "0441"},
+            {"076714", "0671"},
+            {"076783", "0553"},
+            {"076814", "0449"},
+            {"078021", "0872"},
+            {"079808", "0394"},
+            {"090129", "0679"},
+            {"099455", "0061"},
+            {"099769", "0451"},
+    };
+    /** The UPC_A prefixes from {@link #UPC_2_ISBN_PREFIX} as numbers; for binary searching. */
+    private static final int[] UPC_PREFIXES = new int[UPC_2_ISBN_PREFIX.length];
 
     static {
-        // UPC_A Prefix -- ISBN Prefix mapping file (may not be complete)
-        UPC_2_ISBN_PREFIX.put("014794", "08041");
-        UPC_2_ISBN_PREFIX.put("018926", "0445");
-        UPC_2_ISBN_PREFIX.put("027778", "0449");
-        UPC_2_ISBN_PREFIX.put("037145", "0812");
-        UPC_2_ISBN_PREFIX.put("042799", "0785");
-        UPC_2_ISBN_PREFIX.put("043144", "0688");
-        UPC_2_ISBN_PREFIX.put("044903", "0312");
-        UPC_2_ISBN_PREFIX.put("045863", "0517");
-        UPC_2_ISBN_PREFIX.put("046594", "0064");
-        UPC_2_ISBN_PREFIX.put("047132", "0152");
-        UPC_2_ISBN_PREFIX.put("051487", "08167");
-        UPC_2_ISBN_PREFIX.put("051488", "0140");
-        UPC_2_ISBN_PREFIX.put("060771", "0002");
-        UPC_2_ISBN_PREFIX.put("065373", "0373");
-        UPC_2_ISBN_PREFIX.put("070992", "0523");
-        UPC_2_ISBN_PREFIX.put("070993", "0446");
-        UPC_2_ISBN_PREFIX.put("070999", "0345");
-        UPC_2_ISBN_PREFIX.put("071001", "0380");
-        UPC_2_ISBN_PREFIX.put("071009", "0440");
-        UPC_2_ISBN_PREFIX.put("071125", "088677");
-        UPC_2_ISBN_PREFIX.put("071136", "0451");
-        UPC_2_ISBN_PREFIX.put("071149", "0451");
-        UPC_2_ISBN_PREFIX.put("071152", "0515");
-        UPC_2_ISBN_PREFIX.put("071162", "0451");
-        UPC_2_ISBN_PREFIX.put("071268", "08217");
-        UPC_2_ISBN_PREFIX.put("071831", "0425");
-        UPC_2_ISBN_PREFIX.put("071842", "08439");
-        UPC_2_ISBN_PREFIX.put("072742", "0441");
-        UPC_2_ISBN_PREFIX.put("076714", "0671");
-        UPC_2_ISBN_PREFIX.put("076783", "0553");
-        UPC_2_ISBN_PREFIX.put("076814", "0449");
-        UPC_2_ISBN_PREFIX.put("078021", "0872");
-        UPC_2_ISBN_PREFIX.put("079808", "0394");
-        UPC_2_ISBN_PREFIX.put("090129", "0679");
-        UPC_2_ISBN_PREFIX.put("099455", "0061");
-        UPC_2_ISBN_PREFIX.put("099769", "0451");
+        for (int i = 0; i < UPC_2_ISBN_PREFIX.length; i++) {
+            UPC_PREFIXES[i] = Integer.parseInt(UPC_2_ISBN_PREFIX[i][0]);
+        }
     }
 
     /** The type of code, determined at creation time. */
@@ -168,9 +177,12 @@ public class ISBN {
     /** The code as a pure text string. The raw input string for invalid codes. */
     @NonNull
     private final String codeText;
-    /** Kept for faster conversion between formats. {@code null} for invalid codes. */
+    /**
+     * Kept for faster conversion between formats. {@code null} for invalid codes.
+     * Each element is a digit 0..9, or 10 for an 'X'.
+     */
     @Nullable
-    private final List<Integer> codeDigits;
+    private final byte[] codeDigits;
 
     /**
      * Constructor.
@@ -214,39 +226,33 @@ public class ISBN {
     public ISBN(@Nullable final String text,
                 final boolean strictIsbn) {
 
-        List<Integer> digits = null;
+        byte[] digits = null;
         Type type = Type.Invalid;
 
         if (text != null && !text.isEmpty()) {
-            // Remove whitespace first for easier parsing.
-            final String cleanStr = WHITESPACE_PATTERN.matcher(text).replaceAll("");
-            if (!cleanStr.isEmpty()) {
-                try {
-                    digits = toDigits(cleanStr, strictIsbn);
-                    type = getType(digits);
-
-                    if (type == Type.UpcA) {
-                        // is this UPC_A convertible to ISBN-10 ?
-                        final String isbnPrefix = UPC_2_ISBN_PREFIX.get(cleanStr.substring(0, 6));
-                        if (isbnPrefix != null) {
-                            // yes, convert to ISBN-10
-                            digits = toDigits(isbnPrefix + cleanStr.substring(12), false);
-                            digits.add(calculateIsbn10Checksum(digits));
-                            type = Type.Isbn10;
-                        }
-                    }
-                } catch (@NonNull final NumberFormatException e) {
-                    if (BuildConfig.DEBUG /* always */) {
-                        LoggerFactory.getLogger()
-                                     .e(TAG, e, "text=`" + text + '`');
+            try {
+                digits = toDigits(text, strictIsbn);
+                type = getType(digits);
+
+                if (type == Type.UpcA) {
+                    // is this UPC_A convertible to ISBN-10 ?
+                    final byte[] isbn10 = upcAToIsbn10(digits);
+                    if (isbn10 != null) {
+                        digits = isbn10;
+                        type = Type.Isbn10;
                     }
                 }
-
-                // strict ISBN required?
-                if (strictIsbn && type != Type.Isbn10 && type != Type.Isbn13) {
-                    type = Type.Invalid;
+            } catch (@NonNull final NumberFormatException e) {
+                if (BuildConfig.DEBUG /* always */) {
+                    LoggerFactory.getLogger()
+                                 .e(TAG, e, "text=`" + text + '`');
                 }
             }
+
+            // strict ISBN required?
+            if (strictIsbn && type != Type.Isbn10 && type != Type.Isbn13) {
+                type = Type.Invalid;
+            }
         }
 
         // Make sure the internal status is uniform.
@@ -262,6 +268,91 @@ public class ISBN {
         }
     }
 
+    /**
+     * Check if the given text is a valid ISBN code.
+     * This is the equivalent of {@code new ISBN(text, true).isValid(true)},
+     * but the text is scanned only once, and nothing is allocated.
+     * Meant for bulk checks.
+     *
+     * @param text to check
+     *
+     * @return validity
+     */
+    public static boolean isValid(@Nullable final CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+
+        int count = 0;
+        // The first 6 digits; used for both the EAN-13 and UPC_A prefix checks
+        int prefix = 0;
+        int isbn10Sum = 0;
+        int isbn10Check = -1;
+        int ean13Sum = 0;
+        int ean13Check = -1;
+        int upcASum = 0;
+        int upcACheck = -1;
+
+        final int len = text.length();
+        for (int i = 0; i < len; i++) {
+            final int digit = toDigit(text.charAt(i));
+            if (digit == INVALID) {
+                break;
+            } else if (digit == SEPARATOR) {
+                continue;
+            } else if (digit == X && count != 9) {
+                return false;
+            }
+
+            if (count < 6) {
+                prefix = prefix * 10 + digit;
+            }
+            // See the calculate* methods for the weights used.
+            if (count < 9) {
+                isbn10Sum += digit * (10 - count);
+            } else if (count == 9) {
+                isbn10Check = digit;
+            }
+            if (count < 11) {
+                upcASum += count % 2 == 0 ? digit * 3 : digit;
+            } else if (count == 11) {
+                upcACheck = digit;
+            }
+            if (count < 12) {
+                ean13Sum += count % 2 == 0 ? digit : digit * 3;
+            } else if (count == 12) {
+                ean13Check = digit;
+            }
+            count++;
+
+            if (digit == X) {
+                break;
+            }
+        }
+
+        if (count == 10) {
+            return isbn10Check == modulo11CheckDigit(isbn10Sum);
+
+        } else if (count == 13) {
+            if (ean13Check != modulo10CheckDigit(ean13Sum)) {
+                return false;
+            }
+            // 978 or 979 with a non-0 4th digit is "Bookland"
+            final int bookland = prefix / 1000;
+            return bookland == 978 || bookland == 979 && prefix / 100 % 10 != 0;
+
+        } else if (count >= 12) {
+            // A UPC_A must be convertible to an ISBN-10
+            if (upcACheck != modulo10CheckDigit(upcASum)) {
+                return false;
+            }
+            final int index = Arrays.binarySearch(UPC_PREFIXES, prefix);
+            return index >= 0 && UPC_2_ISBN_PREFIX[index][1].length() + count - 12 == 9;
+        }
+        return false;
+    }
+
+
     /**
      * Filter a string keeping only digits and 'X'.
      *
@@ -325,8 +416,7 @@ public class ISBN {
      * @throws IllegalArgumentException if invalid
      */
     public static void requireValidIsbn(@Nullable final String text) {
-        if (text == null || text.isEmpty()
-            || !new ISBN(text, true).isValid(true)) {
+        if (text == null || text.isEmpty() || !isValid(text)) {
 
             throw new IllegalArgumentException("isbn must be valid");
         }
@@ -413,18 +503,16 @@ public class ISBN {
 
                 // Must be ISBN-10 to convert to 13 digits.
                 if (codeType == Type.Isbn10) {
-                    final List<Integer> digits = new ArrayList<>();
+                    final byte[] digits = new byte[13];
                     // standard prefix 978
-                    digits.add(9);
-                    digits.add(7);
-                    digits.add(8);
+                    digits[0] = 9;
+                    digits[1] = 7;
+                    digits[2] = 8;
 
                     // copy the first 9 digits
-                    for (int i = 0; i < 9; i++) {
-                        digits.add(codeDigits.get(i));
-                    }
+                    System.arraycopy(codeDigits, 0, digits, 3, 9);
                     // and add the new checksum
-                    digits.add(calculateEan13Checksum(digits));
+                    digits[12] = (byte) calculateEan13Checksum(digits);
 
                     return concat(digits);
                 }
@@ -438,12 +526,10 @@ public class ISBN {
                 // Must be ISBN-13 and compatible with ISBN-10
                 if (codeType == Type.Isbn13 && codeText.startsWith("978")) {
                     // drop the first 3 digits, and copy the next 9.
-                    final List<Integer> digits = new ArrayList<>();
-                    for (int i = 3; i < 12; i++) {
-                        digits.add(codeDigits.get(i));
-                    }
+                    final byte[] digits = new byte[10];
+                    System.arraycopy(codeDigits, 3, digits, 0, 9);
                     // and add the new checksum
-                    digits.add(calculateIsbn10Checksum(digits));
+                    digits[9] = (byte) calculateIsbn10Checksum(digits);
                     return concat(digits);
                 }
                 break;
@@ -457,12 +543,10 @@ public class ISBN {
                 // Note that the vendor 2-digits are dropped as they are not part of ISSN itself.
                 if (codeType == Type.Issn13) {
                     // drop the first 3 digits, and copy the next 7.
-                    final List<Integer> digits = new ArrayList<>();
-                    for (int i = 3; i < 10; i++) {
-                        digits.add(codeDigits.get(i));
-                    }
+                    final byte[] digits = new byte[8];
+                    System.arraycopy(codeDigits, 3, digits, 0, 7);
                     // and add the new checksum
-                    digits.add(calculateIssnChecksum(digits));
+                    digits[7] = (byte) calculateIssnChecksum(digits);
                     return concat(digits);
                 }
                 break;
@@ -504,7 +588,26 @@ public class ISBN {
     }
 
     /**
-     * Converts a string containing digits 0..9 and 'X'/'x' to a list of digits.
+     * Get the value of a single character.
+     *
+     * @param c character
+     *
+     * @return 0..9 for a digit, {@link #X} for an 'X'/'x',
+     *         {@link #SEPARATOR} for a '-' or space, or {@link #INVALID}
+     */
+    private static int toDigit(final char c) {
+        if (c == ' ' || c == '-') {
+            return SEPARATOR;
+        } else if (c == 'X' || c == 'x') {
+            return X;
+        }
+        final int digit = Character.digit(c, 10);
+        return digit >= 0 ? digit : INVALID;
+    }
+
+    /**
+     * Converts a string containing digits 0..9 and 'X'/'x' to an array of digits.
+     * Any {@code ' '} and {@code '-'} separator characters are skipped.
      * <p>
      * This method does NOT check on a specific length nor whether the input is a valid code.
      * <p>
@@ -517,35 +620,43 @@ public class ISBN {
      * @param strictIsbn enforces that the X character is only present at the end
      *                   of a 10 character string; i.e. for ISBN10 codes.
      *
-     * @return list of digits
+     * @return array of digits; can be empty
      *
      * @throws NumberFormatException on failure
      */
     @NonNull
-    private List<Integer> toDigits(@NonNull final CharSequence text,
+    private static byte[] toDigits(@NonNull final CharSequence text,
                                    final boolean strictIsbn)
             throws NumberFormatException {
 
-        final List<Integer> digits = new ArrayList<>();
-
-        for (int i = 0; i < text.length(); i++) {
-            final char c = text.charAt(i);
-            if (Character.isDigit(c)) {
-                digits.add(Integer.parseInt(Character.toString(c)));
-
-            } else if (c == 'X' || c == 'x') {
-                digits.add(10);
-
-                if (strictIsbn && digits.size() != 10) {
-                    throw new NumberFormatException(ERROR_X_CAN_ONLY_BE_AT_THE_END_OF_AN_ISBN_10);
+        // Count first, so we only allocate the result.
+        int count = 0;
+        final int len = text.length();
+        for (int i = 0; i < len; i++) {
+            final int digit = toDigit(text.charAt(i));
+            if (digit == INVALID) {
+                // Invalid character found: don't throw; just return whatever we got up to now.
+                break;
+            } else if (digit != SEPARATOR) {
+                count++;
+                if (digit == X) {
+                    if (strictIsbn && count != 10) {
+                        throw new NumberFormatException(
+                                ERROR_X_CAN_ONLY_BE_AT_THE_END_OF_AN_ISBN_10);
+                    }
+                    // an X is only allowed at the end of the text
+                    // Whether we are at the end or not, just stop parsing here and return
+                    break;
                 }
-                // an X is only allowed at the end of the text
-                // Whether we are at the end or not, just stop parsing here and return
-                return digits;
+            }
+        }
 
-            } else {
-                // Invalid character found: don't throw; just return whatever we got up to now.
-                return digits;
+        final byte[] digits = new byte[count];
+        int d = 0;
+        for (int i = 0; d < count; i++) {
+            final int digit = toDigit(text.charAt(i));
+            if (digit != SEPARATOR) {
+                digits[d++] = (byte) digit;
             }
         }
         return digits;
@@ -561,31 +672,27 @@ public class ISBN {
      * @throws NumberFormatException if parsing totally failed
      */
     @NonNull
-    private Type getType(@Nullable final List<Integer> digits)
+    private static Type getType(@NonNull final byte[] digits)
             throws NumberFormatException {
 
-        if (digits == null || digits.isEmpty()) {
-            return Type.Invalid;
-        }
-
-        final int size = digits.size();
+        final int size = digits.length;
 
         if (size == 8) {
-            if (calculateIssnChecksum(digits) == digits.get(7)) {
+            if (calculateIssnChecksum(digits) == digits[7]) {
                 return Type.Issn8;
             }
         } else if (size == 10) {
-            if (calculateIsbn10Checksum(digits) == digits.get(9)) {
+            if (calculateIsbn10Checksum(digits) == digits[9]) {
                 return Type.Isbn10;
             }
         } else if (size == 13) {
-            if (calculateEan13Checksum(digits) == digits.get(12)) {
+            if (calculateEan13Checksum(digits) == digits[12]) {
                 // Prefix 978 is "Bookland"
-                if (digits.get(0) == 9 && digits.get(1) == 7 && digits.get(2) == 8) {
+                if (digits[0] == 9 && digits[1] == 7 && digits[2] == 8) {
                     return Type.Isbn13;
 
-                } else if (digits.get(0) == 9 && digits.get(1) == 7 && digits.get(2) == 9) {
-                    if (digits.get(3) == 0) {
+                } else if (digits[0] == 9 && digits[1] == 7 && digits[2] == 9) {
+                    if (digits[3] == 0) {
                         // Prefix 979 with first digit 0 is "Musicland"
                         return Type.Ismn;
                     } else {
@@ -593,7 +700,7 @@ public class ISBN {
                         // if these are simply 'reserved' or actual books.
                         return Type.Isbn13;
                     }
-                } else if (digits.get(0) == 9 && digits.get(1) == 7 && digits.get(2) == 7) {
+                } else if (digits[0] == 9 && digits[1] == 7 && digits[2] == 7) {
                     // Prefix 977 are periodicals; an ISSN packed in an EAN-13
                     return Type.Issn13;
 
@@ -605,7 +712,7 @@ public class ISBN {
         } else if (size >= 12) {
             // a UPC barcode might be longer than 12 characters due to allowed extensions.
             // But only the first 12 characters are 'the' UPC_A code.
-            if (calculateUpcAChecksum(digits.subList(0, 12)) == digits.get(11)) {
+            if (calculateUpcAChecksum(digits) == digits[11]) {
                 return Type.UpcA;
             }
         }
@@ -613,19 +720,54 @@ public class ISBN {
         return Type.Invalid;
     }
 
+    /**
+     * Convert a UPC_A code with an extension to an ISBN-10 if the vendor prefix is known.
+     * See {@link #UPC_2_ISBN_PREFIX}.
+     *
+     * @param digits a valid UPC_A code
+     *
+     * @return the ISBN-10 digits, or {@code null} if not convertible
+     */
+    @Nullable
+    private static byte[] upcAToIsbn10(@NonNull final byte[] digits) {
+        int upcPrefix = 0;
+        for (int i = 0; i < 6; i++) {
+            upcPrefix = upcPrefix * 10 + digits[i];
+        }
+        final int index = Arrays.binarySearch(UPC_PREFIXES, upcPrefix);
+        if (index < 0) {
+            return null;
+        }
+
+        final String isbnPrefix = UPC_2_ISBN_PREFIX[index][1];
+        final int extLength = digits.length - 12;
+        // The prefix and the extension must be the 9 ISBN-10 digits without the checksum
+        if (isbnPrefix.length() + extLength != 9) {
+            return null;
+        }
+
+        final byte[] isbn10 = new byte[10];
+        for (int i = 0; i < isbnPrefix.length(); i++) {
+            isbn10[i] = (byte) (isbnPrefix.charAt(i) - '0');
+        }
+        System.arraycopy(digits, 12, isbn10, isbnPrefix.length(), extLength);
+        isbn10[9] = (byte) calculateIsbn10Checksum(isbn10);
+        return isbn10;
+    }
+
     /**
      * Calculate the check-digit (checksum) for the given digits.
      * This calculation is valid for ISBN-10 only
      *
-     * @param digits list with the digits, either 10 or 9
+     * @param digits array with the digits, either 10 or 9
      *
      * @return the check digit.
      *
      * @throws NumberFormatException on failure
      */
-    private int calculateIsbn10Checksum(@NonNull final List<Integer> digits)
+    private static int calculateIsbn10Checksum(@NonNull final byte[] digits)
             throws NumberFormatException {
-        final int len = digits.size();
+        final int len = digits.length;
         if (len < 9 || len > 10) {
             throw new NumberFormatException(ERROR_WRONG_SIZE + len);
         }
@@ -641,32 +783,27 @@ public class ISBN {
         // 3. Add all of the 9 products.
         int multiplier = 10;
         for (int dig = 1; dig < 10; dig++) {
-            sum += digits.get(dig - 1) * multiplier;
+            sum += digits[dig - 1] * multiplier;
             multiplier--;
         }
 
         // 4. Do a modulo 11 division on the sum.
-        final int modulo = sum % 11;
-        if (modulo == 0) {
-            return 0;
-        } else {
-            return 11 - modulo;
-        }
+        return modulo11CheckDigit(sum);
     }
 
     /**
      * Calculate the check-digit (checksum) for the given digits.
      * This calculation is valid for ISSN only
      *
-     * @param digits list with the digits, either 8 or 7
+     * @param digits array with the digits, either 8 or 7
      *
      * @return the check digit.
      *
      * @throws NumberFormatException on failure
      */
-    private int calculateIssnChecksum(@NonNull final List<Integer> digits)
+    private static int calculateIssnChecksum(@NonNull final byte[] digits)
             throws NumberFormatException {
-        final int len = digits.size();
+        final int len = digits.length;
         if (len < 7 || len > 8) {
             throw new NumberFormatException(ERROR_WRONG_SIZE + len);
         }
@@ -682,32 +819,27 @@ public class ISBN {
         // 3. Add all of the 7 products.
         int multiplier = 8;
         for (int dig = 1; dig < 8; dig++) {
-            sum += digits.get(dig - 1) * multiplier;
+            sum += digits[dig - 1] * multiplier;
             multiplier--;
         }
 
         // 4. Do a modulo 11 division on the sum.
-        final int modulo = sum % 11;
-        if (modulo == 0) {
-            return 0;
-        } else {
-            return 11 - modulo;
-        }
+        return modulo11CheckDigit(sum);
     }
 
     /**
      * Calculate the check-digit (checksum) for the given digits.
      * This calculation is valid for EAN-13 / ISBN-13 only
      *
-     * @param digits list with the digits, either 13 or 12
+     * @param digits array with the digits, either 13 or 12
      *
      * @return the check digit.
      *
      * @throws NumberFormatException on failure
      */
-    private int calculateEan13Checksum(@NonNull final List<Integer> digits)
+    private static int calculateEan13Checksum(@NonNull final byte[] digits)
             throws NumberFormatException {
-        final int len = digits.size();
+        final int len = digits.length;
         if (len < 12 || len > 13) {
             throw new NumberFormatException(ERROR_WRONG_SIZE + len);
         }
@@ -721,38 +853,30 @@ public class ISBN {
         // 3. Add all of the 12 products.
 
         for (int dig = 1; dig < 13; dig += 2) {
-            sum += digits.get(dig - 1);
+            sum += digits[dig - 1];
         }
         for (int dig = 2; dig < 13; dig += 2) {
-            sum += digits.get(dig - 1) * 3;
+            sum += digits[dig - 1] * 3;
         }
 
         // 4. Do a modulo 10 division on the sum.
-        final int modulo = sum % 10;
-
-        if (modulo == 0) {
-            // If it's a zero, then the check digit is zero.
-            return 0;
-        } else {
-            // Otherwise subtract the remainder from 10.
-            return 10 - modulo;
-        }
+        return modulo10CheckDigit(sum);
     }
 
     /**
      * Calculate the check-digit (checksum) for the given digits.
      * This calculation is valid for UPC_A-12 only
      *
-     * @param digits list with the digits, either 12 or 11
+     * @param digits array with at least 11 digits; any digits after the 12th are ignored
      *
      * @return the check digit.
      *
      * @throws NumberFormatException on failure
      */
-    private int calculateUpcAChecksum(@NonNull final List<Integer> digits)
+    private static int calculateUpcAChecksum(@NonNull final byte[] digits)
             throws NumberFormatException {
-        final int len = digits.size();
-        if (len < 11 || len > 12) {
+        final int len = digits.length;
+        if (len < 11) {
             throw new NumberFormatException(ERROR_WRONG_SIZE + len);
         }
         int sum = 0;
@@ -760,17 +884,43 @@ public class ISBN {
         // 2. Sum the digits at odd-numbered positions (first, third, fifth,..., eleventh).
         // Multiply the result by 3.
         for (int dig = 1; dig < 12; dig += 2) {
-            sum += digits.get(dig - 1) * 3;
+            sum += digits[dig - 1] * 3;
         }
         // 3. Add the digit sum at even-numbered positions (second, fourth, sixth,..., tenth)
         // to the result.
         for (int dig = 2; dig < 12; dig += 2) {
-            sum += digits.get(dig - 1);
+            sum += digits[dig - 1];
         }
 
         // 4. Do a modulo 10 division on the sum.
-        final int modulo = sum % 10;
+        return modulo10CheckDigit(sum);
+    }
 
+    /**
+     * Get the modulo 11 check digit for the given weighted sum.
+     *
+     * @param sum of the digits
+     *
+     * @return the check digit; 10 stands for 'X'
+     */
+    private static int modulo11CheckDigit(final int sum) {
+        final int modulo = sum % 11;
+        if (modulo == 0) {
+            return 0;
+        } else {
+            return 11 - modulo;
+        }
+    }
+
+    /**
+     * Get the modulo 10 check digit for the given weighted sum.
+     *
+     * @param sum of the digits
+     *
+     * @return the check digit
+     */
+    private static int modulo10CheckDigit(final int sum) {
+        final int modulo = sum % 10;
         if (modulo == 0) {
             // If it's a zero, then the check digit is zero.
             return 0;
@@ -783,21 +933,41 @@ public class ISBN {
     /**
      * Get the concatenated digits. Digit 10 is always returned as '<strong>X</strong>'.
      *
-     * @param digits the list of digits
+     * @param digits the array of digits
      *
      * @return the code as a string.
      */
     @NonNull
-    private String concat(@NonNull final Iterable<Integer> digits) {
-        final StringBuilder sb = new StringBuilder();
-        for (final int d : digits) {
-            if (d == 10) {
-                sb.append('X');
-            } else {
-                sb.append(d);
+    private static String concat(@NonNull final byte[] digits) {
+        final char[] chars = new char[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            chars[i] = digits[i] == X ? 'X' : (char) ('0' + digits[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Compare a range of digits.
+     *
+     * @param a      first array
+     * @param aFrom  start index in the first array
+     * @param b      second array
+     * @param bFrom  start index in the second array
+     * @param length number of digits to compare
+     *
+     * @return {@code true} if equal
+     */
+    private static boolean rangeEquals(@NonNull final byte[] a,
+                                       final int aFrom,
+                                       @NonNull final byte[] b,
+                                       final int bFrom,
+                                       final int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aFrom + i] != b[bFrom + i]) {
+                return false;
             }
         }
-        return sb.toString();
+        return true;
     }
 
     @Override
@@ -806,14 +976,15 @@ public class ISBN {
         return "ISBN{"
                + "codeType=" + codeType
                + ", codeText=" + codeText
-               + ", codeDigits=" + codeDigits
+               + ", codeDigits=" + Arrays.toString(codeDigits)
                + '}';
     }
 
     @Override
     public int hashCode() {
         // only use the 'codeText' if we have no digits!
-        return Objects.hash(codeType, Objects.requireNonNullElse(codeDigits, codeText));
+        return Objects.hash(codeType, codeDigits != null ? Arrays.hashCode(codeDigits)
+                                                         : codeText.hashCode());
     }
 
     @Override
@@ -839,8 +1010,8 @@ public class ISBN {
         }
 
         // Same length ? they should match exactly. This covers all codes with the same length.
-        if (codeDigits.size() == cmp.codeDigits.size()) {
-            return Objects.equals(codeDigits, cmp.codeDigits);
+        if (codeDigits.length == cmp.codeDigits.length) {
+            return Arrays.equals(codeDigits, cmp.codeDigits);
         }
 
         // Lastly, different but compatible length/codes.
@@ -849,22 +1020,22 @@ public class ISBN {
         // Compare the 9 significant digits:
         // ISBN10: don't include the checksum -> 0..9
         // ISBN13: skip the first 3 character, and don't include the checksum -> 3..12
-        if (codeDigits.size() == 10 && cmp.codeDigits.size() == 13) {
-            return codeDigits.subList(0, 9).equals(cmp.codeDigits.subList(3, 12));
+        if (codeDigits.length == 10 && cmp.codeDigits.length == 13) {
+            return rangeEquals(codeDigits, 0, cmp.codeDigits, 3, 9);
 
-        } else if (codeDigits.size() == 13 && cmp.codeDigits.size() == 10) {
-            return codeDigits.subList(3, 12).equals(cmp.codeDigits.subList(0, 9));
+        } else if (codeDigits.length == 13 && cmp.codeDigits.length == 10) {
+            return rangeEquals(codeDigits, 3, cmp.codeDigits, 0, 9);
         }
 
         // ISSN and EAN-13
         // Compare the 7 significant digits:
         // ISSN: don't include the checksum -> 0..7
         // EAN-13: skip the first 3 character, and don't include the remainder -> 3..11
-        if (codeDigits.size() == 8 && cmp.codeDigits.size() == 13) {
-            return codeDigits.subList(0, 7).equals(cmp.codeDigits.subList(3, 11));
+        if (codeDigits.length == 8 && cmp.codeDigits.length == 13) {
+            return rangeEquals(codeDigits, 0, cmp.codeDigits, 3, 7);
 
-        } else if (codeDigits.size() == 13 && cmp.codeDigits.size() == 8) {
-            return codeDigits.subList(3, 11).equals(cmp.codeDigits.subList(0, 7));
+        } else if (codeDigits.length == 13 && cmp.codeDigits.length == 8) {
+            return rangeEquals(codeDigits, 3, cmp.codeDigits, 0, 7);
         }
 
         return false;
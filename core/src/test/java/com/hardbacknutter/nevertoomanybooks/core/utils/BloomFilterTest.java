@@ -0,0 +1,71 @@
+/*
+ * @Copyright 2018-2023 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.nevertoomanybooks.core.utils;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void noFalseNegatives() {
+        final BloomFilter filter = new BloomFilter(5000, 0.01);
+        for (long id = 1; id <= 5000; id++) {
+            filter.put(id);
+            filter.put("uuid-" + id);
+        }
+        for (long id = 1; id <= 5000; id++) {
+            assertTrue(filter.mightContain(id));
+            assertTrue(filter.mightContain("uuid-" + id));
+        }
+    }
+
+    @Test
+    void falsePositiveRate() {
+        final BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+        int hits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                hits++;
+            }
+        }
+        // 1% expected; allow for some slack
+        assertTrue(hits < 300, "hits=" + hits);
+        assertTrue(filter.getExpectedFpp() < 0.02);
+    }
+
+    @Test
+    void empty() {
+        final BloomFilter filter = new BloomFilter(0, 0.01);
+        assertFalse(filter.mightContain(42));
+        assertFalse(filter.mightContain("42"));
+        assertEquals(0, filter.getExpectedFpp());
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 0));
+    }
+}
@@ -255,6 +255,31 @@ class ISBNTest {
         }
     }
 
+    @Test
+    void isbn_staticIsValid() {
+        for (final String[] isbnPair : valid_isbn) {
+            assertTrue(ISBN.isValid(isbnPair[0]), isbnPair[0]);
+            assertTrue(ISBN.isValid(isbnPair[1]), isbnPair[1]);
+        }
+        for (final String[] isbnPair : invalid_isbn) {
+            assertFalse(ISBN.isValid(isbnPair[0]), isbnPair[0]);
+            assertFalse(ISBN.isValid(isbnPair[1]), isbnPair[1]);
+        }
+        for (final String[] upcPair : valid_upc_isbn) {
+            assertTrue(ISBN.isValid(upcPair[0]), upcPair[0]);
+        }
+        // Valid codes, but not an ISBN
+        for (final String[][] codes : new String[][][]{valid_upc, valid_ean, valid_issn8,
+                                                       valid_issn13}) {
+            for (final String[] codePair : codes) {
+                assertFalse(ISBN.isValid(codePair[0]), codePair[0]);
+            }
+        }
+        // 'X' is only allowed as the last digit of an ISBN-10
+        assertFalse(ISBN.isValid("06841881X8"));
+        assertFalse(ISBN.isValid(""));
+        assertFalse(ISBN.isValid(null));
+    }
 
     @Test
     void upc2isbn() {
@@ -306,6 +331,22 @@ class ISBNTest {
         }
     }
 
+    @Test
+    void upcWithoutExtension() {
+        // known vendor prefix, but no extension: cannot be converted to an ISBN-10
+        final ISBN upc = new ISBN("070999002255", false);
+        assertTrue(upc.isType(ISBN.Type.UpcA));
+        assertEquals("070999002255", upc.asText());
+    }
+
+    @Test
+    void issn_equals() {
+        for (int i = 0; i < valid_issn8.length; i++) {
+            assertEquals(new ISBN(valid_issn8[i][0], false),
+                         new ISBN(valid_issn13[i][0], false));
+        }
+    }
+
     @Test
     void issn138_isValid() {
         for (final String[] issnPair : valid_issn138) {
@@ -0,0 +1,378 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.hardbacknutter.org.json;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The {@link Map} backing a {@link JSONObject}.
+ * <p>
+ * Most objects we parse have only a handful of keys. Up to {@link #MAX_ARRAY_SIZE}
+ * entries are kept in two parallel arrays and looked up with a linear scan, which is
+ * both smaller and faster than a {@link HashMap} at that size.
+ * Adding more entries moves them into a {@link HashMap} for the lifetime of the map.
+ * <p>
+ * As with the original {@link HashMap}, callers must not rely on the iteration order.
+ * <p>
+ * Not thread-safe.
+ */
+final class CompactMap
+        extends AbstractMap<String, Object> {
+
+    /** The maximum number of entries kept in the arrays. */
+    static final int MAX_ARRAY_SIZE = 8;
+
+    /** Lazily allocated; {@code null} while empty or once {@link #hashMap} is used. */
+    @Nullable
+    private String[] keys;
+    /** Parallel to {@link #keys}. */
+    @Nullable
+    private Object[] values;
+    /** The number of entries in the arrays. */
+    private int size;
+    /** Used for any structural modification, so iterators can fail fast. */
+    private int modCount;
+    /** Once set, all entries live here. */
+    @Nullable
+    private HashMap<String, Object> hashMap;
+    /** The initial capacity for the arrays. */
+    private final int arrayCapacity;
+
+    @Nullable
+    private Set<Entry<String, Object>> entrySet;
+
+    /**
+     * Constructor.
+     */
+    CompactMap() {
+        arrayCapacity = MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    CompactMap(final int initialCapacity) {
+        if (initialCapacity > MAX_ARRAY_SIZE) {
+            hashMap = new HashMap<>(initialCapacity);
+            arrayCapacity = MAX_ARRAY_SIZE;
+        } else {
+            arrayCapacity = Math.max(1, initialCapacity);
+        }
+    }
+
+    private int indexOf(@Nullable final Object key) {
+        if (keys != null && key != null) {
+            for (int i = 0; i < size; i++) {
+                //noinspection ConstantConditions
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return hashMap != null ? hashMap.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable final Object key) {
+        if (hashMap != null) {
+            return hashMap.containsKey(key);
+        }
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @Nullable
+    public Object get(@Nullable final Object key) {
+        if (hashMap != null) {
+            return hashMap.get(key);
+        }
+        final int i = indexOf(key);
+        //noinspection ConstantConditions
+        return i >= 0 ? values[i] : null;
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @param key   can not be {@code null}; the {@link JSONObject} rejects those
+     * @param value to store
+     *
+     * @return the previous value, or {@code null} if there was none
+     */
+    @Override
+    @Nullable
+    public Object put(@NonNull final String key,
+                      @Nullable final Object value) {
+        if (hashMap != null) {
+            return hashMap.put(key, value);
+        }
+        final int i = indexOf(key);
+        if (i >= 0) {
+            //noinspection ConstantConditions
+            final Object previous = values[i];
+            values[i] = value;
+            return previous;
+        }
+
+        if (keys == null) {
+            keys = new String[arrayCapacity];
+            values = new Object[arrayCapacity];
+        } else if (size == keys.length) {
+            if (size == MAX_ARRAY_SIZE) {
+                toHashMap().put(key, value);
+                return null;
+            }
+            final int capacity = Math.min(size * 2, MAX_ARRAY_SIZE);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        //noinspection ConstantConditions
+        values[size] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @NonNull
+    private HashMap<String, Object> toHashMap() {
+        // Size it so the next few puts do not immediately trigger a rehash
+        final HashMap<String, Object> map = new HashMap<>(MAX_ARRAY_SIZE * 4);
+        for (int i = 0; i < size; i++) {
+            //noinspection ConstantConditions
+            map.put(keys[i], values[i]);
+        }
+        hashMap = map;
+        keys = null;
+        values = null;
+        size = 0;
+        modCount++;
+        return map;
+    }
+
+    @Override
+    @Nullable
+    public Object remove(@Nullable final Object key) {
+        if (hashMap != null) {
+            return hashMap.remove(key);
+        }
+        final int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        //noinspection ConstantConditions
+        final Object previous = values[i];
+        removeAt(i);
+        return previous;
+    }
+
+    private void removeAt(final int i) {
+        final int moved = size - i - 1;
+        if (moved > 0) {
+            //noinspection ConstantConditions
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            //noinspection ConstantConditions
+            System.arraycopy(values, i + 1, values, i, moved);
+        }
+        size--;
+        //noinspection ConstantConditions
+        keys[size] = null;
+        //noinspection ConstantConditions
+        values[size] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        if (hashMap != null) {
+            // Keep using the HashMap, so its iterators fail fast as well.
+            hashMap.clear();
+            return;
+        }
+        if (keys != null) {
+            Arrays.fill(keys, 0, size, null);
+            //noinspection ConstantConditions
+            Arrays.fill(values, 0, size, null);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    @NonNull
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * A view on the entries which follows the map when it switches to a {@link HashMap}.
+     */
+    private final class EntrySet
+            extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        @NonNull
+        public Iterator<Entry<String, Object>> iterator() {
+            if (hashMap != null) {
+                return hashMap.entrySet().iterator();
+            }
+            return new ArrayIterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+    }
+
+    private final class ArrayIterator
+            implements Iterator<Entry<String, Object>> {
+
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            // After a modification (including the switch to the HashMap, which empties
+            // the arrays) let next() throw instead of silently ending the iteration.
+            return next < size || modCount != expectedModCount;
+        }
+
+        @Override
+        @NonNull
+        public Entry<String, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new ArrayEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * An entry which reads and writes through to the arrays.
+     * Only valid until the next structural modification of the map.
+     */
+    private final class ArrayEntry
+            implements Entry<String, Object> {
+
+        private final int index;
+
+        ArrayEntry(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        @NonNull
+        public String getKey() {
+            //noinspection ConstantConditions
+            return keys[index];
+        }
+
+        @Override
+        @Nullable
+        public Object getValue() {
+            //noinspection ConstantConditions
+            return values[index];
+        }
+
+        @Override
+        @Nullable
+        public Object setValue(@Nullable final Object value) {
+            //noinspection ConstantConditions
+            final Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> e = (Entry<?, ?>) obj;
+            final Object value = getValue();
+            return getKey().equals(e.getKey())
+                   && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        @NonNull
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
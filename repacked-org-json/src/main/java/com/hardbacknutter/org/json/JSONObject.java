@@ -135,7 +135,9 @@ public class JSONObject {
         // implementations to rearrange their items for a faster element
         // retrieval based on associative access.
         // Therefore, an implementation mustn't rely on the order of the item.
-        this.map = new HashMap<String, Object>();
+        // The CompactMap keeps small objects in arrays and only uses a HashMap
+        // when they grow; it gives the same (lack of) guarantees.
+        this.map = new CompactMap();
     }
 
     /**
@@ -264,9 +266,9 @@ public class JSONObject {
                     "JSONObject has reached recursion depth limit of " + jsonParserConfiguration.getMaxNestingDepth());
         }
         if (m == null) {
-            this.map = new HashMap<String, Object>();
+            this.map = new CompactMap();
         } else {
-            this.map = new HashMap<String, Object>(m.size());
+            this.map = new CompactMap(m.size());
             for (final Entry<?, ?> e : m.entrySet()) {
                 if (e.getKey() == null) {
                     throw new NullPointerException("Null key.");
@@ -443,7 +445,7 @@ public class JSONObject {
      * @param initialCapacity initial capacity of the internal map.
      */
     protected JSONObject(int initialCapacity) {
-        this.map = new HashMap<String, Object>(initialCapacity);
+        this.map = new CompactMap(initialCapacity);
     }
 
     /**
@@ -1076,6 +1078,16 @@ public class JSONObject {
             // This will narrow any values to the smallest reasonable Object representation
             // (Integer, Long, or BigInteger)
 
+            // Up to 18 characters always fit in a long; this avoids creating
+            // a BigInteger for the vast majority of values.
+            if (val.length() <= 18) {
+                final long l = Long.parseLong(val);
+                if (l == (int) l) {
+                    return Integer.valueOf((int) l);
+                }
+                return Long.valueOf(l);
+            }
+
             // BigInteger down conversion: We use a similar bitLength compare as
             // BigInteger#intValueExact uses. Increases GC, but objects hold
             // only what they need. i.e. Less runtime overhead if the value is
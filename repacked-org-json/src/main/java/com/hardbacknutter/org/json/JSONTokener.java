@@ -23,13 +23,12 @@ package com.hardbacknutter.org.json;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 /*
 Public Domain.
@@ -44,6 +43,9 @@ Public Domain.
  */
 @SuppressWarnings("ALL")
 public class JSONTokener {
+    /** Initial size of the buffer when reading from a {@link Reader}. */
+    private static final int BUFFER_SIZE = 8192;
+
     /** current read character position on the current line. */
     private long character;
     /** flag to indicate if the end of the input has been found. */
@@ -54,8 +56,23 @@ public class JSONTokener {
     private long line;
     /** previous character read from the input. */
     private char previous;
-    /** Reader for the input. */
+    /** Reader for the input; {@code null} when the input is a String. */
+    @Nullable
     private final Reader reader;
+    /**
+     * The characters read ahead from the {@link #reader},
+     * or the complete input when constructed from a String.
+     * Reading directly from the array avoids a (synchronized) call to the reader
+     * for every single character.
+     */
+    @NonNull
+    private char[] buffer;
+    /** The next position to read in the {@link #buffer}. */
+    private int position;
+    /** The number of valid characters in the {@link #buffer}. */
+    private int limit;
+    /** Position in the {@link #buffer} which must be kept when refilling, or {@code -1}. */
+    private int markPosition = -1;
     /** flag to indicate that a previous character was requested. */
     private boolean usePrevious;
     /** the number of characters read in the previous line. */
@@ -68,9 +85,16 @@ public class JSONTokener {
      * @param reader     A reader.
      */
     public JSONTokener(@NonNull Reader reader) {
-        this.reader = reader.markSupported()
-                      ? reader
-                      : new BufferedReader(reader);
+        this(reader, new char[BUFFER_SIZE], 0);
+    }
+
+    private JSONTokener(@Nullable Reader reader,
+                        @NonNull char[] buffer,
+                        int limit) {
+        this.reader = reader;
+        this.buffer = buffer;
+        this.limit = limit;
+        this.position = 0;
         this.eof = false;
         this.usePrevious = false;
         this.previous = 0;
@@ -96,7 +120,7 @@ public class JSONTokener {
      * @param s     A source string.
      */
     public JSONTokener(@NonNull String s) {
-        this(new StringReader(s));
+        this(null, s.toCharArray(), s.length());
     }
 
 
@@ -173,22 +197,59 @@ public class JSONTokener {
         if(this.usePrevious) {
             return true;
         }
-        try {
-            this.reader.mark(1);
-        } catch (IOException e) {
-            throw new JSONException("Unable to preserve stream position", e);
+        if (this.position >= this.limit && !this.fill()) {
+            this.eof = true;
+            return false;
+        }
+        // next() can not consume the null character '\0'
+        if (this.buffer[this.position] == 0) {
+            this.position++;
+            this.eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read more characters from the reader into the buffer.
+     * Must only be called when all buffered characters have been consumed.
+     * Characters from the {@link #markPosition} onwards are kept.
+     *
+     * @return {@code true} if at least one character is available;
+     *         {@code false} at the end of the input.
+     * @throws JSONException Thrown if there is an error reading from the reader.
+     */
+    private boolean fill()
+            throws JSONException {
+        if (this.reader == null) {
+            return false;
+        }
+        final int keep = this.markPosition >= 0 ? this.markPosition : this.limit;
+        if (keep > 0) {
+            final int remaining = this.limit - keep;
+            System.arraycopy(this.buffer, keep, this.buffer, 0, remaining);
+            this.position -= keep;
+            this.limit = remaining;
+            if (this.markPosition >= 0) {
+                this.markPosition = 0;
+            }
+        }
+        if (this.limit == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
         }
         try {
-            // -1 is EOF, but next() can not consume the null character '\0'
-            if (this.reader.read() <= 0) {
-                this.eof = true;
+            int n;
+            do {
+                n = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            } while (n == 0);
+            if (n < 0) {
                 return false;
             }
-            this.reader.reset();
-        } catch (IOException e) {
-            throw new JSONException("Unable to read the next character from the stream", e);
+            this.limit += n;
+            return true;
+        } catch (IOException exception) {
+            throw new JSONException(exception);
         }
-        return true;
     }
 
 
@@ -204,12 +265,10 @@ public class JSONTokener {
         if (this.usePrevious) {
             this.usePrevious = false;
             c = this.previous;
+        } else if (this.position < this.limit || this.fill()) {
+            c = this.buffer[this.position++];
         } else {
-            try {
-                c = this.reader.read();
-            } catch (IOException exception) {
-                throw new JSONException(exception);
-            }
+            c = -1;
         }
         if (c <= 0) { // End of stream
             this.eof = true;
@@ -333,8 +392,42 @@ public class JSONTokener {
     public String nextString(char quote)
             throws JSONException {
         char c;
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = null;
         for (;;) {
+            if (!this.usePrevious) {
+                // Fast path: take the longest run of plain characters straight
+                // from the buffer. Plain means no line ends, so only the
+                // index and character position need updating.
+                final int start = this.position;
+                while (this.position < this.limit) {
+                    c = this.buffer[this.position];
+                    if (c == quote || c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                        break;
+                    }
+                    this.position++;
+                }
+                final int length = this.position - start;
+                if (length > 0) {
+                    this.index += length;
+                    this.character += length;
+                    this.previous = this.buffer[this.position - 1];
+                    if (this.position < this.limit && this.buffer[this.position] == quote) {
+                        // Consume the closing quote
+                        this.next();
+                        if (sb == null) {
+                            return new String(this.buffer, start, length);
+                        }
+                        return sb.append(this.buffer, start, length).toString();
+                    }
+                    if (sb == null) {
+                        sb = new StringBuilder(length + 16);
+                    }
+                    sb.append(this.buffer, start, length);
+                }
+            }
+            if (sb == null) {
+                sb = new StringBuilder();
+            }
             c = this.next();
             switch (c) {
                 case 0:
@@ -488,7 +581,7 @@ public class JSONTokener {
          */
 
         StringBuilder sb = new StringBuilder();
-        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+        while (c >= ' ' && !isValueDelimiter(c)) {
             sb.append(c);
             c = this.next();
         }
@@ -503,6 +596,33 @@ public class JSONTokener {
         return JSONObject.stringToValue(string);
     }
 
+    /**
+     * Check if the given character ends an unquoted value.
+     *
+     * @param c to check
+     *
+     * @return {@code true} for one of {@code ,:]}/\"[{;=#}
+     */
+    private static boolean isValueDelimiter(char c) {
+        switch (c) {
+            case ',':
+            case ':':
+            case ']':
+            case '}':
+            case '/':
+            case '\\':
+            case '"':
+            case '[':
+            case '{':
+            case ';':
+            case '=':
+            case '#':
+                return true;
+            default:
+                return false;
+        }
+    }
+
 
     /**
      * Skip characters until the next character is the requested character.
@@ -516,27 +636,24 @@ public class JSONTokener {
     public char skipTo(char to)
             throws JSONException {
         char c;
+        long startIndex = this.index;
+        long startCharacter = this.character;
+        long startLine = this.line;
+        // Keep everything from here in the buffer so we can go back if needed
+        this.markPosition = this.position;
         try {
-            long startIndex = this.index;
-            long startCharacter = this.character;
-            long startLine = this.line;
-            this.reader.mark(1000000);
             do {
                 c = this.next();
                 if (c == 0) {
-                    // in some readers, reset() may throw an exception if
-                    // the remaining portion of the input is greater than
-                    // the mark size (1,000,000 above).
-                    this.reader.reset();
+                    this.position = this.markPosition;
                     this.index = startIndex;
                     this.character = startCharacter;
                     this.line = startLine;
                     return 0;
                 }
             } while (c != to);
-            this.reader.mark(1);
-        } catch (IOException exception) {
-            throw new JSONException(exception);
+        } finally {
+            this.markPosition = -1;
         }
         this.back();
         return c;
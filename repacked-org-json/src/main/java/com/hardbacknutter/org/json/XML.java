@@ -578,6 +578,16 @@ public class XML {
             // This will narrow any values to the smallest reasonable Object representation
             // (Integer, Long, or BigInteger)
 
+            // Up to 18 characters always fit in a long; this avoids creating
+            // a BigInteger for the vast majority of values.
+            if (val.length() <= 18) {
+                final long l = Long.parseLong(val);
+                if (l == (int) l) {
+                    return Integer.valueOf((int) l);
+                }
+                return Long.valueOf(l);
+            }
+
             // BigInteger down conversion: We use a similar bitLength compare as
             // BigInteger#intValueExact uses. Increases GC, but objects hold
             // only what they need. i.e. Less runtime overhead if the value is
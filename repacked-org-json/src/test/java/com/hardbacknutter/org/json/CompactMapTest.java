@@ -0,0 +1,191 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.org.json;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMapTest {
+
+    private static final int MAX = CompactMap.MAX_ARRAY_SIZE;
+
+    private static CompactMap create(final int count) {
+        final CompactMap map = new CompactMap();
+        for (int i = 0; i < count; i++) {
+            map.put("k" + i, i);
+        }
+        return map;
+    }
+
+    @Test
+    void switchPoint() {
+        final CompactMap map = create(MAX);
+        assertEquals(MAX, map.size());
+
+        // Replacing a value is not a structural change and must not switch.
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        assertEquals(0, map.put("k0", 100));
+        assertTrue(it.hasNext());
+        assertEquals("k0", it.next().getKey());
+
+        // One more key moves everything to the HashMap.
+        assertNull(map.put("k" + MAX, MAX));
+        assertEquals(MAX + 1, map.size());
+        assertEquals(100, map.get("k0"));
+        for (int i = 1; i <= MAX; i++) {
+            assertEquals(i, map.get("k" + i));
+        }
+        assertFalse(map.containsKey("k" + (MAX + 1)));
+
+        // And stays there when it shrinks again.
+        map.remove("k" + MAX);
+        map.remove("k0");
+        assertEquals(MAX - 1, map.size());
+        assertNull(map.get("k0"));
+        assertEquals(MAX - 1, map.get("k" + (MAX - 1)));
+    }
+
+    @Test
+    void growsArrays() {
+        final CompactMap map = new CompactMap(1);
+        for (int i = 0; i < MAX; i++) {
+            map.put("k" + i, i);
+        }
+        assertEquals(MAX, map.size());
+        for (int i = 0; i < MAX; i++) {
+            assertEquals(i, map.get("k" + i));
+        }
+    }
+
+    @Test
+    void iteratorFailsAfterSwitch() {
+        final CompactMap map = create(MAX);
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        it.next();
+        map.put("k" + MAX, MAX);
+
+        // The arrays are now empty; this must not look like the end of the iteration.
+        assertTrue(it.hasNext());
+        assertThrows(ConcurrentModificationException.class, it::next);
+        assertThrows(ConcurrentModificationException.class, it::remove);
+    }
+
+    @Test
+    void iteratorFailsAfterSwitchWhenExhausted() {
+        final CompactMap map = create(MAX);
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        for (int i = 0; i < MAX; i++) {
+            it.next();
+        }
+        map.put("k" + MAX, MAX);
+
+        assertTrue(it.hasNext());
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void iteratorFailsAfterPut() {
+        final CompactMap map = create(2);
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        it.next();
+        map.put("x", 1);
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void iteratorFailsAfterClearInHashMap() {
+        final CompactMap map = create(MAX + 1);
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        it.next();
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void removeViaIterator() {
+        removeEvenViaIterator(create(MAX));
+    }
+
+    @Test
+    void removeViaIteratorInHashMap() {
+        removeEvenViaIterator(create(MAX * 2));
+    }
+
+    private void removeEvenViaIterator(final CompactMap map) {
+        final int count = map.size();
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+
+        int seen = 0;
+        while (it.hasNext()) {
+            final Map.Entry<String, Object> entry = it.next();
+            seen++;
+            if ((int) entry.getValue() % 2 == 0) {
+                it.remove();
+                assertThrows(IllegalStateException.class, it::remove);
+            }
+        }
+        assertEquals(count, seen);
+        assertEquals(count / 2, map.size());
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                assertFalse(map.containsKey("k" + i));
+            } else {
+                assertEquals(i, map.get("k" + i));
+            }
+        }
+    }
+
+    @Test
+    void removeAllViaIterator() {
+        final CompactMap map = create(MAX);
+        final Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertTrue(map.isEmpty());
+
+        // Still usable, and still in array mode.
+        map.put("a", 1);
+        assertEquals(1, map.get("a"));
+    }
+
+    @Test
+    void setValueViaEntry() {
+        final CompactMap map = create(3);
+        for (final Map.Entry<String, Object> entry : map.entrySet()) {
+            entry.setValue((int) entry.getValue() * 10);
+        }
+        assertEquals(0, map.get("k0"));
+        assertEquals(10, map.get("k1"));
+        assertEquals(20, map.get("k2"));
+    }
+}
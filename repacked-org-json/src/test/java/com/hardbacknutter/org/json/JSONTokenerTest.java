@@ -0,0 +1,219 @@
+/*
+ * @Copyright 2018-2024 HardBackNutter
+ * @License GNU General Public License
+ *
+ * This file is part of NeverTooManyBooks.
+ *
+ * NeverTooManyBooks is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * NeverTooManyBooks is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with NeverTooManyBooks. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.hardbacknutter.org.json;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JSONTokenerTest {
+
+    /** Larger than the internal buffer of the tokenizer. */
+    private static final int LARGE = 20_000;
+
+    private static Object parse(final String s) {
+        return new JSONTokener(s).nextValue();
+    }
+
+    private static void assertNumber(final Object expected,
+                                     final String s) {
+        final Object value = parse(s);
+        assertEquals(expected.getClass(), value.getClass(), s);
+        assertEquals(expected, value, s);
+    }
+
+    @Test
+    void integers() {
+        assertNumber(0, "0");
+        assertNumber(7, "7");
+        assertNumber(-7, "-7");
+        assertNumber(Integer.MAX_VALUE, "2147483647");
+        assertNumber(Integer.MIN_VALUE, "-2147483648");
+        assertNumber(2147483648L, "2147483648");
+        assertNumber(-2147483649L, "-2147483649");
+    }
+
+    @Test
+    void longFastPathBoundary() {
+        // 18 characters: still parsed directly as a long
+        assertNumber(999_999_999_999_999_999L, "999999999999999999");
+        assertNumber(-99_999_999_999_999_999L, "-99999999999999999");
+        // 19 and 20 characters: through BigInteger, but narrowed to a Long
+        assertNumber(Long.MAX_VALUE, "9223372036854775807");
+        assertNumber(Long.MIN_VALUE, "-9223372036854775808");
+        assertNumber(1_000_000_000_000_000_000L, "1000000000000000000");
+        // too large for a long
+        assertNumber(new BigInteger("9223372036854775808"), "9223372036854775808");
+        assertNumber(new BigInteger("-9223372036854775809"), "-9223372036854775809");
+        assertNumber(new BigInteger("123456789012345678901234567890"),
+                     "123456789012345678901234567890");
+    }
+
+    @Test
+    void decimals() {
+        assertNumber(-0.0d, "-0");
+        assertNumber(new BigDecimal("0.5"), "0.5");
+        assertNumber(new BigDecimal("-1.50"), "-1.50");
+        assertNumber(new BigDecimal("1e3"), "1e3");
+        assertNumber(new BigDecimal("1E-3"), "1E-3");
+    }
+
+    @Test
+    void notNumbers() {
+        // Leading zeros, stray signs and the like are kept as text
+        assertEquals("01", parse("01"));
+        assertEquals("-01", parse("-01"));
+        assertEquals("-", parse("-"));
+        assertEquals("1-2", parse("1-2"));
+        assertEquals("0x10", parse("0x10"));
+        assertEquals("+1", parse("+1"));
+        assertEquals("12a", parse("12a"));
+    }
+
+    @Test
+    void numbersInObject() {
+        final JSONObject o = new JSONObject(
+                "{\"a\":1,\"b\":-2147483649,\"c\":9223372036854775808,\"d\":1.5}");
+        assertEquals(1, o.get("a"));
+        assertEquals(-2147483649L, o.get("b"));
+        assertEquals(new BigInteger("9223372036854775808"), o.get("c"));
+        assertEquals(new BigDecimal("1.5"), o.get("d"));
+    }
+
+    @Test
+    void readerDeliveringOneCharacterAtATime() {
+        final String json = "{\"name\":\"abc\\\"def\",\"n\":123456789012,"
+                            + "\"list\":[1,-2,3.5,true,null],\"s\":\"x\"}";
+        final JSONObject o = new JSONObject(new JSONTokener(new TrickleReader(json)));
+        assertEquals("abc\"def", o.getString("name"));
+        assertEquals(123456789012L, o.get("n"));
+        assertEquals(5, o.getJSONArray("list").length());
+        assertEquals(-2, o.getJSONArray("list").get(1));
+        assertEquals("x", o.getString("s"));
+    }
+
+    @Test
+    void valuesAcrossBufferRefills() {
+        // Numbers and strings of varying length, so they straddle every buffer boundary
+        final StringBuilder sb = new StringBuilder("[");
+        int i = 0;
+        while (sb.length() < LARGE) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(Long.MAX_VALUE - i).append(",\"s").append(i).append('"');
+            i++;
+        }
+        sb.append(']');
+        final String json = sb.toString();
+
+        final JSONArray fromReader = new JSONArray(new JSONTokener(new StringReader(json)));
+        final JSONArray fromString = new JSONArray(json);
+        assertEquals(i * 2, fromReader.length());
+        for (int j = 0; j < i; j++) {
+            assertEquals(Long.MAX_VALUE - j, fromReader.get(j * 2));
+            assertEquals("s" + j, fromReader.get(j * 2 + 1));
+        }
+        assertEquals(fromString.toString(), fromReader.toString());
+    }
+
+    @Test
+    void stringLargerThanBuffer() {
+        final String text = "x".repeat(LARGE) + "\\n" + "y".repeat(LARGE);
+        final JSONTokener tokener = new JSONTokener(new StringReader("\"" + text + "\" 42"));
+        assertEquals("x".repeat(LARGE) + "\n" + "y".repeat(LARGE), tokener.nextValue());
+        assertEquals(42, tokener.nextValue());
+        assertEquals(0, tokener.nextClean());
+        assertTrue(tokener.end());
+    }
+
+    @Test
+    void unterminatedString() {
+        final JSONTokener tokener = new JSONTokener(new StringReader("\"" + "x".repeat(LARGE)));
+        assertThrows(JSONException.class, tokener::nextValue);
+    }
+
+    @Test
+    void skipToAcrossBufferRefills() {
+        final String json = "a" + "b".repeat(LARGE) + "c" + "d";
+
+        // Found: positioned on the requested character
+        JSONTokener tokener = new JSONTokener(new StringReader(json));
+        assertEquals('c', tokener.skipTo('c'));
+        assertEquals('c', tokener.next());
+        assertEquals('d', tokener.next());
+
+        // Not found: back at the start, even though the buffer was refilled
+        tokener = new JSONTokener(new StringReader(json));
+        assertEquals('a', tokener.next());
+        assertEquals(0, tokener.skipTo('z'));
+        assertEquals('b', tokener.next());
+        assertEquals(" at 2 [character 3 line 1]", tokener.toString());
+    }
+
+    @Test
+    void positions() {
+        final String json = "{\n\"a\": 1,\r\n\"b\": [2, 3]\n}";
+        final JSONTokener fromString = new JSONTokener(json);
+        final JSONTokener fromReader = new JSONTokener(new TrickleReader(json));
+        fromString.nextValue();
+        fromReader.nextValue();
+        assertEquals(fromString.toString(), fromReader.toString());
+    }
+
+    /**
+     * Returns a single character per read, like a slow stream.
+     */
+    private static final class TrickleReader
+            extends Reader {
+
+        private final String source;
+        private int position;
+
+        TrickleReader(final String source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read(final char[] cbuf,
+                        final int off,
+                        final int len) {
+            if (position >= source.length()) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            cbuf[off] = source.charAt(position++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}